@@ -0,0 +1,112 @@
+package geometries;
+
+import primitives.Point;
+import primitives.Vector;
+
+/**
+ * Axis-aligned bounding box of a bounded geometry - used to skip ray intersection
+ * tests of geometries the ray cannot hit.
+ *
+ * @param minX smallest X coordinate
+ * @param minY smallest Y coordinate
+ * @param minZ smallest Z coordinate
+ * @param maxX largest X coordinate
+ * @param maxY largest Y coordinate
+ * @param maxZ largest Z coordinate
+ */
+public record BoundingBox(double minX, double minY, double minZ, double maxX, double maxY, double maxZ) {
+    /**
+     * Creates the smallest box holding a set of points
+     *
+     * @param points the points
+     * @return the box
+     */
+    public static BoundingBox of(Point... points) {
+        double minX = Double.POSITIVE_INFINITY, minY = Double.POSITIVE_INFINITY, minZ = Double.POSITIVE_INFINITY;
+        double maxX = Double.NEGATIVE_INFINITY, maxY = Double.NEGATIVE_INFINITY, maxZ = Double.NEGATIVE_INFINITY;
+        for (Point p : points) {
+            minX = Math.min(minX, p.getX());
+            minY = Math.min(minY, p.getY());
+            minZ = Math.min(minZ, p.getZ());
+            maxX = Math.max(maxX, p.getX());
+            maxY = Math.max(maxY, p.getY());
+            maxZ = Math.max(maxZ, p.getZ());
+        }
+        return new BoundingBox(minX, minY, minZ, maxX, maxY, maxZ);
+    }
+
+    /**
+     * Smallest box holding this box and another one
+     *
+     * @param other the other box
+     * @return the united box
+     */
+    public BoundingBox union(BoundingBox other) {
+        return new BoundingBox(Math.min(minX, other.minX), Math.min(minY, other.minY), Math.min(minZ, other.minZ),
+                Math.max(maxX, other.maxX), Math.max(maxY, other.maxY), Math.max(maxZ, other.maxZ));
+    }
+
+    /**
+     * Surface area of the box - the relative probability of a random ray hitting it
+     *
+     * @return the area
+     */
+    public double surfaceArea() {
+        double dx = maxX - minX, dy = maxY - minY, dz = maxZ - minZ;
+        return 2 * (dx * dy + dy * dz + dz * dx);
+    }
+
+    /**
+     * Checks whether this box and another one overlap, touching boxes included
+     *
+     * @param other the other box
+     * @return true if the boxes have a common point
+     */
+    public boolean intersects(BoundingBox other) {
+        return minX <= other.maxX && other.minX <= maxX && minY <= other.maxY && other.minY <= maxY
+                && minZ <= other.maxZ && other.minZ <= maxZ;
+    }
+
+    /**
+     * Checks whether another box is inside this box
+     *
+     * @param other the other box
+     * @return true if every point of the other box is in this box
+     */
+    public boolean contains(BoundingBox other) {
+        return minX <= other.minX && other.maxX <= maxX && minY <= other.minY && other.maxY <= maxY
+                && minZ <= other.minZ && other.maxZ <= maxZ;
+    }
+
+    /**
+     * Box of the part of a ray segment inside this box
+     *
+     * @param origin    the start of the segment
+     * @param direction the unit direction of the segment
+     * @param length    the length of the segment, may be infinite
+     * @return the box of the clipped segment, null if the segment is outside the box
+     */
+    public BoundingBox clip(Point origin, Vector direction, double length) {
+        double[] o = {origin.getX(), origin.getY(), origin.getZ()};
+        double[] d = {direction.getX(), direction.getY(), direction.getZ()};
+        double[] min = {minX, minY, minZ}, max = {maxX, maxY, maxZ};
+        double near = 0, far = length;
+        for (int axis = 0; axis < 3; ++axis) {
+            if (d[axis] == 0) {
+                if (o[axis] < min[axis] || o[axis] > max[axis]) return null;
+                continue;
+            }
+            double t1 = (min[axis] - o[axis]) / d[axis], t2 = (max[axis] - o[axis]) / d[axis];
+            near = Math.max(near, Math.min(t1, t2));
+            far = Math.min(far, Math.max(t1, t2));
+            if (near > far) return null;
+        }
+        double[] from = new double[3], to = new double[3];
+        for (int axis = 0; axis < 3; ++axis) {
+            double a = o[axis] + d[axis] * near, b = o[axis] + d[axis] * far;
+            from[axis] = Math.min(a, b);
+            to[axis] = Math.max(a, b);
+        }
+        return new BoundingBox(from[0], from[1], from[2], to[0], to[1], to[2]);
+    }
+}
@@ -0,0 +1,688 @@
+package geometries;
+
+import primitives.Point;
+import primitives.Ray;
+import primitives.Vector;
+
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
+
+/**
+ * Bounding volume hierarchy - an aggregate of geometries that skips all the
+ * geometries whose bounding boxes a ray misses.
+ * <p>
+ * The tree is flat: node i keeps two ints in {@link #nodes} and its box as six
+ * doubles (min x, y, z, max x, y, z) in {@link #bounds}. A leaf keeps the index of
+ * its first geometry in the geometries array and their (positive) count; an inner
+ * node keeps the index of its first child (the second child follows it) and
+ * -(split axis + 1). Children always come after their parent. The tree is built
+ * by the surface area heuristic (SAH) over binned centroids.
+ * <p>
+ * Nested geometries collections are flattened into the hierarchy. Unbounded
+ * geometries (planes, tubes) have no box, so they are kept aside and tested with
+ * every ray.
+ * <p>
+ * When geometries move - e.g. between the frames of an animation - the hierarchy is
+ * refitted instead of built again, see {@link #refit()}: the tree stays, and the node
+ * boxes are recomputed bottom-up. The SAH cost of the refitted tree is compared with
+ * its cost when it was built, and the tree is built again only once it has degraded
+ * past a threshold. A hierarchy that other renders may still trace is not refitted in
+ * place: {@link #refitted()} refits a copy, and the hierarchy keeps its tree and boxes.
+ */
+public class BoundingVolumeHierarchy extends Intersectable {
+    /** Largest number of geometries in a leaf that is never split */
+    private static final int MIN_SPLIT = 4;
+    /** Largest number of geometries in a leaf */
+    private static final int MAX_LEAF = 16;
+    /** Number of centroid bins tried along every axis */
+    private static final int BINS = 16;
+    /** Cost of visiting an inner node relative to a geometry intersection test */
+    private static final double TRAVERSAL_COST = 0.5;
+    /** Padding of the geometry boxes, so hits found on a box face are never culled by rounding */
+    private static final double PADDING = 1e-6;
+    /** SAH cost of a refitted tree relative to its cost when built, beyond which it is built again */
+    private static final double REBUILD_RATIO = 1.3;
+
+    /** The bounded geometries in leaf order */
+    private Intersectable[] geometries;
+    /** The unbounded geometries */
+    private final Intersectable[] unbounded;
+    /** Two ints per node - first geometry and count, or first child and -(axis + 1) */
+    private IntBuffer nodes;
+    /** Six doubles per node - the node box */
+    private DoubleBuffer bounds;
+    /** SAH cost of the tree when it was built */
+    private double builtCost;
+
+    /**
+     * Builds a hierarchy of geometries
+     *
+     * @param geometries the geometries, nested collections are flattened
+     */
+    public BoundingVolumeHierarchy(Intersectable... geometries) {
+        List<Intersectable> flat = new ArrayList<>();
+        new Geometries(geometries).flatten(flat);
+        List<Intersectable> bounded = new ArrayList<>(flat.size());
+        List<BoundingBox> boxes = new ArrayList<>(flat.size());
+        List<Intersectable> unbounded = new ArrayList<>();
+        for (Intersectable geometry : flat) {
+            BoundingBox box = geometry.getBoundingBox();
+            if (box == null) {
+                unbounded.add(geometry);
+            } else {
+                bounded.add(geometry);
+                boxes.add(box);
+            }
+        }
+        this.unbounded = unbounded.toArray(new Intersectable[0]);
+        build(bounded, boxes);
+    }
+
+    /**
+     * Builds the tree of the bounded geometries
+     *
+     * @param bounded the bounded geometries
+     * @param boxes   their boxes
+     */
+    private void build(List<Intersectable> bounded, List<BoundingBox> boxes) {
+        Builder builder = new Builder(boxes);
+        builder.build();
+        geometries = new Intersectable[bounded.size()];
+        for (int i = 0; i < geometries.length; ++i) geometries[i] = bounded.get(builder.order[i]);
+        nodes = IntBuffer.wrap(builder.nodes, 0, 2 * builder.nodeCount).slice();
+        bounds = DoubleBuffer.wrap(builder.bounds, 0, 6 * builder.nodeCount).slice();
+        builtCost = cost();
+    }
+
+    /**
+     * The hierarchy of a geometries collection - the collection itself if it holds just
+     * a hierarchy, otherwise a new hierarchy of its geometries
+     *
+     * @param geometries the collection
+     * @return the hierarchy
+     */
+    public static BoundingVolumeHierarchy of(Geometries geometries) {
+        List<Intersectable> flat = new ArrayList<>();
+        geometries.flatten(flat);
+        return flat.size() == 1 && flat.get(0) instanceof BoundingVolumeHierarchy hierarchy ? hierarchy
+                : new BoundingVolumeHierarchy(geometries);
+    }
+
+    /**
+     * Creates a hierarchy from a tree built before, e.g. mapped from a compiled scene file
+     *
+     * @param geometries the bounded geometries in leaf order
+     * @param unbounded  the unbounded geometries
+     * @param nodes      two ints per node
+     * @param bounds     six doubles per node
+     */
+    BoundingVolumeHierarchy(Intersectable[] geometries, Intersectable[] unbounded, IntBuffer nodes,
+                            DoubleBuffer bounds) {
+        if (nodes.limit() % 2 != 0 || bounds.limit() != nodes.limit() * 3)
+            throw new IllegalArgumentException("Inconsistent hierarchy nodes and bounds");
+        this.geometries = geometries;
+        this.unbounded = unbounded;
+        this.nodes = nodes;
+        this.bounds = bounds;
+        this.builtCost = cost();
+    }
+
+    /**
+     * Copy of a hierarchy sharing its geometries and its tree - the node boxes are
+     * copied, as refitting writes them, while refitting replaces the geometries array and
+     * the nodes when it builds the tree again, and never writes into them
+     *
+     * @param hierarchy the hierarchy to copy
+     */
+    private BoundingVolumeHierarchy(BoundingVolumeHierarchy hierarchy) {
+        geometries = hierarchy.geometries;
+        unbounded = hierarchy.unbounded;
+        nodes = hierarchy.nodes;
+        double[] copy = new double[hierarchy.bounds.limit()];
+        hierarchy.bounds.get(0, copy);
+        bounds = DoubleBuffer.wrap(copy);
+        builtCost = hierarchy.builtCost;
+    }
+
+    /**
+     * The hierarchy after its bounded geometries moved, made by refitting a copy of
+     * it, see {@link #refit()}. This hierarchy keeps its tree and node boxes, so a render
+     * that still traces it is not disturbed.
+     *
+     * @return the refitted hierarchy
+     * @throws IllegalStateException if a bounded geometry has become unbounded
+     */
+    public BoundingVolumeHierarchy refitted() {
+        BoundingVolumeHierarchy hierarchy = new BoundingVolumeHierarchy(this);
+        hierarchy.refit();
+        return hierarchy;
+    }
+
+    /**
+     * Updates the hierarchy after its bounded geometries moved or changed their shape -
+     * no geometry may be added or removed. The node boxes are recomputed bottom-up, a
+     * leaf from the boxes of its geometries and an inner node from its children. If the
+     * SAH cost of the refitted tree exceeds its cost when it was built by more than 30%,
+     * the tree is built again.
+     * <p>
+     * The hierarchy must not be used by a render while it is refitted - see
+     * {@link #refitted()} for a hierarchy that may be.
+     *
+     * @return true if the tree was built again, false if it was refitted
+     * @throws IllegalStateException if a bounded geometry has become unbounded
+     */
+    public boolean refit() {
+        if (geometries.length == 0) return false;
+        // a hierarchy mapped from a compiled scene file has read-only boxes
+        if (bounds.isReadOnly()) {
+            double[] copy = new double[bounds.limit()];
+            bounds.get(0, copy);
+            bounds = DoubleBuffer.wrap(copy);
+        }
+        // children come after their parents, so a reverse pass visits the children first
+        for (int node = nodeCount() - 1; node >= 0; --node) {
+            int first = nodes.get(2 * node), count = nodes.get(2 * node + 1);
+            int b = 6 * node;
+            if (count > 0) {
+                for (int a = 0; a < 3; ++a) {
+                    bounds.put(b + a, Double.POSITIVE_INFINITY);
+                    bounds.put(b + a + 3, Double.NEGATIVE_INFINITY);
+                }
+                for (int i = first; i < first + count; ++i) {
+                    BoundingBox box = geometries[i].getBoundingBox();
+                    if (box == null) throw new IllegalStateException("A bounded geometry became unbounded");
+                    bounds.put(b, Math.min(bounds.get(b), box.minX() - PADDING));
+                    bounds.put(b + 1, Math.min(bounds.get(b + 1), box.minY() - PADDING));
+                    bounds.put(b + 2, Math.min(bounds.get(b + 2), box.minZ() - PADDING));
+                    bounds.put(b + 3, Math.max(bounds.get(b + 3), box.maxX() + PADDING));
+                    bounds.put(b + 4, Math.max(bounds.get(b + 4), box.maxY() + PADDING));
+                    bounds.put(b + 5, Math.max(bounds.get(b + 5), box.maxZ() + PADDING));
+                }
+            } else {
+                int left = 6 * first, right = left + 6;
+                for (int a = 0; a < 3; ++a) {
+                    bounds.put(b + a, Math.min(bounds.get(left + a), bounds.get(right + a)));
+                    bounds.put(b + a + 3, Math.max(bounds.get(left + a + 3), bounds.get(right + a + 3)));
+                }
+            }
+        }
+        if (cost() <= REBUILD_RATIO * builtCost) return false;
+
+        List<Intersectable> bounded = List.of(geometries);
+        List<BoundingBox> boxes = new ArrayList<>(geometries.length);
+        for (Intersectable geometry : geometries) boxes.add(geometry.getBoundingBox());
+        build(bounded, boxes);
+        return true;
+    }
+
+    /**
+     * SAH cost of the tree - the expected cost of a ray through the root box: the
+     * traversal cost of every inner node and the intersection cost of the geometries of
+     * every leaf, weighted by the probability of the ray to enter the node, which is
+     * the ratio of the node and root box areas
+     *
+     * @return the cost, 0 if there are no bounded geometries
+     */
+    public double cost() {
+        if (geometries.length == 0) return 0;
+        double cost = 0;
+        for (int node = 0; node < nodeCount(); ++node) {
+            int count = nodes.get(2 * node + 1);
+            cost += (count > 0 ? count : TRAVERSAL_COST) * area(node);
+        }
+        double root = area(0);
+        return root > 0 ? cost / root : cost;
+    }
+
+    /**
+     * Surface area of a node box
+     *
+     * @param node the node index
+     * @return the area
+     */
+    private double area(int node) {
+        int b = 6 * node;
+        double dx = bounds.get(b + 3) - bounds.get(b), dy = bounds.get(b + 4) - bounds.get(b + 1),
+                dz = bounds.get(b + 5) - bounds.get(b + 2);
+        return 2 * (dx * dy + dy * dz + dz * dx);
+    }
+
+    /**
+     * Number of tree nodes
+     *
+     * @return the node count, 0 if there are no bounded geometries
+     */
+    public int nodeCount() {
+        return geometries.length == 0 ? 0 : nodes.limit() / 2;
+    }
+
+    /**
+     * The bounded geometries, in leaf order
+     *
+     * @return read-only view of the geometries
+     */
+    public List<Intersectable> getGeometries() {
+        return List.of(geometries);
+    }
+
+    /**
+     * The unbounded geometries, tested with every ray
+     *
+     * @return read-only view of the geometries
+     */
+    public List<Intersectable> getUnbounded() {
+        return List.of(unbounded);
+    }
+
+    /**
+     * The tree nodes - two ints per node
+     *
+     * @return read-only view of the nodes
+     */
+    IntBuffer nodes() {
+        return nodes.asReadOnlyBuffer();
+    }
+
+    /**
+     * The node boxes - six doubles per node
+     *
+     * @return read-only view of the boxes
+     */
+    DoubleBuffer bounds() {
+        return bounds.asReadOnlyBuffer();
+    }
+
+    /**
+     * The box of the bounded geometries - the unbounded ones are ignored
+     *
+     * @return the box, null if there are no bounded geometries
+     */
+    public BoundingBox getBoundedBox() {
+        if (geometries.length == 0) return null;
+        return new BoundingBox(bounds.get(0), bounds.get(1), bounds.get(2), bounds.get(3), bounds.get(4),
+                bounds.get(5));
+    }
+
+    @Override
+    public BoundingBox getBoundingBox() {
+        return unbounded.length > 0 ? null : getBoundedBox();
+    }
+
+    @Override
+    protected List<Intersection> calculateIntersectionsHelper(Ray ray) {
+        List<Intersection> result = null;
+        for (Intersectable geometry : unbounded)
+            result = collect(result, geometry.calculateIntersections(ray));
+        if (geometries.length == 0) return result;
+
+        RaySlabs slabs = new RaySlabs(ray);
+        int[] stack = new int[64];
+        int top = 0;
+        stack[top++] = 0;
+        while (top > 0) {
+            int node = stack[--top];
+            if (slabs.entry(bounds, node) == Double.POSITIVE_INFINITY) continue;
+            int first = nodes.get(2 * node), count = nodes.get(2 * node + 1);
+            if (count > 0) {
+                for (int i = first; i < first + count; ++i)
+                    result = collect(result, geometries[i].calculateIntersections(ray));
+            } else {
+                if (top + 2 > stack.length) stack = Arrays.copyOf(stack, 2 * stack.length);
+                stack[top++] = first;
+                stack[top++] = first + 1;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Finds the closest intersection by an ordered traversal: the child nearer to
+     * the ray origin is visited first, and nodes whose box is entered beyond the
+     * closest hit found so far are skipped
+     */
+    @Override
+    public Intersection calculateClosestIntersection(Ray ray) {
+        Point origin = ray.getOrigin();
+        Intersection closest = null;
+        double minDistance = Double.POSITIVE_INFINITY;
+        for (Intersectable geometry : unbounded) {
+            Intersection intersection = geometry.calculateClosestIntersection(ray);
+            if (intersection == null) continue;
+            double distance = origin.distance(intersection.point);
+            if (distance < minDistance) {
+                closest = intersection;
+                minDistance = distance;
+            }
+        }
+        if (geometries.length == 0) return closest;
+
+        RaySlabs slabs = new RaySlabs(ray);
+        int[] stack = new int[64];
+        int top = 0;
+        stack[top++] = 0;
+        while (top > 0) {
+            int node = stack[--top];
+            double entry = slabs.entry(bounds, node);
+            if (entry == Double.POSITIVE_INFINITY || entry > minDistance) continue;
+            int first = nodes.get(2 * node), count = nodes.get(2 * node + 1);
+            if (count > 0) {
+                for (int i = first; i < first + count; ++i) {
+                    Intersection intersection = geometries[i].calculateClosestIntersection(ray);
+                    if (intersection == null) continue;
+                    double distance = origin.distance(intersection.point);
+                    if (distance < minDistance) {
+                        closest = intersection;
+                        minDistance = distance;
+                    }
+                }
+            } else {
+                if (top + 2 > stack.length) stack = Arrays.copyOf(stack, 2 * stack.length);
+                // push the far child first so that the near child is visited first
+                boolean leftFirst = slabs.positive(-count - 1);
+                stack[top++] = leftFirst ? first + 1 : first;
+                stack[top++] = leftFirst ? first : first + 1;
+            }
+        }
+        return closest;
+    }
+
+    /**
+     * Appends intersections to a result list
+     *
+     * @param result        the list so far, null if empty
+     * @param intersections the new intersections, may be null
+     * @return the list
+     */
+    private static List<Intersection> collect(List<Intersection> result, List<Intersection> intersections) {
+        if (intersections == null || intersections.isEmpty()) return result;
+        if (result == null) result = new LinkedList<>();
+        result.addAll(intersections);
+        return result;
+    }
+
+    /**
+     * Ray data of the box (slab) tests
+     */
+    private static final class RaySlabs {
+        /** Ray origin coordinates */
+        private final double ox, oy, oz;
+        /** Inverse of the ray direction coordinates */
+        private final double ix, iy, iz;
+
+        /**
+         * Prepares a ray
+         *
+         * @param ray the ray
+         */
+        RaySlabs(Ray ray) {
+            Point o = ray.getOrigin();
+            Vector d = ray.getDirection();
+            ox = o.getX();
+            oy = o.getY();
+            oz = o.getZ();
+            ix = 1 / d.getX();
+            iy = 1 / d.getY();
+            iz = 1 / d.getZ();
+        }
+
+        /**
+         * Checks whether the ray goes in the positive direction of an axis
+         *
+         * @param axis 0, 1 or 2
+         * @return true for a positive direction
+         */
+        boolean positive(int axis) {
+            return (axis == 0 ? ix : axis == 1 ? iy : iz) > 0;
+        }
+
+        /**
+         * Distance along the ray where it enters a node box
+         *
+         * @param bounds the node boxes
+         * @param node   the node index
+         * @return the entry distance (0 if the origin is inside), infinity if the ray misses the box
+         */
+        double entry(DoubleBuffer bounds, int node) {
+            int b = 6 * node;
+            double near = 0, far = Double.POSITIVE_INFINITY;
+            // X slab
+            double t1 = (bounds.get(b) - ox) * ix, t2 = (bounds.get(b + 3) - ox) * ix;
+            if (Double.isNaN(t1) || Double.isNaN(t2)) {
+                if (ox < bounds.get(b) || ox > bounds.get(b + 3)) return Double.POSITIVE_INFINITY;
+            } else {
+                near = Math.max(near, Math.min(t1, t2));
+                far = Math.min(far, Math.max(t1, t2));
+            }
+            // Y slab
+            t1 = (bounds.get(b + 1) - oy) * iy;
+            t2 = (bounds.get(b + 4) - oy) * iy;
+            if (Double.isNaN(t1) || Double.isNaN(t2)) {
+                if (oy < bounds.get(b + 1) || oy > bounds.get(b + 4)) return Double.POSITIVE_INFINITY;
+            } else {
+                near = Math.max(near, Math.min(t1, t2));
+                far = Math.min(far, Math.max(t1, t2));
+            }
+            // Z slab
+            t1 = (bounds.get(b + 2) - oz) * iz;
+            t2 = (bounds.get(b + 5) - oz) * iz;
+            if (Double.isNaN(t1) || Double.isNaN(t2)) {
+                if (oz < bounds.get(b + 2) || oz > bounds.get(b + 5)) return Double.POSITIVE_INFINITY;
+            } else {
+                near = Math.max(near, Math.min(t1, t2));
+                far = Math.min(far, Math.max(t1, t2));
+            }
+            return near <= far ? near : Double.POSITIVE_INFINITY;
+        }
+    }
+
+    /**
+     * Binned SAH builder of the flat tree
+     */
+    private static final class Builder {
+        /** Number of geometries */
+        private final int count;
+        /** Padded geometry boxes - six doubles per geometry, kept in the order of {@link #order} */
+        private final double[] boxes;
+        /** Geometry box centers - three doubles per geometry, kept in the order of {@link #order} */
+        private final double[] centroids;
+        /** Geometry indexes, reordered into leaf order */
+        private final int[] order;
+        /** The tree nodes and node boxes */
+        private final int[] nodes;
+        private final double[] bounds;
+        /** Number of nodes allocated */
+        private int nodeCount = 0;
+        /** Scratch space of the split search - geometry count and box of every bin, areas of the right sides */
+        private final int[] binCounts = new int[BINS];
+        private final double[] binBoxes = new double[6 * BINS], rightAreas = new double[BINS], sweep = new double[6];
+        /** Scratch space of the split search - the node box and the box of the geometry centers */
+        private final double[] box = new double[6], centerBox = new double[6];
+
+        /**
+         * Prepares the geometry boxes
+         *
+         * @param geometryBoxes the boxes of the geometries
+         */
+        Builder(List<BoundingBox> geometryBoxes) {
+            count = geometryBoxes.size();
+            boxes = new double[6 * count];
+            centroids = new double[3 * count];
+            order = new int[count];
+            for (int i = 0; i < count; ++i) {
+                BoundingBox box = geometryBoxes.get(i);
+                boxes[6 * i] = box.minX() - PADDING;
+                boxes[6 * i + 1] = box.minY() - PADDING;
+                boxes[6 * i + 2] = box.minZ() - PADDING;
+                boxes[6 * i + 3] = box.maxX() + PADDING;
+                boxes[6 * i + 4] = box.maxY() + PADDING;
+                boxes[6 * i + 5] = box.maxZ() + PADDING;
+                for (int axis = 0; axis < 3; ++axis)
+                    centroids[3 * i + axis] = (boxes[6 * i + axis] + boxes[6 * i + axis + 3]) / 2;
+                order[i] = i;
+            }
+            int maxNodes = Math.max(1, 2 * count - 1);
+            nodes = new int[2 * maxNodes];
+            bounds = new double[6 * maxNodes];
+        }
+
+        /**
+         * Builds the tree - with an explicit work stack, since SAH splits may be
+         * unbalanced and deep
+         */
+        void build() {
+            if (count == 0) return;
+            nodeCount = 1;
+            int[] work = new int[96];
+            int top = 0;
+            work[top++] = 0;
+            work[top++] = 0;
+            work[top++] = count;
+            while (top > 0) {
+                int end = work[--top], start = work[--top], node = work[--top];
+                int split = split(node, start, end);
+                if (split < 0) continue;
+                int left = nodeCount;
+                nodeCount += 2;
+                nodes[2 * node] = left;
+                if (top + 6 > work.length) work = Arrays.copyOf(work, 2 * work.length);
+                work[top++] = left;
+                work[top++] = start;
+                work[top++] = split;
+                work[top++] = left + 1;
+                work[top++] = split;
+                work[top++] = end;
+            }
+        }
+
+        /**
+         * Computes the box of a node and splits its geometries if that pays off
+         *
+         * @param node  the node index
+         * @param start first geometry of the node in the order array
+         * @param end   end of the node geometries
+         * @return the index in the order array where the second child starts, or -1 for a leaf
+         */
+        private int split(int node, int start, int end) {
+            emptyBox(box, 0);
+            emptyBox(centerBox, 0);
+            for (int k = start; k < end; ++k) {
+                for (int axis = 0; axis < 3; ++axis) {
+                    box[axis] = Math.min(box[axis], boxes[6 * k + axis]);
+                    box[axis + 3] = Math.max(box[axis + 3], boxes[6 * k + axis + 3]);
+                    centerBox[axis] = Math.min(centerBox[axis], centroids[3 * k + axis]);
+                    centerBox[axis + 3] = Math.max(centerBox[axis + 3], centroids[3 * k + axis]);
+                }
+            }
+            System.arraycopy(box, 0, bounds, 6 * node, 6);
+            int size = end - start;
+            nodes[2 * node] = start;
+            nodes[2 * node + 1] = size;
+            if (size <= MIN_SPLIT) return -1;
+
+            // best binned split along the axis of the largest center spread
+            int axis = 0;
+            for (int a = 1; a < 3; ++a)
+                if (centerBox[a + 3] - centerBox[a] > centerBox[axis + 3] - centerBox[axis]) axis = a;
+            double min = centerBox[axis], extent = centerBox[axis + 3] - min;
+            double bestCost = Double.POSITIVE_INFINITY;
+            int bestBin = -1;
+            if (extent > 0) {
+                Arrays.fill(binCounts, 0);
+                for (int b = 0; b < BINS; ++b) emptyBox(binBoxes, b);
+                for (int k = start; k < end; ++k) {
+                    int b = bin(centroids[3 * k + axis], min, extent);
+                    ++binCounts[b];
+                    for (int a = 0; a < 3; ++a) {
+                        binBoxes[6 * b + a] = Math.min(binBoxes[6 * b + a], boxes[6 * k + a]);
+                        binBoxes[6 * b + a + 3] = Math.max(binBoxes[6 * b + a + 3], boxes[6 * k + a + 3]);
+                    }
+                }
+                // sweep from the right, then from the left
+                emptyBox(sweep, 0);
+                for (int b = BINS - 1; b > 0; --b) {
+                    unite(sweep, binBoxes, b);
+                    rightAreas[b] = area(sweep);
+                }
+                emptyBox(sweep, 0);
+                int leftCount = 0;
+                for (int b = 0; b < BINS - 1; ++b) {
+                    unite(sweep, binBoxes, b);
+                    leftCount += binCounts[b];
+                    int rightCount = size - leftCount;
+                    if (leftCount == 0 || rightCount == 0) continue;
+                    double cost = leftCount * area(sweep) + rightCount * rightAreas[b + 1];
+                    if (cost < bestCost) {
+                        bestCost = cost;
+                        bestBin = b;
+                    }
+                }
+            }
+
+            double leafCost = size;
+            double splitCost = bestBin < 0 ? Double.POSITIVE_INFINITY : TRAVERSAL_COST + bestCost / area(box);
+            if (splitCost >= leafCost && size <= MAX_LEAF) return -1;
+            if (bestBin < 0) {
+                // all the centers coincide - split by count
+                nodes[2 * node + 1] = -1;
+                return start + size / 2;
+            }
+
+            // partition the geometries by the split bin
+            int i = start, j = end - 1;
+            while (i <= j) {
+                if (bin(centroids[3 * i + axis], min, extent) <= bestBin) ++i;
+                else swap(i, j--);
+            }
+            nodes[2 * node + 1] = -(axis + 1);
+            return i;
+        }
+
+        /**
+         * Swaps two geometries of the order, with their boxes and centers
+         *
+         * @param i a position in the order
+         * @param j another position
+         */
+        private void swap(int i, int j) {
+            int t = order[i];
+            order[i] = order[j];
+            order[j] = t;
+            for (int a = 0; a < 6; ++a) {
+                double d = boxes[6 * i + a];
+                boxes[6 * i + a] = boxes[6 * j + a];
+                boxes[6 * j + a] = d;
+            }
+            for (int a = 0; a < 3; ++a) {
+                double d = centroids[3 * i + a];
+                centroids[3 * i + a] = centroids[3 * j + a];
+                centroids[3 * j + a] = d;
+            }
+        }
+
+        private static int bin(double centroid, double min, double extent) {
+            return Math.min(BINS - 1, (int) ((centroid - min) / extent * BINS));
+        }
+
+        private static void emptyBox(double[] boxes, int b) {
+            boxes[6 * b] = boxes[6 * b + 1] = boxes[6 * b + 2] = Double.POSITIVE_INFINITY;
+            boxes[6 * b + 3] = boxes[6 * b + 4] = boxes[6 * b + 5] = Double.NEGATIVE_INFINITY;
+        }
+
+        private static void unite(double[] box, double[] boxes, int b) {
+            for (int a = 0; a < 3; ++a) {
+                box[a] = Math.min(box[a], boxes[6 * b + a]);
+                box[a + 3] = Math.max(box[a + 3], boxes[6 * b + a + 3]);
+            }
+        }
+
+        private static double area(double[] box) {
+            if (box[0] > box[3]) return 0;
+            double dx = box[3] - box[0], dy = box[4] - box[1], dz = box[5] - box[2];
+            return 2 * (dx * dy + dy * dz + dz * dx);
+        }
+    }
+}
@@ -32,6 +32,32 @@ public class Cylinder extends Tube {
         this.height = height;
     }
 
+    /**
+     * Returns the height of the cylinder.
+     *
+     * @return The height along the axis.
+     */
+    public double getHeight() {
+        return height;
+    }
+
+    /**
+     * The box of the two base discs - a disc of radius r around an axis with direction d
+     * extends r*sqrt(1-d<sub>i</sub><sup>2</sup>) along every coordinate axis i.
+     */
+    @Override
+    public BoundingBox getBoundingBox() {
+        Point bottom = axisRay.getOrigin();
+        Vector d = axisRay.getDirection();
+        Point top = bottom.add(d.scale(height));
+        double ex = radius * Math.sqrt(Math.max(0, 1 - d.getX() * d.getX()));
+        double ey = radius * Math.sqrt(Math.max(0, 1 - d.getY() * d.getY()));
+        double ez = radius * Math.sqrt(Math.max(0, 1 - d.getZ() * d.getZ()));
+        return new BoundingBox(Math.min(bottom.getX(), top.getX()) - ex, Math.min(bottom.getY(), top.getY()) - ey,
+                Math.min(bottom.getZ(), top.getZ()) - ez, Math.max(bottom.getX(), top.getX()) + ex,
+                Math.max(bottom.getY(), top.getY()) + ey, Math.max(bottom.getZ(), top.getZ()) + ez);
+    }
+
     /**
      * Returns the normal vector of the cylinder at a given point.
      * The normal vector is calculated by projecting the vector from the point on the cylinder
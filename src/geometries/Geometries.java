@@ -2,9 +2,14 @@ package geometries;
 
 import primitives.*;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Set;
 
 import static primitives.Util.isZero;
 
@@ -12,20 +17,63 @@ import static primitives.Util.isZero;
  * Geometries class represents a collection (aggregate) of multiple geometric objects.
  * This class follows the Composite design pattern, allowing multiple geometries to be treated as one.
  * It implements the Intersectable interface, so it can find intersections for all contained geometries.
+ * <p>
+ * The collection is copy-on-write: {@link #snapshot()} returns an immutable version of
+ * it in constant time, which shares the member array with the collection. Adding
+ * geometries appends beyond the end of every snapshot, so the array is shared until it
+ * has to grow, and only removals copy it. An editor can keep changing the collection
+ * while renders read their snapshots.
  */
 public class Geometries extends Intersectable {
 
     /**
-     * A list that stores all the geometric objects in this collection.
-     * Each object implements the Intersectable interface.
+     * The members of a version of the collection - the first {@code size} entries of
+     * the array, which may be shared with other versions
+     *
+     * @param array the member array
+     * @param size  the number of members
+     */
+    private record Members(Intersectable[] array, int size) {
+    }
+
+    /** An empty collection */
+    private static final Members EMPTY = new Members(new Intersectable[0], 0);
+
+    /**
+     * The current version of the members - replaced, never changed, so readers may
+     * use it while the collection is edited.
      */
-    private final List<Intersectable> geometries = new LinkedList<>();
+    private volatile Members members = EMPTY;
+
+    /** Whether this collection is a snapshot - it cannot be changed */
+    private final boolean frozen;
+
+    /** Number of changes of the collection */
+    private long version;
+
+    /** Number of the members that are collections themselves */
+    private int nested;
+
+    /** The last snapshot of the collection, valid while its version is current */
+    private Geometries snapshot;
 
     /**
      * Default constructor that creates an empty collection of geometries.
      */
     public Geometries() {
-        // No geometries added initially
+        frozen = false;
+    }
+
+    /**
+     * Snapshot constructor
+     *
+     * @param members the members of the snapshot
+     * @param version the version of the collection
+     */
+    private Geometries(Members members, long version) {
+        this.members = members;
+        this.version = version;
+        frozen = true;
     }
 
     /**
@@ -34,6 +82,7 @@ public class Geometries extends Intersectable {
      * @param geometries One or more intersectable geometries to add to this collection.
      */
     public Geometries(Intersectable... geometries) {
+        this();
         add(geometries);  // Use the add method to insert geometries
     }
 
@@ -41,13 +90,156 @@ public class Geometries extends Intersectable {
      * Adds one or more geometries to this collection.
      *
      * @param geometries One or more intersectable geometries to add.
+     * @throws UnsupportedOperationException if this collection is a snapshot
+     */
+    public synchronized void add(Intersectable... geometries) {
+        checkMutable();
+        if (geometries == null || geometries.length == 0) return;
+        Members current = members;
+        int size = current.size + geometries.length;
+        Intersectable[] array = current.array;
+        if (size > array.length) array = Arrays.copyOf(array, Math.max(size, array.length * 2));
+        System.arraycopy(geometries, 0, array, current.size, geometries.length);
+        for (Intersectable geometry : geometries)
+            if (geometry instanceof Geometries) ++nested;
+        members = new Members(array, size);
+        ++version;
+    }
+
+    /**
+     * Removes a geometry from this collection. Nested collections are not searched.
+     *
+     * @param geometry the geometry to remove
+     * @return true if the geometry was a member of the collection
+     * @throws UnsupportedOperationException if this collection is a snapshot
+     */
+    public synchronized boolean remove(Intersectable geometry) {
+        checkMutable();
+        Members current = members;
+        for (int i = 0; i < current.size; ++i) {
+            if (current.array[i] != geometry) continue;
+            // snapshots may share the array - the removal is done on a copy
+            Intersectable[] array = new Intersectable[Math.max(1, current.array.length)];
+            System.arraycopy(current.array, 0, array, 0, i);
+            System.arraycopy(current.array, i + 1, array, i, current.size - i - 1);
+            if (geometry instanceof Geometries) --nested;
+            members = new Members(array, current.size - 1);
+            ++version;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Immutable version of the collection as it is now. Nested collections are replaced
+     * by their snapshots. Without nested collections the snapshot takes constant time and
+     * memory; a collection that has not changed since its last snapshot returns it again.
+     *
+     * @return the snapshot, the collection itself if it is a snapshot
+     */
+    public synchronized Geometries snapshot() {
+        if (frozen) return this;
+        if (nested == 0) {
+            if (snapshot == null || snapshot.version != version) snapshot = new Geometries(members, version);
+            return snapshot;
+        }
+        Members current = members;
+        Intersectable[] array = Arrays.copyOf(current.array, current.size);
+        boolean same = snapshot != null && snapshot.version == version;
+        for (int i = 0; i < array.length; ++i) {
+            if (array[i] instanceof Geometries collection) {
+                array[i] = collection.snapshot();
+                same = same && array[i] == snapshot.members.array[i];
+            }
+        }
+        if (!same) snapshot = new Geometries(new Members(array, array.length), version);
+        return snapshot;
+    }
+
+    /**
+     * Finds the geometries added and removed between an earlier version of the
+     * collection and this one. Nested collections and hierarchies are compared by their
+     * members. When this version only appended to the earlier one, just the appended
+     * members are visited.
+     *
+     * @param earlier the earlier version
+     * @param added   receives the geometries of this version that are not in the earlier one
+     * @param removed receives the geometries of the earlier version that are not in this one
+     */
+    public void diff(Geometries earlier, Collection<Intersectable> added, Collection<Intersectable> removed) {
+        Geometries before = earlier.snapshot(), after = snapshot();
+        if (before == after) return;
+        Members from = before.members, to = after.members;
+        if (from.array == to.array && from.size <= to.size) {
+            for (int i = from.size; i < to.size; ++i) leaves(to.array[i], added);
+        } else if (from.size == to.size) {
+            for (int i = 0; i < to.size; ++i) {
+                Intersectable a = from.array[i], b = to.array[i];
+                if (a == b) continue;
+                if (a instanceof Geometries nestedA && b instanceof Geometries nestedB) {
+                    nestedB.diff(nestedA, added, removed);
+                } else {
+                    leaves(a, removed);
+                    leaves(b, added);
+                }
+            }
+        } else {
+            Set<Intersectable> old = Collections.newSetFromMap(new IdentityHashMap<>());
+            old.addAll(Arrays.asList(from.array).subList(0, from.size));
+            Set<Intersectable> kept = Collections.newSetFromMap(new IdentityHashMap<>());
+            for (int i = 0; i < to.size; ++i) {
+                if (old.contains(to.array[i])) kept.add(to.array[i]);
+                else leaves(to.array[i], added);
+            }
+            for (int i = 0; i < from.size; ++i)
+                if (!kept.contains(from.array[i])) leaves(from.array[i], removed);
+        }
+    }
+
+    /**
+     * Collects the single geometries of a member - the members of nested collections and hierarchies
+     *
+     * @param member the member
+     * @param leaves receives the geometries
      */
-    public void add(Intersectable... geometries) {
-        if (geometries != null) {
-            this.geometries.addAll(Arrays.asList(geometries));
+    private static void leaves(Intersectable member, Collection<Intersectable> leaves) {
+        if (member instanceof Geometries nested) {
+            List<Intersectable> flat = new ArrayList<>();
+            nested.flatten(flat);
+            for (Intersectable geometry : flat) leaves(geometry, leaves);
+        } else if (member instanceof BoundingVolumeHierarchy hierarchy) {
+            leaves.addAll(hierarchy.getGeometries());
+            leaves.addAll(hierarchy.getUnbounded());
+        } else {
+            leaves.add(member);
         }
     }
 
+    /**
+     * Number of changes of the collection itself, not of its nested collections
+     *
+     * @return the version, the version of the collection when taken for a snapshot
+     */
+    public synchronized long getVersion() {
+        return version;
+    }
+
+    /**
+     * Checks whether the collection is a snapshot
+     *
+     * @return true if the collection cannot be changed
+     */
+    public boolean isSnapshot() {
+        return frozen;
+    }
+
+    /**
+     * Throws if the collection is a snapshot
+     */
+    private void checkMutable() {
+        if (frozen) throw new UnsupportedOperationException("A geometries snapshot cannot be changed");
+    }
+
     /**
      * Finds the intersections between the given ray and all geometries in the collection.
      *
@@ -57,9 +249,10 @@ public class Geometries extends Intersectable {
     @Override
     public List<Intersection> calculateIntersectionsHelper(Ray ray) {
         List<Intersection> result = null;
+        Members current = members;
 
-        for (Intersectable geo : geometries) {
-            List<Intersection> intersections = geo.calculateIntersections(ray);
+        for (int i = 0; i < current.size; ++i) {
+            List<Intersection> intersections = current.array[i].calculateIntersections(ray);
             if (intersections != null && !intersections.isEmpty()) {
                 if (result == null) {
                     result = new LinkedList<>();
@@ -70,4 +263,58 @@ public class Geometries extends Intersectable {
 
         return result;
     }
-}
\ No newline at end of file
+
+    /**
+     * Closest intersection among all the geometries of the collection - each member
+     * may use its own early-out search (e.g. an acceleration structure).
+     *
+     * @param ray The ray to check for intersections.
+     * @return The closest intersection, or null if there is none.
+     */
+    @Override
+    public Intersection calculateClosestIntersection(Ray ray) {
+        Point origin = ray.getOrigin();
+        Intersection closest = null;
+        double minDistance = Double.POSITIVE_INFINITY;
+        Members current = members;
+        for (int i = 0; i < current.size; ++i) {
+            Intersection intersection = current.array[i].calculateClosestIntersection(ray);
+            if (intersection == null) continue;
+            double distance = origin.distance(intersection.point);
+            if (distance < minDistance) {
+                closest = intersection;
+                minDistance = distance;
+            }
+        }
+        return closest;
+    }
+
+    /**
+     * The box of all the geometries - none if any of them is unbounded
+     */
+    @Override
+    public BoundingBox getBoundingBox() {
+        BoundingBox box = null;
+        Members current = members;
+        for (int i = 0; i < current.size; ++i) {
+            BoundingBox geoBox = current.array[i].getBoundingBox();
+            if (geoBox == null) return null;
+            box = box == null ? geoBox : box.union(geoBox);
+        }
+        return box;
+    }
+
+    /**
+     * Collects the members of this collection, replacing nested collections by their members
+     *
+     * @param primitives receives the geometries
+     */
+    void flatten(List<Intersectable> primitives) {
+        Members current = members;
+        for (int i = 0; i < current.size; ++i) {
+            Intersectable geo = current.array[i];
+            if (geo instanceof Geometries nested) nested.flatten(primitives);
+            else primitives.add(geo);
+        }
+    }
+}
@@ -19,6 +19,11 @@ public abstract class Geometry extends Intersectable {
      */
     private Material material = new Material();
 
+    /**
+     * Number of times the geometry was moved in place, see {@link #moved()}
+     */
+    private int revision;
+
     /**
      * Default constructor for the Geometry class.
      * Initializes the geometry with default emission color (black) and default material.
@@ -67,6 +72,27 @@ public abstract class Geometry extends Intersectable {
         return this;
     }
 
+    /**
+     * Records that the geometry was moved in place - its position or shape changed while
+     * it stays the same object. Compiled scenes keep the revisions of their geometries,
+     * so the geometries moved between two compiled scenes are found, see
+     * {@link scene.SceneChanges#between(scene.CompiledScene, scene.CompiledScene)}.
+     * The compiled scenes share the moved object, so it is moved only while none of
+     * them is rendered.
+     */
+    protected final void moved() {
+        ++revision;
+    }
+
+    /**
+     * Getter for the revision - the number of times the geometry was moved in place.
+     *
+     * @return the revision of the geometry
+     */
+    public final int getRevision() {
+        return revision;
+    }
+
     /**
      * Abstract method to get the normal vector to the surface at a given point.
      *
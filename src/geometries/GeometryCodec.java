@@ -0,0 +1,246 @@
+package geometries;
+
+import primitives.*;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.util.List;
+import java.util.function.IntFunction;
+import java.util.function.ToIntFunction;
+
+/**
+ * Binary encoding of a bounding volume hierarchy and its geometries, for compiled
+ * scene files.
+ * <p>
+ * The encoding is little endian and every part is 8-byte aligned, so a reader can
+ * use the tree nodes and boxes of a memory-mapped file in place. Geometries are
+ * decoded with the constructors that trust their data - no plane normal computation
+ * and no polygon convexity checks, which were done when the scene was built.
+ * <p>
+ * Layout: bounded geometry count, unbounded geometry count, node count, number of
+ * doubles of geometry data; a record of 4 ints per geometry (type, material index,
+ * number of vertices, offset of its data); 2 ints per node; 6 doubles per node; the
+ * geometry data - the emission color followed by the shape:
+ * <ul>
+ * <li>sphere - center, radius</li>
+ * <li>plane - point, unit normal</li>
+ * <li>triangle, polygon - unit normal, vertices</li>
+ * <li>tube - radius, axis origin, axis direction</li>
+ * <li>cylinder - radius, axis origin, axis direction, height</li>
+ * </ul>
+ */
+public final class GeometryCodec {
+    /** Geometry type codes */
+    private static final int SPHERE = 1, PLANE = 2, TRIANGLE = 3, POLYGON = 4, TUBE = 5, CYLINDER = 6;
+    /** Size of the section header in bytes */
+    private static final int HEADER_SIZE = 4 * Integer.BYTES;
+    /** Size of a geometry record in bytes */
+    private static final int RECORD_SIZE = 4 * Integer.BYTES;
+
+    /** Don't let anyone instantiate this class */
+    private GeometryCodec() {
+    }
+
+    /**
+     * Size of the encoding of a hierarchy
+     *
+     * @param hierarchy the hierarchy
+     * @return the size in bytes
+     * @throws IllegalArgumentException if a geometry type cannot be encoded
+     */
+    public static long size(BoundingVolumeHierarchy hierarchy) {
+        long size = HEADER_SIZE + (2L * Integer.BYTES + 6L * Double.BYTES) * hierarchy.nodeCount();
+        for (Intersectable geometry : hierarchy.getGeometries())
+            size += RECORD_SIZE + (long) Double.BYTES * dataSize(geometry);
+        for (Intersectable geometry : hierarchy.getUnbounded())
+            size += RECORD_SIZE + (long) Double.BYTES * dataSize(geometry);
+        return size;
+    }
+
+    /**
+     * Encodes a hierarchy at the position of a buffer
+     *
+     * @param hierarchy the hierarchy
+     * @param materials index of a geometry material in the materials table of the file
+     * @param out       the buffer, advanced by {@link #size(BoundingVolumeHierarchy)} bytes
+     * @throws IllegalArgumentException if a geometry type cannot be encoded
+     */
+    public static void write(BoundingVolumeHierarchy hierarchy, ToIntFunction<Material> materials, ByteBuffer out) {
+        ByteBuffer section = out.slice().order(ByteOrder.LITTLE_ENDIAN);
+        List<Intersectable> bounded = hierarchy.getGeometries(), unbounded = hierarchy.getUnbounded();
+        int geometries = bounded.size() + unbounded.size(), nodeCount = hierarchy.nodeCount();
+        int recordsAt = HEADER_SIZE;
+        int nodesAt = recordsAt + geometries * RECORD_SIZE;
+        int boundsAt = nodesAt + nodeCount * 2 * Integer.BYTES;
+        int dataAt = boundsAt + nodeCount * 6 * Double.BYTES;
+
+        IntBuffer records = section.slice(recordsAt, nodesAt - recordsAt).order(ByteOrder.LITTLE_ENDIAN)
+                .asIntBuffer();
+        DoubleBuffer data = section.slice(dataAt, section.capacity() - dataAt).order(ByteOrder.LITTLE_ENDIAN)
+                .asDoubleBuffer();
+        for (int i = 0; i < geometries; ++i) {
+            Geometry geometry = (Geometry) (i < bounded.size() ? bounded.get(i) : unbounded.get(i - bounded.size()));
+            int offset = data.position();
+            records.put(type(geometry)).put(materials.applyAsInt(geometry.getMaterial()))
+                    .put(geometry instanceof Polygon polygon ? polygon.getVertices().size() : 0).put(offset);
+            encode(geometry, data);
+        }
+        section.putInt(0, bounded.size()).putInt(4, unbounded.size()).putInt(8, nodeCount).putInt(12, data.position());
+        section.slice(nodesAt, boundsAt - nodesAt).order(ByteOrder.LITTLE_ENDIAN).asIntBuffer()
+                .put(hierarchy.nodes().limit(2 * nodeCount));
+        section.slice(boundsAt, dataAt - boundsAt).order(ByteOrder.LITTLE_ENDIAN).asDoubleBuffer()
+                .put(hierarchy.bounds().limit(6 * nodeCount));
+        out.position(out.position() + dataAt + data.position() * Double.BYTES);
+    }
+
+    /**
+     * Decodes a hierarchy at the position of a buffer. The tree nodes and boxes stay
+     * in the buffer - they are not copied.
+     *
+     * @param in        the buffer, advanced past the encoding
+     * @param materials the material of a material index
+     * @return the hierarchy
+     * @throws IllegalArgumentException if the encoding is invalid
+     */
+    public static BoundingVolumeHierarchy read(ByteBuffer in, IntFunction<Material> materials) {
+        ByteBuffer section = in.slice().order(ByteOrder.LITTLE_ENDIAN);
+        int boundedCount = section.getInt(0), unboundedCount = section.getInt(4);
+        int nodeCount = section.getInt(8), dataLength = section.getInt(12);
+        if (boundedCount < 0 || unboundedCount < 0 || nodeCount < 0 || dataLength < 0
+                || (boundedCount == 0) != (nodeCount == 0))
+            throw new IllegalArgumentException("Invalid geometry section");
+        int recordsAt = HEADER_SIZE;
+        int nodesAt = recordsAt + (boundedCount + unboundedCount) * RECORD_SIZE;
+        int boundsAt = nodesAt + nodeCount * 2 * Integer.BYTES;
+        int dataAt = boundsAt + nodeCount * 6 * Double.BYTES;
+        int end = dataAt + dataLength * Double.BYTES;
+        if (end > section.capacity()) throw new IllegalArgumentException("Truncated geometry section");
+
+        DoubleBuffer data = section.slice(dataAt, end - dataAt).order(ByteOrder.LITTLE_ENDIAN).asDoubleBuffer();
+        Intersectable[] bounded = new Intersectable[boundedCount];
+        Intersectable[] unbounded = new Intersectable[unboundedCount];
+        for (int i = 0, record = recordsAt; i < bounded.length + unbounded.length; ++i, record += RECORD_SIZE) {
+            Geometry geometry = decode(section.getInt(record), section.getInt(record + 8),
+                    data.position(section.getInt(record + 12)));
+            geometry.setMaterial(materials.apply(section.getInt(record + 4)));
+            if (i < bounded.length) bounded[i] = geometry;
+            else unbounded[i - bounded.length] = geometry;
+        }
+        IntBuffer nodes = section.slice(nodesAt, boundsAt - nodesAt).order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+        DoubleBuffer bounds = section.slice(boundsAt, dataAt - boundsAt).order(ByteOrder.LITTLE_ENDIAN)
+                .asDoubleBuffer();
+        in.position(in.position() + end);
+        return new BoundingVolumeHierarchy(bounded, unbounded, nodes, bounds);
+    }
+
+    /**
+     * Type code of a geometry
+     *
+     * @param geometry the geometry
+     * @return the code
+     * @throws IllegalArgumentException if the geometry type cannot be encoded
+     */
+    private static int type(Intersectable geometry) {
+        Class<?> type = geometry.getClass();
+        if (type == Sphere.class) return SPHERE;
+        if (type == Plane.class) return PLANE;
+        if (type == Triangle.class) return TRIANGLE;
+        if (type == Polygon.class) return POLYGON;
+        if (type == Tube.class) return TUBE;
+        if (type == Cylinder.class) return CYLINDER;
+        throw new IllegalArgumentException("Cannot encode geometry type " + type.getName());
+    }
+
+    /**
+     * Number of doubles in the encoding of a geometry
+     *
+     * @param geometry the geometry
+     * @return the size
+     */
+    private static int dataSize(Intersectable geometry) {
+        return 3 + switch (type(geometry)) {
+            case SPHERE -> 4;
+            case PLANE -> 6;
+            case TUBE -> 7;
+            case CYLINDER -> 8;
+            default -> 3 + 3 * ((Polygon) geometry).getVertices().size();
+        };
+    }
+
+    /**
+     * Encodes the emission and the shape of a geometry
+     *
+     * @param geometry the geometry
+     * @param data     the geometry data
+     */
+    private static void encode(Geometry geometry, DoubleBuffer data) {
+        put(data, geometry.getEmission().getRgb());
+        if (geometry instanceof Sphere sphere) {
+            put(data, sphere.getCenter()).put(sphere.getRadius());
+        } else if (geometry instanceof Plane plane) {
+            put(put(data, plane.getPoint()), plane.getNormal(plane.getPoint()));
+        } else if (geometry instanceof Polygon polygon) {
+            put(data, polygon.plane.getNormal(polygon.plane.getPoint()));
+            for (Point vertex : polygon.getVertices()) put(data, vertex);
+        } else if (geometry instanceof Tube tube) {
+            put(put(data.put(tube.getRadius()), tube.getAxisRay().getOrigin()), tube.getAxisRay().getDirection());
+            if (tube instanceof Cylinder cylinder) data.put(cylinder.getHeight());
+        } else {
+            throw new IllegalArgumentException("Cannot encode geometry type " + geometry.getClass().getName());
+        }
+    }
+
+    /**
+     * Decodes a geometry
+     *
+     * @param type     the type code
+     * @param vertices number of vertices of a polygon
+     * @param data     the geometry data at the position of the geometry
+     * @return the geometry
+     */
+    private static Geometry decode(int type, int vertices, DoubleBuffer data) {
+        Color emission = new Color(data.get(), data.get(), data.get());
+        Geometry geometry = switch (type) {
+            case SPHERE -> new Sphere(point(data), data.get());
+            case PLANE -> new Plane(point(data), vector(data), true);
+            case TRIANGLE -> {
+                Vector normal = vector(data);
+                Point p1 = point(data), p2 = point(data), p3 = point(data);
+                yield new Triangle(new Plane(p1, normal, true), p1, p2, p3);
+            }
+            case POLYGON -> {
+                if (vertices < 3) throw new IllegalArgumentException("Invalid polygon in geometry section");
+                Vector normal = vector(data);
+                Point[] points = new Point[vertices];
+                for (int i = 0; i < vertices; ++i) points[i] = point(data);
+                yield new Polygon(new Plane(points[0], normal, true), points);
+            }
+            case TUBE -> new Tube(data.get(), new Ray(point(data), vector(data)));
+            case CYLINDER -> {
+                double radius = data.get();
+                Ray axis = new Ray(point(data), vector(data));
+                yield new Cylinder(radius, data.get(), axis);
+            }
+            default -> throw new IllegalArgumentException("Unknown geometry type " + type + " in geometry section");
+        };
+        return geometry.setEmission(emission);
+    }
+
+    private static DoubleBuffer put(DoubleBuffer data, Double3 values) {
+        return data.put(values.d1()).put(values.d2()).put(values.d3());
+    }
+
+    private static DoubleBuffer put(DoubleBuffer data, Point point) {
+        return data.put(point.getX()).put(point.getY()).put(point.getZ());
+    }
+
+    private static Point point(DoubleBuffer data) {
+        return new Point(data.get(), data.get(), data.get());
+    }
+
+    private static Vector vector(DoubleBuffer data) {
+        return new Vector(data.get(), data.get(), data.get());
+    }
+}
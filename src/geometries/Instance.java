@@ -0,0 +1,141 @@
+package geometries;
+
+import primitives.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Placement of shared geometries in the scene by an affine transformation - the second
+ * level of two-level instancing.
+ * <p>
+ * The prototype geometries are defined once, in their own object space, and every
+ * instance places them by its transformation: a ray is transformed into the object
+ * space on entry, intersected with the prototype, and the hits are transformed back.
+ * A scene of many copies of a sub-assembly thus holds the geometries of the assembly
+ * once, plus one small instance per copy. A prototype of many geometries should be a
+ * {@link BoundingVolumeHierarchy} built once and shared by its instances, so every
+ * instance uses the same acceleration structure; the instances themselves are placed
+ * in the hierarchy of the scene by their boxes.
+ * <p>
+ * The hits keep the prototype geometry, and so its emission and material; their points
+ * and normals are in the scene space. The prototype must not change while it is
+ * rendered - a geometries collection is replaced by its snapshot.
+ */
+public class Instance extends Intersectable {
+    /** The shared geometries, in object space */
+    private final Intersectable prototype;
+    /** The transformation from object space to scene space */
+    private final Transform transform;
+
+    /**
+     * Places shared geometries in the scene
+     *
+     * @param prototype the shared geometries, in object space
+     * @param transform the transformation from object space to scene space
+     */
+    public Instance(Intersectable prototype, Transform transform) {
+        this.prototype = prototype instanceof Geometries geometries ? geometries.snapshot() : prototype;
+        this.transform = transform;
+    }
+
+    /**
+     * The shared geometries
+     *
+     * @return the prototype, in object space
+     */
+    public Intersectable getPrototype() {
+        return prototype;
+    }
+
+    /**
+     * The placement of the prototype
+     *
+     * @return the transformation from object space to scene space
+     */
+    public Transform getTransform() {
+        return transform;
+    }
+
+    /**
+     * The ray in the object space of the prototype - an affine transformation keeps the
+     * order of the points along the ray, so the closest hit stays the closest
+     *
+     * @param ray the scene space ray
+     * @return the object space ray
+     */
+    private Ray toObjectSpace(Ray ray) {
+        return new Ray(transform.inversePoint(ray.getOrigin()), transform.inverseVector(ray.getDirection()));
+    }
+
+    @Override
+    protected List<Intersection> calculateIntersectionsHelper(Ray ray) {
+        List<Intersection> hits = prototype.calculateIntersections(toObjectSpace(ray));
+        if (hits == null) return null;
+        List<Intersection> result = new ArrayList<>(hits.size());
+        for (Intersection hit : hits) result.add(new PlacedIntersection(this, hit));
+        return result;
+    }
+
+    @Override
+    public Intersection calculateClosestIntersection(Ray ray) {
+        Intersection hit = prototype.calculateClosestIntersection(toObjectSpace(ray));
+        return hit == null ? null : new PlacedIntersection(this, hit);
+    }
+
+    /**
+     * The scene space box of the prototype box - computed on every call, so it follows
+     * a prototype hierarchy that was refitted
+     */
+    @Override
+    public BoundingBox getBoundingBox() {
+        BoundingBox local = prototype.getBoundingBox();
+        return local == null ? null : BoundingBox.of(
+                transform.transformPoint(new Point(local.minX(), local.minY(), local.minZ())),
+                transform.transformPoint(new Point(local.maxX(), local.minY(), local.minZ())),
+                transform.transformPoint(new Point(local.minX(), local.maxY(), local.minZ())),
+                transform.transformPoint(new Point(local.maxX(), local.maxY(), local.minZ())),
+                transform.transformPoint(new Point(local.minX(), local.minY(), local.maxZ())),
+                transform.transformPoint(new Point(local.maxX(), local.minY(), local.maxZ())),
+                transform.transformPoint(new Point(local.minX(), local.maxY(), local.maxZ())),
+                transform.transformPoint(new Point(local.maxX(), local.maxY(), local.maxZ())));
+    }
+
+    /**
+     * Intersection with a geometry of a prototype, placed in the scene space
+     */
+    private static final class PlacedIntersection extends Intersection {
+        /** The instance placing the geometry */
+        private final Instance instance;
+        /** The intersection in object space */
+        private final Intersection local;
+
+        /**
+         * Places an object space intersection
+         *
+         * @param instance the instance placing the geometry
+         * @param local    the intersection in object space
+         */
+        PlacedIntersection(Instance instance, Intersection local) {
+            super(local.geometry, instance.transform.transformPoint(local.point));
+            this.instance = instance;
+            this.local = local;
+        }
+
+        @Override
+        public Vector getSurfaceNormal() {
+            return instance.transform.transformNormal(local.getSurfaceNormal());
+        }
+
+        @Override
+        public Intersectable getSource() {
+            return instance;
+        }
+
+        @Override
+        public boolean isSameSurface(Intersection other) {
+            return other instanceof PlacedIntersection placed && placed.instance == instance
+                    && local.isSameSurface(placed.local);
+        }
+    }
+}
@@ -63,6 +63,37 @@ public abstract class Intersectable {
             this.material = geometry == null ? null : geometry.getMaterial();
         }
 
+        /**
+         * Normal of the geometry surface at the intersection point, not turned towards
+         * the ray. Intersections of placed geometries transform it to the scene space.
+         *
+         * @return the normal vector
+         */
+        public Vector getSurfaceNormal() {
+            return geometry.getNormal(point);
+        }
+
+        /**
+         * The scene member the intersection belongs to - the geometry itself, or the
+         * instance that places it in the scene
+         *
+         * @return the scene member
+         */
+        public Intersectable getSource() {
+            return geometry;
+        }
+
+        /**
+         * Checks whether another intersection is on the same surface of the scene - the
+         * same geometry, placed by the same instances
+         *
+         * @param other the other intersection
+         * @return true if both intersections are on the same surface
+         */
+        public boolean isSameSurface(Intersection other) {
+            return geometry == other.geometry && other.getSource() == geometry;
+        }
+
         /**
          * Checks whether this intersection is equal to another object.
          * Equality is based on both the geometry and the intersection point.
@@ -112,6 +143,27 @@ public abstract class Intersectable {
      */
     protected abstract List<Intersection> calculateIntersectionsHelper(Ray ray);
 
+    /**
+     * Finds the intersection closest to the ray origin.
+     * Aggregates override it to skip the members that cannot be closer than a hit found already.
+     *
+     * @param ray The ray to check
+     * @return the closest intersection, or null if none found
+     */
+    public Intersection calculateClosestIntersection(Ray ray) {
+        return ray.findClosestIntersection(calculateIntersections(ray));
+    }
+
+    /**
+     * Axis-aligned box holding the whole geometry.
+     * Unbounded geometries (planes, infinite tubes) have no box.
+     *
+     * @return the bounding box, or null if the geometry is unbounded
+     */
+    public BoundingBox getBoundingBox() {
+        return null;
+    }
+
     /**
      * Convenience method to return just the points of intersection without geometry info.
      *
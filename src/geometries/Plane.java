@@ -66,6 +66,19 @@ public class Plane extends Geometry {
         this.normal = normal.normalize();
     }
 
+    /**
+     * Constructor of a plane whose normal may be known to be a unit vector already -
+     * e.g. decoded from a compiled scene - so it is not normalized again.
+     *
+     * @param point  A point lying on the plane.
+     * @param normal A vector perpendicular to the plane.
+     * @param unit   Whether the normal is a unit vector already.
+     */
+    Plane(Point point, Vector normal, boolean unit) {
+        this.point = point;
+        this.normal = unit ? normal : normal.normalize();
+    }
+
     /**
      * Returns the normalized normal vector to the plane at any given point.
      * <p>
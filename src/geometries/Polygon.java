@@ -15,11 +15,11 @@ public class Polygon extends Geometry {
    /**
     * List of polygon's vertices
     */
-   protected final List<Point> vertices;
+   protected List<Point> vertices;
    /**
     * Associated plane in which the polygon lies
     */
-   protected final Plane plane;
+   protected Plane plane;
    /**
     * The number of vertices in the polygon
     */
@@ -41,14 +41,46 @@ public class Polygon extends Geometry {
    public Polygon(Point... vertices) {
       if (vertices.length < 3)
          throw new IllegalArgumentException("A polygon can't have less than 3 vertices");
-      this.vertices = List.of(vertices);
       size = vertices.length;
+      plane = checkedPlane(vertices);
+      this.vertices = List.of(vertices);
+   }
 
+   /**
+    * Moves the vertices of the polygon, e.g. the vertices of a mesh between the frames of
+    * an animation. A hierarchy holding the polygon has to be refitted, see
+    * {@link BoundingVolumeHierarchy#refit()}. The polygon must not be moved while a
+    * scene holding it is rendered.
+    *
+    * @param vertices The new vertices, as many as the polygon has, in order.
+    * @return This polygon.
+    * @throws IllegalArgumentException If the number of vertices differs, or the new
+    *                                  vertices are not a convex polygon in a plane
+    */
+   public Polygon setVertices(Point... vertices) {
+      if (vertices.length != size)
+         throw new IllegalArgumentException("A polygon must keep its number of vertices");
+      plane = checkedPlane(vertices);
+      this.vertices = List.of(vertices);
+      moved();
+      return this;
+   }
+
+   /**
+    * Creates the plane of polygon vertices, checking that they lie in it and are ordered
+    * as a convex polygon
+    *
+    * @param vertices The ordered vertices, at least 3.
+    * @return The plane of the vertices.
+    * @throws IllegalArgumentException If the vertices are not a convex polygon in a plane
+    */
+   private static Plane checkedPlane(Point[] vertices) {
+      int size = vertices.length;
       // Create the plane based on the first three vertices
-      plane = new Plane(vertices[0], vertices[1], vertices[2]);
+      Plane plane = new Plane(vertices[0], vertices[1], vertices[2]);
 
       // If the polygon is a triangle, no further checks are required
-      if (size == 3) return;
+      if (size == 3) return plane;
 
       // Retrieve the normal vector of the plane
       Vector n = plane.getNormal(vertices[0]);
@@ -70,6 +102,34 @@ public class Polygon extends Geometry {
          if (positive != (edge1.crossProduct(edge2).dotProduct(n) > 0))
             throw new IllegalArgumentException("All vertices must be ordered and the polygon must be convex");
       }
+      return plane;
+   }
+
+   /**
+    * Constructs a polygon whose vertices were validated already - e.g. decoded from a
+    * compiled scene - skipping the plane and convexity checks.
+    *
+    * @param plane    The plane of the polygon.
+    * @param vertices The ordered vertices.
+    */
+   Polygon(Plane plane, Point... vertices) {
+      this.vertices = List.of(vertices);
+      this.size = vertices.length;
+      this.plane = plane;
+   }
+
+   /**
+    * Returns the vertices of the polygon.
+    *
+    * @return The ordered vertices.
+    */
+   public List<Point> getVertices() {
+      return vertices;
+   }
+
+   @Override
+   public BoundingBox getBoundingBox() {
+      return BoundingBox.of(vertices.toArray(new Point[0]));
    }
 
    /**
@@ -15,7 +15,7 @@ public class Sphere extends RadialGeometry {
     /**
      * The center of the sphere
      */
-    private final Point center;
+    private Point center;
 
     /**
      * Constructor that initializes a sphere with a center point and a radius.
@@ -28,6 +28,35 @@ public class Sphere extends RadialGeometry {
         this.center = center;
     }
 
+    /**
+     * Returns the center of the sphere.
+     *
+     * @return The center point.
+     */
+    public Point getCenter() {
+        return center;
+    }
+
+    /**
+     * Moves the sphere, e.g. between the frames of an animation. A hierarchy holding
+     * the sphere has to be refitted, see {@link BoundingVolumeHierarchy#refit()}. The
+     * sphere must not be moved while a scene holding it is rendered.
+     *
+     * @param center the new center point
+     * @return this sphere
+     */
+    public Sphere setCenter(Point center) {
+        this.center = center;
+        moved();
+        return this;
+    }
+
+    @Override
+    public BoundingBox getBoundingBox() {
+        return new BoundingBox(center.getX() - radius, center.getY() - radius, center.getZ() - radius,
+                center.getX() + radius, center.getY() + radius, center.getZ() + radius);
+    }
+
     /**
      * Returns the normal vector of the sphere at a given point.
      * The normal is the vector from the center of the sphere to the given point,
@@ -24,6 +24,18 @@ public class Triangle extends Polygon {
         super(p1, p2, p3); // Calls the Polygon constructor with three points.
     }
 
+    /**
+     * Constructs a triangle whose plane is known already, skipping its computation.
+     *
+     * @param plane The plane of the triangle.
+     * @param p1    The first vertex of the triangle.
+     * @param p2    The second vertex of the triangle.
+     * @param p3    The third vertex of the triangle.
+     */
+    Triangle(Plane plane, Point p1, Point p2, Point p3) {
+        super(plane, p1, p2, p3);
+    }
+
     /**
      * This method returns the list of intersection points between a given ray and the triangle.
      *
@@ -21,6 +21,15 @@ public class DirectionalLight extends Light implements LightSource {
         this.direction = direction.normalize(); // Always normalize for consistency
     }
 
+    /**
+     * Returns the direction of the light.
+     *
+     * @return the unit direction vector
+     */
+    public Vector getDirection() {
+        return direction;
+    }
+
     /**
      * Returns the intensity of the light at a given point.
      * For directional light, the intensity is constant and independent of the point.
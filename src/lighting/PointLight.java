@@ -62,6 +62,33 @@ public class PointLight extends Light implements LightSource {
         return this;
     }
 
+    /**
+     * Returns the constant attenuation factor.
+     *
+     * @return the constant factor
+     */
+    public double getKC() {
+        return kC;
+    }
+
+    /**
+     * Returns the linear attenuation factor.
+     *
+     * @return the linear factor
+     */
+    public double getKL() {
+        return kL;
+    }
+
+    /**
+     * Returns the quadratic attenuation factor.
+     *
+     * @return the quadratic factor
+     */
+    public double getKQ() {
+        return kQ;
+    }
+
     /**
      * Computes the intensity of the light at a given point,
      * considering distance-based attenuation using the formula:
@@ -32,6 +32,24 @@ public class SpotLight extends PointLight {
         this.direction = direction.normalize();
     }
 
+    /**
+     * Returns the direction of the spotlight.
+     *
+     * @return the unit direction vector
+     */
+    public Vector getDirection() {
+        return direction;
+    }
+
+    /**
+     * Returns the beam narrowing factor.
+     *
+     * @return the beam narrowing factor
+     */
+    public double getNarrowBeam() {
+        return narrowBeam;
+    }
+
     /**
      * Sets the beam narrowing factor.
      * A higher value results in a more focused (narrower) spotlight beam.
@@ -63,6 +63,26 @@ public class Color {
         return new java.awt.Color(ir > 255 ? 255 : ir, ig > 255 ? 255 : ig, ib > 255 ? 255 : ib);
     }
 
+    /**
+     * Packs the color into an int in 0xRRGGBB layout (as in the pixel buffer of an
+     * RGB image), applying the same 255 limit as {@link #getColor()} without
+     * creating a java.awt.Color object
+     * @return the packed RGB components
+     */
+    public int getRGB() {
+        int ir = (int) rgb.d1();
+        int ig = (int) rgb.d2();
+        int ib = (int) rgb.d3();
+        return (ir > 255 ? 255 : ir) << 16 | (ig > 255 ? 255 : ig) << 8 | (ib > 255 ? 255 : ib);
+    }
+
+    /**
+     * RGB components getter - returns the components as they are, without the
+     * 255 limit applied by {@link #getColor()}
+     * @return the triad of Red/Green/Blue components
+     */
+    public Double3 getRgb() { return rgb; }
+
     /**
      * Operation of adding this and one or more other colors (by component)
      * @param  colors one or more other colors to add
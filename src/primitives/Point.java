@@ -39,6 +39,33 @@ public class Point {
         this.coordinates = coordinates;  // Directly use the provided Double3 object
     }
 
+    /**
+     * Returns the x-coordinate of the point.
+     *
+     * @return The x-coordinate
+     */
+    public double getX() {
+        return coordinates.d1();
+    }
+
+    /**
+     * Returns the y-coordinate of the point.
+     *
+     * @return The y-coordinate
+     */
+    public double getY() {
+        return coordinates.d2();
+    }
+
+    /**
+     * Returns the z-coordinate of the point.
+     *
+     * @return The z-coordinate
+     */
+    public double getZ() {
+        return coordinates.d3();
+    }
+
     /**
      * Subtracts another point from the current point to create a vector.
      * The resulting vector represents the direction and distance from the other point to this point.
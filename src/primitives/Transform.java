@@ -0,0 +1,226 @@
+package primitives;
+
+import static primitives.Util.isZero;
+
+/**
+ * Immutable affine transformation of 3D space - a linear map followed by a translation.
+ * <p>
+ * The transformation is kept as the 3x4 matrix {@code [A | t]} of
+ * {@code p' = A p + t}, together with its inverse, computed once. Vectors are
+ * transformed by {@code A} alone, and surface normals by the inverse transpose of
+ * {@code A}, so they stay perpendicular to the transformed surfaces.
+ */
+public final class Transform {
+    /** The identity transformation */
+    public static final Transform IDENTITY = new Transform(new double[]{1, 0, 0, 0, 0, 1, 0, 0, 0, 0, 1, 0});
+
+    /** The matrix rows - 4 numbers per row: the row of A and the coordinate of t */
+    private final double[] m;
+    /** The matrix of the inverse transformation */
+    private final double[] inverse;
+
+    /**
+     * Creates a transformation of a matrix
+     *
+     * @param m the 3x4 matrix by rows
+     * @throws IllegalArgumentException if the matrix is singular
+     */
+    private Transform(double[] m) {
+        this.m = m;
+        this.inverse = invert(m);
+    }
+
+    /**
+     * Creates a transformation of a matrix and its known inverse
+     *
+     * @param m       the 3x4 matrix by rows
+     * @param inverse the matrix of the inverse transformation
+     */
+    private Transform(double[] m, double[] inverse) {
+        this.m = m;
+        this.inverse = inverse;
+    }
+
+    /**
+     * Translation by a vector
+     *
+     * @param offset the translation
+     * @return the transformation
+     */
+    public static Transform translation(Vector offset) {
+        return new Transform(new double[]{1, 0, 0, offset.getX(), 0, 1, 0, offset.getY(), 0, 0, 1, offset.getZ()},
+                new double[]{1, 0, 0, -offset.getX(), 0, 1, 0, -offset.getY(), 0, 0, 1, -offset.getZ()});
+    }
+
+    /**
+     * Scaling around the origin along the axes
+     *
+     * @param sx the X factor
+     * @param sy the Y factor
+     * @param sz the Z factor
+     * @return the transformation
+     * @throws IllegalArgumentException if a factor is zero
+     */
+    public static Transform scaling(double sx, double sy, double sz) {
+        return new Transform(new double[]{sx, 0, 0, 0, 0, sy, 0, 0, 0, 0, sz, 0});
+    }
+
+    /**
+     * Uniform scaling around the origin
+     *
+     * @param factor the factor
+     * @return the transformation
+     * @throws IllegalArgumentException if the factor is zero
+     */
+    public static Transform scaling(double factor) {
+        return scaling(factor, factor, factor);
+    }
+
+    /**
+     * Rotation around an axis through the origin, counterclockwise when the axis points
+     * at the viewer
+     *
+     * @param axis  the rotation axis
+     * @param angle the angle in radians
+     * @return the transformation
+     */
+    public static Transform rotation(Vector axis, double angle) {
+        Vector u = axis.normalize();
+        double x = u.getX(), y = u.getY(), z = u.getZ();
+        double c = Math.cos(angle), s = Math.sin(angle), t = 1 - c;
+        double[] m = {
+                t * x * x + c, t * x * y - s * z, t * x * z + s * y, 0,
+                t * x * y + s * z, t * y * y + c, t * y * z - s * x, 0,
+                t * x * z - s * y, t * y * z + s * x, t * z * z + c, 0};
+        // the inverse of a rotation is its transpose
+        double[] inverse = {m[0], m[4], m[8], 0, m[1], m[5], m[9], 0, m[2], m[6], m[10], 0};
+        return new Transform(m, inverse);
+    }
+
+    /**
+     * This transformation followed by another one
+     *
+     * @param next the transformation applied after this one
+     * @return the composed transformation
+     */
+    public Transform then(Transform next) {
+        return new Transform(multiply(next.m, m), multiply(inverse, next.inverse));
+    }
+
+    /**
+     * The inverse transformation
+     *
+     * @return the transformation undoing this one
+     */
+    public Transform inverse() {
+        return new Transform(inverse, m);
+    }
+
+    /**
+     * Transforms a point
+     *
+     * @param point the point
+     * @return the transformed point
+     */
+    public Point transformPoint(Point point) {
+        return applyPoint(m, point);
+    }
+
+    /**
+     * Transforms a point by the inverse transformation
+     *
+     * @param point the transformed point
+     * @return the original point
+     */
+    public Point inversePoint(Point point) {
+        return applyPoint(inverse, point);
+    }
+
+    /**
+     * Transforms a direction - the translation does not apply
+     *
+     * @param vector the direction
+     * @return the transformed direction, not normalized
+     */
+    public Vector transformVector(Vector vector) {
+        return applyVector(m, vector);
+    }
+
+    /**
+     * Transforms a direction by the inverse transformation
+     *
+     * @param vector the transformed direction
+     * @return the original direction, not normalized
+     */
+    public Vector inverseVector(Vector vector) {
+        return applyVector(inverse, vector);
+    }
+
+    /**
+     * Transforms a surface normal - by the inverse transpose of the linear part, so it
+     * stays perpendicular to the transformed surface
+     *
+     * @param normal the normal
+     * @return the transformed normal, normalized
+     */
+    public Vector transformNormal(Vector normal) {
+        double x = normal.getX(), y = normal.getY(), z = normal.getZ();
+        return new Vector(inverse[0] * x + inverse[4] * y + inverse[8] * z,
+                inverse[1] * x + inverse[5] * y + inverse[9] * z,
+                inverse[2] * x + inverse[6] * y + inverse[10] * z).normalize();
+    }
+
+    private static Point applyPoint(double[] m, Point point) {
+        double x = point.getX(), y = point.getY(), z = point.getZ();
+        return new Point(m[0] * x + m[1] * y + m[2] * z + m[3],
+                m[4] * x + m[5] * y + m[6] * z + m[7],
+                m[8] * x + m[9] * y + m[10] * z + m[11]);
+    }
+
+    private static Vector applyVector(double[] m, Vector vector) {
+        double x = vector.getX(), y = vector.getY(), z = vector.getZ();
+        return new Vector(m[0] * x + m[1] * y + m[2] * z,
+                m[4] * x + m[5] * y + m[6] * z,
+                m[8] * x + m[9] * y + m[10] * z);
+    }
+
+    /**
+     * Product of two affine matrices - the transformation b followed by a
+     *
+     * @param a the matrix applied second
+     * @param b the matrix applied first
+     * @return the product matrix
+     */
+    private static double[] multiply(double[] a, double[] b) {
+        double[] r = new double[12];
+        for (int row = 0; row < 3; ++row) {
+            for (int col = 0; col < 4; ++col) {
+                r[4 * row + col] = a[4 * row] * b[col] + a[4 * row + 1] * b[4 + col] + a[4 * row + 2] * b[8 + col];
+            }
+            r[4 * row + 3] += a[4 * row + 3];
+        }
+        return r;
+    }
+
+    /**
+     * Inverse of an affine matrix - the inverse of its linear part by cofactors, and the
+     * translation undone
+     *
+     * @param m the matrix
+     * @return the inverse matrix
+     * @throws IllegalArgumentException if the matrix is singular
+     */
+    private static double[] invert(double[] m) {
+        double c00 = m[5] * m[10] - m[6] * m[9], c01 = m[6] * m[8] - m[4] * m[10], c02 = m[4] * m[9] - m[5] * m[8];
+        double det = m[0] * c00 + m[1] * c01 + m[2] * c02;
+        if (isZero(det)) throw new IllegalArgumentException("The transformation is not invertible");
+        double[] r = {
+                c00, m[2] * m[9] - m[1] * m[10], m[1] * m[6] - m[2] * m[5], 0,
+                c01, m[0] * m[10] - m[2] * m[8], m[2] * m[4] - m[0] * m[6], 0,
+                c02, m[1] * m[8] - m[0] * m[9], m[0] * m[5] - m[1] * m[4], 0};
+        for (int i = 0; i < 12; ++i) r[i] /= det;
+        for (int row = 0; row < 3; ++row)
+            r[4 * row + 3] = -(r[4 * row] * m[3] + r[4 * row + 1] * m[7] + r[4 * row + 2] * m[11]);
+        return r;
+    }
+}
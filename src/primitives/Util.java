@@ -1,5 +1,7 @@
 package primitives;
 
+import java.util.concurrent.ThreadLocalRandom;
+
 /** Util class is used for some internal utilities, e.g. controlling accuracy
  * @author Dan */
 public final class Util {
@@ -45,11 +47,13 @@ public final class Util {
       return (n1 < 0 && n2 < 0) || (n1 > 0 && n2 > 0);
    }
 
-   /** Provide a real random number in range between min and max
+   /** Provide a real random number in range between min and max.
+    * Every thread uses its own random generator, so concurrent callers do not
+    * contend on a shared one.
     * @param  min value (included)
     * @param  max value (excluded)
     * @return     the random value */
    public static double random(double min, double max) {
-      return Math.random() * (max - min) + min;
+      return ThreadLocalRandom.current().nextDouble() * (max - min) + min;
    }
 }
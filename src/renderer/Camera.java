@@ -4,17 +4,26 @@ import primitives.Point;
 import primitives.Ray;
 import primitives.Vector;
 import primitives.Color;
+import geometries.Intersectable.Intersection;
 import renderer.ImageWriter.*;
+import geometries.BoundingBox;
+import scene.CompiledScene;
 import scene.Scene;
+import scene.SceneChanges;
 import renderer.SimpleRayTracer;
 import renderer.RayTracerBase;
 import renderer.RayTracerType;
 
 
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.MissingResourceException;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+import java.util.stream.IntStream;
 
 import static primitives.Util.alignZero;
 import static primitives.Util.isZero;
@@ -30,14 +39,44 @@ public class Camera implements Cloneable {
     private Vector vTo, vUp, vRight;
     private double width = 0.0, height = 0.0, distance = 0.0;
     private ImageWriter imageWriter;
+    private RayGenerator rays; // טבלאות קרניים ראשיות, מחושבות ב-build
     private RayTracerBase rayTracer;
     private int nX = 1, nY = 1; // default resolution
     private boolean adaptiveAntiAliasing = false;
     private int maxAdaptiveDepth = 2; // עומק רקורסיה מקסימלי
     private double adaptiveThreshold = 10.0;
+    private long adaptiveLattice = 1L << (maxAdaptiveDepth + 1); // נקודות סריג לכל צלע פיקסל
+    private static final int MAX_ADAPTIVE_DEPTH = 16;
+    private SamplerType samplerType = SamplerType.GRID;
+    static final long SAMPLER_SEED = 0; // זרע קבוע - תמונה זהה בכל הרצה
+    private boolean varianceAntiAliasing = false;
+    private int minSamples = 4, maxSamples = 64;
+    private double maxError = 2.0; // חצי רוחב רווח הסמך ביחידות צבע
+    private static final double CONFIDENCE_Z = 1.96; // רמת סמך 95%
+    private boolean edgeAntiAliasing = false;
     private static final double MIN_PIXEL_SIZE = 0.0001;
     private boolean multithreading = false;
     private int threadsCount = Runtime.getRuntime().availableProcessors(); // ברירת מחדל
+    private int tileSize = 16; // גודל אריח בפיקסלים
+    private Path checkpointFile = null;
+    private long checkpointInterval = 60_000; // milliseconds
+    private Path streamingFile = null; // קובץ PNG שנכתב תוך כדי הרינדור
+    private FrameBuffer frameBuffer = null; // יעד חיצוני לפיקסלים במקום ה-ImageWriter
+    private PngEncoder pngEncoder = PngEncoder.DEFAULT; // null - מקודד ImageIO
+    private boolean hdrOutput = false; // שכבת צבע לא חסום לקבצי PFM
+    private boolean incremental = false; // רישום תלויות לכל אריח לרינדור חוזר של שינויים
+    private RayTracerType rayTracerType = null; // סוג המעקב של הסצנה שהודרה ב-build
+    private TileDependencies[] dependencies = null; // תלויות האריחים של הרינדור האחרון
+    private GBuffer primaryHits = null; // פגיעות ראשיות שנשמרות לרינדור חוזר עם החלקת קצוות
+    private TileCache tileCache = null; // מטמון אריחים בדיסק, משותף לתהליכים
+    private byte[] renderKey = null; // מפתח המטמון של הרינדור הנוכחי, null - בלי מטמון
+    private boolean temporalReuse = false; // שימוש חוזר בצבעי הפריים הקודם ברצף
+    private TemporalBuffer previousFrame = null; // פגיעות וצבעי הפריים הקודם, null - אין
+    private TemporalBuffer currentFrame = null; // פגיעות וצבעי הפריים הנוכחי, null - לא נרשמות
+    private TilePool tilePool = null; // מאגר תהליכונים משותף לכמה מבטים, null - תהליכונים משלה
+    private int view = 0; // מספר המבט במאגר המשותף
+    private boolean relighting = false; // שמירת הפגיעות הראשיות להצללה מחדש כשהאורות משתנים
+    private RelightingBuffer relightingHits = null; // הפגיעות הראשיות של הרינדור האחרון, null - לא נשמרות
 
 
     /**
@@ -79,12 +118,6 @@ public class Camera implements Cloneable {
         return new Ray(p0, pIJ.subtract(p0).normalize());
     }
 
-    private Ray constructRayThroughPoint(double xShift, double yShift) {
-        Point pIJ = p0.add(vTo.scale(distance));
-        if (!isZero(xShift)) pIJ = pIJ.add(vRight.scale(xShift));
-        if (!isZero(yShift)) pIJ = pIJ.add(vUp.scale(yShift));
-        return new Ray(p0, pIJ.subtract(p0).normalize());
-    }
     public Camera setMultithreading(boolean enabled) {
         this.multithreading = enabled;
         return this;
@@ -102,69 +135,293 @@ public class Camera implements Cloneable {
      * @return the camera object
      */
     public Camera renderImage() {
-        if (imageWriter == null)
+        if (imageWriter == null && streamingFile == null && frameBuffer == null)
             throw new IllegalStateException("imageWriter is not initialized");
         if (rayTracer == null)
             throw new IllegalStateException("rayTracer is not initialized");
 
-        if (multithreading)
-            return renderImageMultiThreaded();
-        for (int i = 0; i < nY; i++) {
-            for (int j = 0; j < nX; j++) {
-                Color finalColor = Color.BLACK;
-                if (adaptiveAntiAliasing) {
-                    double Ry = height / nY;
-                    double Rx = width / nX;
-                    double Yi = -(i - (nY - 1) / 2d) * Ry;
-                    double Xj = (j - (nX - 1) / 2d) * Rx;
-                    finalColor = adaptiveAntiAliasing(nX, nY, j, i, maxAdaptiveDepth, Rx, Ry, Xj, Yi);
-                } else if (antiAliasing) {
-                    List<Ray> rays = constructAARays(nX, nY, j, i);
-                    for (Ray ray : rays) {
-                        finalColor = finalColor.add(rayTracer.traceRay(ray));
-                    }
-                    finalColor = finalColor.scale(1.0 / rays.size());
-                } else {
-                    Ray ray = constructRay(nX, nY, j, i);
-                    finalColor = rayTracer.traceRay(ray);
+        Tile[] tiles = Tile.grid(nX, nY, tileSize);
+        byte[] key = tileCache == null && checkpointFile == null ? null : renderKey();
+        RenderCheckpoint checkpoint = checkpointFile == null || key == null ? null
+                : new RenderCheckpoint(checkpointFile, checkpointInterval, key, nX, nY, tileSize);
+        dependencies = incremental ? new TileDependencies[tiles.length] : null;
+        primaryHits = null;
+        relightingHits = relighting ? new RelightingBuffer(nX, nY) : null;
+        // a frame reusing the shading of the previous frame is not the exact render of its key
+        renderKey = tileCache == null || previousFrame != null ? null : key;
+
+        StreamingPngWriter stream = streamingFile == null ? null
+                : new StreamingPngWriter(streamingFile, nX, nY, tileSize);
+        FrameBuffer target = stream != null ? stream : frameBuffer != null ? frameBuffer : imageWriter;
+        boolean finished = false;
+        try {
+            if (renderKey == null) {
+                render(tiles, tiles, checkpoint, target);
+            } else {
+                // the cached tiles are written as they are, only the misses are traced
+                boolean[] missing = new boolean[tiles.length];
+                for (Tile tile : tiles) {
+                    Color[] colors = tileCache.load(renderKey, tile);
+                    if (colors == null) missing[tile.index()] = true;
+                    else target.writeTile(tile.x(), tile.y(), tile.width(), tile.height(), colors);
                 }
-                imageWriter.writePixel(j, i, finalColor);
+                // the edges of the missing tiles need the primary hits of their neighbours,
+                // and later incremental renders need all of them
+                render(select(tiles, missing), incremental ? tiles : select(tiles, withNeighbours(missing)),
+                        checkpoint, target);
+                // the dependencies of a cached tile are unknown - it is affected by any edit
+                if (dependencies != null)
+                    for (int i = 0; i < tiles.length; ++i)
+                        if (!missing[i]) dependencies[i] = null;
             }
+            if (stream != null) stream.close();
+            finished = true;
+        } finally {
+            try {
+                // the finished tiles are saved also when the render fails, to resume from them
+                if (checkpoint != null) checkpoint.close();
+            } finally {
+                // a failed render leaves no truncated image behind
+                if (stream != null && !finished) stream.abort();
+            }
+        }
+
+        if (stream != null && checkpointFile != null) RenderCheckpoint.delete(checkpointFile);
+        return this;
+    }
+
+    /**
+     * Renders the image again after the scene was edited - only the tiles whose rays
+     * depended on the changed geometries and lights, or may meet the added ones, are
+     * traced. The camera must be built with incremental rendering from a scene and have
+     * rendered its image; from now on it renders the new version of the scene.
+     *
+     * @param scene the edited scene
+     * @return the number of tiles rendered again
+     * @throws IllegalStateException if the camera does not render incrementally, or has not rendered yet
+     */
+    public int renderChanges(Scene scene) {
+        return renderChanges(scene.compile());
+    }
+
+    /**
+     * Renders the image again with a new compiled version of the scene, see
+     * {@link #renderChanges(Scene)}. Geometries moved in place since the rendered
+     * version was compiled are rendered again too, so the version may be the rendered
+     * one refitted after its geometries moved, see {@link CompiledScene#refit()}.
+     *
+     * @param compiled the new compiled version of the scene
+     * @return the number of tiles rendered again
+     * @throws IllegalStateException if the camera does not render incrementally, or has not rendered yet
+     */
+    public int renderChanges(CompiledScene compiled) {
+        if (dependencies == null)
+            throw new IllegalStateException("Incremental rendering is off, or the image was not rendered yet");
+        if (rayTracerType == null)
+            throw new IllegalStateException("Incremental rendering needs a ray tracer built from a scene");
+        if (streamingFile != null)
+            throw new IllegalStateException("A streamed image cannot be rendered again");
+
+        SceneChanges changes = SceneChanges.between(rayTracer.scene, compiled);
+        rayTracer = new SimpleRayTracer(compiled);
+        renderKey = null; // the image mixes tiles of both versions - nothing more is cached
+        if (changes.isEmpty()) return 0;
+
+        Tile[] tiles = Tile.grid(nX, nY, tileSize);
+        boolean[] affected = new boolean[tiles.length];
+        for (Tile tile : tiles) {
+            TileDependencies record = dependencies[tile.index()];
+            affected[tile.index()] = record == null || record.isAffectedBy(changes);
         }
+        // the edge pixels of a tile depend on the primary hits of the neighbour tiles
+        Tile[] selected = select(tiles, edgeAntiAliasing ? withNeighbours(affected) : affected);
+        for (Tile tile : selected) dependencies[tile.index()] = null;
+        render(selected, selected, null, frameBuffer != null ? frameBuffer : imageWriter);
+        return selected.length;
+    }
+
+    /**
+     * Shades the image again after the lights of the scene were edited in place - their
+     * intensity, color, attenuation or beam. The primary rays are not traced again: every
+     * recorded primary hit is shaded with the current lights, which also traces its
+     * shadow rays, and its reflected and refracted rays, since the colors they bring
+     * depend on the lights too. Pixels without a recorded hit are rendered as usual.
+     * The camera must be built with relighting and have rendered its image.
+     *
+     * @return the camera object
+     * @throws IllegalStateException if relighting is off, or the camera has not rendered yet
+     */
+    public Camera relight() {
+        if (relightingHits == null)
+            throw new IllegalStateException("Relighting is off, or the image was not rendered yet");
+        if (streamingFile != null)
+            throw new IllegalStateException("A streamed image cannot be rendered again");
+
+        renderKey = null; // the image is not the render of its cache key anymore
+        RelightingBuffer hits = relightingHits;
+        FrameBuffer target = frameBuffer != null ? frameBuffer : imageWriter;
+        // the dependencies of the new shading are added to the recorded ones
+        renderTiles(Tile.grid(nX, nY, tileSize), recording((tile, sampler) -> {
+            Color[] colors = new Color[tile.size()];
+            int k = 0;
+            for (int row = tile.y(); row < tile.y() + tile.height(); row++) {
+                for (int col = tile.x(); col < tile.x() + tile.width(); col++) {
+                    Intersection hit = hits.hit(col, row);
+                    colors[k++] = !hits.isRecorded(col, row) ? renderPixel(col, row, null, sampler, null)
+                            : hit == null ? rayTracer.scene.background
+                            : rayTracer.calcColor(hit, rays.pixelRay(col, row));
+                }
+            }
+            target.writeTile(tile.x(), tile.y(), tile.width(), tile.height(), colors);
+        }));
         return this;
     }
-    private Camera renderImageMultiThreaded() {
-        final int nX = this.nX;
-        final int nY = this.nY;
-        final AtomicInteger nextRow = new AtomicInteger(0); // אינדקס שורה הבא
+
+    /**
+     * Shades the image again with the lights of an edited version of the scene - lights
+     * may be added, removed or edited, and the background and the ambient light may
+     * change, but the geometries must stay. From now on the camera renders the new
+     * version of the scene. See {@link #relight()}.
+     *
+     * @param scene the edited scene
+     * @return the camera object
+     * @throws IllegalStateException    if relighting is off, or the camera has not rendered yet
+     * @throws IllegalArgumentException if geometries were added to the scene, removed from it or moved
+     */
+    public Camera relight(Scene scene) {
+        if (relightingHits == null)
+            throw new IllegalStateException("Relighting is off, or the image was not rendered yet");
+
+        CompiledScene compiled = scene.compile();
+        SceneChanges changes = SceneChanges.between(rayTracer.scene, compiled);
+        if (!changes.getAdded().isEmpty() || !changes.getRemoved().isEmpty() || !changes.getMoved().isEmpty())
+            throw new IllegalArgumentException("Relighting cannot change the geometries of the scene");
+        rayTracer = new SimpleRayTracer(compiled);
+        return relight();
+    }
+
+    /**
+     * Extends a selection of tiles by the neighbours of the selected tiles
+     *
+     * @param selected the selection flags by tile index
+     * @return new selection flags
+     */
+    private boolean[] withNeighbours(boolean[] selected) {
+        int tilesX = (nX + tileSize - 1) / tileSize;
+        boolean[] extended = selected.clone();
+        for (int i = 0; i < selected.length; ++i) {
+            if (!selected[i]) continue;
+            int tx = i % tilesX, ty = i / tilesX;
+            for (int y = Math.max(0, ty - 1); y <= ty + 1; ++y)
+                for (int x = Math.max(0, tx - 1); x <= Math.min(tilesX - 1, tx + 1); ++x)
+                    if (y * tilesX + x < selected.length) extended[y * tilesX + x] = true;
+        }
+        return extended;
+    }
+
+    /**
+     * The selected tiles
+     *
+     * @param tiles    all the tiles
+     * @param selected the selection flags by tile index
+     * @return the selected tiles in index order
+     */
+    private static Tile[] select(Tile[] tiles, boolean[] selected) {
+        return IntStream.range(0, tiles.length).filter(i -> selected[i]).mapToObj(i -> tiles[i])
+                .toArray(Tile[]::new);
+    }
+
+    /**
+     * Renders tiles into a frame buffer - the primary hits pass of the edge anti-aliasing
+     * first, if it is on. The dependencies of the tiles are recorded if incremental
+     * rendering is on, and the rendered tiles are cached if the render has a cache key.
+     *
+     * @param tiles      the tiles to render
+     * @param hitTiles   the tiles of the primary hits pass - the rendered tiles and the
+     *                   neighbours whose hits are not recorded yet
+     * @param checkpoint the checkpoint of the render, null if checkpointing is off
+     * @param target     the frame buffer of the rendered pixels
+     */
+    private void render(Tile[] tiles, Tile[] hitTiles, RenderCheckpoint checkpoint, FrameBuffer target) {
+        GBuffer gBuffer = null;
+        if (edgeAntiAliasing) {
+            GBuffer hits = gBuffer = primaryHits != null ? primaryHits : new GBuffer(nX, nY);
+            if (incremental) primaryHits = hits;
+            renderTiles(hitTiles, recording((tile, sampler) -> renderPrimaryHits(tile, hits)));
+        }
+        final GBuffer edges = gBuffer;
+        final byte[] key = renderKey;
+        renderTiles(tiles, recording((tile, sampler) -> {
+            Color[] colors = renderTile(tile, checkpoint, sampler, edges, target);
+            if (key != null) tileCache.store(key, tile, colors);
+        }));
+    }
+
+    /**
+     * Wraps a rendering task to record the dependencies of its tile, if incremental
+     * rendering is on
+     *
+     * @param task the task to run per tile
+     * @return the recording task
+     */
+    private BiConsumer<Tile, Sampler> recording(BiConsumer<Tile, Sampler> task) {
+        if (dependencies == null) return task;
+        RayTracerBase tracer = rayTracer;
+        BoundingBox world = tracer.scene.bounds;
+        return (tile, sampler) -> {
+            TileDependencies record = dependencies[tile.index()];
+            if (record == null) dependencies[tile.index()] = record = new TileDependencies(world);
+            tracer.beginRecording(record);
+            try {
+                task.accept(tile, sampler);
+            } finally {
+                tracer.endRecording();
+            }
+        };
+    }
+
+    /**
+     * Renders on the threads of a pool shared with other cameras, instead of the
+     * threads of the camera
+     *
+     * @param pool the shared pool, null for the threads of the camera
+     * @param view the index of the camera in the pool - lower views are rendered first
+     */
+    void useTilePool(TilePool pool, int view) {
+        this.tilePool = pool;
+        this.view = view;
+    }
+
+    /**
+     * Runs a rendering task on every tile - on the calling thread, on the render
+     * threads when multithreading is on, or on a shared pool of a multi-view render.
+     * Every thread has its own sampler.
+     *
+     * @param tiles the tiles to render
+     * @param task  the task to run per tile
+     */
+    private void renderTiles(Tile[] tiles, BiConsumer<Tile, Sampler> task) {
+        if (tilePool != null) {
+            tilePool.run(view, tiles, samplerType, task);
+            return;
+        }
+        if (!multithreading) {
+            Sampler sampler = samplerType.create(SAMPLER_SEED);
+            for (Tile tile : tiles)
+                task.accept(tile, sampler);
+            return;
+        }
+
+        final AtomicInteger nextTile = new AtomicInteger(0); // אינדקס האריח הבא
 
         Thread[] threads = new Thread[threadsCount];
 
         for (int i = 0; i < threads.length; ++i) {
             threads[i] = new Thread(() -> {
-                int row;
-                while ((row = nextRow.getAndIncrement()) < nY) {
-                    for (int col = 0; col < nX; col++) {
-                        Color finalColor;
-                        if (adaptiveAntiAliasing) {
-                            double Ry = height / nY;
-                            double Rx = width / nX;
-                            double Yi = -(row - (nY - 1) / 2d) * Ry;
-                            double Xj = (col - (nX - 1) / 2d) * Rx;
-                            finalColor = adaptiveAntiAliasing(nX, nY, col, row, maxAdaptiveDepth, Rx, Ry, Xj, Yi);
-                        } else if (antiAliasing) {
-                            List<Ray> rays = constructAARays(nX, nY, col, row);
-                            finalColor = Color.BLACK;
-                            for (Ray ray : rays) {
-                                finalColor = finalColor.add(rayTracer.traceRay(ray));
-                            }
-                            finalColor = finalColor.scale(1.0 / rays.size());
-                        } else {
-                            Ray ray = constructRay(nX, nY, col, row);
-                            finalColor = rayTracer.traceRay(ray);
-                        }
-                        imageWriter.writePixel(col, row, finalColor);
-                    }
+                Sampler sampler = samplerType.create(SAMPLER_SEED); // זרם דגימות פרטי לכל תהליכון
+                int tile;
+                while ((tile = nextTile.getAndIncrement()) < tiles.length) {
+                    task.accept(tiles[tile], sampler);
                 }
             });
         }
@@ -175,35 +432,229 @@ public class Camera implements Cloneable {
         } catch (InterruptedException e) {
             throw new RuntimeException("Multithreading interrupted", e);
         }
+    }
 
-        return this;
+    /**
+     * First pass of the edge anti-aliasing: traces one ray through the center of every
+     * pixel of a tile and records its hit geometry, normal, depth and color
+     *
+     * @param tile    the tile to trace
+     * @param gBuffer the geometry buffer to record into
+     */
+    private void renderPrimaryHits(Tile tile, GBuffer gBuffer) {
+        for (int row = tile.y(); row < tile.y() + tile.height(); row++) {
+            for (int col = tile.x(); col < tile.x() + tile.width(); col++) {
+                Ray ray = rays.pixelRay(col, row);
+                Intersection hit = rayTracer.findClosestIntersection(ray);
+                Color color = rayTracer.calcColor(hit, ray);
+                gBuffer.record(col, row, hit, hit == null ? 0 : hit.point.distance(p0), color);
+            }
+        }
     }
 
+    /**
+     * Renders all the pixels of a tile into the image, or restores them from the
+     * checkpoint if the tile was finished by a previous render
+     *
+     * @param tile       the tile to render
+     * @param checkpoint the checkpoint of the render, null if checkpointing is off
+     * @param sampler    the anti-aliasing sampler of the rendering thread
+     * @param gBuffer    the primary hits for the edge anti-aliasing, null if it is off
+     * @param target     the frame buffer of the rendered pixels
+     * @return the pixel colors of the tile in row-major order
+     */
+    private Color[] renderTile(Tile tile, RenderCheckpoint checkpoint, Sampler sampler, GBuffer gBuffer,
+                               FrameBuffer target) {
+        Color[] colors = checkpoint == null ? null : checkpoint.restore(tile);
+        if (colors != null) {
+            target.writeTile(tile.x(), tile.y(), tile.width(), tile.height(), colors);
+            // the dependencies of a restored tile are unknown - it is affected by any edit
+            if (dependencies != null) dependencies[tile.index()] = null;
+            return colors;
+        }
 
-    private Color adaptiveAntiAliasing(int nX, int nY, int j, int i, int depth, double pixelWidth, double pixelHeight, double centerX, double centerY) {
-        if (depth == 0 || pixelWidth < MIN_PIXEL_SIZE || pixelHeight < MIN_PIXEL_SIZE) {
-            Ray ray = constructRayThroughPoint(centerX, centerY);
-            return rayTracer.traceRay(ray);
+        colors = new Color[tile.size()];
+        LatticeSampleCache cache = adaptiveAntiAliasing ? new LatticeSampleCache(tile, adaptiveLattice) : null;
+        PixelStatistics statistics = varianceAntiAliasing ? new PixelStatistics() : null;
+        int k = 0;
+        for (int row = tile.y(); row < tile.y() + tile.height(); row++) {
+            for (int col = tile.x(); col < tile.x() + tile.width(); col++) {
+                Color color = gBuffer != null ? renderEdgePixel(col, row, sampler, gBuffer)
+                        : currentFrame != null ? renderReprojectedPixel(col, row, cache, sampler, statistics)
+                        : renderPixel(col, row, cache, sampler, statistics);
+                colors[k++] = color;
+            }
         }
+        target.writeTile(tile.x(), tile.y(), tile.width(), tile.height(), colors);
+        if (checkpoint != null) checkpoint.record(tile, colors);
+        return colors;
+    }
 
-        double halfWidth = pixelWidth / 2;
-        double halfHeight = pixelHeight / 2;
+    /**
+     * Calculates the final color of a pixel according to the anti-aliasing settings
+     *
+     * @param j          column index (pixel)
+     * @param i          row index (pixel)
+     * @param cache      the adaptive anti-aliasing sample cache of the tile, null if adaptive anti-aliasing is off
+     * @param sampler    the anti-aliasing sampler of the rendering thread
+     * @param statistics the sample statistics of the tile, null if variance driven anti-aliasing is off
+     * @return the color of the pixel
+     */
+    private Color renderPixel(int j, int i, LatticeSampleCache cache, Sampler sampler, PixelStatistics statistics) {
+        if (adaptiveAntiAliasing) {
+            long half = adaptiveLattice / 2;
+            return adaptiveAntiAliasing(cache, j * adaptiveLattice + half, i * adaptiveLattice + half,
+                    half, maxAdaptiveDepth);
+        }
+        if (varianceAntiAliasing) {
+            return varianceAntiAliasing(j, i, sampler, statistics);
+        }
+        if (antiAliasing) {
+            return supersample(j, i, sampler);
+        }
+        if (relightingHits != null) {
+            Ray ray = rays.pixelRay(j, i);
+            Intersection hit = rayTracer.findClosestIntersection(ray);
+            relightingHits.record(j, i, hit);
+            return hit == null ? rayTracer.scene.background : rayTracer.calcColor(hit, ray);
+        }
+        return rayTracer.traceRay(rays.pixelRay(j, i));
+    }
 
-        // 4 פינות
-        double[][] offsets = {
-                {-halfWidth, -halfHeight},
-                {halfWidth, -halfHeight},
-                {-halfWidth, halfHeight},
-                {halfWidth, halfHeight}
-        };
+    /**
+     * Calculates the color of a pixel of an animation frame with temporal reuse: the
+     * primary hit of the pixel center is reprojected into the previous frame, and the
+     * color that frame had for the hit point is reused if the material of the hit looks
+     * the same from every direction. Other pixels - disoccluded, view dependent, or
+     * too far from the point their color was shaded at - are rendered. The hit and the color are recorded for the
+     * next frame.
+     *
+     * @param j          column index (pixel)
+     * @param i          row index (pixel)
+     * @param cache      the adaptive anti-aliasing sample cache of the tile, null if adaptive anti-aliasing is off
+     * @param sampler    the anti-aliasing sampler of the rendering thread
+     * @param statistics the sample statistics of the tile, null if variance driven anti-aliasing is off
+     * @return the color of the pixel
+     */
+    private Color renderReprojectedPixel(int j, int i, LatticeSampleCache cache, Sampler sampler,
+                                         PixelStatistics statistics) {
+        Ray ray = rays.pixelRay(j, i);
+        Intersection hit = rayTracer.findClosestIntersection(ray);
+        int index = previousFrame == null || hit == null || rayTracer.scene.isViewDependent(hit.material) ? -1
+                : previousFrame.find(ray, hit);
+        if (index >= 0) {
+            Color color = previousFrame.color(index);
+            currentFrame.record(j, i, ray, hit, color, index, previousFrame);
+            return color;
+        }
+        Color color = antiAliasing || adaptiveAntiAliasing || varianceAntiAliasing
+                ? renderPixel(j, i, cache, sampler, statistics)
+                : hit == null ? rayTracer.scene.background : rayTracer.calcColor(hit, ray);
+        currentFrame.record(j, i, ray, hit, color, -1, null);
+        return color;
+    }
 
-        Color[] colors = new Color[4];
-        for (int k = 0; k < 4; k++) {
-            double x = centerX + offsets[k][0];
-            double y = centerY + offsets[k][1];
-            Ray ray = constructRayThroughPoint(x, y);
-            colors[k] = rayTracer.traceRay(ray);
+    /**
+     * Averages the anti-aliasing samples of a pixel at the sample positions of the sampler
+     *
+     * @param j       column index (pixel)
+     * @param i       row index (pixel)
+     * @param sampler the anti-aliasing sampler of the rendering thread
+     * @return the mean color of the samples
+     */
+    private Color supersample(int j, int i, Sampler sampler) {
+        sampler.samplePixel(j, i, samples);
+        Color finalColor = Color.BLACK;
+        for (int k = 0; k < samples; k++) {
+            finalColor = finalColor.add(rayTracer.traceRay(rays.sampleRay(j, i, sampler.x(k), sampler.y(k))));
         }
+        return finalColor.scale(1.0 / samples);
+    }
+
+    /**
+     * Second pass of the edge anti-aliasing: a pixel on a geometric edge is supersampled
+     * with the anti-aliasing rays, any other pixel keeps the color of its primary ray
+     *
+     * @param j       column index (pixel)
+     * @param i       row index (pixel)
+     * @param sampler the anti-aliasing sampler of the rendering thread
+     * @param gBuffer the primary hits of the image
+     * @return the color of the pixel
+     */
+    private Color renderEdgePixel(int j, int i, Sampler sampler, GBuffer gBuffer) {
+        return gBuffer.isEdge(j, i) ? supersample(j, i, sampler) : gBuffer.color(j, i);
+    }
+
+    /**
+     * Variance driven anti-aliasing: samples the pixel along the sampler sequence and
+     * keeps the running mean and variance of the samples, until the confidence interval
+     * of the mean is narrower than the error target or the samples cap is reached.
+     *
+     * @param j          column index (pixel)
+     * @param i          row index (pixel)
+     * @param sampler    the sampler of the rendering thread
+     * @param statistics the sample statistics to reuse
+     * @return the mean color of the samples
+     */
+    private Color varianceAntiAliasing(int j, int i, Sampler sampler, PixelStatistics statistics) {
+        sampler.samplePixel(j, i, maxSamples);
+        statistics.reset();
+        for (int k = 0; k < maxSamples; k++) {
+            statistics.add(rayTracer.traceRay(rays.sampleRay(j, i, sampler.x(k), sampler.y(k))));
+            if (k + 1 >= minSamples && statistics.error(CONFIDENCE_Z) <= maxError) break;
+        }
+        return statistics.mean();
+    }
+
+    /**
+     * Key of the render - the digest of the scene content together with the ray tracer
+     * and all the settings that determine the pixels. It addresses the tiles of the
+     * render in the tile cache, and matches a checkpoint to the render it belongs to.
+     *
+     * @return the key, null if the scene cannot be digested
+     */
+    private byte[] renderKey() {
+        byte[] scene = rayTracer.scene == null ? null : rayTracer.scene.digest();
+        if (scene == null) return null;
+        ByteBuffer settings = ByteBuffer.allocate(256);
+        for (Point point : new Point[]{p0, vTo, vUp})
+            settings.putDouble(point.getX()).putDouble(point.getY()).putDouble(point.getZ());
+        settings.putDouble(width).putDouble(height).putDouble(distance).putInt(nX).putInt(nY).putInt(tileSize)
+                .put((byte) (antiAliasing ? 1 : 0)).putInt(samples).putInt(samplerType.ordinal())
+                .put((byte) (adaptiveAntiAliasing ? 1 : 0)).putInt(maxAdaptiveDepth).putDouble(adaptiveThreshold)
+                .put((byte) (varianceAntiAliasing ? 1 : 0)).putInt(minSamples).putInt(maxSamples)
+                .putDouble(maxError).put((byte) (edgeAntiAliasing ? 1 : 0)).putLong(SAMPLER_SEED);
+        return TileCache.renderKey(scene, rayTracer.getClass().getName(), settings.flip());
+    }
+
+    /**
+     * Adaptive anti-aliasing of a lattice cell: traces the 4 corners of the cell and
+     * recursively splits the cell into 4 quarters while the corner colors differ by
+     * more than the threshold. Samples are addressed by their sub-pixel lattice
+     * coordinates and taken from the tile cache, so corners shared with neighbour
+     * pixels and with the parent cell are traced only once.
+     *
+     * @param cache the sample cache of the tile
+     * @param u     lattice column of the cell center
+     * @param v     lattice row of the cell center
+     * @param half  half of the cell edge in lattice steps
+     * @param depth remaining subdivision levels
+     * @return the average color of the cell
+     */
+    private Color adaptiveAntiAliasing(LatticeSampleCache cache, long u, long v, long half, int depth) {
+        double pixelWidth = 2 * half * width / nX / adaptiveLattice;
+        double pixelHeight = 2 * half * height / nY / adaptiveLattice;
+        if (depth == 0 || pixelWidth < MIN_PIXEL_SIZE || pixelHeight < MIN_PIXEL_SIZE) {
+            return latticeSample(cache, u, v);
+        }
+
+        // 4 פינות
+        Color[] colors = {
+                latticeSample(cache, u - half, v + half),
+                latticeSample(cache, u + half, v + half),
+                latticeSample(cache, u - half, v - half),
+                latticeSample(cache, u + half, v - half)
+        };
 
         boolean needSplit = false;
         for (int m = 0; m < 4 && !needSplit; m++) {
@@ -217,21 +668,27 @@ public class Camera implements Cloneable {
 
         if (!needSplit) {
             return colors[0].add(colors[1]).add(colors[2]).add(colors[3]).scale(0.25);
-        } else {
-            Color totalColor = Color.BLACK;
-            double[][] quarterOffsets = {
-                    {-halfWidth / 2, -halfHeight / 2},
-                    {halfWidth / 2, -halfHeight / 2},
-                    {-halfWidth / 2, halfHeight / 2},
-                    {halfWidth / 2, halfHeight / 2}
-            };
-            for (int k = 0; k < 4; k++) {
-                double x = centerX + quarterOffsets[k][0];
-                double y = centerY + quarterOffsets[k][1];
-                totalColor = totalColor.add(adaptiveAntiAliasing(nX, nY, j, i, depth - 1, halfWidth, halfHeight, x, y));
-            }
-            return totalColor.scale(0.25);
         }
+        long quarter = half / 2;
+        return adaptiveAntiAliasing(cache, u - quarter, v + quarter, quarter, depth - 1)
+                .add(adaptiveAntiAliasing(cache, u + quarter, v + quarter, quarter, depth - 1),
+                        adaptiveAntiAliasing(cache, u - quarter, v - quarter, quarter, depth - 1),
+                        adaptiveAntiAliasing(cache, u + quarter, v - quarter, quarter, depth - 1))
+                .scale(0.25);
+    }
+
+    /**
+     * Color of the sample ray through a sub-pixel lattice point, traced once per tile
+     *
+     * @param cache the sample cache of the tile
+     * @param u     lattice column (pixel j starts at column j * adaptiveLattice)
+     * @param v     lattice row (pixel i starts at row i * adaptiveLattice)
+     * @return the color of the sample
+     */
+    private Color latticeSample(LatticeSampleCache cache, long u, long v) {
+        return cache.get(u, v, () -> rayTracer.traceRay(rays.viewPlaneRay(
+                (double) u / adaptiveLattice - nX / 2d,
+                -((double) v / adaptiveLattice - nY / 2d))));
     }
 
     /**
@@ -266,15 +723,123 @@ public class Camera implements Cloneable {
             throw new IllegalStateException("imageWriter is not initialized");
 
         imageWriter.writeToImage(filename);
+        if (checkpointFile != null) RenderCheckpoint.delete(checkpointFile);
+        return this;
+    }
+
+    /**
+     * Writes the image to a file of the given format.
+     *
+     * @param filename the file name without extension
+     * @param format   the file format
+     * @return the camera object
+     */
+    public Camera writeToImage(String filename, ImageFormat format) {
+        if (imageWriter == null)
+            throw new IllegalStateException("imageWriter is not initialized");
+
+        imageWriter.writeToImage(filename, format);
+        if (checkpointFile != null) RenderCheckpoint.delete(checkpointFile);
         return this;
     }
 
+    /**
+     * Writes a copy of the image to a file on the encoder threads of an output queue,
+     * so the next image can be rendered while this one is encoded. Blocks while the
+     * queue is full - the image is copied only once the queue has room for it.
+     *
+     * @param filename the file name without extension
+     * @param output   the output queue
+     * @return future completed with the written file
+     */
+    public CompletableFuture<Path> writeToImageAsync(String filename, ImageOutputQueue output) {
+        if (imageWriter == null)
+            throw new IllegalStateException("imageWriter is not initialized");
+
+        CompletableFuture<Path> written = output.submitCopy(imageWriter, filename);
+        if (checkpointFile == null) return written;
+        Path checkpoint = checkpointFile;
+        return written.thenApply(file -> {
+            RenderCheckpoint.delete(checkpoint);
+            return file;
+        });
+    }
+
+    /**
+     * Renders an animation sequence along a camera path, with all the other settings of
+     * this camera. The frames share the ray tracer of the camera, so the scene is
+     * compiled and its acceleration structure built once, and every frame is written
+     * on the encoder threads of the output queue while the next one is rendered. With
+     * temporal reuse on, every frame reuses the shading of the previous one where it
+     * sees the same surface points. The camera itself keeps its own placement.
+     *
+     * @param path     the camera path
+     * @param frames   the number of frames, spread evenly from the start to the end of the path
+     * @param filename the file name prefix of the frames, followed by the 4-digit frame number
+     * @param output   the output queue of the frames
+     * @return futures completed with the written frame files, in frame order
+     * @throws IllegalStateException if the camera does not render into an in-memory image,
+     *                               or has checkpointing on
+     */
+    public List<CompletableFuture<Path>> renderSequence(CameraPath path, int frames, String filename,
+                                                        ImageOutputQueue output) {
+        if (frames <= 0)
+            throw new IllegalArgumentException("Number of frames must be positive");
+        if (imageWriter == null)
+            throw new IllegalStateException("imageWriter is not initialized");
+        if (checkpointFile != null)
+            throw new IllegalStateException("A sequence cannot be checkpointed");
+
+        List<CompletableFuture<Path>> files = new ArrayList<>(frames);
+        double start = path.getStartTime(), end = path.getEndTime();
+        TemporalBuffer previous = null;
+        for (int frame = 0; frame < frames; ++frame) {
+            double time = frames == 1 ? start : start + (end - start) * frame / (frames - 1);
+            Camera camera = at(path.at(time));
+            if (temporalReuse) {
+                camera.previousFrame = previous;
+                camera.currentFrame = previous = new TemporalBuffer(camera.p0, camera.vTo, camera.vUp,
+                        camera.vRight, distance, width, height, nX, nY,
+                        antiAliasing || adaptiveAntiAliasing || varianceAntiAliasing);
+            }
+            files.add(camera.renderImage().writeToImageAsync(String.format("%s%04d", filename, frame), output));
+        }
+        return files;
+    }
+
+    /**
+     * A copy of the camera placed at a pose of a camera path. The copy shares the ray
+     * tracer and the image of this camera.
+     *
+     * @param pose the placement
+     * @return the placed camera
+     */
+    private Camera at(CameraPath.Pose pose) {
+        Camera camera;
+        try {
+            camera = (Camera) clone();
+        } catch (CloneNotSupportedException exception) {
+            throw new RuntimeException(exception);
+        }
+        camera.p0 = pose.location();
+        camera.vTo = pose.target().subtract(pose.location()).normalize();
+        camera.vRight = camera.vTo.crossProduct(pose.up()).normalize();
+        camera.vUp = camera.vRight.crossProduct(camera.vTo).normalize();
+        camera.rays = new RayGenerator(camera.p0, camera.vTo, camera.vUp, camera.vRight,
+                distance, width, height, nX, nY);
+        return camera;
+    }
+
     /**
      * Builder class to construct {@link Camera} instances using chained methods.
      */
     public static class Builder {
 
         private final Camera camera = new Camera();
+        /** Scene to compile for every built camera, null for a ready ray tracer */
+        private Scene scene;
+        /** Type of the ray tracer of the scene */
+        private RayTracerType rayTracerType;
 
         public Builder setLocation(Point p0) {
             camera.p0 = p0;
@@ -353,34 +918,269 @@ public class Camera implements Cloneable {
         }
 
         /**
-         * Sets the ray tracer for the camera.
+         * Enables incremental rendering: while the image is rendered, the camera records which
+         * geometries and lights the rays of every tile depended on, so that
+         * {@link Camera#renderChanges(Scene)} renders only the tiles a scene edit affects.
+         * Needs a ray tracer set from a scene.
+         *
+         * @return the builder instance
+         */
+        public Builder enableIncrementalRendering() {
+            camera.incremental = true;
+            return this;
+        }
+
+        /**
+         * Sets the ray tracer for the camera. The scene is compiled when the camera is
+         * built, so each camera renders a snapshot of the scene at its {@link #build()}.
          *
          * @param scene        the scene to trace
          * @param rayTracerType the type of ray tracer
          * @return the builder instance
          */
         public Builder setRayTracer(Scene scene, RayTracerType rayTracerType) {
-            if (rayTracerType == RayTracerType.SIMPLE) {
-                camera.rayTracer = new SimpleRayTracer(scene);
-            } else {
-                camera.rayTracer = null;
-            }
+            this.scene = scene;
+            this.rayTracerType = rayTracerType;
+            camera.rayTracer = null;
+            return this;
+        }
+
+        /**
+         * Sets a ready ray tracer for the camera, e.g. one shared by several cameras.
+         *
+         * @param rayTracer the ray tracer
+         * @return the builder instance
+         */
+        public Builder setRayTracer(RayTracerBase rayTracer) {
+            scene = null;
+            camera.rayTracer = rayTracer;
+            return this;
+        }
+
+        /**
+         * Sets the sampler type placing the anti-aliasing samples inside a pixel.
+         * The default is a regular grid.
+         *
+         * @param samplerType the sampler type
+         * @return the builder instance
+         */
+        public Builder setSampler(SamplerType samplerType) {
+            camera.samplerType = samplerType;
             return this;
         }
 
         public Builder enableAntiAliasing(int samples) {
+            if (samples <= 0) {
+                throw new IllegalArgumentException("Number of samples must be positive");
+            }
             camera.antiAliasing = true;
             camera.samples = samples;
             return this;
         }
 
+        /**
+         * Enables adaptive anti-aliasing - pixels are recursively split into quarters
+         * while the colors of their corners differ by more than the threshold.
+         *
+         * @param maxDepth  maximal number of subdivision levels (0 to 16)
+         * @param threshold maximal color component difference of corners of an unsplit cell
+         * @return the builder instance
+         */
         public Builder enableAdaptiveAntiAliasing(int maxDepth, double threshold) {
+            if (maxDepth < 0 || maxDepth > MAX_ADAPTIVE_DEPTH) {
+                throw new IllegalArgumentException("Adaptive depth must be between 0 and " + MAX_ADAPTIVE_DEPTH);
+            }
             camera.adaptiveAntiAliasing = true;
             camera.maxAdaptiveDepth = maxDepth;
+            camera.adaptiveLattice = 1L << (maxDepth + 1);
             camera.adaptiveThreshold = threshold;
             return this;
         }
 
+        /**
+         * Sets the edge length of the square tiles the image is rendered in.
+         *
+         * @param tileSize tile edge length in pixels
+         * @return the builder instance
+         */
+        public Builder setTileSize(int tileSize) {
+            if (tileSize <= 0) {
+                throw new IllegalArgumentException("Tile size must be positive");
+            }
+            camera.tileSize = tileSize;
+            return this;
+        }
+
+        /**
+         * Enables periodic checkpointing of the render into a file.
+         * If the file holds a checkpoint of an interrupted render of the same scene
+         * content by the same ray tracer and camera settings, the render resumes from
+         * it and skips the finished tiles; a checkpoint of another render is ignored.
+         * Only finished tiles are saved - an interrupted tile is rendered again from
+         * its first sample. Renders of scenes whose geometry or light types cannot be
+         * compiled into a {@link scene.SceneFile} are not checkpointed.
+         * The file is deleted once the image has been written.
+         *
+         * @param file           the checkpoint file
+         * @param intervalMillis minimal time between checkpoint writes in milliseconds
+         * @return the builder instance
+         */
+        public Builder enableCheckpoint(Path file, long intervalMillis) {
+            if (intervalMillis < 0) {
+                throw new IllegalArgumentException("Checkpoint interval must not be negative");
+            }
+            camera.checkpointFile = file;
+            camera.checkpointInterval = intervalMillis;
+            return this;
+        }
+
+        /**
+         * Enables the tile cache in a local directory: a finished tile is stored under
+         * a hash of the scene content, the camera and the render settings, and a later
+         * render of the same scene from the same camera - by this or another process -
+         * takes it from the cache instead of tracing it. The least recently used tiles
+         * are deleted when the cache grows over its size limit. Renders of scenes whose
+         * geometry or light types cannot be compiled into a {@link scene.SceneFile} are
+         * not cached, and neither are the sequence frames that reuse the shading of
+         * their previous frame.
+         *
+         * @param directory the cache directory, may be shared by several processes
+         * @param maxBytes  size limit of the cached tiles in bytes
+         * @return the builder instance
+         */
+        public Builder enableTileCache(Path directory, long maxBytes) {
+            if (maxBytes <= 0) {
+                throw new IllegalArgumentException("Tile cache size must be positive");
+            }
+            camera.tileCache = new TileCache(directory, maxBytes);
+            return this;
+        }
+
+        /**
+         * Sets the PNG encoder of the image file - e.g. {@code new PngEncoder(0)} for fast
+         * uncompressed intermediate frames. By default the image is encoded by
+         * {@link PngEncoder#DEFAULT}, without loading AWT.
+         *
+         * @param encoder the parallel PNG encoder, null for the ImageIO encoder
+         * @return the builder instance
+         */
+        public Builder setPngEncoder(PngEncoder encoder) {
+            camera.pngEncoder = encoder;
+            return this;
+        }
+
+        /**
+         * Renders into the given frame buffer instead of an in-memory image - e.g. an
+         * {@link OffHeapFrameBuffer} for renders larger than the heap. The in-memory
+         * image is not created, so {@link Camera#printGrid(int, Color)} and
+         * {@link Camera#writeToImage(String)} are not available.
+         *
+         * @param frameBuffer the frame buffer, with the size of the camera resolution
+         * @return the builder instance
+         */
+        public Builder setFrameBuffer(FrameBuffer frameBuffer) {
+            camera.frameBuffer = frameBuffer;
+            return this;
+        }
+
+        /**
+         * Keeps the unclamped pixel colors besides the 8 bit image, for writing the
+         * image as a float {@link ImageFormat#PFM} file
+         *
+         * @return the builder instance
+         */
+        public Builder enableHdrOutput() {
+            camera.hdrOutput = true;
+            return this;
+        }
+
+        /**
+         * Streams the rendered image into a PNG file while rendering, instead of keeping
+         * the whole image in memory - for images larger than the heap. The file is
+         * complete when {@link Camera#renderImage()} returns; the in-memory image is not
+         * created, so {@link Camera#printGrid(int, Color)} and
+         * {@link Camera#writeToImage(String)} are not available.
+         *
+         * @param file the PNG file to write
+         * @return the builder instance
+         */
+        public Builder setStreamingOutput(Path file) {
+            camera.streamingFile = file;
+            return this;
+        }
+
+        /**
+         * Enables edge anti-aliasing - the image is first rendered with one ray per pixel
+         * while recording the hit geometry, normal and depth of every pixel, then only
+         * the pixels on geometric discontinuities are supersampled with the given
+         * number of anti-aliasing rays.
+         *
+         * @param samples number of anti-aliasing rays of an edge pixel
+         * @return the builder instance
+         */
+        public Builder enableEdgeAntiAliasing(int samples) {
+            enableAntiAliasing(samples);
+            camera.edgeAntiAliasing = true;
+            return this;
+        }
+
+        /**
+         * Enables temporal reuse in the animation sequences of the camera, see
+         * {@link Camera#renderSequence(CameraPath, int, String, ImageOutputQueue)}: a frame
+         * traces the primary ray of every pixel, and reuses the color the previous frame
+         * had for the hit point, validated by the hit geometry and depth. Only disoccluded
+         * pixels and pixels of specular, reflective or transparent surfaces are shaded
+         * again. The scene must not change during the sequence - it does not, since the
+         * frames share the compiled scene of the camera. Not available with edge
+         * anti-aliasing.
+         *
+         * @return the builder instance
+         */
+        public Builder enableTemporalReuse() {
+            camera.temporalReuse = true;
+            return this;
+        }
+
+        /**
+         * Enables relighting, see {@link Camera#relight()}: the primary hit of every pixel
+         * is kept, so after the lights of the scene are edited the image is shaded again
+         * without tracing the primary rays. Every pixel is shaded at its center, so
+         * relighting cannot be combined with anti-aliasing or with temporal reuse.
+         *
+         * @return the builder instance
+         */
+        public Builder enableRelighting() {
+            camera.relighting = true;
+            return this;
+        }
+
+        /**
+         * Enables variance driven anti-aliasing - every pixel keeps taking samples until
+         * the 95% confidence interval of its mean color is within the error target
+         * (in color units, 255 = full intensity) or the samples cap is reached.
+         * The samples are taken in the order of the sampler sequence, so this method
+         * sets the progressive Sobol sampler; {@link #setSampler(SamplerType)} may change it.
+         *
+         * @param minSamples samples taken before the error is first checked (at least 2)
+         * @param maxSamples maximal number of samples of a pixel
+         * @param maxError   error target of a pixel color component
+         * @return the builder instance
+         */
+        public Builder enableVarianceAntiAliasing(int minSamples, int maxSamples, double maxError) {
+            if (minSamples < 2 || maxSamples < minSamples) {
+                throw new IllegalArgumentException("Samples must satisfy 2 <= minSamples <= maxSamples");
+            }
+            if (maxError <= 0) {
+                throw new IllegalArgumentException("Error target must be positive");
+            }
+            camera.varianceAntiAliasing = true;
+            camera.minSamples = minSamples;
+            camera.maxSamples = maxSamples;
+            camera.maxError = maxError;
+            camera.samplerType = SamplerType.SOBOL;
+            return this;
+        }
+
         public Camera build() {
             final String description = "Missing rendering data";
             final String className = "Camera";
@@ -395,10 +1195,27 @@ public class Camera implements Cloneable {
                 throw new IllegalArgumentException("Resolution values must be positive");
             }
 
-            camera.imageWriter = new ImageWriter(camera.nX, camera.nY);
+            if (camera.temporalReuse && camera.edgeAntiAliasing) {
+                throw new IllegalArgumentException("Temporal reuse cannot be combined with edge anti-aliasing");
+            }
+            if (camera.relighting && (camera.antiAliasing || camera.adaptiveAntiAliasing
+                    || camera.varianceAntiAliasing || camera.edgeAntiAliasing || camera.temporalReuse)) {
+                throw new IllegalArgumentException(
+                        "Relighting cannot be combined with anti-aliasing or temporal reuse");
+            }
+            if (camera.frameBuffer != null
+                    && (camera.frameBuffer.width() != camera.nX || camera.frameBuffer.height() != camera.nY)) {
+                throw new IllegalArgumentException("Frame buffer size must match the resolution");
+            }
+            camera.imageWriter = camera.streamingFile == null && camera.frameBuffer == null
+                    ? new ImageWriter(camera.nX, camera.nY, camera.hdrOutput).setEncoder(camera.pngEncoder) : null;
 
+            camera.rayTracerType = scene != null && rayTracerType == RayTracerType.SIMPLE ? rayTracerType : null;
+            if (scene != null) {
+                camera.rayTracer = rayTracerType == RayTracerType.SIMPLE ? new SimpleRayTracer(scene.compile()) : null;
+            }
             if (camera.rayTracer == null) {
-                camera.rayTracer = new SimpleRayTracer(null);
+                camera.rayTracer = new SimpleRayTracer((CompiledScene) null);
             }
 
             camera.vRight = (camera.vTo.crossProduct(camera.vUp)).normalize();
@@ -415,6 +1232,9 @@ public class Camera implements Cloneable {
                 throw new IllegalArgumentException("The 3 vectors must be normalized");
             }
 
+            camera.rays = new RayGenerator(camera.p0, camera.vTo, camera.vUp, camera.vRight,
+                    camera.distance, camera.width, camera.height, camera.nX, camera.nY);
+
             try {
                 return (Camera) camera.clone();
             } catch (CloneNotSupportedException exception) {
@@ -422,30 +1242,4 @@ public class Camera implements Cloneable {
             }
         }
     }
-
-    private List<Ray> constructAARays(int nX, int nY, int j, int i) {
-        List<Ray> rays = new ArrayList<>();
-        double Ry = height / nY;
-        double Rx = width / nX;
-
-        double Yi = -(i - (nY - 1) / 2d) * Ry;
-        double Xj = (j - (nX - 1) / 2d) * Rx;
-
-        double subRx = Rx / Math.sqrt(samples);
-        double subRy = Ry / Math.sqrt(samples);
-
-        for (int row = 0; row < Math.sqrt(samples); row++) {
-            for (int col = 0; col < Math.sqrt(samples); col++) {
-                double xShift = Xj + (col + 0.5 - Math.sqrt(samples) / 2) * subRx;
-                double yShift = Yi + (row + 0.5 - Math.sqrt(samples) / 2) * subRy;
-
-                Point pIJ = p0.add(vTo.scale(distance));
-                if (!isZero(xShift)) pIJ = pIJ.add(vRight.scale(xShift));
-                if (!isZero(yShift)) pIJ = pIJ.add(vUp.scale(yShift));
-
-                rays.add(new Ray(p0, pIJ.subtract(p0).normalize()));
-            }
-        }
-        return rays;
-    }
 }
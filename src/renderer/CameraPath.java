@@ -0,0 +1,148 @@
+package renderer;
+
+import primitives.Double3;
+import primitives.Point;
+import primitives.Vector;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Keyframed path of a camera for rendering an animation sequence, see
+ * {@link Camera#renderSequence(CameraPath, int, String, ImageOutputQueue)}.
+ * <p>
+ * Every keyframe places the camera at a time: its location, the point it looks at
+ * and its up direction. Between the keyframes the location and the target point
+ * follow Catmull-Rom splines over the keyframe times - the path passes through every
+ * keyframe with a continuous velocity - and the up direction is interpolated linearly.
+ */
+public final class CameraPath {
+    /**
+     * Placement of the camera at a time
+     *
+     * @param location the camera location
+     * @param target   the point the camera looks at
+     * @param up       the approximate up direction, not parallel to the view direction
+     */
+    public record Pose(Point location, Point target, Vector up) {
+    }
+
+    /**
+     * A keyframe of the path
+     *
+     * @param time the time of the keyframe
+     * @param pose the placement of the camera
+     */
+    private record Keyframe(double time, Pose pose) {
+    }
+
+    /** The keyframes in time order */
+    private final List<Keyframe> keyframes = new ArrayList<>();
+
+    /**
+     * Adds a keyframe after the last one
+     *
+     * @param time     the time of the keyframe, later than the last keyframe
+     * @param location the camera location
+     * @param target   the point the camera looks at
+     * @param up       the approximate up direction, not parallel to the view direction
+     * @return the path itself
+     * @throws IllegalArgumentException if the time is not after the last keyframe, or the
+     *                                  camera is located at its target
+     */
+    public CameraPath addKeyframe(double time, Point location, Point target, Vector up) {
+        if (!keyframes.isEmpty() && time <= getEndTime())
+            throw new IllegalArgumentException("Keyframes must be added in time order");
+        if (location.equals(target))
+            throw new IllegalArgumentException("The camera cannot look at its own location");
+        keyframes.add(new Keyframe(time, new Pose(location, target, up.normalize())));
+        return this;
+    }
+
+    /**
+     * Time of the first keyframe
+     *
+     * @return the start time
+     * @throws IllegalStateException if the path has no keyframes
+     */
+    public double getStartTime() {
+        checkKeyframes();
+        return keyframes.get(0).time();
+    }
+
+    /**
+     * Time of the last keyframe
+     *
+     * @return the end time
+     * @throws IllegalStateException if the path has no keyframes
+     */
+    public double getEndTime() {
+        checkKeyframes();
+        return keyframes.get(keyframes.size() - 1).time();
+    }
+
+    /**
+     * Placement of the camera at a time. Before the first keyframe and after the last
+     * one the camera stays at these keyframes.
+     *
+     * @param time the time
+     * @return the interpolated placement
+     * @throws IllegalStateException if the path has no keyframes
+     */
+    public Pose at(double time) {
+        checkKeyframes();
+        int last = keyframes.size() - 1;
+        if (time <= keyframes.get(0).time()) return keyframes.get(0).pose();
+        if (time >= keyframes.get(last).time()) return keyframes.get(last).pose();
+
+        int i = 0;
+        while (keyframes.get(i + 1).time() < time) ++i;
+        Keyframe k0 = keyframes.get(Math.max(0, i - 1)), k1 = keyframes.get(i),
+                k2 = keyframes.get(i + 1), k3 = keyframes.get(Math.min(last, i + 2));
+        double s = (time - k1.time()) / (k2.time() - k1.time());
+
+        Double3 location = spline(k0, k1, k2, k3, s, coordinates(k0.pose().location()),
+                coordinates(k1.pose().location()), coordinates(k2.pose().location()),
+                coordinates(k3.pose().location()));
+        Double3 target = spline(k0, k1, k2, k3, s, coordinates(k0.pose().target()),
+                coordinates(k1.pose().target()), coordinates(k2.pose().target()),
+                coordinates(k3.pose().target()));
+        Double3 up = coordinates(k1.pose().up()).scale(1 - s).add(coordinates(k2.pose().up()).scale(s));
+        return new Pose(new Point(location), new Point(target), new Vector(up).normalize());
+    }
+
+    /**
+     * Catmull-Rom interpolation between the values of two keyframes - a cubic Hermite
+     * curve whose tangents are the differences of the neighbour keyframes over their
+     * time span
+     *
+     * @param k0 the keyframe before the segment, or its first keyframe
+     * @param k1 the first keyframe of the segment
+     * @param k2 the last keyframe of the segment
+     * @param k3 the keyframe after the segment, or its last keyframe
+     * @param s  the position in the segment, from 0 to 1
+     * @param p0 the value of k0
+     * @param p1 the value of k1
+     * @param p2 the value of k2
+     * @param p3 the value of k3
+     * @return the interpolated value
+     */
+    private static Double3 spline(Keyframe k0, Keyframe k1, Keyframe k2, Keyframe k3, double s,
+                                  Double3 p0, Double3 p1, Double3 p2, Double3 p3) {
+        double span = k2.time() - k1.time();
+        // tangents per segment length
+        Double3 m1 = p2.subtract(p0).scale(span / (k2.time() - k0.time()));
+        Double3 m2 = p3.subtract(p1).scale(span / (k3.time() - k1.time()));
+        double s2 = s * s, s3 = s2 * s;
+        return p1.scale(2 * s3 - 3 * s2 + 1).add(m1.scale(s3 - 2 * s2 + s))
+                .add(p2.scale(-2 * s3 + 3 * s2)).add(m2.scale(s3 - s2));
+    }
+
+    private static Double3 coordinates(Point point) {
+        return new Double3(point.getX(), point.getY(), point.getZ());
+    }
+
+    private void checkKeyframes() {
+        if (keyframes.isEmpty()) throw new IllegalStateException("The camera path has no keyframes");
+    }
+}
@@ -0,0 +1,35 @@
+package renderer;
+
+import primitives.Color;
+
+/**
+ * Target of the rendered pixels - the camera writes every finished tile into a
+ * frame buffer. Render threads write disjoint tiles concurrently, so an
+ * implementation must accept concurrent writes of disjoint regions.
+ */
+public interface FrameBuffer {
+    /**
+     * Horizontal resolution
+     *
+     * @return the number of pixels in a row
+     */
+    int width();
+
+    /**
+     * Vertical resolution
+     *
+     * @return the number of rows
+     */
+    int height();
+
+    /**
+     * Writes the colors of a rectangular block of pixels
+     *
+     * @param xIndex X axis index of the top-left pixel of the block
+     * @param yIndex Y axis index of the top-left pixel of the block
+     * @param width  number of pixels in a row of the block
+     * @param height number of rows in the block
+     * @param colors final colors of the pixels, row by row
+     */
+    void writeTile(int xIndex, int yIndex, int width, int height, Color[] colors);
+}
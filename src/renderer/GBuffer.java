@@ -0,0 +1,168 @@
+package renderer;
+
+import geometries.Geometry;
+import geometries.Intersectable.Intersection;
+import primitives.Color;
+import primitives.Vector;
+
+/**
+ * Geometry buffer - per pixel record of the closest hit of the primary ray through
+ * the pixel center: the hit, the surface normal (facing the camera), the hit distance
+ * from the camera, and the shaded color of the ray. Pixels see the same surface when
+ * their hits are on the same geometry placed by the same instances, see
+ * {@link Intersection#isSameSurface}, so the seam between two instances of one
+ * prototype is an edge.
+ * <p>
+ * Render threads record disjoint pixels, so no synchronization is needed; the
+ * buffer is read only after all the threads of the recording pass have finished.
+ */
+public class GBuffer {
+    /** Cosine of the largest angle between neighbour normals of one smooth surface */
+    private static final double NORMAL_COS = 0.9;
+    /** Largest depth difference of neighbour pixels of one surface, relative to the depth */
+    private static final double DEPTH_RATIO = 0.05;
+
+    /** Horizontal resolution */
+    private final int nX;
+    /** Vertical resolution */
+    private final int nY;
+    /** Primary hit of every pixel, null for a miss */
+    private final Intersection[] hits;
+    /** Surface normal of every pixel (3 components per pixel) */
+    private final double[] normals;
+    /** Hit distance of every pixel, infinity for a miss */
+    private final double[] depths;
+    /** Shaded color of every pixel */
+    private final Color[] colors;
+
+    /**
+     * Creates an empty geometry buffer
+     *
+     * @param nX number of horizontal pixels
+     * @param nY number of vertical pixels
+     */
+    public GBuffer(int nX, int nY) {
+        this.nX = nX;
+        this.nY = nY;
+        hits = new Intersection[nX * nY];
+        normals = new double[3 * nX * nY];
+        depths = new double[nX * nY];
+        colors = new Color[nX * nY];
+    }
+
+    /**
+     * Records the primary hit of a pixel
+     *
+     * @param j     column index (pixel)
+     * @param i     row index (pixel)
+     * @param hit   the closest intersection of the primary ray (after shading), null for a miss
+     * @param depth the distance of the hit from the camera
+     * @param color the shaded color of the primary ray
+     */
+    public void record(int j, int i, Intersection hit, double depth, Color color) {
+        int index = i * nX + j;
+        colors[index] = color;
+        hits[index] = hit;
+        if (hit == null || hit.normal == null) {
+            depths[index] = hit == null ? Double.POSITIVE_INFINITY : depth;
+            return;
+        }
+        depths[index] = depth;
+        normals[3 * index] = hit.normal.getX();
+        normals[3 * index + 1] = hit.normal.getY();
+        normals[3 * index + 2] = hit.normal.getZ();
+    }
+
+    /**
+     * Hit geometry of a pixel
+     *
+     * @param j column index (pixel)
+     * @param i row index (pixel)
+     * @return the geometry, null if the primary ray missed the scene
+     */
+    public Geometry geometry(int j, int i) {
+        Intersection hit = hits[i * nX + j];
+        return hit == null ? null : hit.geometry;
+    }
+
+    /**
+     * Checks whether a pixel sees the surface of a hit
+     *
+     * @param j   column index (pixel)
+     * @param i   row index (pixel)
+     * @param hit the hit
+     * @return true if the primary hit of the pixel is on the same surface as the hit
+     */
+    public boolean isSameSurface(int j, int i, Intersection hit) {
+        Intersection seen = hits[i * nX + j];
+        return seen != null && seen.isSameSurface(hit);
+    }
+
+    /**
+     * Hit distance of a pixel
+     *
+     * @param j column index (pixel)
+     * @param i row index (pixel)
+     * @return the distance from the camera, infinity if the primary ray missed the scene
+     */
+    public double depth(int j, int i) {
+        return depths[i * nX + j];
+    }
+
+    /**
+     * Surface normal of a pixel
+     *
+     * @param j column index (pixel)
+     * @param i row index (pixel)
+     * @return the normal facing the camera, null if the primary ray missed the scene
+     */
+    public Vector normal(int j, int i) {
+        int index = i * nX + j;
+        if (hits[index] == null) return null;
+        return new Vector(normals[3 * index], normals[3 * index + 1], normals[3 * index + 2]);
+    }
+
+    /**
+     * Shaded color of the primary ray of a pixel
+     *
+     * @param j column index (pixel)
+     * @param i row index (pixel)
+     * @return the color
+     */
+    public Color color(int j, int i) {
+        return colors[i * nX + j];
+    }
+
+    /**
+     * Checks whether a pixel lies on a geometric discontinuity - its hit surface,
+     * normal direction or depth differs from one of its 4 neighbours
+     *
+     * @param j column index (pixel)
+     * @param i row index (pixel)
+     * @return true if the pixel is on an edge
+     */
+    public boolean isEdge(int j, int i) {
+        int index = i * nX + j;
+        return (j > 0 && differ(index, index - 1))
+                || (j < nX - 1 && differ(index, index + 1))
+                || (i > 0 && differ(index, index - nX))
+                || (i < nY - 1 && differ(index, index + nX));
+    }
+
+    /**
+     * Checks whether two pixels see different surfaces
+     *
+     * @param a index of the first pixel
+     * @param b index of the second pixel
+     * @return true if the pixels are separated by an edge
+     */
+    private boolean differ(int a, int b) {
+        if (hits[a] == null || hits[b] == null) return hits[a] != hits[b];
+        if (!hits[a].isSameSurface(hits[b])) return true;
+        double dot = normals[3 * a] * normals[3 * b]
+                + normals[3 * a + 1] * normals[3 * b + 1]
+                + normals[3 * a + 2] * normals[3 * b + 2];
+        if (dot < NORMAL_COS) return true;
+        return Math.abs(depths[a] - depths[b]) > DEPTH_RATIO * Math.min(depths[a], depths[b]);
+    }
+}
@@ -0,0 +1,31 @@
+package renderer;
+
+/**
+ * File formats of the rendered images
+ */
+public enum ImageFormat {
+    /** Compressed 8 bit RGB */
+    PNG("png"),
+    /** Portable float map - 32 bit float RGB radiance, needs the HDR layer of the image */
+    PFM("pfm"),
+    /** Binary portable pixmap (P6) - uncompressed 8 bit RGB */
+    PPM("ppm"),
+    /** Quite OK Image format - fast lossless 8 bit RGB */
+    QOI("qoi");
+
+    /** File name extension of the format */
+    private final String extension;
+
+    ImageFormat(String extension) {
+        this.extension = extension;
+    }
+
+    /**
+     * File name extension of the format
+     *
+     * @return the extension without the dot
+     */
+    public String extension() {
+        return extension;
+    }
+}
@@ -0,0 +1,34 @@
+package renderer;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.File;
+import java.io.IOException;
+
+import javax.imageio.ImageIO;
+
+/**
+ * PNG encoding through ImageIO. Kept apart from {@link ImageWriter}, so AWT and
+ * the ImageIO service registry are loaded only when this encoder is selected.
+ */
+final class ImageIOEncoder {
+    private ImageIOEncoder() {
+    }
+
+    /**
+     * Writes an image into a PNG file with ImageIO
+     *
+     * @param pixels the pixels (0xRRGGBB) row by row
+     * @param width  image width in pixels
+     * @param height image height in pixels
+     * @param file   the file to write
+     * @throws IOException on write failure
+     */
+    static void write(int[] pixels, int width, int height, File file) throws IOException {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        int[] raster = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+        System.arraycopy(pixels, 0, raster, 0, pixels.length);
+        if (!ImageIO.write(image, "png", file))
+            throw new IOException("No ImageIO writer for png");
+    }
+}
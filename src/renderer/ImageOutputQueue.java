@@ -0,0 +1,142 @@
+package renderer;
+
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Output stage of a batch of renders - encodes and writes finished frames on
+ * background threads while the next frames are rendered.
+ * <p>
+ * The number of frames waiting or being encoded is bounded: when the queue is
+ * full, {@link #submit(ImageWriter, String)} blocks the rendering thread until an
+ * encoder finishes a frame, so a render faster than the disk cannot pile up frames
+ * in memory. Every submitted frame gets a future that completes with the written
+ * file, or exceptionally with the encoding error.
+ * <p>
+ * The encoder threads are not daemons, so the queued frames are written even when the
+ * submitting thread ends first, and they stop after a second without frames, so a
+ * queue that is not closed does not keep the JVM alive. Close the queue to wait for
+ * the queued frames - typically in a try-with-resources block.
+ */
+public class ImageOutputQueue implements AutoCloseable {
+    /** Idle time after which an encoder thread stops, in seconds */
+    private static final long IDLE_SECONDS = 1;
+
+    /** The encoder threads */
+    private final ExecutorService encoders;
+    /** Free places for frames in the queue */
+    private final Semaphore slots;
+
+    /**
+     * Creates an output queue
+     *
+     * @param threads  number of encoder threads
+     * @param capacity maximal number of frames waiting or being encoded
+     */
+    public ImageOutputQueue(int threads, int capacity) {
+        if (threads <= 0 || capacity <= 0)
+            throw new IllegalArgumentException("Encoder threads and queue capacity must be positive");
+        AtomicInteger counter = new AtomicInteger();
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads, IDLE_SECONDS, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), r -> new Thread(r, "image-encoder-" + counter.incrementAndGet()));
+        pool.allowCoreThreadTimeOut(true);
+        this.encoders = pool;
+        this.slots = new Semaphore(capacity);
+    }
+
+    /**
+     * Queues a frame for writing into a png file in the images directory, waiting
+     * for a free place if the queue is full. The image must not be modified until
+     * the returned future completes - {@link Camera#writeToImageAsync} queues a copy.
+     *
+     * @param image     the frame
+     * @param imageName the name of png file
+     * @return future completed with the written file
+     */
+    public CompletableFuture<Path> submit(ImageWriter image, String imageName) {
+        acquire();
+        return enqueue(image, imageName);
+    }
+
+    /**
+     * Queues a copy of a frame, see {@link #submit(ImageWriter, String)}. The copy is
+     * made once there is a free place in the queue, so the frames held in memory stay
+     * bounded by the queue capacity, and the frame may be modified when this returns.
+     *
+     * @param image     the frame
+     * @param imageName the name of png file
+     * @return future completed with the written file
+     */
+    CompletableFuture<Path> submitCopy(ImageWriter image, String imageName) {
+        acquire();
+        ImageWriter copy;
+        try {
+            copy = image.copy();
+        } catch (RuntimeException | Error e) {
+            slots.release();
+            throw e;
+        }
+        return enqueue(copy, imageName);
+    }
+
+    /**
+     * Waits for a free place in the queue
+     */
+    private void acquire() {
+        try {
+            slots.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the image output queue", e);
+        }
+    }
+
+    /**
+     * Passes a frame to the encoders - its place in the queue is taken already
+     *
+     * @param image     the frame
+     * @param imageName the name of png file
+     * @return future completed with the written file
+     */
+    private CompletableFuture<Path> enqueue(ImageWriter image, String imageName) {
+        CompletableFuture<Path> future = new CompletableFuture<>();
+        try {
+            encoders.execute(() -> {
+                try {
+                    image.writeToImage(imageName);
+                    future.complete(ImageWriter.imagePath(imageName));
+                } catch (Throwable e) {
+                    future.completeExceptionally(e);
+                } finally {
+                    slots.release();
+                }
+            });
+        } catch (RuntimeException e) {
+            slots.release();
+            throw e;
+        }
+        return future;
+    }
+
+    /**
+     * Waits for all the queued frames to be written and stops the encoder threads
+     */
+    @Override
+    public void close() {
+        encoders.shutdown();
+        try {
+            while (!encoders.awaitTermination(1, TimeUnit.MINUTES)) {
+                // a big frame may take long - keep waiting
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the image encoders", e);
+        }
+    }
+}
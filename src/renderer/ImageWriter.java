@@ -1,20 +1,28 @@
 package renderer;
 
-import java.awt.image.BufferedImage;
 import java.io.*;
-
-import javax.imageio.ImageIO;
+import java.nio.file.Path;
 
 import primitives.Color;
+import primitives.Double3;
 
 /**
  * Image writer class combines accumulation of pixel color matrix and finally
  * producing a non-optimized jpeg image from this matrix. The class although is
  * responsible of holding image related parameters of View Plane - pixel matrix
  * size and resolution
+ * <p>
+ * The pixels are written straight into an int array (0xRRGGBB per pixel, row by
+ * row). Render threads writing disjoint pixels, rows or tiles need no
+ * synchronization.
+ * <p>
+ * The image pipeline needs no AWT: the pixel array is encoded by the pure Java
+ * {@link PngEncoder} or the raw format writers, so a headless render worker never
+ * loads AWT or the ImageIO service registry. ImageIO is used only when it is
+ * selected explicitly with {@code setEncoder(null)}.
  * @author Dan
  */
-public class ImageWriter {
+public class ImageWriter implements FrameBuffer {
     /** Horizontal resolution of the image - number of pixels in row */
     private final int           nX;
     /** Vertical resolution of the image - number of pixels in column */
@@ -26,8 +34,12 @@ public class ImageWriter {
      */
     private static final String FOLDER_PATH = System.getProperty("user.dir") + "/images";
 
-    /** Image generation buffer (the matrix of the pixels) */
-    private final BufferedImage image;
+    /** Image generation buffer (the matrix of the pixels) - nX pixels per row */
+    private final int[] pixels;
+    /** PNG encoder of the image file, null for the ImageIO encoder */
+    private PngEncoder encoder = PngEncoder.DEFAULT;
+    /** Unclamped RGB radiance of the pixels (3 floats per pixel), null without the HDR layer */
+    private final float[] radiance;
 
     // ***************** Constructors ********************** //
     /**
@@ -36,10 +48,22 @@ public class ImageWriter {
      * @param nY amount of pixels by height
      */
    public ImageWriter(int nX, int nY) {
+        this(nX, nY, false);
+    }
+
+    /**
+     * Image Writer constructor with an optional HDR layer - the unclamped pixel
+     * colors are kept besides the 8 bit image for the float image formats
+     * @param nX  amount of pixels by Width
+     * @param nY  amount of pixels by height
+     * @param hdr whether to keep the HDR layer
+     */
+    public ImageWriter(int nX, int nY, boolean hdr) {
         this.nX = nX;
         this.nY = nY;
 
-        image   = new BufferedImage(nX, nY, BufferedImage.TYPE_INT_RGB);
+        pixels   = new int[nX * nY];
+        radiance = hdr ? new float[3 * nX * nY] : null;
     }
 
     // ***************** Getters ********************** //
@@ -55,8 +79,55 @@ public class ImageWriter {
      */
     int nX() { return nX; }
 
+    @Override
+    public int width() { return nX; }
+
+    @Override
+    public int height() { return nY; }
+
+    /**
+     * Path of the png file of an image in the images directory of the project
+     * @param imageName the name of png file
+     * @return the file path
+     */
+    static Path imagePath(String imageName) { return imagePath(imageName, ImageFormat.PNG); }
+
+    /**
+     * Path of the file of an image in the images directory of the project
+     * @param imageName the name of the file without extension
+     * @param format    the file format
+     * @return the file path
+     */
+    static Path imagePath(String imageName, ImageFormat format) {
+        return Path.of(FOLDER_PATH, imageName + "." + format.extension());
+    }
+
     // ***************** Operations ******************** //
 
+    /**
+     * Sets the PNG encoder of the image file - the parallel pure Java encoder with
+     * its compression level ({@link PngEncoder#DEFAULT} by default), or null for the
+     * ImageIO encoder
+     * @param encoder the encoder
+     * @return the image writer itself
+     */
+    public ImageWriter setEncoder(PngEncoder encoder) {
+        this.encoder = encoder;
+        return this;
+    }
+
+    /**
+     * Creates an independent copy of the image - a frame can be encoded from the
+     * copy while the next frame is rendered into this image
+     * @return the copy
+     */
+    public ImageWriter copy() {
+        ImageWriter copy = new ImageWriter(nX, nY, radiance != null).setEncoder(encoder);
+        System.arraycopy(pixels, 0, copy.pixels, 0, pixels.length);
+        if (radiance != null) System.arraycopy(radiance, 0, copy.radiance, 0, radiance.length);
+        return copy;
+    }
+
     /**
      * Function writeToImage produces unoptimized png file of the image according
      * to pixel color matrix in the directory of the project
@@ -64,8 +135,40 @@ public class ImageWriter {
      */
    public void writeToImage(String imageName) {
         try {
-            File file = new File(FOLDER_PATH + '/' + imageName + ".png");
-            ImageIO.write(image, "png", file);
+            File file = imagePath(imageName).toFile();
+            if (encoder == null)
+                ImageIOEncoder.write(pixels, nX, nY, file);
+            else
+                try (OutputStream out = new BufferedOutputStream(new FileOutputStream(file), 1 << 16)) {
+                    encoder.encode(pixels, nX, nY, out);
+                }
+        } catch (IOException e) {
+            throw new IllegalStateException("I/O error - may be missing directory " + FOLDER_PATH, e);
+        }
+    }
+
+    /**
+     * Function writeToImage produces an image file of the given format in the
+     * directory of the project. The uncompressed formats are written straight from
+     * the pixel buffers through a file channel.
+     * @param imageName the name of the file without extension
+     * @param format    the file format - {@link ImageFormat#PFM} needs the HDR layer
+     */
+    public void writeToImage(String imageName, ImageFormat format) {
+        if (format == ImageFormat.PNG) {
+            writeToImage(imageName);
+            return;
+        }
+        if (format == ImageFormat.PFM && radiance == null)
+            throw new IllegalStateException("PFM output needs the HDR layer of the image");
+        try {
+            Path file = imagePath(imageName, format);
+            switch (format) {
+                case PFM -> RawImageEncoder.writePfm(file, radiance, nX, nY);
+                case PPM -> RawImageEncoder.writePpm(file, pixels, nX, nY);
+                case QOI -> RawImageEncoder.writeQoi(file, pixels, nX, nY);
+                default -> throw new IllegalArgumentException("Unsupported image format " + format);
+            }
         } catch (IOException e) {
             throw new IllegalStateException("I/O error - may be missing directory " + FOLDER_PATH, e);
         }
@@ -78,6 +181,52 @@ public class ImageWriter {
      * @param yIndex Y axis index of the pixel
      * @param color  final color of the pixel
      */
-  public  void writePixel(int xIndex, int yIndex, Color color) { image.setRGB(xIndex, yIndex, color.getColor().getRGB()); }
+  public  void writePixel(int xIndex, int yIndex, Color color) { store(yIndex * nX + xIndex, color); }
+
+    /**
+     * The function writeRow writes the colors of consecutive pixels of a row
+     * into pixel color matrix
+     * @param xIndex X axis index of the first pixel
+     * @param yIndex Y axis index of the row
+     * @param colors final colors of the pixels, left to right
+     */
+    public void writeRow(int xIndex, int yIndex, Color[] colors) {
+        int offset = yIndex * nX + xIndex;
+        for (int k = 0; k < colors.length; ++k)
+            store(offset + k, colors[k]);
+    }
+
+    /**
+     * The function writeTile writes the colors of a rectangular block of pixels
+     * into pixel color matrix
+     * @param xIndex X axis index of the top-left pixel of the block
+     * @param yIndex Y axis index of the top-left pixel of the block
+     * @param width  number of pixels in a row of the block
+     * @param height number of rows in the block
+     * @param colors final colors of the pixels, row by row
+     */
+    @Override
+    public void writeTile(int xIndex, int yIndex, int width, int height, Color[] colors) {
+        int k = 0;
+        for (int row = yIndex; row < yIndex + height; ++row) {
+            int offset = row * nX + xIndex;
+            for (int col = 0; col < width; ++col)
+                store(offset + col, colors[k++]);
+        }
+    }
+
+    /**
+     * Stores the color of a pixel in the image and in the HDR layer
+     * @param index the pixel index (row by row)
+     * @param color final color of the pixel
+     */
+    private void store(int index, Color color) {
+        pixels[index] = color.getRGB();
+        if (radiance == null) return;
+        Double3 rgb = color.getRgb();
+        radiance[3 * index] = (float) rgb.d1();
+        radiance[3 * index + 1] = (float) rgb.d2();
+        radiance[3 * index + 2] = (float) rgb.d3();
+    }
 
 }
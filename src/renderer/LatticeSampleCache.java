@@ -0,0 +1,67 @@
+package renderer;
+
+import primitives.Color;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Per-tile cache of traced samples for the adaptive anti-aliasing.
+ * <p>
+ * Every sample position of the adaptive subdivision lies on a regular sub-pixel
+ * lattice of {@code lattice} points per pixel edge: pixel (j, i) spans lattice
+ * columns {@code j * lattice .. (j + 1) * lattice} and rows {@code i * lattice .. (i + 1) * lattice}.
+ * Neighbouring pixels share their corner samples, and every subdivision level shares
+ * the corners of its parent cell, so keying the traced colors by their lattice
+ * coordinates lets each sample ray be traced exactly once per tile.
+ * <p>
+ * A cache belongs to a single tile and is used by the single thread rendering that tile.
+ */
+class LatticeSampleCache {
+    /** Traced colors keyed by tile-local lattice coordinates */
+    private final Map<Long, Color> samples = new HashMap<>();
+    /** Lattice coordinates of the top-left corner of the tile */
+    private final long originU, originV;
+    /** Number of lattice rows in the tile (including the bottom edge) */
+    private final long rows;
+
+    /**
+     * Creates an empty cache for a tile
+     *
+     * @param tile    the tile being rendered
+     * @param lattice number of lattice steps per pixel edge
+     */
+    LatticeSampleCache(Tile tile, long lattice) {
+        this.originU = tile.x() * lattice;
+        this.originV = tile.y() * lattice;
+        this.rows = tile.height() * lattice + 1;
+    }
+
+    /**
+     * Returns the color of the sample at a lattice point, tracing it only on the first request
+     *
+     * @param u      lattice column of the sample
+     * @param v      lattice row of the sample
+     * @param tracer traces the sample ray when the color is not cached yet
+     * @return the color of the sample
+     */
+    Color get(long u, long v, Supplier<Color> tracer) {
+        Long key = (u - originU) * rows + (v - originV);
+        Color color = samples.get(key);
+        if (color == null) {
+            color = tracer.get();
+            samples.put(key, color);
+        }
+        return color;
+    }
+
+    /**
+     * Number of samples traced through the cache
+     *
+     * @return the number of distinct sample rays
+     */
+    int size() {
+        return samples.size();
+    }
+}
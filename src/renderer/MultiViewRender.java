@@ -0,0 +1,103 @@
+package renderer;
+
+import scene.Scene;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Render of several views of one scene - e.g. the views of a stereo pair or of a
+ * camera rig - as one job.
+ * <p>
+ * The scene is compiled and its acceleration structure built once, and all the views
+ * trace the same compiled scene. Their tiles are rendered on one shared pool of
+ * threads, a view after the other: the threads take the tiles of a later view only
+ * when the earlier views have none waiting, so the rays of one view keep their scene
+ * parts in the caches, and no thread idles while a view finishes its last tiles.
+ * Every view renders into its own image, written through its camera.
+ */
+public final class MultiViewRender {
+    /** The ray tracer of the compiled scene, shared by all the views */
+    private final RayTracerBase rayTracer;
+    /** Number of render threads */
+    private final int threads;
+    /** The cameras of the views */
+    private final List<Camera> cameras = new ArrayList<>();
+
+    /**
+     * Compiles the scene of the render. Later edits of the scene are not rendered.
+     *
+     * @param scene   the scene
+     * @param threads number of render threads shared by the views
+     * @throws IllegalArgumentException if the number of threads is not positive
+     */
+    public MultiViewRender(Scene scene, int threads) {
+        if (threads <= 0)
+            throw new IllegalArgumentException("Number of threads must be positive");
+        this.rayTracer = new SimpleRayTracer(scene.compile());
+        this.threads = threads;
+    }
+
+    /**
+     * Adds a view - builds a camera tracing the shared scene. The ray tracer set in the
+     * builder is replaced.
+     *
+     * @param builder the builder of the view camera
+     * @return the render itself
+     */
+    public MultiViewRender addView(Camera.Builder builder) {
+        cameras.add(builder.setRayTracer(rayTracer).build());
+        return this;
+    }
+
+    /**
+     * Camera of a view, for writing its image
+     *
+     * @param view the index of the view, in the order the views were added
+     * @return the camera
+     */
+    public Camera getCamera(int view) {
+        return cameras.get(view);
+    }
+
+    /**
+     * Renders all the views, and waits until all of them are done
+     *
+     * @return the render itself
+     * @throws IllegalStateException if no view was added
+     * @throws RuntimeException      the first exception thrown while rendering a view
+     */
+    public MultiViewRender render() {
+        if (cameras.isEmpty())
+            throw new IllegalStateException("No view to render");
+
+        try (TilePool pool = new TilePool(threads)) {
+            // every view is coordinated by its own thread, which waits for its tiles on the pool
+            List<Thread> coordinators = new ArrayList<>(cameras.size());
+            List<RuntimeException> failures = new ArrayList<>();
+            for (int view = 0; view < cameras.size(); ++view) {
+                Camera camera = cameras.get(view);
+                camera.useTilePool(pool, view);
+                Thread coordinator = new Thread(() -> {
+                    try {
+                        camera.renderImage();
+                    } catch (RuntimeException e) {
+                        synchronized (failures) {
+                            failures.add(e);
+                        }
+                    }
+                }, "view-" + view);
+                coordinators.add(coordinator);
+                coordinator.start();
+            }
+            for (Thread coordinator : coordinators) coordinator.join();
+            if (!failures.isEmpty()) throw failures.get(0);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Multi-view render interrupted", e);
+        } finally {
+            for (Camera camera : cameras) camera.useTilePool(null, 0);
+        }
+        return this;
+    }
+}
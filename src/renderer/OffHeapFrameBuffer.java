@@ -0,0 +1,247 @@
+package renderer;
+
+import primitives.Color;
+import primitives.Double3;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Objects;
+
+import static java.nio.file.StandardOpenOption.*;
+
+/**
+ * Frame buffer layer kept outside the Java heap - e.g. the color, depth or normals
+ * of a very large render.
+ * <p>
+ * A layer holds a fixed number of float channels per pixel (3 for color or normals,
+ * 1 for depth), in native byte order, row by row. The memory is either anonymous
+ * (direct buffers) or mapped from a file, so several layers of a huge render can
+ * live in the page cache instead of inflating the heap and the GC work. A buffer
+ * is limited to 2GB, so the layer is split into bands of whole rows.
+ * <p>
+ * Direct buffers count against {@code -XX:MaxDirectMemorySize}, which defaults to the
+ * maximal heap size, so an anonymous layer is kept in direct buffers only up to
+ * {@value #MAX_DIRECT_BYTES} bytes. A larger anonymous layer is mapped from a
+ * temporary file that is deleted when the layer is closed - close it, or give it a
+ * file of your own to keep it.
+ * <p>
+ * Tile writes from render threads are bounds checked and go straight into the
+ * buffers with absolute puts - nothing is allocated per pixel or per tile.
+ */
+public class OffHeapFrameBuffer implements FrameBuffer, Closeable {
+    /** Largest band in bytes */
+    private static final long MAX_BAND_BYTES = 1L << 30;
+    /** Largest anonymous layer kept in direct buffers, in bytes */
+    private static final long MAX_DIRECT_BYTES = 1L << 28;
+
+    /** Layer resolution */
+    private final int width, height;
+    /** Number of float channels of a pixel */
+    private final int channels;
+    /** Number of rows in a band */
+    private final int bandRows;
+    /** The bands of the layer */
+    private final ByteBuffer[] bands;
+    /** The backing file channel, null for direct buffers */
+    private final FileChannel channel;
+    /** Whether the backing file is a temporary file of an anonymous layer */
+    private final boolean temporary;
+
+    /**
+     * Creates a layer in anonymous off-heap memory, filled with zeros - direct buffers
+     * for a small layer, a temporary file mapping for a large one
+     *
+     * @param width    number of pixels in a row
+     * @param height   number of rows
+     * @param channels number of float channels of a pixel
+     */
+    public OffHeapFrameBuffer(int width, int height, int channels) {
+        this(width, height, channels, null);
+    }
+
+    /**
+     * Creates a layer, optionally backed by a file. An existing file is reused
+     * (and extended if needed), so a layer may be reopened after the render.
+     *
+     * @param width    number of pixels in a row
+     * @param height   number of rows
+     * @param channels number of float channels of a pixel
+     * @param file     the backing file, null for anonymous memory
+     * @throws UncheckedIOException if the file, or the temporary file of a large anonymous layer, cannot be mapped
+     */
+    public OffHeapFrameBuffer(int width, int height, int channels, Path file) {
+        if (width <= 0 || height <= 0 || channels <= 0)
+            throw new IllegalArgumentException("Resolution and channels must be positive");
+        long rowBytes = (long) width * channels * Float.BYTES;
+        if (rowBytes > MAX_BAND_BYTES)
+            throw new IllegalArgumentException("Row is too large for a single buffer");
+        this.width = width;
+        this.height = height;
+        this.channels = channels;
+        this.bandRows = (int) Math.min(height, MAX_BAND_BYTES / rowBytes);
+        this.bands = new ByteBuffer[(height + bandRows - 1) / bandRows];
+
+        this.temporary = file == null && rowBytes * height > MAX_DIRECT_BYTES;
+        try {
+            if (temporary) {
+                file = Files.createTempFile("layer", ".tmp");
+                channel = FileChannel.open(file, READ, WRITE, DELETE_ON_CLOSE);
+            } else {
+                channel = file == null ? null : FileChannel.open(file, CREATE, READ, WRITE);
+            }
+            for (int band = 0; band < bands.length; ++band) {
+                long size = Math.min(bandRows, height - (long) band * bandRows) * rowBytes;
+                ByteBuffer buffer = channel == null ? ByteBuffer.allocateDirect((int) size)
+                        : channel.map(FileChannel.MapMode.READ_WRITE, band * bandRows * rowBytes, size);
+                bands[band] = buffer.order(ByteOrder.nativeOrder());
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot map frame buffer " + file, e);
+        }
+    }
+
+    @Override
+    public int width() {
+        return width;
+    }
+
+    @Override
+    public int height() {
+        return height;
+    }
+
+    /**
+     * Number of float channels of a pixel
+     *
+     * @return the channels
+     */
+    public int channels() {
+        return channels;
+    }
+
+    /**
+     * Writes the unclamped colors of a block of pixels into the first 3 channels
+     */
+    @Override
+    public void writeTile(int xIndex, int yIndex, int width, int height, Color[] colors) {
+        if (channels < 3) throw new IllegalStateException("Colors need 3 channels");
+        checkTile(xIndex, yIndex, width, height, colors.length);
+        int k = 0;
+        for (int row = yIndex; row < yIndex + height; ++row) {
+            ByteBuffer band = bands[row / bandRows];
+            int offset = offset(xIndex, row);
+            for (int col = 0; col < width; ++col, offset += channels * Float.BYTES) {
+                Double3 rgb = colors[k++].getRgb();
+                band.putFloat(offset, (float) rgb.d1());
+                band.putFloat(offset + Float.BYTES, (float) rgb.d2());
+                band.putFloat(offset + 2 * Float.BYTES, (float) rgb.d3());
+            }
+        }
+    }
+
+    /**
+     * Writes the channels of a block of pixels
+     *
+     * @param xIndex X axis index of the top-left pixel of the block
+     * @param yIndex Y axis index of the top-left pixel of the block
+     * @param width  number of pixels in a row of the block
+     * @param height number of rows in the block
+     * @param values the channels of the pixels, pixel by pixel and row by row
+     */
+    public void writeTile(int xIndex, int yIndex, int width, int height, float[] values) {
+        checkTile(xIndex, yIndex, width, height, values.length / channels);
+        int k = 0;
+        for (int row = yIndex; row < yIndex + height; ++row) {
+            ByteBuffer band = bands[row / bandRows];
+            int offset = offset(xIndex, row);
+            for (int end = k + width * channels; k < end; ++k, offset += Float.BYTES)
+                band.putFloat(offset, values[k]);
+        }
+    }
+
+    /**
+     * Reads the channels of a block of pixels
+     *
+     * @param xIndex X axis index of the top-left pixel of the block
+     * @param yIndex Y axis index of the top-left pixel of the block
+     * @param width  number of pixels in a row of the block
+     * @param height number of rows in the block
+     * @param values receives the channels of the pixels, pixel by pixel and row by row
+     */
+    public void readTile(int xIndex, int yIndex, int width, int height, float[] values) {
+        checkTile(xIndex, yIndex, width, height, values.length / channels);
+        int k = 0;
+        for (int row = yIndex; row < yIndex + height; ++row) {
+            ByteBuffer band = bands[row / bandRows];
+            int offset = offset(xIndex, row);
+            for (int end = k + width * channels; k < end; ++k, offset += Float.BYTES)
+                values[k] = band.getFloat(offset);
+        }
+    }
+
+    /**
+     * Reads a channel of a pixel
+     *
+     * @param xIndex  X axis index of the pixel
+     * @param yIndex  Y axis index of the pixel
+     * @param channel the channel index
+     * @return the channel value
+     */
+    public float get(int xIndex, int yIndex, int channel) {
+        Objects.checkIndex(xIndex, width);
+        Objects.checkIndex(yIndex, height);
+        Objects.checkIndex(channel, channels);
+        return bands[yIndex / bandRows].getFloat(offset(xIndex, yIndex) + channel * Float.BYTES);
+    }
+
+    /**
+     * Flushes a file backed layer to the file and releases it - the temporary file of
+     * a large anonymous layer is deleted
+     */
+    @Override
+    public void close() {
+        if (channel == null) return;
+        if (!temporary)
+            for (ByteBuffer band : bands)
+                ((MappedByteBuffer) band).force();
+        try {
+            channel.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot close frame buffer file", e);
+        }
+    }
+
+    /**
+     * Checks that a block lies inside the layer and that its data is large enough
+     *
+     * @param xIndex X axis index of the top-left pixel of the block
+     * @param yIndex Y axis index of the top-left pixel of the block
+     * @param width  number of pixels in a row of the block
+     * @param height number of rows in the block
+     * @param pixels number of pixels in the data of the block
+     */
+    private void checkTile(int xIndex, int yIndex, int width, int height, int pixels) {
+        Objects.checkFromIndexSize(xIndex, width, this.width);
+        Objects.checkFromIndexSize(yIndex, height, this.height);
+        if (pixels < width * height)
+            throw new IndexOutOfBoundsException("Tile data is smaller than the tile");
+    }
+
+    /**
+     * Byte offset of a pixel in its band
+     *
+     * @param xIndex X axis index of the pixel
+     * @param yIndex Y axis index of the pixel
+     * @return the offset of the first channel
+     */
+    private int offset(int xIndex, int yIndex) {
+        return ((yIndex % bandRows) * width + xIndex) * channels * Float.BYTES;
+    }
+}
@@ -0,0 +1,90 @@
+package renderer;
+
+import primitives.Color;
+import primitives.Double3;
+
+/**
+ * Running mean and variance of the samples of a pixel (Welford's algorithm),
+ * kept separately for every color component.
+ * A render thread reuses a single instance for all its pixels.
+ */
+class PixelStatistics {
+    /** Number of samples */
+    private int count;
+    /** Running means of the components */
+    private double meanR, meanG, meanB;
+    /** Running sums of squared differences from the mean */
+    private double m2R, m2G, m2B;
+
+    /**
+     * Forgets all the samples - starts a new pixel
+     */
+    void reset() {
+        count = 0;
+        meanR = meanG = meanB = 0;
+        m2R = m2G = m2B = 0;
+    }
+
+    /**
+     * Adds a sample
+     *
+     * @param color the color of the sample
+     */
+    void add(Color color) {
+        Double3 rgb = color.getRgb();
+        ++count;
+        double delta = rgb.d1() - meanR;
+        meanR += delta / count;
+        m2R += delta * (rgb.d1() - meanR);
+        delta = rgb.d2() - meanG;
+        meanG += delta / count;
+        m2G += delta * (rgb.d2() - meanG);
+        delta = rgb.d3() - meanB;
+        meanB += delta / count;
+        m2B += delta * (rgb.d3() - meanB);
+    }
+
+    /**
+     * Number of samples added since the last reset
+     *
+     * @return the number of samples
+     */
+    int count() {
+        return count;
+    }
+
+    /**
+     * The mean color of the samples
+     *
+     * @return the estimated pixel color
+     */
+    Color mean() {
+        return new Color(meanR, meanG, meanB);
+    }
+
+    /**
+     * Half width of the confidence interval of the mean, the largest of the visible
+     * components. A component whose whole interval is above the displayable 255
+     * is clamped anyway and does not count.
+     *
+     * @param z the z-score of the confidence level (e.g. 1.96 for 95%)
+     * @return the error estimate, infinity for less than 2 samples
+     */
+    double error(double z) {
+        if (count < 2) return Double.POSITIVE_INFINITY;
+        double scale = z / Math.sqrt((double) count * (count - 1));
+        return Math.max(visibleError(meanR, Math.sqrt(m2R) * scale),
+                Math.max(visibleError(meanG, Math.sqrt(m2G) * scale), visibleError(meanB, Math.sqrt(m2B) * scale)));
+    }
+
+    /**
+     * Error of a component as seen in the 8 bit image
+     *
+     * @param mean  the mean of the component
+     * @param error the half width of its confidence interval
+     * @return the error, 0 if the component is saturated
+     */
+    private static double visibleError(double mean, double error) {
+        return mean - error > 255 ? 0 : error;
+    }
+}
@@ -0,0 +1,411 @@
+package renderer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.stream.IntStream;
+import java.util.zip.Adler32;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Pure Java PNG (RFC 2083) encoder of 8 bit RGB images, compressing on all cores.
+ * <p>
+ * The scanlines are split into independent chunks of rows that are filtered and
+ * deflated in parallel, pigz-style: every chunk is compressed by its own raw
+ * DEFLATE stream primed with the last 32K of the data before it, and ends with a
+ * sync flush on a byte boundary, so the compressed chunks concatenate into a
+ * single valid zlib stream. The Adler-32 checksums of the chunks are combined
+ * into the checksum of the whole stream.
+ * <p>
+ * Compression level 0 is the fast mode for intermediate frames - the scanlines are
+ * stored unfiltered in uncompressed DEFLATE blocks.
+ * <p>
+ * The class also holds the PNG building blocks shared with {@link StreamingPngWriter}:
+ * the file signature, chunk framing with the CRC32 trailer, the image header and the
+ * per-row filtering.
+ */
+public final class PngEncoder {
+    /** PNG file signature */
+    static final byte[] SIGNATURE = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n'};
+    /** Bytes per pixel - 8 bit RGB */
+    static final int BYTES_PER_PIXEL = 3;
+    /** Largest payload of a single IDAT chunk */
+    static final int IDAT_SIZE = 1 << 16;
+
+    /** Filter types of a scanline */
+    private static final int NONE = 0, SUB = 1, UP = 2, AVERAGE = 3, PAETH = 4;
+    /** Size of the DEFLATE window - the dictionary of a chunk */
+    private static final int WINDOW = 1 << 15;
+    /** Minimal amount of filtered data in a chunk */
+    private static final int CHUNK_SIZE = 1 << 17;
+
+    /** Encoder with the default compression level */
+    public static final PngEncoder DEFAULT = new PngEncoder(6);
+
+    /** Compression level - 0 (stored) to 9 (best) */
+    private final int level;
+
+    /**
+     * Creates an encoder
+     *
+     * @param level compression level from 0 (no compression, fastest) to 9 (best compression)
+     */
+    public PngEncoder(int level) {
+        if (level < Deflater.NO_COMPRESSION || level > Deflater.BEST_COMPRESSION)
+            throw new IllegalArgumentException("Compression level must be between 0 and 9");
+        this.level = level;
+    }
+
+    /**
+     * Encodes an image into a PNG stream
+     *
+     * @param pixels the pixels (0xRRGGBB) row by row
+     * @param width  image width in pixels
+     * @param height image height in pixels
+     * @param out    the output stream - stays open
+     * @throws IOException on write failure
+     */
+    public void encode(int[] pixels, int width, int height, OutputStream out) throws IOException {
+        int rowsPerChunk = Math.max(1, CHUNK_SIZE / (width * BYTES_PER_PIXEL + 1));
+        int chunks = (height + rowsPerChunk - 1) / rowsPerChunk;
+        Chunk[] compressed = IntStream.range(0, chunks).parallel()
+                .mapToObj(c -> compressChunk(pixels, width, c * rowsPerChunk,
+                        Math.min(height, (c + 1) * rowsPerChunk), c == chunks - 1))
+                .toArray(Chunk[]::new);
+
+        writeHeader(out, width, height);
+        IdatOutputStream idat = new IdatOutputStream(out);
+        idat.write(0x78); // zlib header - DEFLATE with 32K window
+        idat.write(zlibFlags());
+        long adler = 1;
+        for (Chunk chunk : compressed) {
+            idat.write(chunk.data());
+            adler = combineAdler32(adler, chunk.adler(), chunk.length());
+        }
+        idat.write(ByteBuffer.allocate(4).putInt((int) adler).array());
+        idat.close();
+        writeEnd(out);
+    }
+
+    /**
+     * Compressed chunk of scanlines
+     *
+     * @param data   the raw DEFLATE data
+     * @param adler  Adler-32 of the filtered scanlines of the chunk
+     * @param length length of the filtered scanlines of the chunk
+     */
+    private record Chunk(byte[] data, long adler, long length) {
+    }
+
+    /**
+     * Filters and compresses a chunk of rows
+     *
+     * @param pixels the image pixels
+     * @param width  image width in pixels
+     * @param from   first row of the chunk
+     * @param to     row after the chunk
+     * @param last   whether this is the last chunk of the image
+     * @return the compressed chunk
+     */
+    private Chunk compressChunk(int[] pixels, int width, int from, int to, boolean last) {
+        int rowBytes = width * BYTES_PER_PIXEL;
+        byte[] previous = new byte[rowBytes], row = new byte[rowBytes];
+        byte[] filtered = new byte[(to - from) * (rowBytes + 1)];
+        byte[] scratch = new byte[rowBytes + 1];
+
+        // the dictionary is the filtered tail of the previous chunk - filtered again here
+        int dictionaryRows = level == 0 ? 0 : Math.min(from, (WINDOW + rowBytes) / (rowBytes + 1));
+        byte[] dictionary = new byte[dictionaryRows * (rowBytes + 1)];
+        if (from - dictionaryRows > 0) toBytes(pixels, width, from - dictionaryRows - 1, previous);
+        for (int y = from - dictionaryRows; y < from; ++y) {
+            toBytes(pixels, width, y, row);
+            filterRow(row, previous, scratch, (y - from + dictionaryRows) * (rowBytes + 1), dictionary);
+            byte[] swap = previous; previous = row; row = swap;
+        }
+        if (dictionaryRows == 0 && from > 0) toBytes(pixels, width, from - 1, previous);
+
+        for (int y = from; y < to; ++y) {
+            toBytes(pixels, width, y, row);
+            if (level == 0) {
+                filtered[(y - from) * (rowBytes + 1)] = NONE;
+                System.arraycopy(row, 0, filtered, (y - from) * (rowBytes + 1) + 1, rowBytes);
+            } else {
+                filterRow(row, previous, scratch, (y - from) * (rowBytes + 1), filtered);
+            }
+            byte[] swap = previous; previous = row; row = swap;
+        }
+
+        Deflater deflater = new Deflater(level, true);
+        try {
+            if (dictionary.length > 0)
+                deflater.setDictionary(dictionary, Math.max(0, dictionary.length - WINDOW),
+                        Math.min(WINDOW, dictionary.length));
+            deflater.setInput(filtered);
+            ByteArrayOutputStream data = new ByteArrayOutputStream(filtered.length / 2 + 64);
+            byte[] buffer = new byte[1 << 16];
+            if (last) {
+                deflater.finish();
+                while (!deflater.finished())
+                    data.write(buffer, 0, deflater.deflate(buffer));
+            } else {
+                int n;
+                do {
+                    n = deflater.deflate(buffer, 0, buffer.length, Deflater.SYNC_FLUSH);
+                    data.write(buffer, 0, n);
+                } while (n == buffer.length);
+            }
+            Adler32 adler = new Adler32();
+            adler.update(filtered);
+            return new Chunk(data.toByteArray(), adler.getValue(), filtered.length);
+        } finally {
+            deflater.end();
+        }
+    }
+
+    /**
+     * Unpacks a row of pixels into RGB bytes
+     *
+     * @param pixels the image pixels
+     * @param width  image width in pixels
+     * @param y      the row index
+     * @param row    receives the RGB bytes
+     */
+    private static void toBytes(int[] pixels, int width, int y, byte[] row) {
+        for (int x = 0, k = y * width, b = 0; x < width; ++x, ++k, b += BYTES_PER_PIXEL) {
+            int rgb = pixels[k];
+            row[b] = (byte) (rgb >> 16);
+            row[b + 1] = (byte) (rgb >> 8);
+            row[b + 2] = (byte) rgb;
+        }
+    }
+
+    /**
+     * Second byte of the zlib header - the compression level hint and the header check bits
+     *
+     * @return the flags byte
+     */
+    private int zlibFlags() {
+        int hint = level < 2 ? 0 : level < 6 ? 1 : level == 6 ? 2 : 3;
+        int flags = hint << 6;
+        return flags + 31 - (0x78 * 256 + flags) % 31;
+    }
+
+    /**
+     * Combines the Adler-32 checksums of two consecutive blocks (as zlib's adler32_combine)
+     *
+     * @param adler1  checksum of the first block
+     * @param adler2  checksum of the second block
+     * @param length2 length of the second block
+     * @return checksum of the two blocks together
+     */
+    static long combineAdler32(long adler1, long adler2, long length2) {
+        final long base = 65521;
+        long remainder = length2 % base;
+        long sum1 = adler1 & 0xFFFF;
+        long sum2 = remainder * sum1 % base;
+        sum1 += (adler2 & 0xFFFF) + base - 1;
+        sum2 += ((adler1 >>> 16) & 0xFFFF) + ((adler2 >>> 16) & 0xFFFF) + base - remainder;
+        if (sum1 >= base) sum1 -= base;
+        if (sum1 >= base) sum1 -= base;
+        if (sum2 >= base << 1) sum2 -= base << 1;
+        if (sum2 >= base) sum2 -= base;
+        return sum1 | sum2 << 16;
+    }
+
+    /**
+     * Writes the signature and the image header of a PNG file
+     *
+     * @param out    the output stream
+     * @param width  image width in pixels
+     * @param height image height in pixels
+     * @throws IOException on write failure
+     */
+    static void writeHeader(OutputStream out, int width, int height) throws IOException {
+        out.write(SIGNATURE);
+        ByteBuffer ihdr = ByteBuffer.allocate(13);
+        ihdr.putInt(width).putInt(height)
+                .put((byte) 8) // bit depth
+                .put((byte) 2) // color type - RGB
+                .put((byte) 0) // compression - DEFLATE
+                .put((byte) 0) // filter method - adaptive
+                .put((byte) 0); // no interlace
+        writeChunk(out, "IHDR", ihdr.array(), 0, 13);
+    }
+
+    /**
+     * Writes the image end chunk of a PNG file
+     *
+     * @param out the output stream
+     * @throws IOException on write failure
+     */
+    static void writeEnd(OutputStream out) throws IOException {
+        writeChunk(out, "IEND", new byte[0], 0, 0);
+    }
+
+    /**
+     * Writes a chunk - length, type, data and the CRC32 of the type and data
+     *
+     * @param out    the output stream
+     * @param type   the 4 letters chunk type
+     * @param data   the chunk data
+     * @param offset offset of the data in the array
+     * @param length length of the data
+     * @throws IOException on write failure
+     */
+    static void writeChunk(OutputStream out, String type, byte[] data, int offset, int length) throws IOException {
+        byte[] typeBytes = type.getBytes(StandardCharsets.US_ASCII);
+        CRC32 crc = new CRC32();
+        crc.update(typeBytes);
+        crc.update(data, offset, length);
+        out.write(ByteBuffer.allocate(8).putInt(length).put(typeBytes).array());
+        out.write(data, offset, length);
+        out.write(ByteBuffer.allocate(4).putInt((int) crc.getValue()).array());
+    }
+
+    /**
+     * Filters a scanline for compression. All five PNG filters are tried and the
+     * one with the smallest sum of absolute differences is kept (the heuristic of
+     * the PNG specification).
+     *
+     * @param row      the raw RGB bytes of the row
+     * @param previous the raw RGB bytes of the row above, all zeros for the first row
+     * @param filtered receives the filter type byte followed by the filtered row
+     *                 (row length + 1 bytes)
+     * @param scratch  work area of at least row length + 1 bytes
+     */
+    static void filterRow(byte[] row, byte[] previous, byte[] filtered, byte[] scratch) {
+        filterRow(row, previous, scratch, 0, filtered);
+    }
+
+    /**
+     * Filters a scanline for compression into a position of a larger buffer
+     *
+     * @param row      the raw RGB bytes of the row
+     * @param previous the raw RGB bytes of the row above, all zeros for the first row
+     * @param scratch  work area of at least row length + 1 bytes
+     * @param offset   position of the filtered row in the output
+     * @param out      receives the filter type byte followed by the filtered row
+     */
+    private static void filterRow(byte[] row, byte[] previous, byte[] scratch, int offset, byte[] out) {
+        long best = Long.MAX_VALUE;
+        for (int type = NONE; type <= PAETH; ++type) {
+            long sum = applyFilter(type, row, previous, scratch);
+            if (sum < best) {
+                best = sum;
+                System.arraycopy(scratch, 0, out, offset, row.length + 1);
+            }
+        }
+    }
+
+    /**
+     * Applies a filter to a scanline
+     *
+     * @param type     the filter type
+     * @param row      the raw row
+     * @param previous the raw row above
+     * @param out      receives the filter type byte and the filtered row
+     * @return the sum of the filtered bytes as signed values (the compressibility estimate)
+     */
+    private static long applyFilter(int type, byte[] row, byte[] previous, byte[] out) {
+        out[0] = (byte) type;
+        long sum = 0;
+        for (int k = 0; k < row.length; ++k) {
+            int x = row[k] & 0xFF;
+            int a = k < BYTES_PER_PIXEL ? 0 : row[k - BYTES_PER_PIXEL] & 0xFF;
+            int b = previous[k] & 0xFF;
+            int c = k < BYTES_PER_PIXEL ? 0 : previous[k - BYTES_PER_PIXEL] & 0xFF;
+            int predictor = switch (type) {
+                case SUB -> a;
+                case UP -> b;
+                case AVERAGE -> (a + b) >>> 1;
+                case PAETH -> paeth(a, b, c);
+                default -> 0;
+            };
+            byte value = (byte) (x - predictor);
+            out[k + 1] = value;
+            sum += Math.abs(value);
+        }
+        return sum;
+    }
+
+    /**
+     * Paeth predictor - the neighbour closest to a + b - c
+     *
+     * @param a the left byte
+     * @param b the upper byte
+     * @param c the upper left byte
+     * @return the predicted byte
+     */
+    private static int paeth(int a, int b, int c) {
+        int p = a + b - c;
+        int pa = Math.abs(p - a);
+        int pb = Math.abs(p - b);
+        int pc = Math.abs(p - c);
+        if (pa <= pb && pa <= pc) return a;
+        return pb <= pc ? b : c;
+    }
+
+    /**
+     * Output stream of the compressed image data - frames the bytes into IDAT chunks
+     */
+    static class IdatOutputStream extends OutputStream {
+        /** The PNG file stream */
+        private final OutputStream out;
+        /** Payload of the current chunk */
+        private final byte[] buffer = new byte[IDAT_SIZE];
+        /** Number of bytes in the current chunk */
+        private int count;
+
+        /**
+         * Creates an IDAT stream
+         *
+         * @param out the PNG file stream
+         */
+        IdatOutputStream(OutputStream out) {
+            this.out = out;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            if (count == buffer.length) flush();
+            buffer[count++] = (byte) b;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            while (len > 0) {
+                if (count == buffer.length) flush();
+                int n = Math.min(len, buffer.length - count);
+                System.arraycopy(b, off, buffer, count, n);
+                count += n;
+                off += n;
+                len -= n;
+            }
+        }
+
+        /**
+         * Writes the pending bytes as an IDAT chunk
+         *
+         * @throws IOException on write failure
+         */
+        @Override
+        public void flush() throws IOException {
+            if (count == 0) return;
+            writeChunk(out, "IDAT", buffer, 0, count);
+            count = 0;
+        }
+
+        /**
+         * Writes the last IDAT chunk - the PNG file stream stays open
+         *
+         * @throws IOException on write failure
+         */
+        @Override
+        public void close() throws IOException {
+            flush();
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package renderer;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+
+import static java.nio.file.StandardOpenOption.*;
+
+/**
+ * Writers of the uncompressed and lightly compressed image formats - PFM, PPM and QOI.
+ * <p>
+ * The pixels go straight from the image buffers into a direct {@link ByteBuffer} that
+ * is drained into a {@link FileChannel}, so intermediate frames are written at disk
+ * bandwidth without any image library.
+ */
+final class RawImageEncoder {
+    /** Size of the I/O buffer */
+    private static final int BUFFER_SIZE = 1 << 20;
+
+    private RawImageEncoder() {
+    }
+
+    /**
+     * Writes a portable float map - little endian float RGB, bottom row first.
+     * A radiance of 255 (full intensity of a color component) is written as 1.0,
+     * brighter values are kept as they are.
+     *
+     * @param file     the file to write
+     * @param radiance the unclamped RGB components, row by row from the top
+     * @param width    image width in pixels
+     * @param height   image height in pixels
+     * @throws IOException on write failure
+     */
+    static void writePfm(Path file, float[] radiance, int width, int height) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, CREATE, TRUNCATE_EXISTING, WRITE)) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            buffer.put(("PF\n" + width + " " + height + "\n-1.0\n").getBytes(StandardCharsets.US_ASCII));
+            for (int y = height - 1; y >= 0; --y) {
+                for (int k = 3 * y * width, end = k + 3 * width; k < end; ++k) {
+                    if (buffer.remaining() < Float.BYTES) drain(channel, buffer);
+                    buffer.putFloat(radiance[k] / 255f);
+                }
+            }
+            drain(channel, buffer);
+        }
+    }
+
+    /**
+     * Writes a binary portable pixmap (P6) - 8 bit RGB, top row first
+     *
+     * @param file   the file to write
+     * @param pixels the pixels (0xRRGGBB) row by row
+     * @param width  image width in pixels
+     * @param height image height in pixels
+     * @throws IOException on write failure
+     */
+    static void writePpm(Path file, int[] pixels, int width, int height) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, CREATE, TRUNCATE_EXISTING, WRITE)) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+            buffer.put(("P6\n" + width + " " + height + "\n255\n").getBytes(StandardCharsets.US_ASCII));
+            for (int pixel : pixels) {
+                if (buffer.remaining() < 3) drain(channel, buffer);
+                buffer.put((byte) (pixel >> 16)).put((byte) (pixel >> 8)).put((byte) pixel);
+            }
+            drain(channel, buffer);
+        }
+    }
+
+    /**
+     * Writes a Quite OK Image (QOI) - runs, a 64 entries color cache and small
+     * differences from the previous pixel, RGB channels
+     *
+     * @param file   the file to write
+     * @param pixels the pixels (0xRRGGBB) row by row
+     * @param width  image width in pixels
+     * @param height image height in pixels
+     * @throws IOException on write failure
+     */
+    static void writeQoi(Path file, int[] pixels, int width, int height) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, CREATE, TRUNCATE_EXISTING, WRITE)) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+            buffer.put("qoif".getBytes(StandardCharsets.US_ASCII)).putInt(width).putInt(height)
+                    .put((byte) 3) // channels - RGB
+                    .put((byte) 0); // color space - sRGB
+
+            int[] cache = new int[64];
+            int previous = 0xFF000000; // opaque black
+            int run = 0;
+            for (int k = 0; k < pixels.length; ++k) {
+                int pixel = pixels[k] | 0xFF000000;
+                if (pixel == previous) {
+                    if (++run == 62 || k == pixels.length - 1) {
+                        if (buffer.remaining() < 5) drain(channel, buffer);
+                        buffer.put((byte) (0xC0 | (run - 1))); // QOI_OP_RUN
+                        run = 0;
+                    }
+                    continue;
+                }
+                if (buffer.remaining() < 5) drain(channel, buffer);
+                if (run > 0) {
+                    buffer.put((byte) (0xC0 | (run - 1))); // QOI_OP_RUN
+                    run = 0;
+                }
+                int r = (pixel >> 16) & 0xFF, g = (pixel >> 8) & 0xFF, b = pixel & 0xFF;
+                int index = (r * 3 + g * 5 + b * 7 + 255 * 11) & 63;
+                if (cache[index] == pixel) {
+                    buffer.put((byte) index); // QOI_OP_INDEX
+                } else {
+                    cache[index] = pixel;
+                    int dr = (byte) (r - ((previous >> 16) & 0xFF));
+                    int dg = (byte) (g - ((previous >> 8) & 0xFF));
+                    int db = (byte) (b - (previous & 0xFF));
+                    int drg = dr - dg, dbg = db - dg;
+                    if (dr >= -2 && dr <= 1 && dg >= -2 && dg <= 1 && db >= -2 && db <= 1) {
+                        buffer.put((byte) (0x40 | (dr + 2) << 4 | (dg + 2) << 2 | (db + 2))); // QOI_OP_DIFF
+                    } else if (dg >= -32 && dg <= 31 && drg >= -8 && drg <= 7 && dbg >= -8 && dbg <= 7) {
+                        buffer.put((byte) (0x80 | (dg + 32))).put((byte) ((drg + 8) << 4 | (dbg + 8))); // QOI_OP_LUMA
+                    } else {
+                        buffer.put((byte) 0xFE).put((byte) r).put((byte) g).put((byte) b); // QOI_OP_RGB
+                    }
+                }
+                previous = pixel;
+            }
+            if (buffer.remaining() < 8) drain(channel, buffer);
+            buffer.putLong(1); // end marker - seven 0x00 and one 0x01
+            drain(channel, buffer);
+        }
+    }
+
+    /**
+     * Writes the buffered bytes to the channel
+     *
+     * @param channel the file channel
+     * @param buffer  the buffer in writing mode - cleared when done
+     * @throws IOException on write failure
+     */
+    private static void drain(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) channel.write(buffer);
+        buffer.clear();
+    }
+}
@@ -0,0 +1,131 @@
+package renderer;
+
+import primitives.Point;
+import primitives.Ray;
+import primitives.Vector;
+
+/**
+ * Primary ray generation of a camera.
+ * <p>
+ * The view plane basis is resolved once into per-column and per-row direction
+ * tables: the direction through the center of pixel (j, i) is the sum of the
+ * column entry (which includes the distance to the view plane) and the row entry,
+ * and a sub-pixel sample adds the pixel edge vectors scaled by its offset.
+ * A ray therefore costs a few additions - no intermediate points or vectors,
+ * and no per-pixel collections. The tables are immutable, so one generator
+ * is shared by all the render threads.
+ */
+class RayGenerator {
+    /** Origin of all the rays (camera location) */
+    private final Point p0;
+    /** Direction components through the pixel centers of every column (3 per column) */
+    private final double[] columns;
+    /** Up components of the pixel centers of every row (3 per row) */
+    private final double[] rows;
+    /** Direction to the view plane center */
+    private final double centerX, centerY, centerZ;
+    /** Pixel width along the right vector */
+    private final double rightX, rightY, rightZ;
+    /** Pixel height along the up vector */
+    private final double upX, upY, upZ;
+
+    /**
+     * Precomputes the ray tables of a view plane
+     *
+     * @param p0       camera location
+     * @param vTo      forward direction (normalized)
+     * @param vUp      up direction (normalized)
+     * @param vRight   right direction (normalized)
+     * @param distance distance of the view plane
+     * @param width    view plane width
+     * @param height   view plane height
+     * @param nX       number of horizontal pixels
+     * @param nY       number of vertical pixels
+     */
+    RayGenerator(Point p0, Vector vTo, Vector vUp, Vector vRight,
+                 double distance, double width, double height, int nX, int nY) {
+        this.p0 = p0;
+        double rX = width / nX;
+        double rY = height / nY;
+
+        centerX = vTo.getX() * distance;
+        centerY = vTo.getY() * distance;
+        centerZ = vTo.getZ() * distance;
+        rightX = vRight.getX() * rX;
+        rightY = vRight.getY() * rX;
+        rightZ = vRight.getZ() * rX;
+        upX = vUp.getX() * rY;
+        upY = vUp.getY() * rY;
+        upZ = vUp.getZ() * rY;
+
+        columns = new double[3 * nX];
+        for (int j = 0; j < nX; ++j) {
+            double xj = j - (nX - 1) / 2d;
+            columns[3 * j] = centerX + rightX * xj;
+            columns[3 * j + 1] = centerY + rightY * xj;
+            columns[3 * j + 2] = centerZ + rightZ * xj;
+        }
+        rows = new double[3 * nY];
+        for (int i = 0; i < nY; ++i) {
+            double yi = -(i - (nY - 1) / 2d);
+            rows[3 * i] = upX * yi;
+            rows[3 * i + 1] = upY * yi;
+            rows[3 * i + 2] = upZ * yi;
+        }
+    }
+
+    /**
+     * Ray through the center of a pixel
+     *
+     * @param j column index (pixel)
+     * @param i row index (pixel)
+     * @return the ray
+     */
+    Ray pixelRay(int j, int i) {
+        return ray(columns[3 * j] + rows[3 * i],
+                columns[3 * j + 1] + rows[3 * i + 1],
+                columns[3 * j + 2] + rows[3 * i + 2]);
+    }
+
+    /**
+     * Ray through a sample position inside a pixel
+     *
+     * @param j column index (pixel)
+     * @param i row index (pixel)
+     * @param x offset in [0,1) from the left edge of the pixel
+     * @param y offset in [0,1) from the bottom edge of the pixel
+     * @return the ray
+     */
+    Ray sampleRay(int j, int i, double x, double y) {
+        double dx = x - 0.5;
+        double dy = y - 0.5;
+        return ray(columns[3 * j] + rows[3 * i] + rightX * dx + upX * dy,
+                columns[3 * j + 1] + rows[3 * i + 1] + rightY * dx + upY * dy,
+                columns[3 * j + 2] + rows[3 * i + 2] + rightZ * dx + upZ * dy);
+    }
+
+    /**
+     * Ray through a point of the view plane
+     *
+     * @param x distance right of the view plane center, in pixel widths
+     * @param y distance up of the view plane center, in pixel heights
+     * @return the ray
+     */
+    Ray viewPlaneRay(double x, double y) {
+        return ray(centerX + rightX * x + upX * y,
+                centerY + rightY * x + upY * y,
+                centerZ + rightZ * x + upZ * y);
+    }
+
+    /**
+     * Ray from the camera location along a direction
+     *
+     * @param x direction x component
+     * @param y direction y component
+     * @param z direction z component
+     * @return the ray
+     */
+    private Ray ray(double x, double y, double z) {
+        return new Ray(p0, new Vector(x, y, z));
+    }
+}
@@ -1,9 +1,12 @@
 package renderer;
 
-import scene.Scene;
+import scene.CompiledScene;
+import geometries.Intersectable.Intersection;
 import primitives.Color;
 import primitives.Ray;
 
+import java.util.concurrent.atomic.AtomicInteger;
+
 /**
  * Abstract base class for ray tracers.
  * Contains the scene to be rendered and defines the contract for tracing rays.
@@ -11,16 +14,22 @@ import primitives.Ray;
 public abstract class RayTracerBase {
 
     /**
-     * The scene to be rendered by the ray tracer.
+     * The compiled scene to be rendered by the ray tracer.
+     */
+    protected final CompiledScene scene;
+
+    /**
+     * Number of tiles being rendered with this tracer while recording their
+     * dependencies - while there are none, the tracer does not look the record up
      */
-    protected final Scene scene;
+    private final AtomicInteger recordingTiles = new AtomicInteger();
 
     /**
      * Constructor initializing the ray tracer with the given scene.
      *
-     * @param scene the scene to render
+     * @param scene the compiled scene to render
      */
-    public RayTracerBase(Scene scene) {
+    public RayTracerBase(CompiledScene scene) {
         this.scene = scene;
     }
 
@@ -31,4 +40,50 @@ public abstract class RayTracerBase {
      * @return the color intensity for the ray
      */
     public abstract Color traceRay(Ray ray);
+
+    /**
+     * Finds the closest intersection of a ray with the scene geometries.
+     *
+     * @param ray the ray
+     * @return the closest intersection, or null if the ray misses the scene
+     */
+    public abstract Intersection findClosestIntersection(Ray ray);
+
+    /**
+     * Calculates the color along a ray at a known closest intersection -
+     * {@link #traceRay(Ray)} split into its search and shading parts.
+     *
+     * @param intersection the closest intersection of the ray, null for a miss
+     * @param ray          the ray
+     * @return the color intensity for the ray
+     */
+    public abstract Color calcColor(Intersection intersection, Ray ray);
+
+    /**
+     * Starts recording the dependencies of a tile rendered by the current thread
+     *
+     * @param record the record of the tile
+     */
+    final void beginRecording(TileDependencies record) {
+        recordingTiles.incrementAndGet();
+        TileDependencies.begin(record);
+    }
+
+    /**
+     * Stops recording on the current thread
+     */
+    final void endRecording() {
+        TileDependencies.end();
+        recordingTiles.decrementAndGet();
+    }
+
+    /**
+     * The dependencies record of the tile rendered by the current thread, see
+     * {@link TileDependencies#current()} - renders that do not record skip the lookup
+     *
+     * @return the record, null if the thread does not record
+     */
+    final TileDependencies dependencies() {
+        return recordingTiles.get() == 0 ? null : TileDependencies.current();
+    }
 }
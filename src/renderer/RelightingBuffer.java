@@ -0,0 +1,67 @@
+package renderer;
+
+import geometries.Intersectable.Intersection;
+
+/**
+ * The primary hits of the pixel centers of a rendered image - the hit point, geometry
+ * and material, and the normal found when the hit was shaded - kept to shade the image
+ * again after its lights were edited, without tracing the primary rays again, see
+ * {@link Camera#relight()}.
+ * <p>
+ * Render threads record disjoint pixels, so no synchronization is needed. A pixel that
+ * was not traced - restored from a checkpoint or from the tile cache - has no record.
+ */
+final class RelightingBuffer {
+    /** Horizontal resolution */
+    private final int nX;
+    /** Primary hit of every recorded pixel, null for a miss */
+    private final Intersection[] hits;
+    /** Whether the primary hit of every pixel was recorded */
+    private final boolean[] recorded;
+
+    /**
+     * Creates an empty buffer
+     *
+     * @param nX number of horizontal pixels
+     * @param nY number of vertical pixels
+     */
+    RelightingBuffer(int nX, int nY) {
+        this.nX = nX;
+        hits = new Intersection[nX * nY];
+        recorded = new boolean[nX * nY];
+    }
+
+    /**
+     * Records the primary hit of a pixel
+     *
+     * @param j   column index (pixel)
+     * @param i   row index (pixel)
+     * @param hit the closest intersection of the primary ray, null for a miss
+     */
+    void record(int j, int i, Intersection hit) {
+        hits[i * nX + j] = hit;
+        recorded[i * nX + j] = true;
+    }
+
+    /**
+     * Whether the primary hit of a pixel was recorded
+     *
+     * @param j column index (pixel)
+     * @param i row index (pixel)
+     * @return true if the pixel was traced and recorded
+     */
+    boolean isRecorded(int j, int i) {
+        return recorded[i * nX + j];
+    }
+
+    /**
+     * Primary hit of a recorded pixel
+     *
+     * @param j column index (pixel)
+     * @param i row index (pixel)
+     * @return the closest intersection of the primary ray, null for a miss
+     */
+    Intersection hit(int j, int i) {
+        return hits[i * nX + j];
+    }
+}
@@ -0,0 +1,289 @@
+package renderer;
+
+import primitives.Color;
+import primitives.Double3;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.zip.CRC32;
+
+import static java.nio.file.StandardOpenOption.*;
+
+/**
+ * Periodic checkpoint of a long render.
+ * <p>
+ * Every finished tile keeps its unclamped pixel colors in memory, and from time to
+ * time all finished tiles are saved into a compact binary file. The file is written
+ * on a background thread through a {@link FileChannel}, into a temporary file that
+ * atomically replaces the previous checkpoint, so render threads never wait for the
+ * disk and a crash during a write never corrupts the last good checkpoint. Only
+ * finished tiles are saved - the sample statistics of an unfinished tile are not, so
+ * a resumed render traces such a tile again from its first sample.
+ * <p>
+ * File layout (big endian): magic, version, render key, nX, nY, tile size, number of
+ * saved tiles, then for each saved tile its index followed by its pixels as double
+ * RGB triads in row-major order, and a CRC32 of everything before it. The render key
+ * is the digest of the scene content, the ray tracer and the camera settings, so a
+ * checkpoint of an edited scene is not resumed. The pixels are kept in full
+ * precision, so a restored tile packs into the same 8-bit pixels as the render.
+ */
+class RenderCheckpoint {
+    /** File signature - "RTCK" */
+    private static final int MAGIC = 0x5254434B;
+    /** Version of the file layout */
+    private static final int VERSION = 2;
+    /** Size of the render key in bytes - a SHA-256 digest */
+    private static final int KEY_SIZE = 32;
+    /** Size of the fixed header in bytes */
+    private static final int HEADER_SIZE = 4 + 4 + KEY_SIZE + 4 + 4 + 4 + 4;
+
+    /** The checkpoint file */
+    private final Path file;
+    /** Minimal time between two checkpoint writes in nanoseconds */
+    private final long intervalNanos;
+    /** Key of the render the checkpoint belongs to */
+    private final byte[] key;
+    /** Image resolution and tile size */
+    private final int nX, nY, tileSize;
+    /** The tiles of the image */
+    private final Tile[] tiles;
+    /** Pixel colors of finished tiles (RGB triads), null for unfinished tiles */
+    private final AtomicReferenceArray<double[]> done;
+
+    /** Background writer of the checkpoint file */
+    private final ExecutorService writer;
+    /** Whether a checkpoint write is in progress */
+    private final AtomicBoolean writing = new AtomicBoolean(false);
+    /** Time of the last scheduled checkpoint write */
+    private volatile long lastWrite = System.nanoTime();
+
+    /**
+     * Opens a checkpoint for a render - loads the finished tiles of a previous
+     * interrupted render if the file holds a checkpoint of the same render key
+     *
+     * @param file           the checkpoint file
+     * @param intervalMillis minimal time between checkpoint writes in milliseconds
+     * @param key            the render key - the digest of the scene, the ray tracer and the camera settings
+     * @param nX             number of horizontal pixels
+     * @param nY             number of vertical pixels
+     * @param tileSize       edge length of the render tiles
+     */
+    RenderCheckpoint(Path file, long intervalMillis, byte[] key, int nX, int nY, int tileSize) {
+        if (key.length != KEY_SIZE) throw new IllegalArgumentException("Render key must have " + KEY_SIZE + " bytes");
+        this.file = file;
+        this.intervalNanos = TimeUnit.MILLISECONDS.toNanos(intervalMillis);
+        this.key = key.clone();
+        this.nX = nX;
+        this.nY = nY;
+        this.tileSize = tileSize;
+        this.tiles = Tile.grid(nX, nY, tileSize);
+        this.done = new AtomicReferenceArray<>(tiles.length);
+        this.writer = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "render-checkpoint");
+            thread.setDaemon(true);
+            return thread;
+        });
+        load();
+    }
+
+    /**
+     * Restores the saved pixels of a finished tile
+     *
+     * @param tile the tile to restore
+     * @return the pixel colors of the tile in row-major order if it was finished before,
+     * null if it still has to be rendered
+     */
+    Color[] restore(Tile tile) {
+        double[] rgb = done.get(tile.index());
+        if (rgb == null) return null;
+        Color[] colors = new Color[tile.size()];
+        for (int k = 0; k < colors.length; ++k)
+            colors[k] = new Color(rgb[3 * k], rgb[3 * k + 1], rgb[3 * k + 2]);
+        return colors;
+    }
+
+    /**
+     * Records a finished tile and schedules a checkpoint write when the interval has passed
+     *
+     * @param tile   the finished tile
+     * @param colors the pixel colors of the tile in row-major order
+     */
+    void record(Tile tile, Color[] colors) {
+        double[] rgb = new double[colors.length * 3];
+        for (int i = 0, k = 0; i < colors.length; ++i, k += 3) {
+            Double3 c = colors[i].getRgb();
+            rgb[k] = c.d1();
+            rgb[k + 1] = c.d2();
+            rgb[k + 2] = c.d3();
+        }
+        done.set(tile.index(), rgb);
+
+        if (System.nanoTime() - lastWrite >= intervalNanos && writing.compareAndSet(false, true)) {
+            lastWrite = System.nanoTime();
+            writer.execute(() -> {
+                try {
+                    save();
+                } finally {
+                    writing.set(false);
+                }
+            });
+        }
+    }
+
+    /**
+     * Finishes the checkpointing - waits for a pending write and saves the final state
+     */
+    void close() {
+        writer.shutdown();
+        try {
+            if (!writer.awaitTermination(1, TimeUnit.MINUTES))
+                throw new IllegalStateException("Checkpoint writer did not finish");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Checkpoint writer interrupted", e);
+        }
+        save();
+    }
+
+    /**
+     * Deletes the checkpoint file - called when the rendered image has been safely written
+     *
+     * @param file the checkpoint file
+     */
+    static void delete(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot delete checkpoint " + file, e);
+        }
+    }
+
+    /**
+     * Saves all finished tiles into the checkpoint file
+     */
+    private void save() {
+        double[][] snapshot = new double[tiles.length][];
+        int count = 0;
+        for (int i = 0; i < tiles.length; ++i)
+            if ((snapshot[i] = done.get(i)) != null) ++count;
+
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, CREATE, TRUNCATE_EXISTING, WRITE)) {
+            CRC32 crc = new CRC32();
+            ByteBuffer buffer = ByteBuffer.allocateDirect(bufferSize());
+            buffer.putInt(MAGIC).putInt(VERSION).put(key)
+                    .putInt(nX).putInt(nY).putInt(tileSize).putInt(count);
+            for (int i = 0; i < snapshot.length; ++i) {
+                if (snapshot[i] == null) continue;
+                if (buffer.remaining() < 4 + Double.BYTES * snapshot[i].length) flush(channel, buffer, crc);
+                buffer.putInt(i);
+                buffer.asDoubleBuffer().put(snapshot[i]);
+                buffer.position(buffer.position() + Double.BYTES * snapshot[i].length);
+            }
+            flush(channel, buffer, crc);
+            buffer.putLong(crc.getValue()).flip();
+            while (buffer.hasRemaining()) channel.write(buffer);
+            channel.force(false);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot write checkpoint " + temp, e);
+        }
+        try {
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot replace checkpoint " + file, e);
+        }
+    }
+
+    /**
+     * Loads the finished tiles from the checkpoint file if it exists and belongs to
+     * the same render. A missing, foreign or damaged file is ignored.
+     */
+    private void load() {
+        if (!Files.isRegularFile(file)) return;
+        double[][] loaded = new double[tiles.length][];
+        try (FileChannel channel = FileChannel.open(file, READ)) {
+            if (channel.size() < HEADER_SIZE + 8) return;
+            CRC32 crc = new CRC32();
+            ByteBuffer buffer = ByteBuffer.allocateDirect(bufferSize());
+            buffer.limit(HEADER_SIZE);
+            if (!fill(channel, buffer, crc)) return;
+            if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) return;
+            byte[] saved = new byte[KEY_SIZE];
+            buffer.get(saved);
+            if (!Arrays.equals(saved, key)
+                    || buffer.getInt() != nX || buffer.getInt() != nY || buffer.getInt() != tileSize)
+                return;
+            int count = buffer.getInt();
+            for (int i = 0; i < count; ++i) {
+                buffer.clear().limit(4);
+                if (!fill(channel, buffer, crc)) return;
+                int index = buffer.getInt();
+                if (index < 0 || index >= tiles.length) return;
+                double[] rgb = new double[tiles[index].size() * 3];
+                buffer.clear().limit(Double.BYTES * rgb.length);
+                if (!fill(channel, buffer, crc)) return;
+                buffer.asDoubleBuffer().get(rgb);
+                loaded[index] = rgb;
+            }
+            long expected = crc.getValue();
+            buffer.clear().limit(8);
+            if (!fill(channel, buffer, null) || buffer.getLong() != expected) return;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read checkpoint " + file, e);
+        }
+        for (int i = 0; i < loaded.length; ++i)
+            if (loaded[i] != null) done.set(i, loaded[i]);
+    }
+
+    /**
+     * Size of the I/O buffer - large enough for the biggest tile record
+     *
+     * @return the buffer size in bytes
+     */
+    private int bufferSize() {
+        return Math.max(1 << 16, HEADER_SIZE + 8 + 4 + 3 * Double.BYTES * tileSize * tileSize);
+    }
+
+    /**
+     * Writes the buffered bytes to the channel and adds them to the checksum
+     *
+     * @param channel the file channel
+     * @param buffer  the buffer in writing mode - cleared when done
+     * @param crc     the running checksum
+     * @throws IOException on write failure
+     */
+    private static void flush(FileChannel channel, ByteBuffer buffer, CRC32 crc) throws IOException {
+        buffer.flip();
+        crc.update(buffer.duplicate());
+        while (buffer.hasRemaining()) channel.write(buffer);
+        buffer.clear();
+    }
+
+    /**
+     * Reads bytes from the channel until the buffer limit is reached and adds them to the checksum
+     *
+     * @param channel the file channel
+     * @param buffer  the buffer with the limit set to the wanted number of bytes - flipped for reading when done
+     * @param crc     the running checksum, or null for reading the checksum itself
+     * @return false if the file ended too early
+     * @throws IOException on read failure
+     */
+    private static boolean fill(FileChannel channel, ByteBuffer buffer, CRC32 crc) throws IOException {
+        while (buffer.hasRemaining())
+            if (channel.read(buffer) < 0) return false;
+        buffer.flip();
+        if (crc != null) crc.update(buffer.duplicate());
+        return true;
+    }
+}
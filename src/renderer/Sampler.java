@@ -0,0 +1,287 @@
+package renderer;
+
+/**
+ * Generator of sample positions inside a pixel for anti-aliasing.
+ * <p>
+ * The samples of a pixel are offsets in the unit pixel square [0,1)x[0,1), where
+ * x grows to the right and y grows up. The random stream of a sampler is seeded
+ * from the pixel coordinates, so a pixel gets the same samples in every render
+ * no matter which thread renders it. A sampler keeps its own stream and sample
+ * buffers, so every render thread uses its own sampler instance without any
+ * contention - create them with {@link SamplerType#create(long)}.
+ */
+public abstract class Sampler {
+    /** Seed of the sampler - mixed with the pixel coordinates for every pixel */
+    private final long seed;
+    /** State of the random stream of the current pixel (SplitMix64) */
+    private long state;
+
+    /** X offsets of the samples of the current pixel */
+    private double[] xs = new double[0];
+    /** Y offsets of the samples of the current pixel */
+    private double[] ys = new double[0];
+    /** Number of samples of the current pixel */
+    private int count;
+
+    /**
+     * Constructor initializing the sampler seed
+     *
+     * @param seed the seed of the sampler
+     */
+    protected Sampler(long seed) {
+        this.seed = seed;
+    }
+
+    /**
+     * Generates the samples of a pixel
+     *
+     * @param j     column index (pixel)
+     * @param i     row index (pixel)
+     * @param count number of samples
+     */
+    public final void samplePixel(int j, int i, int count) {
+        if (count <= 0) throw new IllegalArgumentException("Number of samples must be positive");
+        if (xs.length < count) {
+            xs = new double[count];
+            ys = new double[count];
+        }
+        this.count = count;
+        state = mix(seed ^ mix(((long) j << 32) | (i & 0xFFFFFFFFL)));
+        generate(xs, ys, count);
+    }
+
+    /**
+     * Number of samples of the current pixel
+     *
+     * @return the number of samples
+     */
+    public final int count() {
+        return count;
+    }
+
+    /**
+     * X offset of a sample of the current pixel
+     *
+     * @param k the sample index
+     * @return the offset in [0,1) from the left edge of the pixel
+     */
+    public final double x(int k) {
+        return xs[k];
+    }
+
+    /**
+     * Y offset of a sample of the current pixel
+     *
+     * @param k the sample index
+     * @return the offset in [0,1) from the bottom edge of the pixel
+     */
+    public final double y(int k) {
+        return ys[k];
+    }
+
+    /**
+     * Fills the sample offsets of the current pixel. The random stream
+     * ({@link #nextLong()}, {@link #nextDouble()}) is already seeded for the pixel.
+     *
+     * @param xs    the x offsets to fill
+     * @param ys    the y offsets to fill
+     * @param count number of samples to fill
+     */
+    protected abstract void generate(double[] xs, double[] ys, int count);
+
+    /**
+     * Next value of the random stream of the current pixel
+     *
+     * @return uniformly distributed 64 random bits
+     */
+    protected final long nextLong() {
+        return mix(state += 0x9E3779B97F4A7C15L);
+    }
+
+    /**
+     * Next value of the random stream of the current pixel
+     *
+     * @return uniformly distributed number in [0,1)
+     */
+    protected final double nextDouble() {
+        return (nextLong() >>> 11) * 0x1.0p-53;
+    }
+
+    /**
+     * SplitMix64 finalizer - scrambles the bits of a number
+     *
+     * @param z the number
+     * @return the scrambled number
+     */
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * Number of columns of the grid of cells for a number of samples - the smallest
+     * divisor of the count not below its square root, so the columns times the rows
+     * ({@code count / columns}) cover the whole pixel with cells of equal area.
+     * Square counts get a square grid, other counts the most square grid that fits
+     * them exactly (8 samples: 4 x 2, a prime count: a single row).
+     *
+     * @param count number of samples
+     * @return the number of columns
+     */
+    static int gridColumns(int count) {
+        int n = (int) Math.sqrt(count);
+        if (n * n < count) ++n;
+        while (count % n != 0) ++n;
+        return n;
+    }
+
+    /**
+     * Regular grid - every sample in the center of its cell
+     */
+    static class Grid extends Sampler {
+        Grid(long seed) { super(seed); }
+
+        @Override
+        protected void generate(double[] xs, double[] ys, int count) {
+            int n = gridColumns(count);
+            int m = count / n;
+            for (int k = 0; k < count; ++k) {
+                xs[k] = (k % n + 0.5) / n;
+                ys[k] = (k / n + 0.5) / m;
+            }
+        }
+    }
+
+    /**
+     * Jittered stratified sampling - a random sample in every cell of the grid
+     */
+    static class Stratified extends Sampler {
+        Stratified(long seed) { super(seed); }
+
+        @Override
+        protected void generate(double[] xs, double[] ys, int count) {
+            int n = gridColumns(count);
+            int m = count / n;
+            for (int k = 0; k < count; ++k) {
+                xs[k] = (k % n + nextDouble()) / n;
+                ys[k] = (k / n + nextDouble()) / m;
+            }
+        }
+    }
+
+    /**
+     * Halton sequence in bases 2 and 3, randomized per pixel by a toroidal shift
+     * (Cranley-Patterson rotation)
+     */
+    static class Halton extends Sampler {
+        Halton(long seed) { super(seed); }
+
+        @Override
+        protected void generate(double[] xs, double[] ys, int count) {
+            double shiftX = nextDouble();
+            double shiftY = nextDouble();
+            for (int k = 0; k < count; ++k) {
+                xs[k] = wrap(radicalInverse(k + 1, 2) + shiftX);
+                ys[k] = wrap(radicalInverse(k + 1, 3) + shiftY);
+            }
+        }
+
+        /**
+         * Radical inverse of an index - mirrors its digits around the decimal point
+         *
+         * @param index the index
+         * @param base  the base of the digits
+         * @return the radical inverse in [0,1)
+         */
+        private static double radicalInverse(int index, int base) {
+            double inverse = 0;
+            double digitValue = 1.0 / base;
+            for (; index > 0; index /= base, digitValue /= base)
+                inverse += (index % base) * digitValue;
+            return inverse;
+        }
+
+        /**
+         * Wraps a number in [0,2) into [0,1)
+         *
+         * @param value the number
+         * @return the fractional part
+         */
+        private static double wrap(double value) {
+            return value >= 1 ? value - 1 : value;
+        }
+    }
+
+    /**
+     * First two dimensions of the Sobol sequence with hash-based Owen scrambling
+     * (Burley, "Practical Hash-based Owen Scrambling", 2020). The scrambled points
+     * keep the (0,2) stratification of the sequence: every power of 4 prefix has
+     * one sample in every elementary interval.
+     */
+    static class Sobol extends Sampler {
+        /** Direction numbers of the second dimension (primitive polynomial x + 1) */
+        private static final int[] DIRECTIONS = new int[32];
+
+        static {
+            DIRECTIONS[0] = 1 << 31;
+            for (int bit = 1; bit < 32; ++bit)
+                DIRECTIONS[bit] = DIRECTIONS[bit - 1] ^ (DIRECTIONS[bit - 1] >>> 1);
+        }
+
+        Sobol(long seed) { super(seed); }
+
+        @Override
+        protected void generate(double[] xs, double[] ys, int count) {
+            long seeds = nextLong();
+            int indexSeed = (int) seeds;
+            int xSeed = (int) (seeds >>> 32);
+            int ySeed = (int) nextLong();
+            for (int k = 0; k < count; ++k) {
+                int index = owenScramble(k, indexSeed);
+                xs[k] = toUnit(owenScramble(Integer.reverse(index), xSeed));
+                ys[k] = toUnit(owenScramble(secondDimension(index), ySeed));
+            }
+        }
+
+        /**
+         * Sobol point of the second dimension
+         *
+         * @param index the point index
+         * @return the point as 32 bits fixed point fraction
+         */
+        private static int secondDimension(int index) {
+            int result = 0;
+            for (int bit = 0; index != 0; ++bit, index >>>= 1)
+                if ((index & 1) != 0) result ^= DIRECTIONS[bit];
+            return result;
+        }
+
+        /**
+         * Nested uniform (Owen) scrambling of a 32 bits fixed point fraction
+         *
+         * @param value the fraction bits
+         * @param seed  the scrambling seed
+         * @return the scrambled fraction bits
+         */
+        private static int owenScramble(int value, int seed) {
+            int x = Integer.reverse(value);
+            x += seed;
+            x ^= x * 0x6c50b47c;
+            x ^= x * 0xb82f1e52;
+            x ^= x * 0xc7afe638;
+            x ^= x * 0x8d22f6e6;
+            return Integer.reverse(x);
+        }
+
+        /**
+         * Converts 32 bits fixed point fraction into a number
+         *
+         * @param bits the fraction bits
+         * @return the number in [0,1)
+         */
+        private static double toUnit(int bits) {
+            return (bits & 0xFFFFFFFFL) * 0x1.0p-32;
+        }
+    }
+}
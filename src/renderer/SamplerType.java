@@ -0,0 +1,30 @@
+package renderer;
+
+/**
+ * Sampler types for placing anti-aliasing samples inside a pixel
+ */
+public enum SamplerType {
+    /** Regular grid with a sample in the center of every cell */
+    GRID,
+    /** Jittered stratified grid - a random sample in every cell */
+    STRATIFIED,
+    /** Randomly shifted Halton sequence (bases 2 and 3) */
+    HALTON,
+    /** Owen-scrambled Sobol sequence */
+    SOBOL;
+
+    /**
+     * Creates a new sampler of this type. Every render thread needs its own sampler.
+     *
+     * @param seed the seed of the sampler
+     * @return the new sampler
+     */
+    public Sampler create(long seed) {
+        return switch (this) {
+            case GRID -> new Sampler.Grid(seed);
+            case STRATIFIED -> new Sampler.Stratified(seed);
+            case HALTON -> new Sampler.Halton(seed);
+            case SOBOL -> new Sampler.Sobol(seed);
+        };
+    }
+}
@@ -2,6 +2,7 @@ package renderer;
 
 import lighting.LightSource;
 import primitives.*;
+import scene.CompiledScene;
 import scene.Scene;
 import geometries.Intersectable.Intersection;
 
@@ -10,12 +11,26 @@ import java.util.List;
 import static primitives.Util.*;
 
 public class SimpleRayTracer extends RayTracerBase {
-    private static final Double3 MIN_CALC_COLOR_K = new Double3(0.001);
+    private static final Double3 MIN_CALC_COLOR_K = CompiledScene.MIN_CALC_COLOR_K;
     private static final int MAX_CALC_COLOR_LEVEL = 10;
     private static final Double3 INITIAL_K = Double3.ONE;
     private static final double DELTA = 0.1;
 
+    /**
+     * Constructor - the tracer renders a snapshot of the scene, compiled now
+     *
+     * @param scene the scene to render
+     */
     public SimpleRayTracer(Scene scene) {
+        this(scene == null ? null : scene.compile());
+    }
+
+    /**
+     * Constructor for an already compiled scene, e.g. one shared by several tracers
+     *
+     * @param scene the compiled scene to render
+     */
+    public SimpleRayTracer(CompiledScene scene) {
         super(scene);
     }
 
@@ -40,16 +55,20 @@ public class SimpleRayTracer extends RayTracerBase {
         Ray shadowRay = new Ray(newPoint, lightDirection);
 
         double lightDistance = intersection.lightSource.getDistance(intersection.point);
-        List<Intersection> intersections = scene.geometries.calculateIntersectionsHelper(shadowRay);
+        List<Intersection> intersections = scene.geometries.calculateIntersections(shadowRay);
+        TileDependencies dependencies = dependencies();
+        if (dependencies != null) dependencies.shadow(intersection.lightSource, shadowRay, lightDistance + DELTA);
 
         if (intersections == null) return Double3.ONE;
 
         Double3 ktr = Double3.ONE;
         for (Intersection inter : intersections) {
-            if (inter.geometry == intersection.geometry) continue;
+            if (inter.isSameSurface(intersection)) continue;
 
             double dist = inter.point.distance(intersection.point);
             if (alignZero(dist - lightDistance) <= 0) {
+                if (dependencies != null) dependencies.occluder(inter.getSource());
+                if (!scene.isTransparent(inter.material)) return Double3.ZERO;
                 ktr = ktr.product(inter.material.kT);
                 if (ktr.lowerThan(MIN_CALC_COLOR_K)) {
                     return Double3.ZERO; // חסימה כמעט מלאה
@@ -61,7 +80,8 @@ public class SimpleRayTracer extends RayTracerBase {
     }
 
 
-    private Color calcColor(Intersection intersection, Ray ray) {
+    @Override
+    public Color calcColor(Intersection intersection, Ray ray) {
         return calcColor(intersection, ray, MAX_CALC_COLOR_LEVEL, INITIAL_K);
     }
 
@@ -83,7 +103,7 @@ public class SimpleRayTracer extends RayTracerBase {
 
     private boolean preprocessIntersection(Intersection intersection, Vector rayDir) {
         intersection.rayDir = rayDir; // היה scale(-1)
-        Vector n = intersection.geometry.getNormal(intersection.point);
+        Vector n = intersection.getSurfaceNormal();
         double nv = alignZero(n.dotProduct(rayDir));
         if (nv > 0) {
             n = n.scale(-1);
@@ -105,9 +125,13 @@ public class SimpleRayTracer extends RayTracerBase {
     private Color calcColorLocalEffects(Intersection intersection) {
         Color color = intersection.geometry.getEmission();
         Material material = intersection.material;
+        TileDependencies dependencies = dependencies();
+        if (dependencies != null) dependencies.shaded();
 
-        for (LightSource lightSource : scene.lights) {
+        for (int i = 0; i < scene.lightCount(); ++i) {
+            LightSource lightSource = scene.getLight(i);
             if (!setLightSource(intersection, lightSource)) continue;
+            if (dependencies != null) dependencies.light(lightSource);
 
             Double3 ktr = transparency(intersection);
             if (ktr.lowerThan(MIN_CALC_COLOR_K)) continue;
@@ -154,13 +178,13 @@ public class SimpleRayTracer extends RayTracerBase {
         Double3 kT = intersection.material.kT;
 
         Color reflectedColor = Color.BLACK;
-        if (!kR.lowerThan(MIN_CALC_COLOR_K)) {
+        if (scene.isReflective(intersection.material)) {
             Ray reflectedRay = constructReflectedRay(intersection);
             reflectedColor = calcGlobalEffect(reflectedRay, level, k, kR);
         }
 
         Color refractedColor = Color.BLACK;
-        if (!kT.lowerThan(MIN_CALC_COLOR_K)) {
+        if (scene.isTransparent(intersection.material)) {
             Ray refractedRay = constructRefractedRay(intersection);
             refractedColor = calcGlobalEffect(refractedRay, level, k, kT);
         }
@@ -179,9 +203,11 @@ public class SimpleRayTracer extends RayTracerBase {
         return calcColor(intersection, ray, level - 1, k.product(kx)).scale(kx);
     }
 
-    private Intersection findClosestIntersection(Ray ray) {
-        List<Intersection> intersections = scene.geometries.calculateIntersectionsHelper(ray);
-        if (intersections == null || intersections.isEmpty()) return null;
-        return ray.findClosestIntersection(intersections);
+    @Override
+    public Intersection findClosestIntersection(Ray ray) {
+        Intersection intersection = scene.geometries.calculateClosestIntersection(ray);
+        TileDependencies dependencies = dependencies();
+        if (dependencies != null) dependencies.ray(ray, intersection);
+        return intersection;
     }
 }
\ No newline at end of file
@@ -0,0 +1,234 @@
+package renderer;
+
+import primitives.Color;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+import static java.nio.file.StandardOpenOption.*;
+
+/**
+ * PNG writer for images larger than the heap - the image is encoded while it is
+ * being rendered.
+ * <p>
+ * The image is split into bands of full rows. Finished tiles are parked as RGB
+ * bytes in a memory-mapped scratch file next to the output file, and as soon as
+ * all the pixels of the next band in order have arrived, its scanlines are
+ * filtered and compressed into the PNG stream. The heap holds only a couple of
+ * scanlines, and the scratch pages of an encoded band are left to the operating
+ * system, so the memory use is bounded by a band and not by the image.
+ * <p>
+ * Render threads may write disjoint tiles concurrently; a band is encoded by the
+ * thread that completes it.
+ */
+public class StreamingPngWriter implements FrameBuffer, Closeable {
+    /** Image resolution */
+    private final int nX, nY;
+    /** Number of rows in a band */
+    private final int bandHeight;
+    /** Number of bands */
+    private final int bands;
+
+    /** The PNG file being written */
+    private final Path file;
+    /** The PNG file stream */
+    private final OutputStream out;
+    /** The compressor of the image data */
+    private final Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION);
+    /** The compressed image data stream, framed into IDAT chunks */
+    private final DeflaterOutputStream idat;
+
+    /** The scratch file of the finished tiles */
+    private final Path scratchFile;
+    /** The channel of the scratch file */
+    private final FileChannel scratch;
+    /** Mapped scratch region of every band, null before the first write and after encoding */
+    private final AtomicReferenceArray<MappedByteBuffer> bandBuffers;
+    /** Number of pixels still missing in every band */
+    private final AtomicIntegerArray missing;
+
+    /** Index of the next band to encode - guarded by the writer lock */
+    private int nextBand = 0;
+    /** Raw bytes of the previous scanline, the current one, the filtered scanline and filter scratch */
+    private final byte[] previousRow, row, filtered, filterScratch;
+
+    /**
+     * Opens a streaming PNG file
+     *
+     * @param file       the PNG file to write
+     * @param nX         number of horizontal pixels
+     * @param nY         number of vertical pixels
+     * @param bandHeight number of rows in a band - usually the render tile size
+     */
+    public StreamingPngWriter(Path file, int nX, int nY, int bandHeight) {
+        if (nX <= 0 || nY <= 0 || bandHeight <= 0)
+            throw new IllegalArgumentException("Resolution and band height must be positive");
+        if ((long) nX * bandHeight * PngEncoder.BYTES_PER_PIXEL > Integer.MAX_VALUE)
+            throw new IllegalArgumentException("Band is too large for a single mapping");
+        this.file = file;
+        this.nX = nX;
+        this.nY = nY;
+        this.bandHeight = bandHeight;
+        this.bands = (nY + bandHeight - 1) / bandHeight;
+        this.bandBuffers = new AtomicReferenceArray<>(bands);
+        this.missing = new AtomicIntegerArray(bands);
+        for (int band = 0; band < bands; ++band)
+            missing.set(band, nX * rowsOf(band));
+
+        int rowBytes = nX * PngEncoder.BYTES_PER_PIXEL;
+        previousRow = new byte[rowBytes];
+        row = new byte[rowBytes];
+        filtered = new byte[rowBytes + 1];
+        filterScratch = new byte[rowBytes + 1];
+
+        scratchFile = file.resolveSibling(file.getFileName() + ".scratch");
+        try {
+            scratch = FileChannel.open(scratchFile, CREATE, TRUNCATE_EXISTING, READ, WRITE, DELETE_ON_CLOSE);
+            out = new BufferedOutputStream(Channels.newOutputStream(
+                    FileChannel.open(file, CREATE, TRUNCATE_EXISTING, WRITE)), 1 << 16);
+            PngEncoder.writeHeader(out, nX, nY);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot create image " + file, e);
+        }
+        idat = new DeflaterOutputStream(new PngEncoder.IdatOutputStream(out), deflater, 1 << 16);
+    }
+
+    @Override
+    public int width() {
+        return nX;
+    }
+
+    @Override
+    public int height() {
+        return nY;
+    }
+
+    /**
+     * Writes the colors of a rectangular block of pixels, and encodes every band
+     * that became complete
+     */
+    @Override
+    public void writeTile(int xIndex, int yIndex, int width, int height, Color[] colors) {
+        byte[] bytes = new byte[width * PngEncoder.BYTES_PER_PIXEL];
+        boolean completed = false;
+        for (int r = 0, k = 0; r < height; ++r) {
+            for (int b = 0; b < bytes.length; b += PngEncoder.BYTES_PER_PIXEL) {
+                int rgb = colors[k++].getRGB();
+                bytes[b] = (byte) (rgb >> 16);
+                bytes[b + 1] = (byte) (rgb >> 8);
+                bytes[b + 2] = (byte) rgb;
+            }
+            int y = yIndex + r;
+            int band = y / bandHeight;
+            bandBuffer(band).put(((y % bandHeight) * nX + xIndex) * PngEncoder.BYTES_PER_PIXEL, bytes);
+            if (missing.addAndGet(band, -width) == 0) completed = true;
+        }
+        if (completed) encodeCompleteBands();
+    }
+
+    /**
+     * Finishes the PNG file - all the pixels must have been written
+     */
+    @Override
+    public void close() {
+        try {
+            encodeCompleteBands();
+            synchronized (this) {
+                if (nextBand < bands)
+                    throw new IllegalStateException("Image is incomplete - band " + nextBand + " is missing pixels");
+                idat.close(); // the IDAT stream leaves the file stream open
+                PngEncoder.writeEnd(out);
+                out.close();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot write image " + file, e);
+        } finally {
+            deflater.end();
+            try {
+                scratch.close();
+            } catch (IOException e) {
+                throw new UncheckedIOException("Cannot delete scratch file " + scratchFile, e);
+            }
+        }
+    }
+
+    /**
+     * Gives up a PNG file that will not be completed, e.g. because its render failed -
+     * closes the file and deletes it with the scratch file, so no truncated image is
+     * left under the file name
+     */
+    public synchronized void abort() {
+        deflater.end();
+        try {
+            try {
+                out.close();
+            } finally {
+                scratch.close();
+            }
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot delete incomplete image " + file, e);
+        }
+    }
+
+    /**
+     * Encodes the complete bands that are next in order
+     */
+    private synchronized void encodeCompleteBands() {
+        try {
+            while (nextBand < bands && missing.get(nextBand) == 0) {
+                MappedByteBuffer buffer = bandBuffer(nextBand);
+                int rows = rowsOf(nextBand);
+                for (int r = 0; r < rows; ++r) {
+                    buffer.get(r * row.length, row);
+                    PngEncoder.filterRow(row, previousRow, filtered, filterScratch);
+                    idat.write(filtered);
+                    System.arraycopy(row, 0, previousRow, 0, row.length);
+                }
+                bandBuffers.set(nextBand++, null);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot write image " + file, e);
+        }
+    }
+
+    /**
+     * Mapped scratch region of a band, mapped on the first request
+     *
+     * @param band the band index
+     * @return the mapped region
+     */
+    private MappedByteBuffer bandBuffer(int band) {
+        MappedByteBuffer buffer = bandBuffers.get(band);
+        if (buffer != null) return buffer;
+        long size = (long) nX * bandHeight * PngEncoder.BYTES_PER_PIXEL;
+        try {
+            buffer = scratch.map(FileChannel.MapMode.READ_WRITE, band * size, (long) rowsOf(band) * nX * PngEncoder.BYTES_PER_PIXEL);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot map scratch file " + scratchFile, e);
+        }
+        return bandBuffers.compareAndSet(band, null, buffer) ? buffer : bandBuffers.get(band);
+    }
+
+    /**
+     * Number of rows of a band - the last band may be shorter
+     *
+     * @param band the band index
+     * @return the number of rows
+     */
+    private int rowsOf(int band) {
+        return Math.min(bandHeight, nY - band * bandHeight);
+    }
+}
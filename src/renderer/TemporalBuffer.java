@@ -0,0 +1,158 @@
+package renderer;
+
+import geometries.Intersectable.Intersection;
+import primitives.Color;
+import primitives.Point;
+import primitives.Ray;
+import primitives.Vector;
+
+/**
+ * The primary hits and pixel colors of one frame of a camera animation, kept to reuse
+ * the shading of the next frame - temporal reprojection.
+ * <p>
+ * A hit of a primary ray of the next frame is projected into the view of this frame,
+ * and the color of the nearest pixel is reused if that pixel saw the same surface
+ * point: its hit geometry is the same, the hit lies on the tangent plane of the
+ * recorded hit - a depth test that stays tight at grazing angles - the surface faces
+ * both cameras from the same side, and - if the pixel colors are anti-aliased - the
+ * pixel is not on a geometric edge, where its color mixes surfaces.
+ * <p>
+ * Every pixel keeps the surface point its color was shaded at, and a reused color
+ * keeps the point it came with. A color is reused only while its point is within half
+ * a pixel of the new hit, so the sub-pixel displacements of a color that is reused
+ * frame after frame do not add up.
+ * <p>
+ * Only the scene geometries may not move between the frames - the camera may.
+ */
+final class TemporalBuffer {
+    /** Largest distance of a hit from the tangent plane of the recorded hit, relative to its depth */
+    private static final double DEPTH_TOLERANCE = 0.01;
+    /** Largest distance of a hit from the shaded point of a reused color, in pixels */
+    private static final double MAX_DISPLACEMENT = 0.5;
+
+    /** Location of the camera of the frame */
+    private final Point p0;
+    /** Directions of the camera of the frame */
+    private final Vector vTo, vUp, vRight;
+    /** Distance of the view plane */
+    private final double distance;
+    /** Size of a pixel on the view plane */
+    private final double pixelWidth, pixelHeight;
+    /** Resolution */
+    private final int nX, nY;
+    /** Whether a pixel color averages samples of the whole pixel area */
+    private final boolean antiAliased;
+    /** The primary hits and colors of the frame */
+    private final GBuffer hits;
+    /** The surface point every pixel color was shaded at (3 coordinates per pixel) */
+    private final double[] shaded;
+
+    /**
+     * Creates an empty buffer for a frame
+     *
+     * @param p0          the camera location
+     * @param vTo         the view direction
+     * @param vUp         the up direction
+     * @param vRight      the right direction
+     * @param distance    the distance of the view plane
+     * @param width       the view plane width
+     * @param height      the view plane height
+     * @param nX          number of horizontal pixels
+     * @param nY          number of vertical pixels
+     * @param antiAliased whether a pixel color averages samples of the whole pixel area
+     */
+    TemporalBuffer(Point p0, Vector vTo, Vector vUp, Vector vRight, double distance, double width, double height,
+                   int nX, int nY, boolean antiAliased) {
+        this.p0 = p0;
+        this.vTo = vTo;
+        this.vUp = vUp;
+        this.vRight = vRight;
+        this.distance = distance;
+        this.pixelWidth = width / nX;
+        this.pixelHeight = height / nY;
+        this.nX = nX;
+        this.nY = nY;
+        this.antiAliased = antiAliased;
+        this.hits = new GBuffer(nX, nY);
+        this.shaded = new double[3 * nX * nY];
+    }
+
+    /**
+     * Records the primary hit and the color of a pixel
+     *
+     * @param j        column index (pixel)
+     * @param i        row index (pixel)
+     * @param ray      the primary ray through the pixel center
+     * @param hit      the closest intersection of the ray, null for a miss
+     * @param color    the color of the pixel
+     * @param from     the pixel of the previous frame the color was reused from, -1 if it was shaded
+     * @param previous the previous frame, null if the color was shaded
+     */
+    void record(int j, int i, Ray ray, Intersection hit, Color color, int from, TemporalBuffer previous) {
+        if (hit != null && hit.normal == null) {
+            // the hit was not shaded - its normal is computed as the tracer does, facing the ray
+            Vector normal = hit.getSurfaceNormal();
+            hit.normal = normal.dotProduct(ray.getDirection()) > 0 ? normal.scale(-1) : normal;
+        }
+        hits.record(j, i, hit, hit == null ? 0 : hit.point.distance(p0), color);
+        if (hit == null) return;
+        int index = 3 * (i * nX + j);
+        if (from < 0) {
+            shaded[index] = hit.point.getX();
+            shaded[index + 1] = hit.point.getY();
+            shaded[index + 2] = hit.point.getZ();
+        } else {
+            System.arraycopy(previous.shaded, 3 * from, shaded, index, 3);
+        }
+    }
+
+    /**
+     * Finds the pixel of this frame that saw the hit of a primary ray of the next frame
+     *
+     * @param ray the primary ray of the next frame
+     * @param hit its closest intersection
+     * @return the pixel index ({@code i * nX + j}), or -1 if no pixel saw the hit point,
+     * or its color must not be reused
+     */
+    int find(Ray ray, Intersection hit) {
+        Vector v = hit.point.subtract(p0);
+        double t = v.dotProduct(vTo);
+        if (t <= 0) return -1; // behind the camera
+        double x = v.dotProduct(vRight) * distance / t;
+        double y = v.dotProduct(vUp) * distance / t;
+        int j = (int) Math.round(x / pixelWidth + (nX - 1) / 2d);
+        int i = (int) Math.round(-y / pixelHeight + (nY - 1) / 2d);
+        if (j < 0 || j >= nX || i < 0 || i >= nY) return -1;
+
+        if (!hits.isSameSurface(j, i, hit) || antiAliased && hits.isEdge(j, i)) return -1;
+        Vector normal = hits.normal(j, i);
+        // the next camera must see the same side of the surface
+        if (normal.dotProduct(ray.getDirection()) >= 0) return -1;
+
+        int index = i * nX + j;
+        double dx = hit.point.getX() - shaded[3 * index];
+        double dy = hit.point.getY() - shaded[3 * index + 1];
+        double dz = hit.point.getZ() - shaded[3 * index + 2];
+        // the hit must lie on the tangent plane of the shaded point - unlike the depths of
+        // the two points, their distance from the plane stays small at grazing angles
+        double offset = normal.getX() * dx + normal.getY() * dy + normal.getZ() * dz;
+        if (Math.abs(offset) > DEPTH_TOLERANCE * hits.depth(j, i)) return -1;
+        // and near the shaded point as the next camera sees it - the displacement across the
+        // ray, compared with the size of a pixel at the depth of the hit
+        Vector direction = ray.getDirection();
+        double along = direction.getX() * dx + direction.getY() * dy + direction.getZ() * dz;
+        double across = dx * dx + dy * dy + dz * dz - along * along;
+        double pixel = MAX_DISPLACEMENT * Math.max(pixelWidth, pixelHeight) * t / distance;
+        return across > pixel * pixel ? -1 : index;
+    }
+
+    /**
+     * Color of a pixel
+     *
+     * @param index the pixel index
+     * @return the color
+     */
+    Color color(int index) {
+        return hits.color(index % nX, index / nX);
+    }
+}
@@ -0,0 +1,48 @@
+package renderer;
+
+/**
+ * A rectangular block of pixels of the view plane.
+ * The camera renders the image tile by tile, so a tile is the unit of work
+ * handed to render threads and the unit of progress saved in checkpoints.
+ *
+ * @param index  the running index of the tile in row-major order
+ * @param x      column of the top-left pixel of the tile
+ * @param y      row of the top-left pixel of the tile
+ * @param width  number of pixel columns in the tile
+ * @param height number of pixel rows in the tile
+ */
+public record Tile(int index, int x, int y, int width, int height) {
+
+    /**
+     * Splits an image into square tiles in row-major order.
+     * Tiles on the right and bottom edges are clipped to the image size.
+     *
+     * @param nX   number of horizontal pixels
+     * @param nY   number of vertical pixels
+     * @param size the edge length of a tile in pixels
+     * @return the tiles covering the whole image
+     */
+    public static Tile[] grid(int nX, int nY, int size) {
+        if (size <= 0) throw new IllegalArgumentException("Tile size must be positive");
+        int tilesX = (nX + size - 1) / size;
+        int tilesY = (nY + size - 1) / size;
+        Tile[] tiles = new Tile[tilesX * tilesY];
+        for (int ty = 0; ty < tilesY; ++ty)
+            for (int tx = 0; tx < tilesX; ++tx) {
+                int x = tx * size;
+                int y = ty * size;
+                tiles[ty * tilesX + tx] =
+                        new Tile(ty * tilesX + tx, x, y, Math.min(size, nX - x), Math.min(size, nY - y));
+            }
+        return tiles;
+    }
+
+    /**
+     * Number of pixels in the tile
+     *
+     * @return width * height
+     */
+    public int size() {
+        return width * height;
+    }
+}
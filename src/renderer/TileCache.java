@@ -0,0 +1,283 @@
+package renderer;
+
+import primitives.Color;
+import primitives.Double3;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+import static java.nio.file.StandardOpenOption.*;
+
+/**
+ * Content-addressed cache of rendered tiles in a local directory.
+ * <p>
+ * A tile is stored in a file named by the SHA-256 hash of the render key - the digest
+ * of the scene content, the ray tracer and the camera settings - and of the tile
+ * rectangle, so any render of the same scene from the same camera finds it, in this
+ * process or in another one. Changes of the tracing code itself are not part of the
+ * key: clear the directory after changing how pixels are computed.
+ * <p>
+ * Several render processes may share a directory: a tile is written into a temporary
+ * file that is atomically moved to its name, so a reader sees a whole tile or none,
+ * and a damaged file reads as a miss. When the tiles take more than the size limit,
+ * the least recently used ones are deleted - a hit touches the modification time of
+ * its file - by one process at a time, under a lock on the {@value #LOCK} file.
+ * <p>
+ * File layout (big endian): magic, version, tile width, tile height, the pixels as
+ * double RGB triads in row-major order, and a CRC32 of everything before it. The
+ * pixels are kept in full precision, so a cached tile packs into the same 8-bit
+ * pixels as a traced one.
+ */
+class TileCache {
+    /** File signature - "RTTC" */
+    private static final int MAGIC = 0x52545443;
+    /** Version of the file layout and of the key */
+    private static final int VERSION = 2;
+    /** Size of the fixed header in bytes */
+    private static final int HEADER_SIZE = 4 * 4;
+    /** Size of a pixel in bytes - three doubles */
+    private static final int PIXEL_SIZE = 3 * Double.BYTES;
+    /** Name suffix of the tile files */
+    private static final String SUFFIX = ".tile";
+    /** Name of the lock file of the eviction */
+    private static final String LOCK = ".lock";
+    /** The eviction deletes tiles until they take this part of the size limit */
+    private static final double EVICTION_TARGET = 0.75;
+    /** Age of a temporary file that a crashed process left behind */
+    private static final long STALE_MILLIS = TimeUnit.HOURS.toMillis(1);
+
+    /** The cache directory */
+    private final Path directory;
+    /** Size limit of the tile files in bytes */
+    private final long maxBytes;
+    /** Size of the tile files as seen by this process */
+    private final AtomicLong size = new AtomicLong();
+    /** Whether this process is evicting */
+    private final AtomicBoolean evicting = new AtomicBoolean(false);
+
+    /**
+     * Opens a cache directory, creating it if needed
+     *
+     * @param directory the cache directory
+     * @param maxBytes  size limit of the cached tiles in bytes
+     */
+    TileCache(Path directory, long maxBytes) {
+        this.directory = directory;
+        this.maxBytes = maxBytes;
+        try {
+            Files.createDirectories(directory);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot create tile cache " + directory, e);
+        }
+        size.set(scan().stream().mapToLong(Entry::size).sum());
+    }
+
+    /**
+     * Computes the key of a render
+     *
+     * @param scene    the content digest of the scene
+     * @param tracer   the name of the ray tracer class
+     * @param settings the encoded camera settings that determine the pixels
+     * @return the render key
+     */
+    static byte[] renderKey(byte[] scene, String tracer, ByteBuffer settings) {
+        MessageDigest digest = sha256();
+        digest.update(ByteBuffer.allocate(8).putInt(MAGIC).putInt(VERSION).flip());
+        digest.update(scene);
+        digest.update(tracer.getBytes(StandardCharsets.UTF_8));
+        digest.update(settings);
+        return digest.digest();
+    }
+
+    /**
+     * Loads a cached tile
+     *
+     * @param key  the render key
+     * @param tile the tile
+     * @return the pixel colors of the tile in row-major order, null if the tile is not cached
+     */
+    Color[] load(byte[] key, Tile tile) {
+        Path file = file(key, tile);
+        ByteBuffer buffer;
+        try {
+            buffer = ByteBuffer.wrap(Files.readAllBytes(file));
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read cached tile " + file, e);
+        }
+
+        int pixels = tile.size();
+        if (buffer.capacity() != HEADER_SIZE + PIXEL_SIZE * pixels + 8) return null;
+        CRC32 crc = new CRC32();
+        crc.update(buffer.slice(0, buffer.capacity() - 8));
+        if (buffer.getLong(buffer.capacity() - 8) != crc.getValue()) return null;
+        if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION
+                || buffer.getInt() != tile.width() || buffer.getInt() != tile.height())
+            return null;
+
+        Color[] colors = new Color[pixels];
+        for (int k = 0; k < pixels; ++k)
+            colors[k] = new Color(buffer.getDouble(), buffer.getDouble(), buffer.getDouble());
+        try {
+            Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+        } catch (IOException e) {
+            // evicted meanwhile by another process - the pixels were read already
+        }
+        return colors;
+    }
+
+    /**
+     * Stores a rendered tile, and evicts the least recently used tiles if the cache
+     * has grown over its size limit
+     *
+     * @param key    the render key
+     * @param tile   the tile
+     * @param colors the pixel colors of the tile in row-major order
+     */
+    void store(byte[] key, Tile tile, Color[] colors) {
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + PIXEL_SIZE * colors.length + 8);
+        buffer.putInt(MAGIC).putInt(VERSION).putInt(tile.width()).putInt(tile.height());
+        for (Color color : colors) {
+            Double3 c = color.getRgb();
+            buffer.putDouble(c.d1()).putDouble(c.d2()).putDouble(c.d3());
+        }
+        CRC32 crc = new CRC32();
+        crc.update(buffer.array(), 0, buffer.position());
+        buffer.putLong(crc.getValue()).flip();
+
+        Path file = file(key, tile);
+        Path temp = null;
+        try {
+            temp = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+            try (FileChannel channel = FileChannel.open(temp, WRITE)) {
+                while (buffer.hasRemaining()) channel.write(buffer);
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            try {
+                if (temp != null) Files.deleteIfExists(temp);
+            } catch (IOException ignored) {
+                // the stale file is deleted by a later eviction
+            }
+            throw new UncheckedIOException("Cannot store cached tile " + file, e);
+        }
+
+        if (size.addAndGet(buffer.capacity()) > maxBytes && evicting.compareAndSet(false, true)) {
+            try {
+                evict();
+            } finally {
+                evicting.set(false);
+            }
+        }
+    }
+
+    /**
+     * Deletes the least recently used tiles until they take the eviction target of the
+     * size limit. Skipped while another process evicts.
+     */
+    private void evict() {
+        try (FileChannel channel = FileChannel.open(directory.resolve(LOCK), CREATE, WRITE);
+             FileLock lock = channel.tryLock()) {
+            if (lock == null) return;
+            List<Entry> entries = scan();
+            entries.sort(Comparator.comparing(Entry::time));
+            long total = entries.stream().mapToLong(Entry::size).sum();
+            long target = (long) (maxBytes * EVICTION_TARGET);
+            for (Entry entry : entries) {
+                if (total <= target) break;
+                Files.deleteIfExists(entry.file());
+                total -= entry.size();
+            }
+            size.set(total);
+        } catch (OverlappingFileLockException e) {
+            // another cache of this process on the same directory is evicting
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot evict from tile cache " + directory, e);
+        }
+    }
+
+    /**
+     * Lists the tile files, and deletes the temporary files left by crashed processes
+     *
+     * @return the tile files with their sizes and modification times
+     */
+    private List<Entry> scan() {
+        List<Entry> entries = new ArrayList<>();
+        long stale = System.currentTimeMillis() - STALE_MILLIS;
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                String name = file.getFileName().toString();
+                BasicFileAttributes attributes;
+                try {
+                    attributes = Files.readAttributes(file, BasicFileAttributes.class);
+                } catch (NoSuchFileException e) {
+                    continue; // evicted or moved meanwhile
+                }
+                if (name.endsWith(SUFFIX)) {
+                    entries.add(new Entry(file, attributes.size(), attributes.lastModifiedTime().toMillis()));
+                } else if (name.endsWith(".tmp") && attributes.lastModifiedTime().toMillis() < stale) {
+                    Files.deleteIfExists(file);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot list tile cache " + directory, e);
+        }
+        return entries;
+    }
+
+    /**
+     * The file of a tile
+     *
+     * @param key  the render key
+     * @param tile the tile
+     * @return the file path
+     */
+    private Path file(byte[] key, Tile tile) {
+        MessageDigest digest = sha256();
+        digest.update(key);
+        digest.update(ByteBuffer.allocate(16).putInt(tile.x()).putInt(tile.y())
+                .putInt(tile.width()).putInt(tile.height()).flip());
+        return directory.resolve(HexFormat.of().formatHex(digest.digest()) + SUFFIX);
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    /**
+     * A tile file found in the cache directory
+     *
+     * @param file the file
+     * @param size the file size in bytes
+     * @param time the last modification time in milliseconds
+     */
+    private record Entry(Path file, long size, long time) {
+    }
+}
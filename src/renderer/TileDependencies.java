@@ -0,0 +1,184 @@
+package renderer;
+
+import geometries.BoundingBox;
+import geometries.Intersectable;
+import geometries.Intersectable.Intersection;
+import lighting.LightSource;
+import primitives.Ray;
+import scene.SceneChanges;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The parts of a scene that the rays of one tile depended on, recorded while the tile
+ * is rendered, to decide which tiles a scene edit affects.
+ * <p>
+ * The record holds the geometries the rays hit or that blocked their shadow rays, the
+ * lights that lit the hits, and where the rays went: the box of the searched ray
+ * segments and a box of the shadow ray segments per light, clipped to the box of the
+ * scene geometries. A removed geometry or light affects the tile if the tile
+ * depended on it, an added geometry affects the tile if its box meets one of the
+ * ray boxes - a conservative test, since rays that did not hit the geometry may pass
+ * through the same boxes - and a moved geometry affects the tile in both cases.
+ * <p>
+ * The ray tracer records into the record of the current thread, see
+ * {@link RayTracerBase#beginRecording(TileDependencies)} - a tracer looks the record
+ * up only while it renders recording tiles.
+ */
+final class TileDependencies {
+    /** The record of the tile rendered by the current thread */
+    private static final ThreadLocal<TileDependencies> CURRENT = new ThreadLocal<>();
+
+    /** The box of the scene geometries that the ray segments are clipped to, null if unbounded */
+    private final BoundingBox world;
+    /** The geometries the rays hit */
+    private final Set<Intersectable> geometries = Collections.newSetFromMap(new IdentityHashMap<>());
+    /** The lights that lit the hits of the rays */
+    private final Set<LightSource> lights = Collections.newSetFromMap(new IdentityHashMap<>());
+    /** Box of the segments of the closest hit searches */
+    private BoundingBox rays;
+    /** Boxes of the shadow ray segments per light */
+    private final Map<LightSource, BoundingBox> shadows = new IdentityHashMap<>();
+    /** Whether a ray segment could not be clipped - there are no bounded geometries */
+    private boolean unbounded;
+    /** Whether any hit was shaded - the ambient light and new lights affect the tile */
+    private boolean shaded;
+
+    /**
+     * Creates an empty record
+     *
+     * @param world the box of the bounded geometries of the rendered scene, null if there are none
+     */
+    TileDependencies(BoundingBox world) {
+        this.world = world;
+    }
+
+    /**
+     * Starts recording into a record on the current thread
+     *
+     * @param dependencies the record of the tile
+     */
+    static void begin(TileDependencies dependencies) {
+        CURRENT.set(dependencies);
+    }
+
+    /**
+     * Stops recording on the current thread
+     */
+    static void end() {
+        CURRENT.remove();
+    }
+
+    /**
+     * The record of the current thread
+     *
+     * @return the record, null if the thread does not record
+     */
+    static TileDependencies current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Records a closest hit search
+     *
+     * @param ray the ray
+     * @param hit the closest hit, null for a miss
+     */
+    void ray(Ray ray, Intersection hit) {
+        double length = Double.POSITIVE_INFINITY;
+        if (hit != null) {
+            geometries.add(hit.getSource());
+            length = ray.getOrigin().distance(hit.point);
+        }
+        rays = include(rays, ray, length);
+    }
+
+    /**
+     * Records a shadow ray
+     *
+     * @param light  the light
+     * @param ray    the shadow ray
+     * @param length the distance to the light
+     */
+    void shadow(LightSource light, Ray ray, double length) {
+        shadows.put(light, include(shadows.get(light), ray, length));
+    }
+
+    /**
+     * Records a geometry that blocked a shadow ray
+     *
+     * @param geometry the geometry
+     */
+    void occluder(Intersectable geometry) {
+        geometries.add(geometry);
+    }
+
+    /**
+     * Records a light that lit a hit
+     *
+     * @param light the light
+     */
+    void light(LightSource light) {
+        lights.add(light);
+    }
+
+    /**
+     * Records the shading of a hit
+     */
+    void shaded() {
+        shaded = true;
+    }
+
+    /**
+     * Adds a ray segment to a box
+     *
+     * @param box    the box, null if empty
+     * @param ray    the ray
+     * @param length the length of the segment
+     * @return the box including the segment
+     */
+    private BoundingBox include(BoundingBox box, Ray ray, double length) {
+        if (world == null) {
+            unbounded = true;
+            return box;
+        }
+        BoundingBox segment = world.clip(ray.getOrigin(), ray.getDirection(), length);
+        if (segment == null) return box;
+        return box == null ? segment : box.union(segment);
+    }
+
+    /**
+     * Checks whether a scene edit may change the pixels of the tile
+     *
+     * @param changes the edit
+     * @return true if the tile has to be rendered again
+     */
+    boolean isAffectedBy(SceneChanges changes) {
+        if (changes.isBackgroundChanged()) return true;
+        if (shaded && (changes.isAmbientLightChanged() || !changes.getAddedLights().isEmpty())) return true;
+        for (LightSource light : changes.getRemovedLights())
+            if (lights.contains(light)) return true;
+        for (Intersectable geometry : changes.getRemoved())
+            if (geometries.contains(geometry)) return true;
+        // a moved geometry leaves the rays that met it, and may meet others where it is now
+        for (Intersectable geometry : changes.getMoved())
+            if (geometries.contains(geometry)) return true;
+        if (changes.getAdded().isEmpty() && changes.getMoved().isEmpty()) return false;
+        if (unbounded) return true;
+        for (Set<Intersectable> placed : List.of(changes.getAdded(), changes.getMoved())) {
+            for (Intersectable geometry : placed) {
+                // the ray segments were clipped to the old scene box - the geometry must be inside it
+                BoundingBox box = geometry.getBoundingBox();
+                if (box == null || !world.contains(box)) return true;
+                if (rays != null && rays.intersects(box)) return true;
+                for (BoundingBox shadow : shadows.values())
+                    if (shadow.intersects(box)) return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,110 @@
+package renderer;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiConsumer;
+
+/**
+ * Pool of render threads shared by the cameras of a multi-view render, see
+ * {@link MultiViewRender}.
+ * <p>
+ * The tiles of all the views wait in one priority queue, ordered by view and then
+ * by the order they were submitted in, so the threads work on the tiles of one view
+ * - sharing its rays and the scene parts it sees in their caches - and take tiles of
+ * the next view only when the earlier views have none waiting, e.g. while a view
+ * waits for the end of its edge anti-aliasing pass. Every thread has its own sampler
+ * of every sampler type.
+ */
+final class TilePool implements AutoCloseable {
+    /** The render threads */
+    private final ThreadPoolExecutor executor;
+    /** The samplers of the render threads */
+    private final ThreadLocal<Map<SamplerType, Sampler>> samplers = ThreadLocal.withInitial(
+            () -> new EnumMap<>(SamplerType.class));
+    /** Submission counter, orders the tiles of a view */
+    private final AtomicInteger submitted = new AtomicInteger();
+
+    /**
+     * Starts the render threads
+     *
+     * @param threads number of threads
+     */
+    TilePool(int threads) {
+        AtomicInteger count = new AtomicInteger();
+        executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS, new PriorityBlockingQueue<>(),
+                r -> {
+                    Thread thread = new Thread(r, "render-" + count.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    /**
+     * Runs a rendering task on tiles of a view, and waits until all of them are done
+     *
+     * @param view        the index of the view - lower views are rendered first
+     * @param tiles       the tiles
+     * @param samplerType the sampler type of the view
+     * @param task        the task to run per tile
+     * @throws RuntimeException the first exception thrown by a task
+     */
+    void run(int view, Tile[] tiles, SamplerType samplerType, BiConsumer<Tile, Sampler> task) {
+        CountDownLatch done = new CountDownLatch(tiles.length);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        for (Tile tile : tiles) {
+            executor.execute(new TileTask(view, submitted.getAndIncrement(), () -> {
+                try {
+                    if (failure.get() == null)
+                        task.accept(tile, samplers.get().computeIfAbsent(samplerType, type -> type.create(Camera.SAMPLER_SEED)));
+                } catch (Throwable e) {
+                    failure.compareAndSet(null, e);
+                } finally {
+                    done.countDown();
+                }
+            }));
+        }
+        try {
+            done.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Multi-view render interrupted", e);
+        }
+        Throwable e = failure.get();
+        if (e instanceof RuntimeException runtime) throw runtime;
+        if (e instanceof Error error) throw error;
+        if (e != null) throw new RuntimeException(e);
+    }
+
+    /**
+     * Stops the render threads
+     */
+    @Override
+    public void close() {
+        executor.shutdown();
+    }
+
+    /**
+     * A tile waiting in the queue
+     *
+     * @param view  the index of the view
+     * @param order the submission order
+     * @param work  the rendering of the tile
+     */
+    private record TileTask(int view, int order, Runnable work) implements Runnable, Comparable<TileTask> {
+        @Override
+        public void run() {
+            work.run();
+        }
+
+        @Override
+        public int compareTo(TileTask other) {
+            return view != other.view ? Integer.compare(view, other.view) : Integer.compare(order, other.order);
+        }
+    }
+}
@@ -0,0 +1,236 @@
+package scene;
+
+import geometries.BoundingBox;
+import geometries.BoundingVolumeHierarchy;
+import geometries.Geometry;
+import geometries.Intersectable;
+import lighting.AmbientLight;
+import lighting.LightSource;
+import primitives.*;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable, render-ready snapshot of a {@link Scene}, made by {@link Scene#compile()}.
+ * <p>
+ * The lights are copied into a flat array and the geometries into a bounding volume
+ * hierarchy, so the tracer neither walks linked lists nor sees geometries or lights
+ * that are added to the scene while it renders. The materials of the geometries are
+ * classified once, here, by whether their reflection and transparency coefficients
+ * are high enough to trace secondary rays.
+ * <p>
+ * The geometry, light and material objects themselves are shared with the scene, not
+ * copied - changing them during a render is not supported. This includes moving
+ * geometries in place, see {@link #refit()}: every compiled scene holding a geometry
+ * sees it move, so a geometry must be moved only while no compiled scene holding it is
+ * rendered.
+ */
+public final class CompiledScene {
+    /** Coefficients below this value do not contribute to the color */
+    public static final Double3 MIN_CALC_COLOR_K = new Double3(0.001);
+    /** Material flag - the reflection coefficient is high enough to trace reflected rays */
+    private static final int REFLECTIVE = 1;
+    /** Material flag - the transparency coefficient is high enough to trace refracted and shadow rays */
+    private static final int TRANSPARENT = 2;
+    /** Material flag - the color depends on the view direction: specular, reflective or transparent */
+    private static final int VIEW_DEPENDENT = 4;
+
+    /** The name of the scene */
+    public final String name;
+    /** The background color of the scene */
+    public final Color background;
+    /** The ambient light of the scene */
+    public final AmbientLight ambientLight;
+    /** All the geometries of the scene in one acceleration structure */
+    public final Intersectable geometries;
+    /** The box of the bounded geometries of the scene, null if there are none */
+    public final BoundingBox bounds;
+    /** The scene snapshot this scene was compiled from */
+    public final Scene source;
+    /** The light sources of the scene */
+    private final LightSource[] lights;
+    /** Flags of every material of the scene geometries */
+    private final Map<Material, Integer> materials = new IdentityHashMap<>();
+    /** Revision of every geometry of the scene when it was compiled */
+    private final Map<Geometry, Integer> revisions = new IdentityHashMap<>();
+    /** The hierarchy of the geometries */
+    private final BoundingVolumeHierarchy hierarchy;
+    /** Content digest of the scene, computed on first use */
+    private byte[] digest;
+    /** Whether the digest was computed - it is null for scenes that cannot be encoded */
+    private boolean digested;
+
+    /**
+     * Compiles a scene
+     *
+     * @param scene the scene snapshot
+     */
+    CompiledScene(Scene scene) {
+        source = scene;
+        name = scene.name;
+        background = scene.background;
+        ambientLight = scene.ambientLight;
+        lights = scene.getLights().toArray(new LightSource[0]);
+        hierarchy = BoundingVolumeHierarchy.of(scene.geometries);
+        geometries = hierarchy;
+        bounds = hierarchy.getBoundedBox();
+        for (List<Intersectable> part : List.of(hierarchy.getGeometries(), hierarchy.getUnbounded()))
+            for (Intersectable geometry : part)
+                if (geometry instanceof Geometry g) materials.computeIfAbsent(g.getMaterial(), CompiledScene::flags);
+        recordRevisions();
+    }
+
+    /**
+     * Compiled scene of moved geometries - shares everything but the hierarchy with an
+     * earlier compiled scene
+     *
+     * @param scene     the earlier compiled scene
+     * @param hierarchy the refitted hierarchy of its geometries
+     */
+    private CompiledScene(CompiledScene scene, BoundingVolumeHierarchy hierarchy) {
+        source = scene.source;
+        name = scene.name;
+        background = scene.background;
+        ambientLight = scene.ambientLight;
+        lights = scene.lights;
+        this.hierarchy = hierarchy;
+        geometries = hierarchy;
+        bounds = hierarchy.getBoundedBox();
+        materials.putAll(scene.materials);
+        recordRevisions();
+    }
+
+    /**
+     * Records the revisions of the geometries, to find the geometries that are moved in
+     * place later
+     */
+    private void recordRevisions() {
+        for (List<Intersectable> part : List.of(hierarchy.getGeometries(), hierarchy.getUnbounded()))
+            for (Intersectable geometry : part)
+                if (geometry instanceof Geometry g) revisions.put(g, g.getRevision());
+    }
+
+    /**
+     * The revisions of the geometries when the scene was compiled or refitted
+     *
+     * @return read-only view of the revisions by geometry
+     */
+    Map<Geometry, Integer> revisions() {
+        return Collections.unmodifiableMap(revisions);
+    }
+
+    /**
+     * The scene after its geometries moved - e.g. sphere centers or polygon vertices
+     * changed between the frames of an animation, with no geometry added or removed.
+     * A copy of the hierarchy of the geometries is refitted, or built again if the
+     * refitted tree has degraded too much, see {@link BoundingVolumeHierarchy#refitted()},
+     * so renders that still trace this compiled scene keep its tree and boxes. The
+     * geometries are moved before the refit, while none of those renders runs, see the
+     * class description. The content digest is
+     * computed again for the moved geometries, and a camera that renders incrementally
+     * renders the moved geometries again, see {@code Camera.renderChanges(CompiledScene)}.
+     *
+     * @return the compiled scene of the moved geometries
+     */
+    public CompiledScene refit() {
+        return new CompiledScene(this, hierarchy.refitted());
+    }
+
+    /**
+     * Classifies a material
+     *
+     * @param material the material
+     * @return the material flags
+     */
+    private static int flags(Material material) {
+        int flags = (material.kR.lowerThan(MIN_CALC_COLOR_K) ? 0 : REFLECTIVE)
+                | (material.kT.lowerThan(MIN_CALC_COLOR_K) ? 0 : TRANSPARENT);
+        return flags != 0 || !material.kS.lowerThan(MIN_CALC_COLOR_K) ? flags | VIEW_DEPENDENT : flags;
+    }
+
+    /**
+     * Flags of a material - of a material of the scene from the table, of another one
+     * computed
+     *
+     * @param material the material
+     * @return the material flags
+     */
+    private int flagsOf(Material material) {
+        Integer flags = materials.get(material);
+        return flags != null ? flags : flags(material);
+    }
+
+    /**
+     * Checks whether reflected rays have to be traced for a material
+     *
+     * @param material the material
+     * @return true if the material reflection coefficient is not negligible
+     */
+    public boolean isReflective(Material material) {
+        return (flagsOf(material) & REFLECTIVE) != 0;
+    }
+
+    /**
+     * Checks whether light passes through a material - refracted rays have to be
+     * traced, and the material does not fully block shadow rays
+     *
+     * @param material the material
+     * @return true if the material transparency coefficient is not negligible
+     */
+    public boolean isTransparent(Material material) {
+        return (flagsOf(material) & TRANSPARENT) != 0;
+    }
+
+    /**
+     * Checks whether the shaded color of a surface point depends on the direction it
+     * is seen from - the material has a specular highlight, reflects or refracts. The
+     * emission, ambient and diffuse terms are the same from every direction.
+     *
+     * @param material the material
+     * @return true if the material is view dependent
+     */
+    public boolean isViewDependent(Material material) {
+        return (flagsOf(material) & VIEW_DEPENDENT) != 0;
+    }
+
+    /**
+     * Number of the light sources of the scene
+     *
+     * @return the number of lights
+     */
+    public int lightCount() {
+        return lights.length;
+    }
+
+    /**
+     * A light source of the scene
+     *
+     * @param index the index of the light, from 0 to {@link #lightCount()} - 1
+     * @return the light source
+     */
+    public LightSource getLight(int index) {
+        return lights[index];
+    }
+
+    /**
+     * Content digest of the scene, see {@link SceneFile#digest(Scene)}. Computed on
+     * the first call from the hierarchy of this scene.
+     *
+     * @return copy of the digest, null if the scene holds a geometry or light type
+     * that has no compiled encoding
+     */
+    public synchronized byte[] digest() {
+        if (!digested) {
+            try {
+                digest = SceneFile.digest(source, hierarchy);
+            } catch (IllegalArgumentException e) {
+                digest = null;
+            }
+            digested = true;
+        }
+        return digest == null ? null : digest.clone();
+    }
+}
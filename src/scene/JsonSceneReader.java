@@ -0,0 +1,342 @@
+package scene;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Streaming reader of JSON scene descriptions.
+ * <p>
+ * The document is tokenized straight from the character stream. Only a single
+ * element (a geometry, a light, a material...) is held in memory at a time: it is
+ * handed to the {@link SceneAssembler} as soon as it has been read, so the memory
+ * of a load is the final scene plus one element.
+ * <p>
+ * Layout:
+ * <pre>{@code
+ * {
+ *   "name": "Scene", "background": [r, g, b],
+ *   "ambient": {"color": [r, g, b], "k": 0.1},
+ *   "materials": {"shiny": {"kd": 0.5, "ks": 0.5, "shininess": 60}},
+ *   "camera": {"location": [x, y, z], "target": [x, y, z], "up": [x, y, z], "distance": 100,
+ *              "size": [w, h], "resolution": [nX, nY], "samples": 9, "sampler": "sobol", "tileSize": 16},
+ *   "lights": [{"type": "spot", "color": [r, g, b], "position": [x, y, z], "direction": [x, y, z], "kl": 0.001}],
+ *   "geometries": [{"type": "sphere", "center": [x, y, z], "radius": 10, "emission": [r, g, b], "material": "shiny"},
+ *                  {"type": "triangle", "vertices": [[x, y, z], [x, y, z], [x, y, z]], "material": {"kd": 0.3}}]
+ * }
+ * }</pre>
+ * Named materials must be defined before the geometries that use them.
+ */
+class JsonSceneReader {
+    /** The JSON number grammar - no NaN, infinities, hexadecimal or type suffixes */
+    private static final Pattern NUMBER = Pattern.compile("-?(0|[1-9][0-9]*)(\\.[0-9]+)?([eE][+-]?[0-9]+)?");
+
+    /** The character stream */
+    private final Reader in;
+    /** Read buffer */
+    private final char[] buffer = new char[1 << 16];
+    /** Position and end of the data in the buffer */
+    private int position = 0, limit = 0;
+    /** Reusable text buffer of strings and numbers */
+    private final StringBuilder text = new StringBuilder();
+
+    /**
+     * Creates a reader
+     *
+     * @param in the character stream of the document
+     */
+    JsonSceneReader(Reader in) {
+        this.in = in;
+    }
+
+    /**
+     * Reads the document into the scene
+     *
+     * @param assembler the scene assembler
+     * @throws IOException on read failure
+     */
+    void read(SceneAssembler assembler) throws IOException {
+        expect('{');
+        for (boolean first = true; hasNext('}', first); first = false) {
+            String name = nextName();
+            switch (name) {
+                case "name" -> {
+                    if (!(nextValue() instanceof String sceneName)) throw syntax("Scene name must be a string");
+                    assembler.name(sceneName);
+                }
+                case "background" -> assembler.background(numbers(nextValue(), name));
+                case "ambient" -> assembler.ambient(properties(nextValue(), name));
+                case "camera" -> assembler.camera(properties(nextValue(), name));
+                case "materials" -> {
+                    expect('{');
+                    for (boolean firstMaterial = true; hasNext('}', firstMaterial); firstMaterial = false) {
+                        String material = nextName();
+                        assembler.material(material, properties(nextValue(), material));
+                    }
+                }
+                case "lights", "geometries" -> {
+                    expect('[');
+                    for (boolean firstElement = true; hasNext(']', firstElement); firstElement = false) {
+                        JsonProperties element = properties(nextValue(), name);
+                        String type = element.text("type");
+                        if (type == null) throw new IllegalArgumentException("Missing type in " + name);
+                        if (name.equals("lights")) assembler.light(type, element);
+                        else assembler.geometry(type, element);
+                    }
+                }
+                default -> nextValue(); // unknown sections are skipped
+            }
+        }
+        if (peek() >= 0) throw syntax("Unexpected content after the document");
+    }
+
+    /**
+     * Checks whether a container has another entry, consuming the separating comma
+     * or the closing bracket. Entries must be separated by exactly one comma, with
+     * none before the first entry or after the last one.
+     *
+     * @param close the closing bracket of the container
+     * @param first whether no entry of the container has been read yet
+     * @return true if another entry follows
+     * @throws IOException on read failure
+     */
+    private boolean hasNext(char close, boolean first) throws IOException {
+        int c = peek();
+        if (c == close) {
+            ++position;
+            return false;
+        }
+        if (!first) {
+            if (c != ',') throw c < 0 ? syntax("Unexpected end of document") : syntax("Expected ',' or '" + close + "'");
+            ++position;
+            c = peek();
+            if (c == close) throw syntax("Unexpected ',' before '" + close + "'");
+        }
+        if (c < 0) throw syntax("Unexpected end of document");
+        if (c == ',') throw syntax("Unexpected ','");
+        return true;
+    }
+
+    /**
+     * Reads the name of an object entry and the colon after it
+     *
+     * @return the name
+     * @throws IOException on read failure
+     */
+    private String nextName() throws IOException {
+        expect('"');
+        String name = string();
+        expect(':');
+        return name;
+    }
+
+    /**
+     * Reads a value - an object (map), array (list), string, number (Double), boolean or null
+     *
+     * @return the value
+     * @throws IOException on read failure
+     */
+    private Object nextValue() throws IOException {
+        int c = peek();
+        switch (c) {
+            case '{' -> {
+                ++position;
+                Map<String, Object> object = new HashMap<>();
+                for (boolean first = true; hasNext('}', first); first = false) {
+                    String name = nextName();
+                    object.put(name, nextValue());
+                }
+                return object;
+            }
+            case '[' -> {
+                ++position;
+                List<Object> array = new ArrayList<>();
+                for (boolean first = true; hasNext(']', first); first = false) array.add(nextValue());
+                return array;
+            }
+            case '"' -> {
+                ++position;
+                return string();
+            }
+            default -> {
+                text.setLength(0);
+                while ((c = read()) >= 0 && (Character.isLetterOrDigit(c) || c == '-' || c == '+' || c == '.'))
+                    text.append((char) c);
+                if (c >= 0) --position;
+                String token = text.toString();
+                return switch (token) {
+                    case "true" -> Boolean.TRUE;
+                    case "false" -> Boolean.FALSE;
+                    case "null" -> null;
+                    default -> {
+                        if (!NUMBER.matcher(token).matches()) throw syntax("Bad value '" + token + "'");
+                        yield Double.parseDouble(token);
+                    }
+                };
+            }
+        }
+    }
+
+    /**
+     * Reads the rest of a string after its opening quote
+     *
+     * @return the string
+     * @throws IOException on read failure
+     */
+    private String string() throws IOException {
+        text.setLength(0);
+        int c;
+        while ((c = read()) != '"') {
+            if (c < 0) throw syntax("Unterminated string");
+            if (c == '\\') {
+                c = read();
+                if (c < 0) throw syntax("Unterminated string");
+                switch (c) {
+                    case 'n' -> text.append('\n');
+                    case 't' -> text.append('\t');
+                    case 'r' -> text.append('\r');
+                    case 'b' -> text.append('\b');
+                    case 'f' -> text.append('\f');
+                    case 'u' -> {
+                        int code = 0;
+                        for (int i = 0; i < 4; ++i) {
+                            int digit = Character.digit(read(), 16);
+                            if (digit < 0) throw syntax("Bad unicode escape");
+                            code = code * 16 + digit;
+                        }
+                        text.append((char) code);
+                    }
+                    case '"', '\\', '/' -> text.append((char) c);
+                    default -> throw syntax("Bad escape '\\" + (char) c + "'");
+                }
+            } else {
+                text.append((char) c);
+            }
+        }
+        return text.toString();
+    }
+
+    /**
+     * Consumes an expected character after optional white space
+     *
+     * @param expected the character
+     * @throws IOException on read failure
+     */
+    private void expect(char expected) throws IOException {
+        if (peek() != expected) throw syntax("Expected '" + expected + "'");
+        ++position;
+    }
+
+    /**
+     * Skips white space and returns the next character without consuming it
+     *
+     * @return the character, -1 at the end of the document
+     * @throws IOException on read failure
+     */
+    private int peek() throws IOException {
+        int c;
+        while ((c = read()) >= 0 && Character.isWhitespace(c)) {
+            // skip white space
+        }
+        if (c >= 0) --position;
+        return c;
+    }
+
+    /**
+     * Reads the next character
+     *
+     * @return the character, -1 at the end of the document
+     * @throws IOException on read failure
+     */
+    private int read() throws IOException {
+        if (position == limit) {
+            limit = in.read(buffer, 0, buffer.length);
+            position = 0;
+            if (limit <= 0) {
+                limit = 0;
+                return -1;
+            }
+        }
+        return buffer[position++];
+    }
+
+    private IllegalArgumentException syntax(String message) {
+        return new IllegalArgumentException("JSON scene syntax error: " + message);
+    }
+
+    /**
+     * Numbers of a value - a number or an array of numbers
+     *
+     * @param value the value
+     * @param name  the property name for error messages
+     * @return the numbers
+     */
+    private static double[] numbers(Object value, String name) {
+        if (value instanceof Double number) return new double[]{number};
+        if (value instanceof List<?> list) {
+            double[] numbers = new double[list.size()];
+            for (int i = 0; i < numbers.length; ++i) {
+                if (!(list.get(i) instanceof Double number))
+                    throw new IllegalArgumentException("Property " + name + " must hold numbers");
+                numbers[i] = number;
+            }
+            return numbers;
+        }
+        throw new IllegalArgumentException("Property " + name + " must be a number or an array of numbers");
+    }
+
+    /**
+     * Properties of an object value
+     *
+     * @param value the value
+     * @param name  the property name for error messages
+     * @return the properties
+     */
+    @SuppressWarnings("unchecked")
+    private static JsonProperties properties(Object value, String name) {
+        if (!(value instanceof Map)) throw new IllegalArgumentException(name + " must be an object");
+        return new JsonProperties((Map<String, Object>) value);
+    }
+
+    /**
+     * Properties of a JSON object
+     *
+     * @param values the object entries
+     */
+    private record JsonProperties(Map<String, Object> values) implements SceneAssembler.Properties {
+        @Override
+        public boolean has(String key) {
+            return values.get(key) != null;
+        }
+
+        @Override
+        public String text(String key) {
+            return values.get(key) instanceof String text ? text : null;
+        }
+
+        @Override
+        public double[] numbers(String key) {
+            Object value = values.get(key);
+            if (value == null) throw new IllegalArgumentException("Missing property " + key);
+            return JsonSceneReader.numbers(value, key);
+        }
+
+        @Override
+        public double[][] points(String key) {
+            if (!(values.get(key) instanceof List<?> list))
+                throw new IllegalArgumentException("Property " + key + " must be an array of points");
+            double[][] points = new double[list.size()][];
+            for (int i = 0; i < points.length; ++i) points[i] = JsonSceneReader.numbers(list.get(i), key);
+            return points;
+        }
+
+        @Override
+        public SceneAssembler.Properties object(String key) {
+            return values.get(key) instanceof Map ? properties(values.get(key), key) : null;
+        }
+    }
+}
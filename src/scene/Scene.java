@@ -2,8 +2,8 @@ package scene;
 
 import lighting.AmbientLight;
 import lighting.LightSource;
-import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 import primitives.*;
 import geometries.Geometries;
 
@@ -11,6 +11,11 @@ import geometries.Geometries;
  * This class represents a 3D scene to be rendered.
  * It holds all the essential components needed to describe the scene,
  * including background color, ambient light, geometries, and light sources.
+ * <p>
+ * The geometries and the lights are copy-on-write collections, so the scene may be
+ * edited while it is read by another thread. A render should work on a
+ * {@link #snapshot()} - one consistent version of the scene that later edits do not
+ * change.
  */
 public class Scene {
     /**
@@ -36,7 +41,7 @@ public class Scene {
     /**
      * The list of light sources in the scene.
      */
-    public List<LightSource> lights = new LinkedList<>();
+    public List<LightSource> lights = new CopyOnWriteArrayList<>();
 
     /**
      * Constructor that initializes the scene with a given name.
@@ -99,4 +104,30 @@ public class Scene {
     public List<LightSource> getLights() {
         return lights;
     }
+
+    /**
+     * Returns an immutable version of the scene as it is now. The geometries are a
+     * {@link Geometries#snapshot()} that shares its structure with this scene, and the
+     * lights are an unmodifiable copy.
+     *
+     * @return the snapshot
+     */
+    public Scene snapshot() {
+        Scene snapshot = new Scene(name);
+        snapshot.background = background;
+        snapshot.ambientLight = ambientLight;
+        snapshot.geometries = geometries.snapshot();
+        snapshot.lights = List.copyOf(lights);
+        return snapshot;
+    }
+
+    /**
+     * Compiles a snapshot of the scene for rendering. Geometries and lights added to
+     * this scene later do not affect the compiled scene.
+     *
+     * @return the compiled scene
+     */
+    public CompiledScene compile() {
+        return new CompiledScene(snapshot());
+    }
 }
@@ -0,0 +1,329 @@
+package scene;
+
+import geometries.*;
+import lighting.*;
+import primitives.*;
+import renderer.Camera;
+import renderer.SamplerType;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Builds a scene from the elements of a scene description, one element at a time,
+ * as the streaming readers deliver them. Every geometry goes straight into the
+ * scene geometries; named materials are created once and shared by all the
+ * geometries that refer to them.
+ */
+class SceneAssembler {
+    /**
+     * Properties of a single scene description element
+     */
+    interface Properties {
+        /**
+         * Checks whether the element has a property
+         *
+         * @param key the property name
+         * @return true if the property exists
+         */
+        boolean has(String key);
+
+        /**
+         * Text property
+         *
+         * @param key the property name
+         * @return the text, null if it is missing or not a text
+         */
+        String text(String key);
+
+        /**
+         * Numeric property - a single number or a tuple of numbers
+         *
+         * @param key the property name
+         * @return the numbers
+         * @throws IllegalArgumentException if the property is missing
+         */
+        double[] numbers(String key);
+
+        /**
+         * List of points property
+         *
+         * @param key the property name
+         * @return the coordinates of the points
+         * @throws IllegalArgumentException if the property is missing
+         */
+        double[][] points(String key);
+
+        /**
+         * Nested element property
+         *
+         * @param key the property name
+         * @return the nested element, null if it is missing or not an element
+         */
+        Properties object(String key);
+    }
+
+    /** The scene being built */
+    private final Scene scene;
+    /** The camera builder to configure, null to ignore the camera element */
+    private final Camera.Builder camera;
+    /** Named materials defined so far */
+    private final Map<String, Material> materials = new HashMap<>();
+
+    /**
+     * Creates an assembler
+     *
+     * @param scene  the scene to fill
+     * @param camera the camera builder to configure, may be null
+     */
+    SceneAssembler(Scene scene, Camera.Builder camera) {
+        this.scene = scene;
+        this.camera = camera;
+    }
+
+    /**
+     * Sets the scene name
+     *
+     * @param name the name
+     */
+    void name(String name) {
+        scene.name = name;
+    }
+
+    /**
+     * Sets the background color
+     *
+     * @param rgb the color components
+     */
+    void background(double[] rgb) {
+        scene.setBackground(color(rgb));
+    }
+
+    /**
+     * Sets the ambient light
+     *
+     * @param properties color and k (attenuation coefficient, number or triad)
+     */
+    void ambient(Properties properties) {
+        Color color = color(properties.numbers("color"));
+        if (!properties.has("k")) {
+            scene.setAmbientLight(new AmbientLight(color));
+            return;
+        }
+        double[] k = coefficients(properties, "k");
+        scene.setAmbientLight(k.length == 1 ? new AmbientLight(color, k[0])
+                : new AmbientLight(color, new Double3(k[0], k[1], k[2])));
+    }
+
+    /**
+     * Defines a named material
+     *
+     * @param name       the material name
+     * @param properties kd, ks, kr, kt, ka (numbers or triads) and shininess
+     */
+    void material(String name, Properties properties) {
+        materials.put(name, material(properties));
+    }
+
+    /**
+     * Adds a light source
+     *
+     * @param type       point, spot or directional
+     * @param properties color, position, direction, kc, kl, kq and narrowBeam
+     */
+    void light(String type, Properties properties) {
+        Color color = color(properties.numbers("color"));
+        switch (type) {
+            case "directional" -> scene.addLight(new DirectionalLight(color, vector(properties.numbers("direction"))));
+            case "point" -> scene.addLight(attenuation(new PointLight(color, point(properties.numbers("position"))),
+                    properties));
+            case "spot" -> {
+                SpotLight spot = new SpotLight(color, point(properties.numbers("position")),
+                        vector(properties.numbers("direction")));
+                if (properties.has("narrowBeam")) spot.setNarrowBeam((int) number(properties, "narrowBeam"));
+                scene.addLight(attenuation(spot, properties));
+            }
+            default -> throw new IllegalArgumentException("Unknown light type " + type);
+        }
+    }
+
+    /**
+     * Adds a geometry
+     *
+     * @param type       sphere, plane, triangle, polygon, tube or cylinder
+     * @param properties the shape properties, emission and material (a name or an element)
+     */
+    void geometry(String type, Properties properties) {
+        Geometry geometry = switch (type) {
+            case "sphere" -> new Sphere(point(properties.numbers("center")), number(properties, "radius"));
+            case "plane" -> new Plane(point(properties.numbers("point")), vector(properties.numbers("normal")));
+            case "triangle" -> {
+                double[][] vertices = properties.points("vertices");
+                if (vertices.length != 3) throw new IllegalArgumentException("Triangle needs 3 vertices");
+                yield new Triangle(point(vertices[0]), point(vertices[1]), point(vertices[2]));
+            }
+            case "polygon" -> {
+                double[][] vertices = properties.points("vertices");
+                Point[] points = new Point[vertices.length];
+                for (int i = 0; i < vertices.length; ++i) points[i] = point(vertices[i]);
+                yield new Polygon(points);
+            }
+            case "tube" -> new Tube(number(properties, "radius"), axis(properties));
+            case "cylinder" -> new Cylinder(number(properties, "radius"), number(properties, "height"),
+                    axis(properties));
+            default -> throw new IllegalArgumentException("Unknown geometry type " + type);
+        };
+        if (properties.has("emission")) geometry.setEmission(color(properties.numbers("emission")));
+        Properties inline = properties.object("material");
+        if (inline != null) {
+            geometry.setMaterial(material(inline));
+        } else if (properties.has("material")) {
+            Material material = materials.get(properties.text("material"));
+            if (material == null)
+                throw new IllegalArgumentException("Unknown material " + properties.text("material"));
+            geometry.setMaterial(material);
+        }
+        scene.geometries.add(geometry);
+    }
+
+    /**
+     * Configures the camera and the render settings
+     *
+     * @param properties location, target, up, distance, size, resolution, samples,
+     *                   sampler and tileSize
+     */
+    void camera(Properties properties) {
+        if (camera == null) return;
+        camera.setLocation(point(properties.numbers("location")));
+        Vector up = properties.has("up") ? vector(properties.numbers("up")) : Vector.AXIS_Y;
+        camera.setDirection(point(properties.numbers("target")), up);
+        camera.setVpDistance(number(properties, "distance"));
+        double[] size = numbers(properties, "size", 2);
+        camera.setVpSize(size[0], size[1]);
+        double[] resolution = numbers(properties, "resolution", 2);
+        camera.setResolution((int) resolution[0], (int) resolution[1]);
+        if (properties.has("sampler"))
+            camera.setSampler(SamplerType.valueOf(properties.text("sampler").toUpperCase(Locale.ROOT)));
+        if (properties.has("samples")) camera.enableAntiAliasing((int) number(properties, "samples"));
+        if (properties.has("tileSize")) camera.setTileSize((int) number(properties, "tileSize"));
+    }
+
+    /**
+     * Creates a material
+     *
+     * @param properties the material coefficients
+     * @return the material
+     */
+    private static Material material(Properties properties) {
+        Material material = new Material();
+        if (properties.has("kd")) material.setKd(coefficient(properties, "kd"));
+        if (properties.has("ks")) material.setKs(coefficient(properties, "ks"));
+        if (properties.has("kr")) material.setKr(coefficient(properties, "kr"));
+        if (properties.has("kt")) material.setKt(coefficient(properties, "kt"));
+        if (properties.has("ka")) material.setKa(coefficient(properties, "ka"));
+        if (properties.has("shininess")) material.setShininess((int) number(properties, "shininess"));
+        return material;
+    }
+
+    /**
+     * Sets the distance attenuation of a point light
+     *
+     * @param light      the light
+     * @param properties kc, kl and kq
+     * @return the light
+     */
+    private static PointLight attenuation(PointLight light, Properties properties) {
+        if (properties.has("kc")) light.setKC(number(properties, "kc"));
+        if (properties.has("kl")) light.setKL(number(properties, "kl"));
+        if (properties.has("kq")) light.setKQ(number(properties, "kq"));
+        return light;
+    }
+
+    /**
+     * Axis ray of a tube or a cylinder
+     *
+     * @param properties origin and direction
+     * @return the axis
+     */
+    private static Ray axis(Properties properties) {
+        return new Ray(point(properties.numbers("origin")), vector(properties.numbers("direction")));
+    }
+
+    /**
+     * Material coefficient - the same for all the color components, or one per component
+     *
+     * @param properties the material properties
+     * @param key        the coefficient property
+     * @return the coefficient triad
+     */
+    private static Double3 coefficient(Properties properties, String key) {
+        double[] values = coefficients(properties, key);
+        return values.length == 1 ? new Double3(values[0]) : new Double3(values[0], values[1], values[2]);
+    }
+
+    /**
+     * Numbers of a coefficient property - 1 for all the color components, or 3
+     *
+     * @param properties the properties
+     * @param key        the coefficient property
+     * @return the numbers
+     */
+    private static double[] coefficients(Properties properties, String key) {
+        double[] values = properties.numbers(key);
+        if (values.length != 1 && values.length != 3)
+            throw new IllegalArgumentException("Property " + key + " must hold 1 or 3 numbers, found " + values.length);
+        return values;
+    }
+
+    /**
+     * Number of a single number property
+     *
+     * @param properties the properties
+     * @param key        the property
+     * @return the number
+     */
+    private static double number(Properties properties, String key) {
+        return numbers(properties, key, 1)[0];
+    }
+
+    /**
+     * Numbers of a property that holds a fixed count of them
+     *
+     * @param properties the properties
+     * @param key        the property
+     * @param count      the count of numbers
+     * @return the numbers
+     */
+    private static double[] numbers(Properties properties, String key, int count) {
+        double[] values = properties.numbers(key);
+        if (values.length != count)
+            throw new IllegalArgumentException("Property " + key + " must hold " + count + " numbers, found "
+                    + values.length);
+        return values;
+    }
+
+    private static Point point(double[] xyz) {
+        requireTriad(xyz);
+        return new Point(xyz[0], xyz[1], xyz[2]);
+    }
+
+    private static Vector vector(double[] xyz) {
+        requireTriad(xyz);
+        return new Vector(xyz[0], xyz[1], xyz[2]);
+    }
+
+    private static Color color(double[] rgb) {
+        requireTriad(rgb);
+        return new Color(rgb[0], rgb[1], rgb[2]);
+    }
+
+    /**
+     * Checks that a property holds 3 numbers
+     *
+     * @param values the property numbers
+     */
+    private static void requireTriad(double[] values) {
+        if (values.length != 3) throw new IllegalArgumentException("Expected 3 numbers, found " + values.length);
+    }
+}
@@ -0,0 +1,178 @@
+package scene;
+
+import geometries.Geometry;
+import geometries.Intersectable;
+import lighting.LightSource;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The changes between two versions of a scene - the geometries and lights added and
+ * removed, the geometries moved, and whether the background or the ambient light
+ * changed.
+ * <p>
+ * Geometries and lights are compared by identity: an object that is replaced by a new
+ * object appears as removed and added. A geometry moved in place - by
+ * {@link geometries.Sphere#setCenter} or {@link geometries.Polygon#setVertices} - stays
+ * the same object, and is found by its revision when two compiled versions are
+ * compared, see {@link #between(CompiledScene, CompiledScene)}. Other changes made
+ * inside a geometry, light or material object, and moves of the geometries of an
+ * instance prototype, are not detected.
+ */
+public final class SceneChanges {
+    /** The geometries of the later version that are not in the earlier one */
+    private final Set<Intersectable> added = identitySet();
+    /** The geometries of the earlier version that are not in the later one */
+    private final Set<Intersectable> removed = identitySet();
+    /** The geometries of both versions that were moved in place between them */
+    private final Set<Intersectable> moved = identitySet();
+    /** The lights of the later version that are not in the earlier one */
+    private final Set<LightSource> addedLights = identitySet();
+    /** The lights of the earlier version that are not in the later one */
+    private final Set<LightSource> removedLights = identitySet();
+    /** Whether the background color changed */
+    private final boolean background;
+    /** Whether the ambient light changed */
+    private final boolean ambientLight;
+
+    /**
+     * Compares two versions of a scene
+     *
+     * @param before the earlier version
+     * @param after  the later version
+     */
+    private SceneChanges(Scene before, Scene after) {
+        after.geometries.diff(before.geometries, added, removed);
+        diff(before.getLights(), after.getLights(), addedLights, removedLights);
+        background = !before.background.getRgb().equals(after.background.getRgb());
+        ambientLight = !before.ambientLight.getIntensity().getRgb().equals(after.ambientLight.getIntensity().getRgb());
+    }
+
+    /**
+     * Finds the changes between two versions of a scene, typically two snapshots
+     *
+     * @param before the earlier version
+     * @param after  the later version
+     * @return the changes
+     */
+    public static SceneChanges between(Scene before, Scene after) {
+        return new SceneChanges(before, after);
+    }
+
+    /**
+     * Finds the changes between two compiled versions of a scene, including the
+     * geometries moved in place between their compilations - also when the later
+     * version is the earlier one refitted, see {@link CompiledScene#refit()}
+     *
+     * @param before the earlier version
+     * @param after  the later version
+     * @return the changes
+     */
+    public static SceneChanges between(CompiledScene before, CompiledScene after) {
+        SceneChanges changes = new SceneChanges(before.source, after.source);
+        Map<Geometry, Integer> revisions = after.revisions();
+        before.revisions().forEach((geometry, revision) -> {
+            Integer now = revisions.get(geometry);
+            if (now != null && now.intValue() != revision.intValue()) changes.moved.add(geometry);
+        });
+        return changes;
+    }
+
+    /**
+     * Finds the lights added and removed between two light lists
+     *
+     * @param before  the earlier lights
+     * @param after   the later lights
+     * @param added   receives the lights that are only in the later list
+     * @param removed receives the lights that are only in the earlier list
+     */
+    private static void diff(List<LightSource> before, List<LightSource> after, Set<LightSource> added,
+                             Set<LightSource> removed) {
+        Set<LightSource> old = identitySet();
+        old.addAll(before);
+        for (LightSource light : after)
+            if (!old.remove(light)) added.add(light);
+        removed.addAll(old);
+    }
+
+    private static <T> Set<T> identitySet() {
+        return Collections.newSetFromMap(new IdentityHashMap<>());
+    }
+
+    /**
+     * The geometries that were added
+     *
+     * @return read-only view of the geometries
+     */
+    public Set<Intersectable> getAdded() {
+        return Collections.unmodifiableSet(added);
+    }
+
+    /**
+     * The geometries that were removed
+     *
+     * @return read-only view of the geometries
+     */
+    public Set<Intersectable> getRemoved() {
+        return Collections.unmodifiableSet(removed);
+    }
+
+    /**
+     * The geometries that were moved in place
+     *
+     * @return read-only view of the geometries
+     */
+    public Set<Intersectable> getMoved() {
+        return Collections.unmodifiableSet(moved);
+    }
+
+    /**
+     * The lights that were added
+     *
+     * @return read-only view of the lights
+     */
+    public Set<LightSource> getAddedLights() {
+        return Collections.unmodifiableSet(addedLights);
+    }
+
+    /**
+     * The lights that were removed
+     *
+     * @return read-only view of the lights
+     */
+    public Set<LightSource> getRemovedLights() {
+        return Collections.unmodifiableSet(removedLights);
+    }
+
+    /**
+     * Checks whether the background color changed
+     *
+     * @return true if it changed
+     */
+    public boolean isBackgroundChanged() {
+        return background;
+    }
+
+    /**
+     * Checks whether the ambient light changed
+     *
+     * @return true if it changed
+     */
+    public boolean isAmbientLightChanged() {
+        return ambientLight;
+    }
+
+    /**
+     * Checks whether nothing changed
+     *
+     * @return true if the versions render the same
+     */
+    public boolean isEmpty() {
+        return added.isEmpty() && removed.isEmpty() && moved.isEmpty() && addedLights.isEmpty()
+                && removedLights.isEmpty() && !background && !ambientLight;
+    }
+}
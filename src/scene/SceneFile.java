@@ -0,0 +1,306 @@
+package scene;
+
+import geometries.BoundingVolumeHierarchy;
+import geometries.Geometries;
+import geometries.Geometry;
+import geometries.GeometryCodec;
+import geometries.Intersectable;
+import lighting.*;
+import primitives.*;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32C;
+
+import static java.nio.file.StandardOpenOption.*;
+
+/**
+ * Compiled binary scene file - a scene together with its built bounding volume
+ * hierarchy, ready to be memory-mapped by a render worker.
+ * <p>
+ * Loading a compiled scene does not re-run the scene construction: the hierarchy
+ * nodes and boxes are used in place in the mapped file, and the geometries are
+ * created without their validity checks and plane computations (see
+ * {@link GeometryCodec}). A file is versioned and protected by a CRC32C of its
+ * content, and it is written into a temporary file that atomically replaces the
+ * target, so a worker never maps a half written scene.
+ * <p>
+ * File layout (little endian, 8-byte aligned parts): magic, version, file length,
+ * CRC32C of everything after the header, name length, number of materials, number
+ * of lights; the UTF-8 name padded to 8 bytes; background and ambient intensity;
+ * 16 doubles per material (kD, kS, kR, kT, kA, shininess); 14 doubles per light
+ * (type, intensity, position, direction, kC, kL, kQ, narrow beam); the geometry
+ * section.
+ */
+public final class SceneFile {
+    /** File signature - "RTSC" */
+    private static final int MAGIC = 0x43535452;
+    /** Version of the file layout */
+    public static final int VERSION = 1;
+    /** Size of the fixed header in bytes */
+    private static final int HEADER_SIZE = 4 + 4 + 8 + 4 + 4 + 4 + 4;
+    /** Number of doubles of a material and of a light */
+    private static final int MATERIAL_SIZE = 16, LIGHT_SIZE = 14;
+    /** Light type codes */
+    private static final int DIRECTIONAL = 1, POINT = 2, SPOT = 3;
+
+    /** Don't let anyone instantiate this class */
+    private SceneFile() {
+    }
+
+    /**
+     * Compiles a scene into a file. The hierarchy is built unless the scene
+     * geometries hold just a built hierarchy.
+     *
+     * @param scene the scene
+     * @param file  the compiled scene file
+     * @throws IllegalArgumentException if the scene holds a geometry or light type that cannot be compiled
+     * @throws UncheckedIOException     if the file cannot be written
+     */
+    public static void write(Scene scene, Path file) {
+        Content content = Content.of(scene, BoundingVolumeHierarchy.of(scene.geometries));
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, CREATE, TRUNCATE_EXISTING, READ, WRITE)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, content.length());
+            content.put(buffer);
+            buffer.force();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot write compiled scene " + temp, e);
+        }
+        try {
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot replace compiled scene " + file, e);
+        }
+    }
+
+    /**
+     * Content digest of a scene - the SHA-256 hash of its compiled file. Scenes built
+     * the same way have the same digest in every process, so the digest can address
+     * results rendered from the scene.
+     *
+     * @param scene the scene
+     * @return the 32 bytes of the digest
+     * @throws IllegalArgumentException if the scene holds a geometry or light type that cannot be compiled
+     */
+    public static byte[] digest(Scene scene) {
+        return digest(scene, BoundingVolumeHierarchy.of(scene.geometries));
+    }
+
+    /**
+     * Content digest of a scene whose hierarchy is already built
+     *
+     * @param scene     the scene
+     * @param hierarchy the hierarchy of the scene geometries
+     * @return the 32 bytes of the digest
+     * @throws IllegalArgumentException if the scene holds a geometry or light type that cannot be compiled
+     */
+    static byte[] digest(Scene scene, BoundingVolumeHierarchy hierarchy) {
+        Content content = Content.of(scene, hierarchy);
+        ByteBuffer buffer = ByteBuffer.allocate((int) content.length());
+        content.put(buffer);
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(buffer.array());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    /**
+     * The parts of a compiled scene file
+     *
+     * @param scene     the scene
+     * @param hierarchy the hierarchy of the scene geometries
+     * @param name      the UTF-8 scene name
+     * @param materials the materials of the geometries in file order
+     * @param indexes   the file indexes of the materials
+     * @param lights    the lights of the scene
+     * @param length    the file length in bytes
+     */
+    private record Content(Scene scene, BoundingVolumeHierarchy hierarchy, byte[] name, List<Material> materials,
+                           Map<Material, Integer> indexes, List<LightSource> lights, long length) {
+        /**
+         * Collects the parts of the file of a scene
+         *
+         * @param scene     the scene
+         * @param hierarchy the hierarchy of the scene geometries
+         * @return the parts
+         * @throws IllegalArgumentException if the scene holds a geometry type that cannot be compiled
+         */
+        static Content of(Scene scene, BoundingVolumeHierarchy hierarchy) {
+            Map<Material, Integer> indexes = new IdentityHashMap<>();
+            List<Material> materials = new ArrayList<>();
+            for (List<Intersectable> part : List.of(hierarchy.getGeometries(), hierarchy.getUnbounded()))
+                for (Intersectable geometry : part)
+                    if (geometry instanceof Geometry g && indexes.putIfAbsent(g.getMaterial(), materials.size()) == null)
+                        materials.add(g.getMaterial());
+            List<LightSource> lights = List.copyOf(scene.getLights());
+            byte[] name = scene.name == null ? new byte[0] : scene.name.getBytes(StandardCharsets.UTF_8);
+
+            long length = HEADER_SIZE + align(name.length) + 6L * Double.BYTES
+                    + (long) Double.BYTES * (MATERIAL_SIZE * materials.size() + LIGHT_SIZE * lights.size())
+                    + GeometryCodec.size(hierarchy);
+            if (length > Integer.MAX_VALUE) throw new IllegalArgumentException("Scene is too large for a compiled file");
+            return new Content(scene, hierarchy, name, materials, indexes, lights, length);
+        }
+
+        /**
+         * Encodes the file
+         *
+         * @param buffer buffer of the file length at position 0
+         * @throws IllegalArgumentException if the scene holds a light type that cannot be compiled
+         */
+        void put(ByteBuffer buffer) {
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+            buffer.position(HEADER_SIZE);
+            buffer.put(name).position(HEADER_SIZE + align(name.length));
+            SceneFile.put(buffer, scene.background.getRgb());
+            SceneFile.put(buffer, scene.ambientLight.getIntensity().getRgb());
+            for (Material material : materials) {
+                SceneFile.put(buffer, material.kD);
+                SceneFile.put(buffer, material.kS);
+                SceneFile.put(buffer, material.kR);
+                SceneFile.put(buffer, material.kT);
+                SceneFile.put(buffer, material.kA);
+                buffer.putDouble(material.nShininess);
+            }
+            for (LightSource light : lights) putLight(buffer, light);
+            GeometryCodec.write(hierarchy, indexes::get, buffer);
+
+            CRC32C crc = new CRC32C();
+            crc.update(buffer.slice(HEADER_SIZE, (int) length - HEADER_SIZE));
+            buffer.putInt(0, MAGIC).putInt(4, VERSION).putLong(8, length).putInt(16, (int) crc.getValue())
+                    .putInt(20, name.length).putInt(24, materials.size()).putInt(28, lights.size());
+        }
+    }
+
+    /**
+     * Maps a compiled scene file. The scene geometries hold the hierarchy of the file.
+     *
+     * @param file the compiled scene file
+     * @return the scene
+     * @throws IllegalArgumentException if the file is not a compiled scene of this version, or it is damaged
+     * @throws UncheckedIOException     if the file cannot be read
+     */
+    public static Scene read(Path file) {
+        ByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(file, READ)) {
+            long size = channel.size();
+            if (size < HEADER_SIZE || size > Integer.MAX_VALUE)
+                throw new IllegalArgumentException("Not a compiled scene file: " + file);
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size).order(ByteOrder.LITTLE_ENDIAN);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read compiled scene " + file, e);
+        }
+        if (buffer.getInt(0) != MAGIC) throw new IllegalArgumentException("Not a compiled scene file: " + file);
+        if (buffer.getInt(4) != VERSION)
+            throw new IllegalArgumentException("Compiled scene version " + buffer.getInt(4) + " is not supported");
+        if (buffer.getLong(8) != buffer.capacity())
+            throw new IllegalArgumentException("Compiled scene file is truncated: " + file);
+        CRC32C crc = new CRC32C();
+        crc.update(buffer.slice(HEADER_SIZE, buffer.capacity() - HEADER_SIZE));
+        if ((int) crc.getValue() != buffer.getInt(16))
+            throw new IllegalArgumentException("Compiled scene file is damaged: " + file);
+
+        int nameLength = buffer.getInt(20), materialCount = buffer.getInt(24), lightCount = buffer.getInt(28);
+        byte[] name = new byte[nameLength];
+        buffer.get(HEADER_SIZE, name).position(HEADER_SIZE + align(nameLength));
+        Scene scene = new Scene(new String(name, StandardCharsets.UTF_8))
+                .setBackground(new Color(buffer.getDouble(), buffer.getDouble(), buffer.getDouble()))
+                .setAmbientLight(new AmbientLight(new Color(buffer.getDouble(), buffer.getDouble(), buffer.getDouble())));
+        Material[] materials = new Material[materialCount];
+        for (int i = 0; i < materialCount; ++i)
+            materials[i] = new Material().setKd(double3(buffer)).setKs(double3(buffer)).setKr(double3(buffer))
+                    .setKt(double3(buffer)).setKa(double3(buffer)).setShininess((int) buffer.getDouble());
+        for (int i = 0; i < lightCount; ++i) scene.addLight(getLight(buffer));
+        scene.setGeometries(new Geometries(GeometryCodec.read(buffer, i -> materials[i])));
+        return scene;
+    }
+
+    /**
+     * Encodes a light
+     *
+     * @param buffer the file buffer
+     * @param light  the light
+     */
+    private static void putLight(ByteBuffer buffer, LightSource light) {
+        if (light instanceof DirectionalLight directional) {
+            buffer.putDouble(DIRECTIONAL);
+            put(buffer, directional.getIntensity().getRgb());
+            put(buffer, Double3.ZERO);
+            put(buffer, directional.getDirection().getX(), directional.getDirection().getY(),
+                    directional.getDirection().getZ());
+            put(buffer, Double3.ZERO);
+            buffer.putDouble(0);
+        } else if (light instanceof PointLight point) {
+            SpotLight spot = point instanceof SpotLight s ? s : null;
+            buffer.putDouble(spot == null ? POINT : SPOT);
+            put(buffer, point.getIntensity().getRgb());
+            put(buffer, point.position.getX(), point.position.getY(), point.position.getZ());
+            if (spot == null) put(buffer, Double3.ZERO);
+            else put(buffer, spot.getDirection().getX(), spot.getDirection().getY(), spot.getDirection().getZ());
+            put(buffer, point.getKC(), point.getKL(), point.getKQ());
+            buffer.putDouble(spot == null ? 0 : spot.getNarrowBeam());
+        } else {
+            throw new IllegalArgumentException("Cannot compile light type " + light.getClass().getName());
+        }
+    }
+
+    /**
+     * Decodes a light
+     *
+     * @param buffer the file buffer
+     * @return the light
+     */
+    private static LightSource getLight(ByteBuffer buffer) {
+        int type = (int) buffer.getDouble();
+        Color intensity = new Color(buffer.getDouble(), buffer.getDouble(), buffer.getDouble());
+        Point position = new Point(double3(buffer));
+        Double3 direction = double3(buffer);
+        double kC = buffer.getDouble(), kL = buffer.getDouble(), kQ = buffer.getDouble();
+        double narrowBeam = buffer.getDouble();
+        return switch (type) {
+            case DIRECTIONAL -> new DirectionalLight(intensity, new Vector(direction));
+            case POINT -> new PointLight(intensity, position).setKC(kC).setKL(kL).setKQ(kQ);
+            case SPOT -> new SpotLight(intensity, position, new Vector(direction)).setNarrowBeam((int) narrowBeam)
+                    .setKC(kC).setKL(kL).setKQ(kQ);
+            default -> throw new IllegalArgumentException("Unknown light type " + type + " in compiled scene");
+        };
+    }
+
+    private static void put(ByteBuffer buffer, Double3 values) {
+        put(buffer, values.d1(), values.d2(), values.d3());
+    }
+
+    private static void put(ByteBuffer buffer, double d1, double d2, double d3) {
+        buffer.putDouble(d1).putDouble(d2).putDouble(d3);
+    }
+
+    private static Double3 double3(ByteBuffer buffer) {
+        return new Double3(buffer.getDouble(), buffer.getDouble(), buffer.getDouble());
+    }
+
+    /**
+     * Rounds a size up to a multiple of 8 bytes
+     *
+     * @param size the size
+     * @return the aligned size
+     */
+    private static int align(int size) {
+        return (size + 7) & ~7;
+    }
+}
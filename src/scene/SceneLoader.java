@@ -0,0 +1,79 @@
+package scene;
+
+import renderer.Camera;
+import renderer.RayTracerType;
+
+import javax.xml.stream.XMLStreamException;
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Loads scenes from scene description files, so a scene can be changed without
+ * recompiling. The format is chosen by the file extension - {@code .json} (see
+ * {@link JsonSceneReader}) or {@code .xml} (see {@link XmlSceneReader}).
+ * <p>
+ * Both readers stream the file: geometries are added to the scene one by one as
+ * they are parsed, without an intermediate document tree.
+ */
+public final class SceneLoader {
+    /** Don't let anyone instantiate this class */
+    private SceneLoader() {
+    }
+
+    /**
+     * Loads a scene, ignoring its camera element
+     *
+     * @param file the scene description file
+     * @return the scene
+     * @throws IllegalArgumentException if the description is invalid
+     * @throws UncheckedIOException     if the file cannot be read
+     */
+    public static Scene load(Path file) {
+        return load(file, null);
+    }
+
+    /**
+     * Loads a scene and applies its camera and render settings to a camera builder.
+     * The builder also gets a simple ray tracer of the loaded scene.
+     *
+     * @param file   the scene description file
+     * @param camera the camera builder, null to ignore the camera element
+     * @return the scene
+     * @throws IllegalArgumentException if the description is invalid
+     * @throws UncheckedIOException     if the file cannot be read
+     */
+    public static Scene load(Path file, Camera.Builder camera) {
+        String fileName = file.getFileName().toString();
+        int dot = fileName.lastIndexOf('.');
+        String extension = dot < 0 ? "" : fileName.substring(dot + 1).toLowerCase();
+        Scene scene = new Scene(dot < 0 ? fileName : fileName.substring(0, dot));
+        SceneAssembler assembler = new SceneAssembler(scene, camera);
+        try {
+            switch (extension) {
+                case "json" -> {
+                    try (Reader in = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+                        new JsonSceneReader(in).read(assembler);
+                    }
+                }
+                case "xml" -> {
+                    try (InputStream in = new BufferedInputStream(Files.newInputStream(file), 1 << 16)) {
+                        new XmlSceneReader(in).read(assembler);
+                    } catch (XMLStreamException e) {
+                        throw new IllegalArgumentException(e.getMessage(), e);
+                    }
+                }
+                default -> throw new IllegalArgumentException("Unknown scene format " + fileName);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read scene " + file, e);
+        }
+        if (camera != null) camera.setRayTracer(scene, RayTracerType.SIMPLE);
+        return scene;
+    }
+}
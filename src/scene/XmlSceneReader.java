@@ -0,0 +1,172 @@
+package scene;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Streaming reader of XML scene descriptions, based on the StAX pull parser.
+ * <p>
+ * No document tree is built: every element is read into its attributes (and
+ * nested elements, such as an inline material) and handed to the
+ * {@link SceneAssembler} at its end tag.
+ * <p>
+ * Layout - numeric attributes hold space separated numbers, point lists separate
+ * the points with commas:
+ * <pre>{@code
+ * <scene name="Scene" background="r g b">
+ *   <ambient color="r g b" k="0.1"/>
+ *   <materials><material name="shiny" kd="0.5" ks="0.5" shininess="60"/></materials>
+ *   <camera location="x y z" target="x y z" up="x y z" distance="100" size="w h"
+ *           resolution="nX nY" samples="9" sampler="sobol" tileSize="16"/>
+ *   <lights><spot color="r g b" position="x y z" direction="x y z" kl="0.001"/></lights>
+ *   <geometries>
+ *     <sphere center="x y z" radius="10" emission="r g b" material="shiny"/>
+ *     <triangle vertices="x y z, x y z, x y z"><material kd="0.3"/></triangle>
+ *   </geometries>
+ * </scene>
+ * }</pre>
+ * Named materials must be defined before the geometries that use them.
+ */
+class XmlSceneReader {
+    /** The pull parser */
+    private final XMLStreamReader in;
+
+    /**
+     * Creates a reader
+     *
+     * @param in the byte stream of the document
+     * @throws XMLStreamException if the parser cannot be created
+     */
+    XmlSceneReader(InputStream in) throws XMLStreamException {
+        XMLInputFactory factory = XMLInputFactory.newFactory();
+        // scene files never need a DTD - and external entities must not be resolved
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        this.in = factory.createXMLStreamReader(in);
+    }
+
+    /**
+     * Reads the document into the scene
+     *
+     * @param assembler the scene assembler
+     * @throws XMLStreamException on a syntax or read failure
+     */
+    void read(SceneAssembler assembler) throws XMLStreamException {
+        in.nextTag();
+        if (!in.getLocalName().equals("scene")) throw syntax("The root element must be scene");
+        String name = in.getAttributeValue(null, "name");
+        if (name != null) assembler.name(name);
+        String background = in.getAttributeValue(null, "background");
+        if (background != null) assembler.background(parseNumbers(background));
+
+        while (in.nextTag() == XMLStreamConstants.START_ELEMENT) {
+            String section = in.getLocalName();
+            switch (section) {
+                case "ambient" -> assembler.ambient(element());
+                case "camera" -> assembler.camera(element());
+                case "materials", "lights", "geometries" -> {
+                    while (in.nextTag() == XMLStreamConstants.START_ELEMENT) {
+                        String type = in.getLocalName();
+                        XmlProperties element = element();
+                        switch (section) {
+                            case "materials" -> {
+                                String material = element.text("name");
+                                if (material == null) throw syntax("Missing material name");
+                                assembler.material(material, element);
+                            }
+                            case "lights" -> assembler.light(type, element);
+                            default -> assembler.geometry(type, element);
+                        }
+                    }
+                }
+                default -> element(); // unknown sections are skipped
+            }
+        }
+        in.close();
+    }
+
+    /**
+     * Reads the current element up to its end tag
+     *
+     * @return the attributes and the nested elements
+     * @throws XMLStreamException on a syntax or read failure
+     */
+    private XmlProperties element() throws XMLStreamException {
+        Map<String, String> attributes = new HashMap<>();
+        for (int i = 0; i < in.getAttributeCount(); ++i)
+            attributes.put(in.getAttributeLocalName(i), in.getAttributeValue(i));
+        Map<String, XmlProperties> children = new HashMap<>();
+        while (in.nextTag() == XMLStreamConstants.START_ELEMENT) {
+            String child = in.getLocalName();
+            children.put(child, element());
+        }
+        return new XmlProperties(attributes, children);
+    }
+
+    private XMLStreamException syntax(String message) {
+        return new XMLStreamException("XML scene syntax error: " + message, in.getLocation());
+    }
+
+    /**
+     * Parses space separated numbers
+     *
+     * @param value the attribute value
+     * @return the numbers
+     */
+    private static double[] parseNumbers(String value) {
+        String[] parts = value.trim().split("\\s+");
+        double[] numbers = new double[parts.length];
+        try {
+            for (int i = 0; i < parts.length; ++i) numbers[i] = Double.parseDouble(parts[i]);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Bad numbers '" + value + "'", e);
+        }
+        return numbers;
+    }
+
+    /**
+     * Properties of an XML element
+     *
+     * @param attributes the element attributes
+     * @param children   the nested elements by name
+     */
+    private record XmlProperties(Map<String, String> attributes, Map<String, XmlProperties> children)
+            implements SceneAssembler.Properties {
+        @Override
+        public boolean has(String key) {
+            return attributes.containsKey(key) || children.containsKey(key);
+        }
+
+        @Override
+        public String text(String key) {
+            return attributes.get(key);
+        }
+
+        @Override
+        public double[] numbers(String key) {
+            String value = attributes.get(key);
+            if (value == null) throw new IllegalArgumentException("Missing property " + key);
+            return parseNumbers(value);
+        }
+
+        @Override
+        public double[][] points(String key) {
+            String value = attributes.get(key);
+            if (value == null) throw new IllegalArgumentException("Missing property " + key);
+            String[] points = value.split(",");
+            double[][] coordinates = new double[points.length][];
+            for (int i = 0; i < points.length; ++i) coordinates[i] = parseNumbers(points[i]);
+            return coordinates;
+        }
+
+        @Override
+        public SceneAssembler.Properties object(String key) {
+            return children.get(key);
+        }
+    }
+}
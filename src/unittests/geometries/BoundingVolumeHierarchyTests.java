@@ -0,0 +1,183 @@
+package unittests.geometries;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import geometries.*;
+import geometries.Intersectable.Intersection;
+import primitives.*;
+
+/**
+ * Unit tests for {@link geometries.BoundingVolumeHierarchy} class.
+ */
+class BoundingVolumeHierarchyTests {
+
+    /**
+     * Random spheres, triangles and squares, and a plane
+     *
+     * @param random the random source
+     * @return the geometries
+     */
+    private static Geometries randomGeometries(Random random) {
+        Geometries geometries = new Geometries(new Plane(new Point(0, 0, -60), new Vector(0, 0, 1)));
+        for (int i = 0; i < 300; ++i) {
+            Point p = new Point(random.nextDouble() * 100 - 50, random.nextDouble() * 100 - 50,
+                    random.nextDouble() * 100 - 50);
+            switch (i % 3) {
+                case 0 -> geometries.add(new Sphere(p, 0.5 + random.nextDouble() * 3));
+                case 1 -> geometries.add(new Triangle(p, p.add(new Vector(random.nextDouble() * 5 + 1, 0, 1)),
+                        p.add(new Vector(0, random.nextDouble() * 5 + 1, -1))));
+                default -> {
+                    double size = random.nextDouble() * 4 + 1;
+                    geometries.add(new Polygon(p, p.add(new Vector(size, 0, 0)), p.add(new Vector(size, size, 0)),
+                            p.add(new Vector(0, size, 0))));
+                }
+            }
+        }
+        return geometries;
+    }
+
+    /**
+     * Random ray from outside or inside the geometries, towards their region
+     *
+     * @param random the random source
+     * @return the ray
+     */
+    private static Ray randomRay(Random random) {
+        Point origin = new Point(random.nextDouble() * 160 - 80, random.nextDouble() * 160 - 80,
+                random.nextDouble() * 160 - 80);
+        Point target = new Point(random.nextDouble() * 100 - 50, random.nextDouble() * 100 - 50,
+                random.nextDouble() * 100 - 50);
+        return new Ray(origin, target.subtract(origin));
+    }
+
+    /**
+     * The hierarchy finds the same intersections and the same closest intersection
+     * as the plain collection
+     */
+    @Test
+    void testSameIntersectionsAsCollection() {
+        Random random = new Random(7);
+        Geometries geometries = randomGeometries(random);
+        BoundingVolumeHierarchy hierarchy = new BoundingVolumeHierarchy(geometries);
+        assertEquals(301, hierarchy.getGeometries().size() + hierarchy.getUnbounded().size(),
+                "Every geometry must be in the hierarchy");
+        assertEquals(1, hierarchy.getUnbounded().size(), "The plane must be unbounded");
+
+        int hits = 0;
+        for (int i = 0; i < 2000; ++i) {
+            Ray ray = randomRay(random);
+            List<Intersection> expected = geometries.calculateIntersections(ray);
+            List<Intersection> actual = hierarchy.calculateIntersections(ray);
+            assertEquals(expected == null ? 0 : expected.size(), actual == null ? 0 : actual.size(),
+                    "Wrong number of intersections of " + ray);
+            Intersection closest = hierarchy.calculateClosestIntersection(ray);
+            assertEquals(ray.findClosestIntersection(expected), closest, "Wrong closest intersection of " + ray);
+            if (closest != null && !(closest.geometry instanceof Plane)) ++hits;
+        }
+        assertTrue(hits > 100, "The rays must hit the bounded geometries");
+    }
+
+    /**
+     * Moves the spheres and the polygons of a hierarchy
+     *
+     * @param hierarchy the hierarchy
+     * @param random    the random source
+     * @param distance  the largest move along every axis
+     */
+    private static void move(BoundingVolumeHierarchy hierarchy, Random random, double distance) {
+        for (Intersectable geometry : hierarchy.getGeometries()) {
+            Vector offset = new Vector((random.nextDouble() - 0.5) * 2 * distance + 1e-3,
+                    (random.nextDouble() - 0.5) * 2 * distance, (random.nextDouble() - 0.5) * 2 * distance);
+            if (geometry instanceof Sphere sphere) {
+                sphere.setCenter(sphere.getCenter().add(offset));
+            } else if (geometry instanceof Polygon polygon) {
+                polygon.setVertices(polygon.getVertices().stream().map(p -> p.add(offset)).toArray(Point[]::new));
+            }
+        }
+    }
+
+    /**
+     * Asserts that a hierarchy finds the same closest intersections as the plain collection
+     *
+     * @param geometries the collection
+     * @param hierarchy  the hierarchy of its geometries
+     * @param random     the random source
+     */
+    private static void assertSameClosest(Geometries geometries, BoundingVolumeHierarchy hierarchy, Random random) {
+        for (int i = 0; i < 1000; ++i) {
+            Ray ray = randomRay(random);
+            assertEquals(geometries.calculateClosestIntersection(ray), hierarchy.calculateClosestIntersection(ray),
+                    "Wrong closest intersection of " + ray);
+        }
+    }
+
+    /**
+     * Test method for {@link BoundingVolumeHierarchy#refit()}
+     */
+    @Test
+    void testRefit() {
+        Random random = new Random(5);
+        Geometries geometries = randomGeometries(random);
+        BoundingVolumeHierarchy hierarchy = new BoundingVolumeHierarchy(geometries);
+        double built = hierarchy.cost();
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: Small moves keep the tree - its boxes follow the geometries
+        move(hierarchy, random, 1);
+        assertFalse(hierarchy.refit(), "Small moves must not build the tree again");
+        assertTrue(hierarchy.cost() < 1.3 * built, "The refitted tree must stay close to its built cost");
+        assertSameClosest(geometries, hierarchy, random);
+        // TC02: Scattering the geometries degrades the tree, so it is built again
+        move(hierarchy, random, 80);
+        assertTrue(hierarchy.refit(), "Scattered geometries must build the tree again");
+        assertEquals(300, hierarchy.getGeometries().size(), "The rebuilt tree must keep every geometry");
+        assertSameClosest(geometries, hierarchy, random);
+        // TC03: A refitted copy leaves the hierarchy it was made from as it was
+        BoundingBox box = hierarchy.getBoundedBox();
+        int nodes = hierarchy.nodeCount();
+        List<Intersectable> order = hierarchy.getGeometries();
+        move(hierarchy, random, 80);
+        BoundingVolumeHierarchy refitted = hierarchy.refitted();
+        assertEquals(box, hierarchy.getBoundedBox(), "The original hierarchy must keep its boxes");
+        assertEquals(nodes, hierarchy.nodeCount(), "The original hierarchy must keep its tree");
+        assertEquals(order, hierarchy.getGeometries(), "The original hierarchy must keep its leaf order");
+        assertNotEquals(box, refitted.getBoundedBox(), "The copy must follow the moved geometries");
+        assertSameClosest(geometries, refitted, random);
+
+        // =============== Boundary Values Tests ==================
+        // TC11: A polygon keeps its number of vertices and its convexity
+        Polygon square = new Polygon(new Point(0, 0, 0), new Point(1, 0, 0), new Point(1, 1, 0), new Point(0, 1, 0));
+        assertThrows(IllegalArgumentException.class,
+                () -> square.setVertices(new Point(0, 0, 0), new Point(1, 0, 0), new Point(1, 1, 0)),
+                "A polygon must keep its number of vertices");
+        assertThrows(IllegalArgumentException.class,
+                () -> square.setVertices(new Point(0, 0, 0), new Point(1, 0, 0), new Point(0.2, 0.2, 0),
+                        new Point(0, 1, 0)),
+                "A concave polygon must be rejected");
+        // TC12: An empty hierarchy has nothing to refit
+        assertFalse(new BoundingVolumeHierarchy().refit(), "An empty hierarchy must not be built again");
+    }
+
+    /**
+     * Bounding boxes hold the geometries
+     */
+    @Test
+    void testBoundingBoxes() {
+        // sphere box
+        assertEquals(new BoundingBox(-1, 0, 1, 3, 4, 5), new Sphere(new Point(1, 2, 3), 2).getBoundingBox(),
+                "Wrong sphere box");
+        // cylinder along Z - its radius widens X and Y only
+        assertEquals(new BoundingBox(-2, -2, 1, 2, 2, 6),
+                new Cylinder(2, 5, new Ray(new Point(0, 0, 1), new Vector(0, 0, 1))).getBoundingBox(),
+                "Wrong cylinder box");
+        // unbounded geometries and a collection holding one
+        assertNull(new Plane(Point.ZERO, Vector.AXIS_Z).getBoundingBox(), "A plane must be unbounded");
+        assertNull(new Geometries(new Sphere(Point.ZERO, 1), new Tube(1, new Ray(Point.ZERO, Vector.AXIS_X)))
+                .getBoundingBox(), "A collection with a tube must be unbounded");
+    }
+}
@@ -78,4 +78,27 @@ public class GeometriesTests {
         Ray ray = new Ray(new Point(0, 0, 0.999), new Vector(0, 0, 1));
         assertEquals(4, geometries.findIntersections(ray).size(), "Expected four intersection points");
     }
+
+    @Test
+    public void testSnapshot() {
+        Sphere sphere = new Sphere(new Point(0, 0, 5), 1);
+        Geometries nested = new Geometries(new Plane(new Point(0, 0, 10), new Vector(0, 0, 1)));
+        Geometries geometries = new Geometries(sphere, nested);
+        Ray ray = new Ray(Point.ZERO, new Vector(0, 0, 1));
+        Geometries snapshot = geometries.snapshot();
+        assertSame(snapshot, geometries.snapshot(), "An unchanged collection must return its last snapshot");
+
+        // edits of the collection and of its nested collection after the snapshot
+        geometries.add(new Sphere(new Point(0, 0, 20), 1));
+        nested.add(new Plane(new Point(0, 0, 30), new Vector(0, 0, 1)));
+        assertTrue(geometries.remove(sphere), "The sphere must be removed");
+        assertFalse(geometries.remove(sphere), "The sphere was removed already");
+
+        assertEquals(3, snapshot.findIntersections(ray).size(), "Edits must not change a snapshot");
+        assertEquals(4, geometries.findIntersections(ray).size(), "Wrong intersections of the edited collection");
+        assertEquals(4, geometries.snapshot().findIntersections(ray).size(), "Wrong intersections of a new snapshot");
+        assertTrue(snapshot.isSnapshot(), "A snapshot cannot be changed");
+        assertThrows(UnsupportedOperationException.class, () -> snapshot.add(sphere),
+                "Adding to a snapshot must throw");
+    }
 }
@@ -0,0 +1,160 @@
+package unittests.geometries;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import geometries.*;
+import geometries.Intersectable.Intersection;
+import lighting.AmbientLight;
+import lighting.PointLight;
+import primitives.*;
+import renderer.Camera;
+import renderer.OffHeapFrameBuffer;
+import renderer.SimpleRayTracer;
+import scene.Scene;
+
+/**
+ * Unit tests for {@link geometries.Instance} class.
+ */
+class InstanceTests {
+    /** Accuracy of the coordinates */
+    private static final double DELTA = 1e-7;
+
+    /**
+     * Test method for {@link Instance#calculateIntersections(Ray)}
+     */
+    @Test
+    void testIntersections() {
+        Sphere sphere = new Sphere(Point.ZERO, 1d);
+        Instance placed = new Instance(sphere, Transform.scaling(3).then(Transform.translation(new Vector(0, 0, -10))));
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: The hits are in scene space, on the placed sphere
+        Ray ray = new Ray(Point.ZERO, new Vector(0, 0, -1));
+        List<Point> points = placed.findIntersections(ray);
+        assertEquals(2, points.size(), "Wrong number of intersections");
+        Intersection closest = placed.calculateClosestIntersection(ray);
+        assertEquals(new Point(0, 0, -7), closest.point, "Wrong closest intersection");
+        assertSame(sphere, closest.geometry, "The hit must keep the shared geometry");
+        assertSame(placed, closest.getSource(), "The hit must belong to the instance");
+        assertEquals(new Vector(0, 0, 1), closest.getSurfaceNormal(), "Wrong scene space normal");
+        // TC02: A ray missing the placed sphere - it would hit the prototype
+        assertNull(placed.calculateIntersections(new Ray(new Point(0, 5, 0), new Vector(0, 0, -1))),
+                "A ray missing the placed sphere must have no intersections");
+        // TC03: Non-uniform scaling - the normal of an ellipsoid
+        Instance ellipsoid = new Instance(sphere, Transform.scaling(1, 2, 1));
+        Intersection top = ellipsoid.calculateClosestIntersection(new Ray(new Point(0, 5, 0), new Vector(0, -1, 0)));
+        assertEquals(new Point(0, 2, 0), top.point, "Wrong intersection with the ellipsoid");
+        Intersection side = ellipsoid.calculateClosestIntersection(
+                new Ray(new Point(5, Math.sqrt(2), 0), new Vector(-1, 0, 0)));
+        Vector normal = side.getSurfaceNormal();
+        // the ellipsoid x^2 + y^2/4 = 1 at (1/sqrt(2), sqrt(2)) has the normal (2x, y/2) ~ (sqrt(2), sqrt(2)/2)
+        assertEquals(0, normal.dotProduct(new Vector(1, -2, 0)), DELTA, "Wrong normal of the ellipsoid");
+
+        // =============== Boundary Values Tests ==================
+        // TC11: Hits of different instances of one geometry are on different surfaces
+        Instance other = new Instance(sphere, Transform.translation(new Vector(0, 0, -20)));
+        Intersection far = other.calculateClosestIntersection(ray);
+        assertSame(sphere, far.geometry, "Both instances share the geometry");
+        assertFalse(closest.isSameSurface(far), "Hits of different instances must be on different surfaces");
+        assertTrue(closest.isSameSurface(placed.calculateIntersections(ray).get(1)),
+                "Hits of one instance must be on the same surface");
+        assertFalse(closest.isSameSurface(sphere.calculateClosestIntersection(new Ray(new Point(0, 0, 5),
+                new Vector(0, 0, -1)))), "A placed hit is not on the surface of the prototype itself");
+        // TC12: The box of the instance holds the placed sphere
+        BoundingBox box = placed.getBoundingBox();
+        assertEquals(-3, box.minX(), DELTA, "Wrong instance box");
+        assertEquals(-13, box.minZ(), DELTA, "Wrong instance box");
+        assertNull(new Instance(new Plane(Point.ZERO, Vector.AXIS_Y), Transform.IDENTITY).getBoundingBox(),
+                "An unbounded prototype has no box");
+    }
+
+    /**
+     * Many instances of a shared hierarchy in a scene hierarchy find the same closest
+     * hits as copies of the geometries placed explicitly
+     */
+    @Test
+    void testSharedHierarchy() {
+        Random random = new Random(11);
+        Geometries parts = new Geometries();
+        for (int i = 0; i < 20; ++i)
+            parts.add(new Sphere(new Point(random.nextDouble() * 10 - 5, random.nextDouble() * 10 - 5,
+                    random.nextDouble() * 10 - 5), 0.5 + random.nextDouble()));
+        BoundingVolumeHierarchy prototype = new BoundingVolumeHierarchy(parts);
+
+        Geometries instances = new Geometries(), copies = new Geometries();
+        for (int i = 0; i < 30; ++i) {
+            Vector axis = new Vector(random.nextDouble() + 0.1, random.nextDouble(), random.nextDouble());
+            double scale = 0.5 + random.nextDouble();
+            Vector offset = new Vector(random.nextDouble() * 100 - 50, random.nextDouble() * 100 - 50,
+                    random.nextDouble() * 100 - 50);
+            Transform transform = Transform.scaling(scale).then(Transform.rotation(axis, random.nextDouble() * 6))
+                    .then(Transform.translation(offset));
+            instances.add(new Instance(prototype, transform));
+            for (Intersectable part : prototype.getGeometries()) {
+                Sphere sphere = (Sphere) part;
+                copies.add(new Sphere(transform.transformPoint(sphere.getCenter()), sphere.getRadius() * scale));
+            }
+        }
+        BoundingVolumeHierarchy scene = new BoundingVolumeHierarchy(instances);
+        assertEquals(30, scene.getGeometries().size(), "The instances are the members of the scene hierarchy");
+
+        int hits = 0;
+        for (int i = 0; i < 2000; ++i) {
+            Point origin = new Point(random.nextDouble() * 160 - 80, random.nextDouble() * 160 - 80, 100);
+            Point target = new Point(random.nextDouble() * 100 - 50, random.nextDouble() * 100 - 50,
+                    random.nextDouble() * 100 - 50);
+            Ray ray = new Ray(origin, target.subtract(origin));
+            Intersection expected = copies.calculateClosestIntersection(ray);
+            Intersection actual = scene.calculateClosestIntersection(ray);
+            assertEquals(expected == null, actual == null, "Wrong hit or miss of " + ray);
+            if (expected == null) continue;
+            ++hits;
+            assertEquals(0, expected.point.distance(actual.point), DELTA, "Wrong closest hit of " + ray);
+            assertEquals(0, expected.getSurfaceNormal().distance(actual.getSurfaceNormal()), DELTA,
+                    "Wrong normal of " + ray);
+        }
+        assertTrue(hits > 100, "The rays must hit the instances");
+    }
+
+    /**
+     * A rendered instance casts a shadow on another instance of the same geometry
+     */
+    @Test
+    void testShadowBetweenInstances() {
+        Sphere ball = (Sphere) new Sphere(Point.ZERO, 10d).setEmission(new Color(30, 30, 60))
+                .setMaterial(new Material().setKd(0.7));
+        Scene instanced = new Scene("Instances"), explicit = new Scene("Copies");
+        for (Scene scene : List.of(instanced, explicit)) {
+            scene.setAmbientLight(new AmbientLight(new Color(255, 255, 255), 0.1));
+            scene.addLight(new PointLight(new Color(600, 600, 600), new Point(0, 100, -45)).setKL(1E-4));
+        }
+        for (int y : new int[]{ 0, 30 }) {
+            instanced.geometries.add(new Instance(ball, Transform.translation(new Vector(0, y, -50))));
+            explicit.geometries.add(new Sphere(new Point(0, y, -50), 10d).setEmission(new Color(30, 30, 60))
+                    .setMaterial(new Material().setKd(0.7)));
+        }
+        float[][] pixels = new float[2][];
+        for (int k = 0; k < 2; ++k) {
+            try (OffHeapFrameBuffer buffer = new OffHeapFrameBuffer(32, 32, 3)) {
+                Camera.getBuilder()
+                        .setLocation(new Point(60, 15, 0))
+                        .setDirection(new Point(0, 15, -50), Vector.AXIS_Y)
+                        .setVpDistance(100)
+                        .setVpSize(80, 80)
+                        .setResolution(32, 32)
+                        .setRayTracer(new SimpleRayTracer(k == 0 ? instanced : explicit))
+                        .setFrameBuffer(buffer)
+                        .build().renderImage();
+                pixels[k] = new float[32 * 32 * 3];
+                buffer.readTile(0, 0, 32, 32, pixels[k]);
+            }
+        }
+        for (int i = 0; i < pixels[0].length; ++i)
+            assertEquals(pixels[1][i], pixels[0][i], 1e-3, "Instances must render as explicit copies");
+    }
+}
@@ -0,0 +1,30 @@
+package unittests.primitives;
+
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.Test;
+import primitives.Color;
+
+
+/**
+ * Unit tests for {@link Color} class.
+ */
+class ColorTests {
+
+    /**
+     * Test method for {@link Color#getRGB()}.
+     */
+    @Test
+    void testGetRGB() {
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: Components inside the range are truncated like java.awt.Color
+        Color color = new Color(12.7, 200.2, 99.9);
+        assertEquals(color.getColor().getRGB() & 0xFFFFFF, color.getRGB(), "Packed color differs from java.awt.Color");
+        assertEquals(0x0CC863, color.getRGB(), "Wrong packed color");
+
+        // =============== Boundary Values Tests ==================
+        // TC10: Components above 255 are limited to 255
+        assertEquals(0xFF00FF, new Color(300, 0, 1000).getRGB(), "Components above 255 must be limited");
+        // TC11: Black
+        assertEquals(0, Color.BLACK.getRGB(), "Black must be packed as 0");
+    }
+}
@@ -0,0 +1,64 @@
+package unittests.primitives;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+import primitives.Point;
+import primitives.Transform;
+import primitives.Vector;
+
+/**
+ * Unit tests for {@link primitives.Transform} class.
+ */
+class TransformTests {
+    /** Accuracy of the coordinates */
+    private static final double DELTA = 1e-9;
+
+    /**
+     * Asserts two points are equal up to rounding
+     *
+     * @param expected the expected point
+     * @param actual   the actual point
+     * @param message  the failure message
+     */
+    private static void assertPoint(Point expected, Point actual, String message) {
+        assertEquals(expected.getX(), actual.getX(), DELTA, message);
+        assertEquals(expected.getY(), actual.getY(), DELTA, message);
+        assertEquals(expected.getZ(), actual.getZ(), DELTA, message);
+    }
+
+    /**
+     * Test method for {@link Transform#transformPoint(Point)} and {@link Transform#transformVector(Vector)}
+     */
+    @Test
+    void testTransform() {
+        Transform transform = Transform.scaling(2)
+                .then(Transform.rotation(Vector.AXIS_Z, Math.PI / 2))
+                .then(Transform.translation(new Vector(10, 0, 0)));
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: Points are scaled, rotated and translated, in this order
+        assertPoint(new Point(10, 2, 0), transform.transformPoint(new Point(1, 0, 0)), "Wrong transformed point");
+        assertPoint(new Point(8, 0, 6), transform.transformPoint(new Point(0, 1, 3)), "Wrong transformed point");
+        // TC02: Vectors are not translated
+        assertPoint(new Point(0, 2, 0), transform.transformVector(Vector.AXIS_X), "Wrong transformed vector");
+        // TC03: The inverse undoes the transformation
+        Point p = new Point(3, -4, 5);
+        assertPoint(p, transform.inversePoint(transform.transformPoint(p)), "Wrong inverse point");
+        assertPoint(p, transform.inverse().transformPoint(transform.transformPoint(p)), "Wrong inverse transform");
+        // TC04: Normals stay perpendicular to the transformed surface under non-uniform scaling
+        Transform stretch = Transform.scaling(1, 4, 1);
+        Vector tangent = new Vector(1, -1, 0), normal = new Vector(1, 1, 0);
+        assertEquals(0, stretch.transformVector(tangent).dotProduct(stretch.transformNormal(normal)), DELTA,
+                "The transformed normal must be perpendicular to the transformed tangent");
+        assertEquals(1, stretch.transformNormal(normal).length(), DELTA, "The transformed normal must be normalized");
+
+        // =============== Boundary Values Tests ==================
+        // TC11: The identity keeps points
+        assertPoint(p, Transform.IDENTITY.transformPoint(p), "The identity must keep points");
+        // TC12: A singular transformation is rejected
+        assertThrows(IllegalArgumentException.class, () -> Transform.scaling(1, 0, 1),
+                "A singular transformation must be rejected");
+    }
+}
@@ -9,6 +9,9 @@ import primitives.*;
 import renderer.Camera;
 import scene.Scene;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static unittests.renderer.RenderFixtures.*;
+
 public class AdaptiveAntiAliasingTest {
     java.util.Random rand = new java.util.Random(1234); // Seed for reproducible results
 
@@ -45,6 +48,32 @@ public class AdaptiveAntiAliasingTest {
         System.out.println("Time (AAA ON, MT ON): " + (t8 - t7) + " ms");
     }
 
+    /**
+     * In a flat scene no pixel is split, so with the corner cache every corner of the
+     * tile lattice is traced exactly once instead of 4 times per pixel.
+     */
+    @Test
+    void adaptiveCornerReuse() {
+        Scene scene = new Scene("Flat").setBackground(new Color(20, 40, 60));
+        CountingTracer tracer = new CountingTracer(scene.compile());
+
+        Camera.getBuilder()
+                .setRayTracer(tracer)
+                .setLocation(new Point(0, 0, 200))
+                .setDirection(new Point(0, 0, -50), Vector.AXIS_Y)
+                .setVpDistance(200)
+                .setVpSize(250, 250)
+                .setResolution(40, 24)
+                .setTileSize(16)
+                .enableAdaptiveAntiAliasing(4, 3)
+                .build()
+                .renderImage();
+
+        // tiles: 16x16, 16x16, 8x16, 16x8, 16x8, 8x8
+        int expected = 2 * 17 * 17 + 9 * 17 + 2 * 17 * 9 + 9 * 9;
+        assertEquals(expected, tracer.traced.get(), "Corner samples must be traced once per tile");
+    }
+
     private Scene createScene() {
         Scene scene = new Scene("Improved Anti-Aliasing Scene");
 
@@ -9,6 +9,12 @@ import primitives.*;
 import renderer.Camera;
 import scene.Scene;
 
+import java.util.function.UnaryOperator;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static unittests.renderer.RenderFixtures.*;
+
 /**
  * Unit test for rendering a colorful, sharp, aesthetic scene using Anti-Aliasing.
  * The scene includes:
@@ -21,6 +27,11 @@ import scene.Scene;
  * This test helps evaluate color vibrance, geometric distribution, and anti-aliasing smoothness.
  */
 public class AntiAliasingTest {
+    /** Variance driven anti-aliasing of 4 to 64 samples */
+    private static final UnaryOperator<Camera.Builder> VARIANCE = builder -> builder.enableVarianceAntiAliasing(4, 64, 2);
+    /** Edge anti-aliasing of 16 samples */
+    private static final UnaryOperator<Camera.Builder> EDGES = builder -> builder.enableEdgeAntiAliasing(16);
+
     java.util.Random rand = new java.util.Random(1234); // Seed for reproducible results
 
     /**
@@ -145,6 +156,81 @@ public class AntiAliasingTest {
                 .writeToImage("colorfulAestheticAntiAliasingSceneImproved0");
     }
 
+    /**
+     * Renders a scene with an anti-aliasing setting and counts the traced rays
+     *
+     * @param scene        the scene to render
+     * @param antiAliasing enables the anti-aliasing on the camera builder
+     * @return number of traced rays
+     */
+    private int countSamples(Scene scene, UnaryOperator<Camera.Builder> antiAliasing) {
+        CountingTracer tracer = new CountingTracer(scene.compile());
+        antiAliasing.apply(Camera.getBuilder()
+                        .setRayTracer(tracer)
+                        .setLocation(new Point(0, 0, 200))
+                        .setDirection(new Point(0, 0, -50), Vector.AXIS_Y)
+                        .setVpDistance(200)
+                        .setVpSize(100, 100)
+                        .setResolution(20, 20))
+                .build()
+                .renderImage();
+        return tracer.traced.get();
+    }
+
+    /**
+     * Variance driven anti-aliasing spends extra samples only on noisy pixels:
+     * a flat image stops every pixel after the minimal samples, while the edge
+     * pixels of a sphere take more samples.
+     */
+    @Test
+    void varianceAntiAliasingSampleEffort() {
+        Scene flat = new Scene("Flat").setBackground(new Color(30, 60, 90));
+        assertEquals(20 * 20 * 4, countSamples(flat, VARIANCE), "Flat pixels must stop after the minimal samples");
+
+        Scene sphere = new Scene("Sphere").setBackground(new Color(30, 60, 90));
+        sphere.geometries.add(new Sphere(new Point(0, 0, -50), 30).setEmission(new Color(250, 200, 10)));
+        int rays = countSamples(sphere, VARIANCE);
+        assertTrue(rays > 20 * 20 * 4, "Edge pixels must take more samples");
+        assertTrue(rays < 20 * 20 * 16, "Flat pixels must not take more samples");
+    }
+
+    /**
+     * Edge anti-aliasing supersamples only the pixels on geometric edges:
+     * an empty image has no edges, and a sphere supersamples its silhouette only.
+     */
+    @Test
+    void edgeAntiAliasingSampleEffort() {
+        Scene flat = new Scene("Flat").setBackground(new Color(30, 60, 90));
+        assertEquals(0, countSamples(flat, EDGES), "An image without edges must not be supersampled");
+
+        Scene sphere = new Scene("Sphere").setBackground(new Color(30, 60, 90));
+        sphere.geometries.add(new Sphere(new Point(0, 0, -50), 30).setEmission(new Color(250, 200, 10)));
+        int rays = countSamples(sphere, EDGES);
+        assertEquals(0, rays % 16, "Every edge pixel must take all the anti-aliasing rays");
+        assertTrue(rays > 0, "The silhouette of the sphere must be supersampled");
+        assertTrue(rays < 20 * 20 * 16 / 2, "Pixels inside and outside the sphere must not be supersampled");
+    }
+
+    /**
+     * Two instances of one prototype that touch are different surfaces: their seam is
+     * supersampled, unlike the same area covered by a single geometry.
+     */
+    @Test
+    void edgeAntiAliasingInstanceSeam() {
+        Geometry square = new Polygon(new Point(-100, -100, -50), new Point(100, -100, -50),
+                new Point(100, 100, -50), new Point(-100, 100, -50)).setEmission(new Color(250, 200, 10));
+        Scene instances = new Scene("Instances").setBackground(new Color(30, 60, 90));
+        instances.geometries.add(new Instance(square, Transform.translation(new Vector(-100, 0, 0))),
+                new Instance(square, Transform.translation(new Vector(100, 0, 0))));
+        assertEquals(2 * 20 * 16, countSamples(instances, EDGES),
+                "The two pixel columns along the seam must be supersampled");
+
+        Scene single = new Scene("Single").setBackground(new Color(30, 60, 90));
+        single.geometries.add(new Polygon(new Point(-200, -100, -50), new Point(200, -100, -50),
+                new Point(200, 100, -50), new Point(-200, 100, -50)).setEmission(new Color(250, 200, 10)));
+        assertEquals(0, countSamples(single, EDGES), "A single surface must not be supersampled");
+    }
+
     /**
      * Adds a "flower" of spheres (one center sphere and 8 surrounding spheres) to the scene.
      *
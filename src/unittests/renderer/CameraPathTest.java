@@ -0,0 +1,176 @@
+package unittests.renderer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static unittests.renderer.RenderFixtures.*;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+import javax.imageio.ImageIO;
+
+import org.junit.jupiter.api.Test;
+
+import geometries.Plane;
+import geometries.Sphere;
+import lighting.AmbientLight;
+import lighting.PointLight;
+import primitives.*;
+import renderer.Camera;
+import renderer.CameraPath;
+import renderer.ImageOutputQueue;
+import renderer.RayTracerType;
+import scene.Scene;
+
+/**
+ * Testing camera paths and the rendering of animation sequences
+ */
+class CameraPathTest {
+
+    /**
+     * Test method for {@link CameraPath#at(double)}
+     */
+    @Test
+    void testInterpolation() {
+        CameraPath path = new CameraPath()
+                .addKeyframe(0, new Point(0, 0, 100), Point.ZERO, Vector.AXIS_Y)
+                .addKeyframe(2, new Point(100, 0, 0), Point.ZERO, Vector.AXIS_Y)
+                .addKeyframe(3, new Point(0, 0, -100), new Point(0, 10, 0), Vector.AXIS_Y);
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: The path passes through the keyframes
+        assertEquals(new Point(100, 0, 0), path.at(2).location(), "Wrong location at a keyframe");
+        assertEquals(new Point(0, 10, 0), path.at(3).target(), "Wrong target at a keyframe");
+        // TC02: Between keyframes the camera moves smoothly towards the next keyframe
+        Point middle = path.at(1).location();
+        assertTrue(middle.getX() > 0 && middle.getX() < 100 && middle.getZ() > 0 && middle.getZ() < 100,
+                "Wrong location between keyframes");
+
+        // =============== Boundary Values Tests ==================
+        // TC11: Outside the path the camera stays at the first and last keyframes
+        assertEquals(new Point(0, 0, 100), path.at(-1).location(), "Wrong location before the path");
+        assertEquals(new Point(0, 0, -100), path.at(5).location(), "Wrong location after the path");
+        // TC12: A path of two keyframes is a straight line at constant speed
+        CameraPath line = new CameraPath()
+                .addKeyframe(0, new Point(0, 0, 100), Point.ZERO, Vector.AXIS_Y)
+                .addKeyframe(4, new Point(40, 0, 100), new Point(40, 0, 0), Vector.AXIS_Y);
+        assertEquals(new Point(10, 0, 100), line.at(1).location(), "Wrong location on a straight path");
+        assertEquals(new Point(20, 0, 0), line.at(2).target(), "Wrong target on a straight path");
+        // TC13: Keyframes must be added in time order
+        assertThrows(IllegalArgumentException.class,
+                () -> line.addKeyframe(4, Point.ZERO, new Point(0, 0, -1), Vector.AXIS_Y),
+                "A keyframe at the time of the last one must be rejected");
+        // TC14: A path without keyframes has no placement
+        assertThrows(IllegalStateException.class, () -> new CameraPath().at(0), "Empty path must be rejected");
+    }
+
+    /**
+     * A sequence pans over a row of spheres - every frame shows the sphere in front of
+     * its location, and a sphere added to the scene after the camera was built is not
+     * rendered, since all the frames share the compiled scene of the camera
+     */
+    @Test
+    void testSequence() throws IOException, InterruptedException, ExecutionException {
+        Scene scene = new Scene("Sequence");
+        for (int i = 0; i < 3; ++i)
+            scene.geometries.add(new Sphere(new Point(-60 + 60 * i, 0, 0), 10d).setEmission(new Color(0, 0, 255)));
+        Camera camera = Camera.getBuilder()
+                .setLocation(new Point(0, 0, 100))
+                .setDirection(Point.ZERO, Vector.AXIS_Y)
+                .setVpDistance(100)
+                .setVpSize(40, 40)
+                .setResolution(40, 40)
+                .setRayTracer(scene, RayTracerType.SIMPLE)
+                .build();
+        scene.geometries.add(new Sphere(new Point(-30, 0, 0), 10d).setEmission(new Color(255, 0, 0)));
+
+        CameraPath path = new CameraPath()
+                .addKeyframe(0, new Point(-60, 0, 100), new Point(-60, 0, 0), Vector.AXIS_Y)
+                .addKeyframe(1, new Point(60, 0, 100), new Point(60, 0, 0), Vector.AXIS_Y);
+        List<CompletableFuture<Path>> files;
+        try (ImageOutputQueue output = new ImageOutputQueue(1, 1)) {
+            files = camera.renderSequence(path, 5, "sequenceFrame", output);
+        }
+
+        assertEquals(5, files.size(), "Wrong number of frames");
+        for (int frame = 0; frame < 5; ++frame) {
+            BufferedImage image = ImageIO.read(files.get(frame).get().toFile());
+            // frames 0, 2, 4 look at a sphere, frames 1, 3 between the spheres - frame 1 at the sphere added late
+            assertEquals(frame % 2 == 0 ? 0x0000FF : 0, image.getRGB(20, 20) & 0xFFFFFF,
+                    "Frame " + frame + " has wrong content at its center");
+        }
+    }
+
+    /**
+     * Renders a turntable sequence of diffuse spheres and a shiny sphere on a floor
+     *
+     * @param reuse whether the frames reuse the shading of the previous frame
+     * @param name  the file name prefix of the frames
+     * @return the number of shaded primary hits, followed by the pixels of the frames
+     */
+    private static List<Object> turntable(boolean reuse, String name)
+            throws IOException, InterruptedException, ExecutionException {
+        Scene scene = new Scene("Turntable").setAmbientLight(new AmbientLight(new Color(255, 255, 255), 0.1));
+        Material diffuse = new Material().setKd(0.6);
+        for (int i = 0; i < 4; ++i)
+            scene.geometries.add(new Sphere(new Point(-45 + 30 * i, 0, 0), 12d)
+                    .setEmission(new Color(30 * i, 60, 90)).setMaterial(diffuse));
+        scene.geometries.add(new Sphere(new Point(0, 0, -40), 15d).setEmission(new Color(20, 20, 20))
+                        .setMaterial(new Material().setKd(0.3).setKs(0.6).setShininess(40)),
+                new Plane(new Point(0, -12, 0), Vector.AXIS_Y).setEmission(new Color(40, 40, 40))
+                        .setMaterial(diffuse));
+        scene.addLight(new PointLight(new Color(600, 600, 600), new Point(40, 100, 80)).setKL(1E-4).setKQ(1E-5));
+
+        CountingTracer tracer = new CountingTracer(scene.compile());
+        Camera.Builder builder = Camera.getBuilder()
+                .setLocation(new Point(0, 40, 150))
+                .setDirection(Point.ZERO, Vector.AXIS_Y)
+                .setVpDistance(150)
+                .setVpSize(120, 120)
+                .setResolution(80, 80)
+                .setRayTracer(tracer);
+        if (reuse) builder.enableTemporalReuse();
+        CameraPath path = new CameraPath();
+        for (int k = 0; k <= 2; ++k) {
+            double angle = Math.toRadians(5 * k);
+            path.addKeyframe(k, new Point(150 * Math.sin(angle), 40, 150 * Math.cos(angle)), Point.ZERO,
+                    Vector.AXIS_Y);
+        }
+        List<Object> result = new ArrayList<>();
+        List<CompletableFuture<Path>> files;
+        try (ImageOutputQueue output = new ImageOutputQueue(1, 2)) {
+            files = builder.build().renderSequence(path, 6, name, output);
+        }
+        result.add(tracer.shaded.get());
+        for (CompletableFuture<Path> file : files) result.add(ImageIO.read(file.get().toFile()));
+        return result;
+    }
+
+    /**
+     * A turntable sequence with temporal reuse shades far fewer hits than without it,
+     * and its frames are nearly the same - they differ on shadow borders that cross
+     * pixel centers
+     */
+    @Test
+    void testTemporalReuse() throws IOException, InterruptedException, ExecutionException {
+        List<Object> traced = turntable(false, "turntableTraced");
+        List<Object> reused = turntable(true, "turntableReused");
+        int pixels = 80 * 80 * 6;
+        assertTrue((int) reused.get(0) < (int) traced.get(0) * 2 / 3,
+                "Most hits must be reused, shaded " + reused.get(0) + " of " + traced.get(0));
+
+        long difference = 0;
+        for (int frame = 1; frame <= 6; ++frame) {
+            BufferedImage a = (BufferedImage) traced.get(frame), b = (BufferedImage) reused.get(frame);
+            for (int y = 0; y < 80; ++y)
+                for (int x = 0; x < 80; ++x)
+                    for (int shift = 0; shift < 24; shift += 8)
+                        difference += Math.abs((a.getRGB(x, y) >> shift & 0xFF) - (b.getRGB(x, y) >> shift & 0xFF));
+        }
+        assertTrue(difference < 3L * pixels, "Mean color difference must be below 1, total " + difference);
+    }
+}
@@ -0,0 +1,96 @@
+package unittests.renderer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static unittests.renderer.RenderFixtures.*;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import javax.imageio.ImageIO;
+
+import org.junit.jupiter.api.Test;
+
+import geometries.Sphere;
+import lighting.AmbientLight;
+import primitives.*;
+import renderer.Camera;
+import scene.Scene;
+
+/**
+ * Testing checkpoint and resume of a render
+ */
+class CheckpointTest {
+
+    /**
+     * Creates a camera rendering with a ray tracer and checkpointing into the given file
+     */
+    private Camera camera(CountingTracer tracer, Path checkpoint) {
+        return Camera.getBuilder()
+                .setLocation(new Point(0, 0, 100))
+                .setDirection(Point.ZERO, Vector.AXIS_Y)
+                .setVpDistance(100)
+                .setVpSize(100, 100)
+                .setResolution(50, 40)
+                .setTileSize(8)
+                .setRayTracer(tracer)
+                .enableCheckpoint(checkpoint, 0)
+                .build();
+    }
+
+    /**
+     * A red sphere on a black background
+     */
+    private Scene sphereScene() {
+        Scene scene = new Scene("Checkpoint").setAmbientLight(new AmbientLight(new Color(255, 255, 255), 1));
+        scene.geometries.add(new Sphere(Point.ZERO, 30d).setEmission(new Color(200, 30, 30))
+                .setMaterial(new Material().setKd(0.3)));
+        return scene;
+    }
+
+    /**
+     * A render that was not written to an image leaves a checkpoint behind,
+     * and a second render of the same scene with the same camera restores the
+     * finished tiles instead of tracing them again.
+     */
+    @Test
+    void testResumeFromCheckpoint() throws IOException {
+        Path checkpoint = Files.createTempFile("render", ".ckpt");
+        Files.delete(checkpoint);
+
+        camera(new CountingTracer(sphereScene().compile()), checkpoint).renderImage();
+        assertTrue(Files.exists(checkpoint), "Checkpoint file is missing after the render");
+
+        // a new compilation of an equal scene - all the pixels must come from the checkpoint
+        CountingTracer tracer = new CountingTracer(sphereScene().compile());
+        camera(tracer, checkpoint).renderImage().writeToImage("checkpointResumeTest");
+        assertEquals(0, tracer.traced.get(), "All the tiles must be restored from the checkpoint");
+        assertFalse(Files.exists(checkpoint), "Checkpoint file must be deleted after the image is written");
+
+        BufferedImage image = ImageIO.read(new File(System.getProperty("user.dir") + "/images/checkpointResumeTest.png"));
+        assertEquals(new java.awt.Color(255, 136, 136).getRGB(), image.getRGB(25, 20), "Wrong restored sphere pixel");
+        assertEquals(java.awt.Color.BLACK.getRGB(), image.getRGB(0, 0), "Wrong restored background pixel");
+    }
+
+    /**
+     * A checkpoint of a render of another scene content is not resumed
+     */
+    @Test
+    void testEditedSceneIgnoresCheckpoint() throws IOException {
+        Path checkpoint = Files.createTempFile("render", ".ckpt");
+        Files.delete(checkpoint);
+
+        camera(new CountingTracer(sphereScene().compile()), checkpoint).renderImage();
+        assertTrue(Files.exists(checkpoint), "Checkpoint file is missing after the render");
+
+        Scene edited = sphereScene().setBackground(new Color(0, 255, 0));
+        CountingTracer tracer = new CountingTracer(edited.compile());
+        camera(tracer, checkpoint).renderImage().writeToImage("checkpointEditedTest");
+        assertEquals(50 * 40, tracer.traced.get(), "The edited scene must be traced again");
+
+        BufferedImage image = ImageIO.read(new File(System.getProperty("user.dir") + "/images/checkpointEditedTest.png"));
+        assertEquals(java.awt.Color.GREEN.getRGB(), image.getRGB(0, 0), "Wrong background of the edited scene");
+    }
+}
@@ -0,0 +1,95 @@
+package unittests.renderer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+import javax.imageio.ImageIO;
+
+import org.junit.jupiter.api.Test;
+
+import geometries.Sphere;
+import primitives.*;
+import renderer.Camera;
+import renderer.ImageOutputQueue;
+import renderer.ImageWriter;
+import renderer.RayTracerType;
+import scene.Scene;
+
+/**
+ * Testing the asynchronous image output queue
+ */
+class ImageOutputQueueTest {
+
+    /**
+     * Frames written asynchronously keep their own content while the camera
+     * renders the next frames into the same image
+     */
+    @Test
+    void testAnimationFrames() throws IOException, InterruptedException, ExecutionException {
+        List<CompletableFuture<Path>> files = new ArrayList<>();
+        try (ImageOutputQueue output = new ImageOutputQueue(1, 1)) {
+            for (int frame = 0; frame < 3; ++frame) {
+                Scene scene = new Scene("Frame " + frame);
+                scene.geometries.add(new Sphere(new Point(-30 + 30 * frame, 0, 0), 10d)
+                        .setEmission(new Color(0, 0, 255)));
+                Camera camera = Camera.getBuilder()
+                        .setLocation(new Point(0, 0, 100))
+                        .setDirection(Point.ZERO, Vector.AXIS_Y)
+                        .setVpDistance(100)
+                        .setVpSize(100, 100)
+                        .setResolution(100, 100)
+                        .setRayTracer(scene, RayTracerType.SIMPLE)
+                        .build();
+                files.add(camera.renderImage().writeToImageAsync("asyncFrame" + frame, output));
+            }
+        }
+
+        for (int frame = 0; frame < 3; ++frame) {
+            BufferedImage image = ImageIO.read(files.get(frame).get().toFile());
+            for (int sphere = 0; sphere < 3; ++sphere)
+                assertEquals(sphere == frame ? 0x0000FF : 0, image.getRGB(20 + 30 * sphere, 50) & 0xFFFFFF,
+                        "Frame " + frame + " has wrong content at sphere " + sphere);
+        }
+    }
+
+    /**
+     * The encoder threads of a queue that is not closed stop once they are idle, so
+     * they do not keep the JVM alive
+     */
+    @Test
+    void testIdleEncodersStop() throws InterruptedException, ExecutionException {
+        ImageOutputQueue output = new ImageOutputQueue(2, 2);
+        output.submit(new ImageWriter(2, 2), "idleEncoder").get();
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (encoders() > 0 && System.currentTimeMillis() < deadline) Thread.sleep(100);
+        assertEquals(0, encoders(), "Idle encoder threads must stop");
+    }
+
+    /**
+     * Counts the live encoder threads
+     *
+     * @return the number of encoder threads
+     */
+    private static long encoders() {
+        return Thread.getAllStackTraces().keySet().stream()
+                .filter(thread -> thread.getName().startsWith("image-encoder-")).count();
+    }
+
+    /**
+     * A failed write completes the future of its frame exceptionally
+     */
+    @Test
+    void testFailedWrite() {
+        try (ImageOutputQueue output = new ImageOutputQueue(1, 1)) {
+            CompletableFuture<Path> file = output.submit(new ImageWriter(2, 2), "missing/directory/image");
+            assertThrows(ExecutionException.class, file::get, "Write into a missing directory must fail");
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package unittests.renderer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static unittests.renderer.RenderFixtures.*;
+
+import org.junit.jupiter.api.Test;
+
+import geometries.*;
+import lighting.*;
+import primitives.*;
+import renderer.Camera;
+import renderer.OffHeapFrameBuffer;
+import renderer.RayTracerType;
+import renderer.SimpleRayTracer;
+import scene.CompiledScene;
+import scene.Scene;
+
+/**
+ * Testing the incremental rendering of scene edits
+ */
+class IncrementalRenderTest {
+    /** Resolution of the test renders */
+    private static final int SIZE = 96;
+    /** Tile size of the test renders */
+    private static final int TILE = 16;
+    /** Number of tiles of the test renders */
+    private static final int TILES = (SIZE / TILE) * (SIZE / TILE);
+
+    /**
+     * A row of spheres in front of a wall, lit by a spot light
+     *
+     * @return the scene
+     */
+    private static Scene scene() {
+        Scene scene = new Scene("Incremental").setAmbientLight(new AmbientLight(new Color(255, 255, 255), 0.1));
+        Material shiny = new Material().setKd(0.5).setKs(0.5).setShininess(30);
+        for (int i = 0; i < 4; ++i)
+            scene.geometries.add(new Sphere(new Point(-60 + 40 * i, -40, -50), 12d)
+                    .setEmission(new Color(20 * i, 40, 80)).setMaterial(shiny));
+        scene.geometries.add(new Polygon(new Point(-100, -100, -120), new Point(100, -100, -120),
+                new Point(100, 100, -120), new Point(-100, 100, -120)).setEmission(new Color(30, 30, 30))
+                .setMaterial(new Material().setKd(0.6)));
+        scene.addLight(new SpotLight(new Color(600, 500, 400), new Point(0, 80, 60), new Vector(0, -1, -1.5))
+                .setKL(1E-4).setKQ(1E-5));
+        return scene;
+    }
+
+    /**
+     * Camera builder rendering a scene into a frame buffer
+     *
+     * @param scene  the scene
+     * @param buffer the frame buffer
+     * @return the builder
+     */
+    private static Camera.Builder camera(Scene scene, OffHeapFrameBuffer buffer) {
+        return Camera.getBuilder()
+                .setLocation(new Point(0, 0, 200))
+                .setDirection(new Point(0, 0, -50), Vector.AXIS_Y)
+                .setVpDistance(200)
+                .setVpSize(200, 200)
+                .setResolution(SIZE, SIZE)
+                .setTileSize(TILE)
+                .setRayTracer(scene, RayTracerType.SIMPLE)
+                .setFrameBuffer(buffer);
+    }
+
+    /**
+     * Renders a scene from scratch
+     *
+     * @param scene the scene
+     * @return the colors of the pixels
+     */
+    private static float[] fullRender(Scene scene) {
+        try (OffHeapFrameBuffer buffer = new OffHeapFrameBuffer(SIZE, SIZE, 3)) {
+            camera(scene, buffer).build().renderImage();
+            return pixels(buffer);
+        }
+    }
+
+    /**
+     * Moving one sphere renders only part of the tiles again, and the image is the
+     * image of the edited scene
+     */
+    @Test
+    void testMovedSphere() {
+        Scene scene = scene();
+        Geometry sphere = new Sphere(new Point(-20, 30, -60), 10d).setEmission(new Color(80, 20, 20));
+        scene.geometries.add(sphere);
+        try (OffHeapFrameBuffer buffer = new OffHeapFrameBuffer(SIZE, SIZE, 3)) {
+            Camera camera = camera(scene, buffer).enableIncrementalRendering().build();
+            camera.renderImage();
+            assertEquals(0, camera.renderChanges(scene), "Nothing changed");
+
+            // move the sphere - replace it by a moved copy
+            assertTrue(scene.geometries.remove(sphere), "The sphere must be in the scene");
+            scene.geometries.add(new Sphere(new Point(-12, 30, -60), 10d).setEmission(new Color(80, 20, 20)));
+            int rendered = camera.renderChanges(scene);
+            assertTrue(rendered > 0 && rendered < TILES / 2, "Only the tiles around the sphere must be rendered");
+            assertArrayEquals(fullRender(scene), pixels(buffer), "Wrong image after moving a sphere");
+
+            // a light edit renders every tile that shows a shaded surface, not the background tiles
+            scene.lights.set(0, new PointLight(new Color(300, 300, 300), new Point(50, 50, 50)));
+            rendered = camera.renderChanges(scene);
+            assertTrue(rendered > TILES / 4 && rendered < TILES, "Only the tiles of the wall must be rendered");
+            assertArrayEquals(fullRender(scene), pixels(buffer), "Wrong image after replacing the light");
+        }
+    }
+
+    /**
+     * A sphere moved in place is rendered again, both from a refitted compiled scene
+     * and from a new compilation, and the refitted scene renders as the moved scene
+     */
+    @Test
+    void testMovedInPlace() {
+        Scene scene = scene();
+        Sphere sphere = new Sphere(new Point(-20, 30, -60), 10d);
+        sphere.setEmission(new Color(80, 20, 20));
+        scene.geometries.add(sphere);
+        CompiledScene compiled = scene.compile();
+        try (OffHeapFrameBuffer buffer = new OffHeapFrameBuffer(SIZE, SIZE, 3);
+             OffHeapFrameBuffer reference = new OffHeapFrameBuffer(SIZE, SIZE, 3)) {
+            Camera camera = camera(scene, buffer).enableIncrementalRendering().build();
+            camera.renderImage();
+            camera(scene, reference).setRayTracer(new SimpleRayTracer(compiled)).build().renderImage();
+            assertArrayEquals(pixels(buffer), pixels(reference), "Wrong image of the compiled scene");
+
+            // move the sphere of the compiled scene and refit its hierarchy
+            sphere.setCenter(new Point(-12, 30, -60));
+            CompiledScene refitted = compiled.refit();
+            camera(scene, reference).setRayTracer(new SimpleRayTracer(refitted)).build().renderImage();
+            assertArrayEquals(fullRender(scene), pixels(reference), "Wrong image of the refitted scene");
+            int rendered = camera.renderChanges(refitted);
+            assertTrue(rendered > 0 && rendered < TILES / 2, "Only the tiles around the sphere must be rendered");
+            assertArrayEquals(pixels(reference), pixels(buffer), "Wrong image after moving the sphere in place");
+            assertEquals(0, camera.renderChanges(refitted), "Nothing moved since the refit");
+
+            // move it again - a new compilation of the scene finds the move too
+            sphere.setCenter(new Point(-4, 30, -60));
+            rendered = camera.renderChanges(scene);
+            assertTrue(rendered > 0 && rendered < TILES / 2, "Only the tiles around the sphere must be rendered");
+            assertArrayEquals(fullRender(scene), pixels(buffer), "Wrong image after moving the sphere again");
+        }
+    }
+
+    /**
+     * Edits of a scene rendered on several threads with edge anti-aliasing
+     */
+    @Test
+    void testEdgeAntiAliasing() {
+        Scene scene = scene();
+        try (OffHeapFrameBuffer buffer = new OffHeapFrameBuffer(SIZE, SIZE, 3);
+             OffHeapFrameBuffer reference = new OffHeapFrameBuffer(SIZE, SIZE, 3)) {
+            Camera camera = camera(scene, buffer).enableIncrementalRendering().enableEdgeAntiAliasing(4).build()
+                    .setMultithreading(true).setThreadsCount(3);
+            camera.renderImage();
+
+            // a new small sphere in front of the wall
+            scene.geometries.add(new Sphere(new Point(40, 40, -80), 6d).setEmission(new Color(90, 20, 20)));
+            Camera full = camera(scene, reference).enableEdgeAntiAliasing(4).build();
+            int rendered = camera.renderChanges(scene);
+            assertTrue(rendered > 0 && rendered < TILES, "Only some tiles are affected by a new sphere");
+            full.renderImage();
+            assertArrayEquals(pixels(reference), pixels(buffer), "Wrong image after adding a sphere");
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package unittests.renderer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static unittests.renderer.RenderFixtures.*;
+
+import org.junit.jupiter.api.Test;
+
+import geometries.Sphere;
+import primitives.*;
+import renderer.Camera;
+import renderer.MultiViewRender;
+import renderer.OffHeapFrameBuffer;
+import renderer.SimpleRayTracer;
+import scene.Scene;
+
+/**
+ * Testing multi-view renders
+ */
+class MultiViewRenderTest {
+    /** Resolution of the test renders */
+    private static final int SIZE = 48;
+
+    /**
+     * Camera builder of a view rendering into a frame buffer
+     *
+     * @param location the camera location
+     * @param buffer   the frame buffer
+     * @return the builder
+     */
+    private static Camera.Builder view(Point location, OffHeapFrameBuffer buffer) {
+        return Camera.getBuilder()
+                .setLocation(location)
+                .setDirection(new Point(0, 0, -50), Vector.AXIS_Y)
+                .setVpDistance(200)
+                .setVpSize(150, 150)
+                .setResolution(SIZE, SIZE)
+                .setTileSize(16)
+                .setFrameBuffer(buffer);
+    }
+
+    /**
+     * Every view of a multi-view render equals a render of the view on its own, also
+     * with edge anti-aliasing, and a geometry added to the scene after the render was
+     * created is not rendered
+     */
+    @Test
+    void testViews() {
+        Point[] locations = { new Point(0, 0, 200), new Point(-60, 20, 190), new Point(80, -10, 180) };
+        Scene scene = spheresBeforeWall("Views");
+        OffHeapFrameBuffer[] views = new OffHeapFrameBuffer[locations.length];
+        OffHeapFrameBuffer[] references = new OffHeapFrameBuffer[locations.length];
+        try {
+            MultiViewRender render = new MultiViewRender(scene, 3);
+            for (int i = 0; i < locations.length; ++i) {
+                views[i] = new OffHeapFrameBuffer(SIZE, SIZE, 3);
+                Camera.Builder builder = view(locations[i], views[i]);
+                if (i == 1) builder.enableEdgeAntiAliasing(4);
+                render.addView(builder);
+            }
+            scene.geometries.add(new Sphere(new Point(0, -30, -30), 15d).setEmission(new Color(90, 20, 20)));
+            assertSame(render, render.render(), "The render must return itself");
+
+            Scene reference = spheresBeforeWall("Views");
+            for (int i = 0; i < locations.length; ++i) {
+                references[i] = new OffHeapFrameBuffer(SIZE, SIZE, 3);
+                Camera.Builder builder = view(locations[i], references[i]).setRayTracer(new SimpleRayTracer(reference));
+                if (i == 1) builder.enableEdgeAntiAliasing(4);
+                builder.build().renderImage();
+                assertArrayEquals(pixels(references[i]), pixels(views[i]), "Wrong pixels of view " + i);
+            }
+        } finally {
+            for (int i = 0; i < locations.length; ++i) {
+                if (views[i] != null) views[i].close();
+                if (references[i] != null) references[i].close();
+            }
+        }
+
+        // =============== Boundary Values Tests ==================
+        // TC11: A render needs a view
+        assertThrows(IllegalStateException.class, () -> new MultiViewRender(scene, 1).render(),
+                "A render without views must be rejected");
+    }
+}
@@ -0,0 +1,102 @@
+package unittests.renderer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Test;
+
+import geometries.Sphere;
+import lighting.AmbientLight;
+import primitives.*;
+import renderer.Camera;
+import renderer.OffHeapFrameBuffer;
+import renderer.RayTracerType;
+import scene.Scene;
+
+/**
+ * Testing the off-heap frame buffer
+ */
+class OffHeapFrameBufferTest {
+
+    /**
+     * Tiles of any channel count are stored and read back, and writes outside
+     * the layer are rejected
+     */
+    @Test
+    void testTiles() {
+        OffHeapFrameBuffer depth = new OffHeapFrameBuffer(10, 8, 1);
+        float[] tile = {1, 2, 3, 4, 5, 6};
+        depth.writeTile(7, 6, 3, 2, tile);
+        assertEquals(5f, depth.get(8, 7, 0), "Wrong stored value");
+        assertEquals(0f, depth.get(6, 7, 0), "Pixel outside the tile must stay empty");
+        float[] read = new float[6];
+        depth.readTile(7, 6, 3, 2, read);
+        assertArrayEquals(tile, read, "Wrong tile read back");
+
+        assertThrows(IndexOutOfBoundsException.class, () -> depth.writeTile(8, 6, 3, 2, tile),
+                "Tile beyond the right edge must be rejected");
+        assertThrows(IndexOutOfBoundsException.class, () -> depth.writeTile(0, 0, 3, 3, tile),
+                "Tile larger than its data must be rejected");
+    }
+
+    /**
+     * A layer too large for direct buffers is mapped from a temporary file, which is
+     * deleted when the layer is closed
+     */
+    @Test
+    void testLargeAnonymousLayer() throws IOException {
+        Path directory = Path.of(System.getProperty("java.io.tmpdir"));
+        long before;
+        try (var files = Files.list(directory)) {
+            before = files.filter(file -> file.getFileName().toString().startsWith("layer")).count();
+        }
+        try (OffHeapFrameBuffer depth = new OffHeapFrameBuffer(8192, 8200, 1)) {
+            float[] tile = {1, 2, 3, 4};
+            depth.writeTile(8190, 8198, 2, 2, tile);
+            assertEquals(4f, depth.get(8191, 8199, 0), "Wrong stored value");
+            assertEquals(0f, depth.get(0, 0, 0), "A new layer must be empty");
+        }
+        try (var files = Files.list(directory)) {
+            assertEquals(before, files.filter(file -> file.getFileName().toString().startsWith("layer")).count(),
+                    "The temporary file must be deleted");
+        }
+    }
+
+    /**
+     * A render into a file backed layer keeps the unclamped colors in the file
+     */
+    @Test
+    void testFileBackedRender() throws IOException {
+        Path file = Files.createTempFile("color", ".layer");
+        Scene scene = new Scene("Off-heap").setAmbientLight(new AmbientLight(new Color(255, 255, 255), 1));
+        scene.geometries.add(new Sphere(Point.ZERO, 30d).setEmission(new Color(200, 30, 30))
+                .setMaterial(new Material().setKd(0.3)));
+
+        try (OffHeapFrameBuffer color = new OffHeapFrameBuffer(50, 40, 3, file)) {
+            Camera camera = Camera.getBuilder()
+                    .setLocation(new Point(0, 0, 100))
+                    .setDirection(Point.ZERO, Vector.AXIS_Y)
+                    .setVpDistance(100)
+                    .setVpSize(100, 100)
+                    .setResolution(50, 40)
+                    .setTileSize(8)
+                    .setRayTracer(scene, RayTracerType.SIMPLE)
+                    .setFrameBuffer(color)
+                    .build();
+            camera.renderImage();
+            assertThrows(IllegalStateException.class, () -> camera.writeToImage("offHeapTest"),
+                    "A render into a frame buffer has no in-memory image");
+        }
+
+        try (OffHeapFrameBuffer color = new OffHeapFrameBuffer(50, 40, 3, file)) {
+            assertTrue(color.get(25, 20, 0) > 255, "The red component of the sphere must stay unclamped");
+            assertEquals(136, (int) color.get(25, 20, 1), "Wrong green component of the sphere");
+            assertEquals(0f, color.get(0, 0, 2), "Wrong background");
+        }
+        assertEquals(50L * 40 * 3 * Float.BYTES, Files.size(file), "Wrong layer file size");
+        Files.delete(file);
+    }
+}
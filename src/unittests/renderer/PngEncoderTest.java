@@ -0,0 +1,66 @@
+package unittests.renderer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+
+import javax.imageio.ImageIO;
+
+import org.junit.jupiter.api.Test;
+
+import primitives.Color;
+import renderer.ImageWriter;
+import renderer.PngEncoder;
+
+/**
+ * Testing the parallel PNG encoder
+ */
+class PngEncoderTest {
+    /** Image size - several compression chunks */
+    private static final int WIDTH = 300, HEIGHT = 500;
+
+    /**
+     * Images encoded at every compression level decode back to the same pixels,
+     * and the fast mode is stored without compression
+     */
+    @Test
+    void testCompressionLevels() throws IOException {
+        ImageWriter writer = new ImageWriter(WIDTH, HEIGHT);
+        for (int y = 0; y < HEIGHT; ++y)
+            for (int x = 0; x < WIDTH; ++x)
+                writer.writePixel(x, y, pixel(x, y));
+
+        long storedSize = 0;
+        for (int level : new int[]{0, 1, 6, 9}) {
+            String name = "pngEncoderLevel" + level;
+            writer.setEncoder(new PngEncoder(level)).writeToImage(name);
+            File file = new File(System.getProperty("user.dir") + "/images/" + name + ".png");
+            BufferedImage image = ImageIO.read(file);
+            assertNotNull(image, "Level " + level + " image cannot be decoded");
+            for (int y = 0; y < HEIGHT; ++y)
+                for (int x = 0; x < WIDTH; ++x)
+                    assertEquals(pixel(x, y).getRGB(), image.getRGB(x, y) & 0xFFFFFF,
+                            "Level " + level + " wrong pixel " + x + "," + y);
+            if (level == 0) {
+                storedSize = file.length();
+                assertTrue(storedSize > 3L * WIDTH * HEIGHT, "Fast mode must not compress");
+            } else {
+                assertTrue(file.length() < storedSize, "Level " + level + " must compress");
+            }
+        }
+    }
+
+    /**
+     * Color of a test pixel - smooth gradients with a noisy stripe
+     *
+     * @param x column index
+     * @param y row index
+     * @return the color
+     */
+    private static Color pixel(int x, int y) {
+        int noise = y % 50 < 5 ? (x * 7919 + y * 104729) % 97 : 0;
+        return new Color((x + noise) % 256, y % 256, (x + y) / 4 % 256);
+    }
+}
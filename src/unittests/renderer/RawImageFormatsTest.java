@@ -0,0 +1,156 @@
+package unittests.renderer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Test;
+
+import primitives.Color;
+import renderer.ImageFormat;
+import renderer.ImageWriter;
+
+/**
+ * Testing the PFM, PPM and QOI image writers
+ */
+class RawImageFormatsTest {
+    /** Image size */
+    private static final int WIDTH = 40, HEIGHT = 30;
+
+    /**
+     * Creates a test image with the HDR layer - flat areas, gradients and
+     * components brighter than 255
+     *
+     * @return the image
+     */
+    private static ImageWriter image() {
+        ImageWriter writer = new ImageWriter(WIDTH, HEIGHT, true);
+        for (int y = 0; y < HEIGHT; ++y)
+            for (int x = 0; x < WIDTH; ++x)
+                writer.writePixel(x, y, pixel(x, y));
+        return writer;
+    }
+
+    /**
+     * Color of a test pixel
+     *
+     * @param x column index
+     * @param y row index
+     * @return the color
+     */
+    private static Color pixel(int x, int y) {
+        if (y < 10) return new Color(20, 40, 60);
+        if (y < 20) return new Color(x * 6, x * 6 + 1, 250 - x);
+        return new Color(255 + x * 10, (x * 37 + y * 11) % 256, 1000);
+    }
+
+    /**
+     * Path of an image file in the images directory
+     *
+     * @param name   the image name
+     * @param format the image format
+     * @return the file path
+     */
+    private static Path file(String name, ImageFormat format) {
+        return Path.of(System.getProperty("user.dir"), "images", name + "." + format.extension());
+    }
+
+    /**
+     * PFM keeps the unclamped radiance, bottom row first, 255 written as 1.0
+     */
+    @Test
+    void testPfm() throws IOException {
+        image().writeToImage("rawFormatTest", ImageFormat.PFM);
+        byte[] bytes = Files.readAllBytes(file("rawFormatTest", ImageFormat.PFM));
+        String header = "PF\n" + WIDTH + " " + HEIGHT + "\n-1.0\n";
+        assertEquals(header, new String(bytes, 0, header.length(), StandardCharsets.US_ASCII), "Wrong PFM header");
+        ByteBuffer data = ByteBuffer.wrap(bytes, header.length(), bytes.length - header.length())
+                .order(ByteOrder.LITTLE_ENDIAN);
+        for (int y = HEIGHT - 1; y >= 0; --y)
+            for (int x = 0; x < WIDTH; ++x) {
+                double[] rgb = {pixel(x, y).getRgb().d1(), pixel(x, y).getRgb().d2(), pixel(x, y).getRgb().d3()};
+                for (double component : rgb)
+                    assertEquals(component / 255, data.getFloat(), 1e-6, "Wrong radiance " + x + "," + y);
+            }
+        assertFalse(data.hasRemaining(), "Extra PFM data");
+
+        assertThrows(IllegalStateException.class,
+                () -> new ImageWriter(2, 2).writeToImage("rawFormatTest", ImageFormat.PFM),
+                "PFM must not be written without the HDR layer");
+    }
+
+    /**
+     * PPM holds the clamped 8 bit pixels, top row first
+     */
+    @Test
+    void testPpm() throws IOException {
+        image().writeToImage("rawFormatTest", ImageFormat.PPM);
+        byte[] bytes = Files.readAllBytes(file("rawFormatTest", ImageFormat.PPM));
+        String header = "P6\n" + WIDTH + " " + HEIGHT + "\n255\n";
+        assertEquals(header, new String(bytes, 0, header.length(), StandardCharsets.US_ASCII), "Wrong PPM header");
+        assertEquals(header.length() + 3 * WIDTH * HEIGHT, bytes.length, "Wrong PPM size");
+        for (int y = 0, k = header.length(); y < HEIGHT; ++y)
+            for (int x = 0; x < WIDTH; ++x, k += 3)
+                assertEquals(pixel(x, y).getRGB(),
+                        (bytes[k] & 0xFF) << 16 | (bytes[k + 1] & 0xFF) << 8 | (bytes[k + 2] & 0xFF),
+                        "Wrong pixel " + x + "," + y);
+    }
+
+    /**
+     * QOI decodes back to the clamped 8 bit pixels and compresses the flat area
+     */
+    @Test
+    void testQoi() throws IOException {
+        image().writeToImage("rawFormatTest", ImageFormat.QOI);
+        byte[] bytes = Files.readAllBytes(file("rawFormatTest", ImageFormat.QOI));
+        assertTrue(bytes.length < 14 + 3 * WIDTH * HEIGHT, "QOI must compress the flat area");
+        ByteBuffer data = ByteBuffer.wrap(bytes);
+        assertEquals(0x716F6966, data.getInt(), "Wrong QOI magic");
+        assertEquals(WIDTH, data.getInt(), "Wrong QOI width");
+        assertEquals(HEIGHT, data.getInt(), "Wrong QOI height");
+        assertEquals(3, data.get(), "Wrong QOI channels");
+        data.get();
+
+        int[] cache = new int[64];
+        int r = 0, g = 0, b = 0, run = 0;
+        for (int k = 0; k < WIDTH * HEIGHT; ++k) {
+            if (run > 0) {
+                --run;
+            } else {
+                int op = data.get() & 0xFF;
+                if (op == 0xFE) {
+                    r = data.get() & 0xFF;
+                    g = data.get() & 0xFF;
+                    b = data.get() & 0xFF;
+                } else if ((op & 0xC0) == 0x00) {
+                    int c = cache[op];
+                    r = c >> 16 & 0xFF;
+                    g = c >> 8 & 0xFF;
+                    b = c & 0xFF;
+                } else if ((op & 0xC0) == 0x40) {
+                    r = (r + (op >> 4 & 3) - 2) & 0xFF;
+                    g = (g + (op >> 2 & 3) - 2) & 0xFF;
+                    b = (b + (op & 3) - 2) & 0xFF;
+                } else if ((op & 0xC0) == 0x80) {
+                    int second = data.get() & 0xFF;
+                    int dg = (op & 0x3F) - 32;
+                    r = (r + dg - 8 + (second >> 4)) & 0xFF;
+                    g = (g + dg) & 0xFF;
+                    b = (b + dg - 8 + (second & 0x0F)) & 0xFF;
+                } else {
+                    run = op & 0x3F;
+                }
+                cache[(r * 3 + g * 5 + b * 7 + 255 * 11) & 63] = r << 16 | g << 8 | b;
+            }
+            assertEquals(pixel(k % WIDTH, k / WIDTH).getRGB(), r << 16 | g << 8 | b,
+                    "Wrong pixel " + k % WIDTH + "," + k / WIDTH);
+        }
+        assertEquals(1L, data.getLong(), "Missing QOI end marker");
+        assertFalse(data.hasRemaining(), "Extra QOI data");
+    }
+}
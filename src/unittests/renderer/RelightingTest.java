@@ -0,0 +1,120 @@
+package unittests.renderer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static unittests.renderer.RenderFixtures.*;
+
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+
+import geometries.*;
+import lighting.*;
+import primitives.*;
+import renderer.Camera;
+import renderer.OffHeapFrameBuffer;
+import renderer.RayTracerType;
+import renderer.SimpleRayTracer;
+import scene.Scene;
+
+/**
+ * Testing the relighting of rendered images
+ */
+class RelightingTest {
+    /** Resolution of the test renders */
+    private static final int SIZE = 48;
+
+    /**
+     * A diffuse and a shiny sphere on a floor, lit by a spot light
+     *
+     * @param spot the spot light
+     * @return the scene
+     */
+    private static Scene scene(SpotLight spot) {
+        Scene scene = new Scene("Relighting").setAmbientLight(new AmbientLight(new Color(255, 255, 255), 0.1));
+        scene.geometries.add(new Sphere(new Point(-25, 0, -50), 20d).setEmission(new Color(20, 40, 80))
+                        .setMaterial(new Material().setKd(0.5).setKs(0.5).setShininess(30)),
+                new Sphere(new Point(25, 5, -40), 15d).setEmission(new Color(80, 40, 20))
+                        .setMaterial(new Material().setKd(0.5)),
+                new Plane(new Point(0, -20, 0), Vector.AXIS_Y).setEmission(new Color(30, 30, 30))
+                        .setMaterial(new Material().setKd(0.6)));
+        scene.addLight(spot);
+        return scene;
+    }
+
+    /**
+     * Camera builder rendering into a frame buffer
+     *
+     * @param buffer the frame buffer
+     * @return the builder
+     */
+    private static Camera.Builder camera(OffHeapFrameBuffer buffer) {
+        return Camera.getBuilder()
+                .setLocation(new Point(0, 20, 200))
+                .setDirection(new Point(0, 0, -50), Vector.AXIS_Y)
+                .setVpDistance(200)
+                .setVpSize(150, 150)
+                .setResolution(SIZE, SIZE)
+                .setFrameBuffer(buffer);
+    }
+
+    /**
+     * A light edited in place is applied without tracing any primary ray, and the
+     * relit image equals a new render with the edited light
+     */
+    @Test
+    void testEditedLight() {
+        SpotLight spot = new SpotLight(new Color(500, 500, 500), new Point(0, 80, 60), new Vector(0, -1, -1))
+                .setKL(1E-4).setKQ(1E-5);
+        Scene scene = scene(spot);
+        try (OffHeapFrameBuffer relit = new OffHeapFrameBuffer(SIZE, SIZE, 3);
+             OffHeapFrameBuffer reference = new OffHeapFrameBuffer(SIZE, SIZE, 3)) {
+            CountingTracer tracer = new CountingTracer(scene.compile());
+            Camera camera = camera(relit).setRayTracer(tracer).enableRelighting().build()
+                    .setMultithreading(true).setThreadsCount(2).renderImage();
+            float[] before = pixels(relit);
+            assertEquals(SIZE * SIZE, tracer.searched.get(), "The render traces every primary ray");
+
+            spot.setKL(1E-3).setNarrowBeam(4);
+            camera.relight();
+            assertEquals(SIZE * SIZE, tracer.searched.get(), "Relighting must not trace primary rays");
+            assertFalse(Arrays.equals(before, pixels(relit)), "The edited light must change the image");
+
+            camera(reference).setRayTracer(new SimpleRayTracer(scene)).build().renderImage();
+            assertArrayEquals(pixels(reference), pixels(relit), "Wrong relit pixels");
+        }
+    }
+
+    /**
+     * Lights added to a new version of the scene are applied, and geometries may not
+     * change
+     */
+    @Test
+    void testEditedScene() {
+        Scene scene = scene(new SpotLight(new Color(500, 500, 500), new Point(0, 80, 60), new Vector(0, -1, -1)));
+        try (OffHeapFrameBuffer relit = new OffHeapFrameBuffer(SIZE, SIZE, 3);
+             OffHeapFrameBuffer reference = new OffHeapFrameBuffer(SIZE, SIZE, 3)) {
+            Camera camera = camera(relit).setRayTracer(scene, RayTracerType.SIMPLE).enableRelighting().build()
+                    .renderImage();
+
+            scene.addLight(new PointLight(new Color(200, 100, 100), new Point(-60, 40, 40)).setKL(1E-4));
+            camera.relight(scene);
+            camera(reference).setRayTracer(new SimpleRayTracer(scene)).build().renderImage();
+            assertArrayEquals(pixels(reference), pixels(relit), "Wrong pixels with an added light");
+
+            scene.geometries.add(new Sphere(new Point(0, 40, -60), 10d));
+            assertThrows(IllegalArgumentException.class, () -> camera.relight(scene),
+                    "A scene with new geometries must be rejected");
+        }
+
+        // =============== Boundary Values Tests ==================
+        // TC11: Relighting needs a rendered image
+        try (OffHeapFrameBuffer buffer = new OffHeapFrameBuffer(SIZE, SIZE, 3)) {
+            Camera camera = camera(buffer).setRayTracer(scene, RayTracerType.SIMPLE).enableRelighting().build();
+            assertThrows(IllegalStateException.class, camera::relight, "Relighting before rendering must be rejected");
+            // TC12: Relighting shades pixel centers - no anti-aliasing
+            assertThrows(IllegalArgumentException.class,
+                    () -> camera(buffer).enableRelighting().enableAntiAliasing(4).build(),
+                    "Relighting with anti-aliasing must be rejected");
+        }
+    }
+}
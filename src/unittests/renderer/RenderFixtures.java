@@ -0,0 +1,88 @@
+package unittests.renderer;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import geometries.Intersectable.Intersection;
+import geometries.Polygon;
+import geometries.Sphere;
+import lighting.AmbientLight;
+import lighting.PointLight;
+import primitives.*;
+import renderer.OffHeapFrameBuffer;
+import renderer.SimpleRayTracer;
+import scene.CompiledScene;
+import scene.Scene;
+
+/**
+ * Shared fixtures of the render tests that compare images pixel by pixel
+ */
+final class RenderFixtures {
+    private RenderFixtures() {
+    }
+
+    /**
+     * Ray tracer counting its calls - the traced rays, the closest hit searches of the
+     * primary rays, and the shaded hits
+     */
+    static class CountingTracer extends SimpleRayTracer {
+        /** Number of traced rays */
+        final AtomicInteger traced = new AtomicInteger();
+        /** Number of closest hit searches */
+        final AtomicInteger searched = new AtomicInteger();
+        /** Number of shaded hits */
+        final AtomicInteger shaded = new AtomicInteger();
+
+        CountingTracer(CompiledScene scene) {
+            super(scene);
+        }
+
+        @Override
+        public Color traceRay(Ray ray) {
+            traced.incrementAndGet();
+            return super.traceRay(ray);
+        }
+
+        @Override
+        public Intersection findClosestIntersection(Ray ray) {
+            searched.incrementAndGet();
+            return super.findClosestIntersection(ray);
+        }
+
+        @Override
+        public Color calcColor(Intersection intersection, Ray ray) {
+            shaded.incrementAndGet();
+            return super.calcColor(intersection, ray);
+        }
+    }
+
+    /**
+     * Two spheres, a shiny and a diffuse one, in front of a wall, lit by a point light
+     *
+     * @param name the scene name
+     * @return the scene
+     */
+    static Scene spheresBeforeWall(String name) {
+        Scene scene = new Scene(name).setAmbientLight(new AmbientLight(new Color(255, 255, 255), 0.1));
+        scene.geometries.add(new Sphere(new Point(-30, 0, -50), 20d).setEmission(new Color(20, 40, 80))
+                        .setMaterial(new Material().setKd(0.5).setKs(0.5).setShininess(30)),
+                new Sphere(new Point(30, 10, -40), 15d).setEmission(new Color(80, 40, 20))
+                        .setMaterial(new Material().setKd(0.5)),
+                new Polygon(new Point(-100, -100, -120), new Point(100, -100, -120),
+                        new Point(100, 100, -120), new Point(-100, 100, -120))
+                        .setEmission(new Color(30, 30, 30)).setMaterial(new Material().setKd(0.6)));
+        scene.addLight(new PointLight(new Color(500, 500, 500), new Point(0, 60, 40)).setKL(1E-4).setKQ(1E-5));
+        return scene;
+    }
+
+    /**
+     * Reads all the pixels of a frame buffer
+     *
+     * @param buffer the frame buffer
+     * @return the values of all the channels of the pixels, in row-major order
+     */
+    static float[] pixels(OffHeapFrameBuffer buffer) {
+        float[] values = new float[buffer.width() * buffer.height() * buffer.channels()];
+        buffer.readTile(0, 0, buffer.width(), buffer.height(), values);
+        return values;
+    }
+}
@@ -0,0 +1,99 @@
+package unittests.renderer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+import renderer.Sampler;
+import renderer.SamplerType;
+
+/**
+ * Testing the anti-aliasing samplers
+ */
+class SamplerTests {
+
+    /**
+     * Counts the samples of the current pixel in every cell of an n x m grid
+     *
+     * @return true if every cell holds exactly one sample
+     */
+    private boolean oneSamplePerCell(Sampler sampler, int n, int m) {
+        boolean[] taken = new boolean[n * m];
+        for (int k = 0; k < sampler.count(); k++) {
+            int cell = (int) (sampler.y(k) * m) * n + (int) (sampler.x(k) * n);
+            if (taken[cell]) return false;
+            taken[cell] = true;
+        }
+        return true;
+    }
+
+    /**
+     * Test method for {@link renderer.Sampler#samplePixel(int, int, int)}.
+     */
+    @Test
+    void testSamplePixel() {
+        // ============ Equivalence Partitions Tests ==============
+        for (SamplerType type : SamplerType.values()) {
+            Sampler sampler = type.create(7);
+            sampler.samplePixel(3, 5, 16);
+            double[] xs = new double[16];
+            for (int k = 0; k < 16; k++) {
+                xs[k] = sampler.x(k);
+                // EP01: all the samples are inside the pixel
+                assertTrue(sampler.x(k) >= 0 && sampler.x(k) < 1 && sampler.y(k) >= 0 && sampler.y(k) < 1,
+                        type + " sample outside the pixel");
+            }
+
+            // EP02: the samples of a pixel do not depend on the sampler instance or on other pixels
+            Sampler other = type.create(7);
+            other.samplePixel(4, 5, 16);
+            other.samplePixel(3, 5, 16);
+            for (int k = 0; k < 16; k++)
+                assertEquals(xs[k], other.x(k), type + " samples are not deterministic");
+        }
+
+        // EP03: stratified samplers put one sample in every cell
+        Sampler grid = SamplerType.GRID.create(0);
+        grid.samplePixel(0, 0, 16);
+        assertTrue(oneSamplePerCell(grid, 4, 4), "Grid samples are not stratified");
+        Sampler stratified = SamplerType.STRATIFIED.create(0);
+        stratified.samplePixel(0, 0, 16);
+        assertTrue(oneSamplePerCell(stratified, 4, 4), "Jittered samples are not stratified");
+
+        // EP04: scrambled Sobol keeps the elementary intervals stratification
+        Sampler sobol = SamplerType.SOBOL.create(0);
+        for (int pixel = 0; pixel < 10; pixel++) {
+            sobol.samplePixel(pixel, 2 * pixel, 16);
+            assertTrue(oneSamplePerCell(sobol, 4, 4), "Sobol 4x4 intervals are not stratified");
+            assertTrue(oneSamplePerCell(sobol, 16, 1), "Sobol 16x1 intervals are not stratified");
+            assertTrue(oneSamplePerCell(sobol, 2, 8), "Sobol 2x8 intervals are not stratified");
+        }
+
+        // EP05: different pixels get different random samples
+        stratified.samplePixel(0, 1, 16);
+        assertNotEquals(grid.x(0), stratified.x(0), "Jittered samples are not random");
+
+        // =============== Boundary Values Tests ==================
+        // BV01: a single sample
+        grid.samplePixel(0, 0, 1);
+        assertEquals(0.5, grid.x(0), 1e-12, "Single grid sample must be in the pixel center");
+        // BV02: no samples
+        assertThrows(IllegalArgumentException.class, () -> grid.samplePixel(0, 0, 0), "Zero samples must throw");
+        // BV03: counts that are not squares cover the whole pixel with cells of equal area
+        for (int count : new int[]{ 8, 10, 20, 7 }) {
+            int columns = count == 8 ? 4 : count == 10 ? 5 : count == 20 ? 5 : 7;
+            for (Sampler sampler : new Sampler[]{ grid, stratified }) {
+                sampler.samplePixel(1, 2, count);
+                assertTrue(oneSamplePerCell(sampler, columns, count / columns),
+                        count + " samples must fill the whole grid");
+            }
+            double meanX = 0, meanY = 0;
+            for (int k = 0; k < count; k++) {
+                meanX += grid.x(k) / count;
+                meanY += grid.y(k) / count;
+            }
+            assertEquals(0.5, meanX, 1e-12, count + " grid samples must be centered in the pixel");
+            assertEquals(0.5, meanY, 1e-12, count + " grid samples must be centered in the pixel");
+        }
+    }
+}
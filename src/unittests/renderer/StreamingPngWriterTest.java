@@ -0,0 +1,133 @@
+package unittests.renderer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import javax.imageio.ImageIO;
+
+import org.junit.jupiter.api.Test;
+
+import geometries.Sphere;
+import lighting.AmbientLight;
+import primitives.*;
+import renderer.Camera;
+import renderer.RayTracerType;
+import renderer.SimpleRayTracer;
+import renderer.StreamingPngWriter;
+import scene.Scene;
+
+/**
+ * Testing the streaming PNG output of a render
+ */
+class StreamingPngWriterTest {
+
+    /**
+     * Tiles written in any order are encoded into a valid PNG with the right pixels,
+     * and the scratch file is removed
+     */
+    @Test
+    void testTilesOutOfOrder() throws IOException {
+        Path file = Files.createTempFile("streaming", ".png");
+        int nX = 37, nY = 29, size = 8;
+
+        try (StreamingPngWriter writer = new StreamingPngWriter(file, nX, nY, size)) {
+            // bottom bands first, right to left
+            for (int y = (nY - 1) / size * size; y >= 0; y -= size)
+                for (int x = (nX - 1) / size * size; x >= 0; x -= size) {
+                    int width = Math.min(size, nX - x), height = Math.min(size, nY - y);
+                    Color[] colors = new Color[width * height];
+                    for (int k = 0; k < colors.length; ++k)
+                        colors[k] = pixel(x + k % width, y + k / width);
+                    writer.writeTile(x, y, width, height, colors);
+                }
+        }
+
+        assertFalse(Files.exists(file.resolveSibling(file.getFileName() + ".scratch")), "Scratch file must be deleted");
+        BufferedImage image = ImageIO.read(file.toFile());
+        assertEquals(nX, image.getWidth(), "Wrong image width");
+        assertEquals(nY, image.getHeight(), "Wrong image height");
+        for (int y = 0; y < nY; ++y)
+            for (int x = 0; x < nX; ++x)
+                assertEquals(pixel(x, y).getRGB(), image.getRGB(x, y) & 0xFFFFFF, "Wrong pixel " + x + "," + y);
+        Files.delete(file);
+    }
+
+    /**
+     * A streamed render holds the same pixels as a render written through the image writer
+     */
+    @Test
+    void testStreamingRender() throws IOException {
+        Path file = Files.createTempFile("streamingRender", ".png");
+        Scene scene = new Scene("Streaming").setAmbientLight(new AmbientLight(new Color(255, 255, 255), 1));
+        scene.geometries.add(new Sphere(Point.ZERO, 30d).setEmission(new Color(200, 30, 30))
+                .setMaterial(new Material().setKd(0.3)));
+        Camera.Builder builder = Camera.getBuilder()
+                .setLocation(new Point(0, 0, 100))
+                .setDirection(Point.ZERO, Vector.AXIS_Y)
+                .setVpDistance(100)
+                .setVpSize(100, 100)
+                .setResolution(50, 40)
+                .setTileSize(8)
+                .setRayTracer(scene, RayTracerType.SIMPLE);
+
+        builder.build().renderImage().writeToImage("streamingReferenceTest");
+        Camera streaming = builder.setStreamingOutput(file).build().setMultithreading(true).setThreadsCount(3);
+        streaming.renderImage();
+        assertThrows(IllegalStateException.class, () -> streaming.writeToImage("streamingTest"),
+                "A streamed render has no in-memory image");
+
+        BufferedImage expected = ImageIO.read(new File(System.getProperty("user.dir") + "/images/streamingReferenceTest.png"));
+        BufferedImage actual = ImageIO.read(file.toFile());
+        for (int y = 0; y < 40; ++y)
+            for (int x = 0; x < 50; ++x)
+                assertEquals(expected.getRGB(x, y), actual.getRGB(x, y), "Wrong pixel " + x + "," + y);
+        Files.delete(file);
+    }
+
+    /**
+     * A render that fails deletes the partial image and the scratch file
+     */
+    @Test
+    void testFailedRender() throws IOException {
+        Path file = Files.createTempFile("failedRender", ".png");
+        Scene scene = new Scene("Failing").setBackground(new Color(30, 60, 90));
+        int[] rays = {0};
+        Camera camera = Camera.getBuilder()
+                .setLocation(new Point(0, 0, 100))
+                .setDirection(Point.ZERO, Vector.AXIS_Y)
+                .setVpDistance(100)
+                .setVpSize(100, 100)
+                .setResolution(50, 40)
+                .setTileSize(8)
+                .setRayTracer(new SimpleRayTracer(scene) {
+                    @Override
+                    public Color traceRay(Ray ray) {
+                        // fail after the first bands were encoded into the file
+                        if (++rays[0] > 50 * 24) throw new IllegalStateException("Render failure");
+                        return super.traceRay(ray);
+                    }
+                })
+                .setStreamingOutput(file)
+                .build();
+
+        assertThrows(IllegalStateException.class, camera::renderImage, "The render failure must propagate");
+        assertFalse(Files.exists(file), "The partial image must be deleted");
+        assertFalse(Files.exists(file.resolveSibling(file.getFileName() + ".scratch")), "Scratch file must be deleted");
+    }
+
+    /**
+     * Color of a test pixel
+     *
+     * @param x column index
+     * @param y row index
+     * @return a color varying with both coordinates
+     */
+    private static Color pixel(int x, int y) {
+        return new Color(x * 7 % 256, y * 9 % 256, (x + y) * 5 % 256);
+    }
+}
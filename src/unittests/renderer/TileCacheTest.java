@@ -0,0 +1,164 @@
+package unittests.renderer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static unittests.renderer.RenderFixtures.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+
+import geometries.Sphere;
+import primitives.*;
+import renderer.Camera;
+import renderer.CameraPath;
+import renderer.ImageOutputQueue;
+import renderer.OffHeapFrameBuffer;
+import renderer.SimpleRayTracer;
+import scene.Scene;
+
+/**
+ * Testing the tile cache of renders
+ */
+class TileCacheTest {
+    /** Resolution of the test renders */
+    private static final int SIZE = 64;
+    /** Tile size of the test renders */
+    private static final int TILE = 16;
+    /** Number of tiles of the test renders */
+    private static final int TILES = (SIZE / TILE) * (SIZE / TILE);
+
+    /**
+     * Camera builder rendering a scene into a frame buffer
+     *
+     * @param tracer the ray tracer
+     * @param buffer the frame buffer
+     * @return the builder
+     */
+    private static Camera.Builder camera(SimpleRayTracer tracer, OffHeapFrameBuffer buffer) {
+        return Camera.getBuilder()
+                .setLocation(new Point(0, 0, 200))
+                .setDirection(new Point(0, 0, -50), Vector.AXIS_Y)
+                .setVpDistance(200)
+                .setVpSize(150, 150)
+                .setResolution(SIZE, SIZE)
+                .setTileSize(TILE)
+                .setRayTracer(tracer)
+                .setFrameBuffer(buffer);
+    }
+
+    /**
+     * The tile files of a cache directory
+     *
+     * @param directory the cache directory
+     * @return the files
+     */
+    private static List<Path> tiles(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> file.toString().endsWith(".tile")).toList();
+        }
+    }
+
+    /**
+     * A render of the same scene from the same camera takes all its tiles from the
+     * cache, and an edit of the scene misses it
+     */
+    @Test
+    void testReuse() throws IOException {
+        Path directory = Files.createTempDirectory("tiles");
+        Scene scene = spheresBeforeWall("Cache");
+        try (OffHeapFrameBuffer first = new OffHeapFrameBuffer(SIZE, SIZE, 3);
+             OffHeapFrameBuffer second = new OffHeapFrameBuffer(SIZE, SIZE, 3)) {
+            CountingTracer tracer = new CountingTracer(scene.compile());
+            camera(tracer, first).enableTileCache(directory, 1L << 24).build().renderImage();
+            assertEquals(SIZE * SIZE, tracer.traced.get(), "The first render traces every pixel");
+            assertEquals(TILES, tiles(directory).size(), "Every tile must be cached");
+
+            // a new compilation of an equal scene by another camera
+            tracer = new CountingTracer(spheresBeforeWall("Cache").compile());
+            camera(tracer, second).enableTileCache(directory, 1L << 24).build().renderImage();
+            assertEquals(0, tracer.traced.get(), "All the tiles must come from the cache");
+            assertArrayEquals(pixels(first), pixels(second), "Wrong cached pixels");
+
+            // another scene - nothing is reused
+            scene.geometries.add(new Sphere(new Point(0, -30, -60), 10d).setEmission(new Color(90, 20, 20)));
+            tracer = new CountingTracer(scene.compile());
+            camera(tracer, second).enableTileCache(directory, 1L << 24).build().renderImage();
+            assertEquals(SIZE * SIZE, tracer.traced.get(), "An edited scene must be traced again");
+            assertEquals(2 * TILES, tiles(directory).size(), "The tiles of both scenes must be cached");
+        }
+    }
+
+    /**
+     * Only the missing tiles are traced, and with edge anti-aliasing the image equals
+     * an uncached render
+     */
+    @Test
+    void testMissingTiles() throws IOException {
+        Path directory = Files.createTempDirectory("tiles");
+        Scene scene = spheresBeforeWall("Cache");
+        try (OffHeapFrameBuffer cached = new OffHeapFrameBuffer(SIZE, SIZE, 3);
+             OffHeapFrameBuffer reference = new OffHeapFrameBuffer(SIZE, SIZE, 3)) {
+            camera(new SimpleRayTracer(scene), reference).enableEdgeAntiAliasing(4).build().renderImage();
+            camera(new CountingTracer(scene.compile()), cached).enableEdgeAntiAliasing(4)
+                    .enableTileCache(directory, 1L << 24).build().renderImage();
+
+            List<Path> files = tiles(directory);
+            for (int i = 0; i < files.size(); i += 3) Files.delete(files.get(i));
+            int missing = TILES - tiles(directory).size();
+
+            CountingTracer tracer = new CountingTracer(scene.compile());
+            camera(tracer, cached).enableEdgeAntiAliasing(4).enableTileCache(directory, 1L << 24).build()
+                    .setMultithreading(true).setThreadsCount(2).renderImage();
+            assertTrue(tracer.traced.get() > 0 && tracer.traced.get() <= missing * TILE * TILE * 4,
+                    "Only the edge pixels of the missing tiles must be supersampled");
+            assertEquals(TILES, tiles(directory).size(), "The missing tiles must be cached again");
+            assertArrayEquals(pixels(reference), pixels(cached), "Wrong image of cached and traced tiles");
+        }
+    }
+
+    /**
+     * The frames of a sequence that reuse the shading of their previous frame are not
+     * cached - only the first frame, which is traced exactly
+     */
+    @Test
+    void testTemporalFrames() throws IOException {
+        Path directory = Files.createTempDirectory("tiles");
+        CameraPath path = new CameraPath()
+                .addKeyframe(0, new Point(0, 0, 200), new Point(0, 0, -50), Vector.AXIS_Y)
+                .addKeyframe(1, new Point(10, 0, 200), new Point(0, 0, -50), Vector.AXIS_Y);
+        Camera camera = Camera.getBuilder()
+                .setLocation(new Point(0, 0, 200))
+                .setDirection(new Point(0, 0, -50), Vector.AXIS_Y)
+                .setVpDistance(200)
+                .setVpSize(150, 150)
+                .setResolution(SIZE, SIZE)
+                .setTileSize(TILE)
+                .setRayTracer(new SimpleRayTracer(spheresBeforeWall("Cache")))
+                .enableTemporalReuse()
+                .enableTileCache(directory, 1L << 24)
+                .build();
+        try (ImageOutputQueue output = new ImageOutputQueue(1, 1)) {
+            camera.renderSequence(path, 3, "cachedSequence", output);
+        }
+        assertEquals(TILES, tiles(directory).size(), "Only the tiles of the first frame must be cached");
+    }
+
+    /**
+     * The least recently used tiles are evicted when the cache is over its size limit
+     */
+    @Test
+    void testEviction() throws IOException {
+        Path directory = Files.createTempDirectory("tiles");
+        long tileBytes = 4 * 4 + 24L * TILE * TILE + 8;
+        try (OffHeapFrameBuffer buffer = new OffHeapFrameBuffer(SIZE, SIZE, 3)) {
+            camera(new SimpleRayTracer(spheresBeforeWall("Cache")), buffer)
+                    .enableTileCache(directory, 10 * tileBytes).build().renderImage();
+            int count = tiles(directory).size();
+            assertTrue(count > 0 && count <= 10, "The cache must stay within its size limit");
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package unittests.scene;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.concurrent.CompletableFuture;
+
+import org.junit.jupiter.api.Test;
+
+import geometries.*;
+import lighting.*;
+import primitives.*;
+import scene.CompiledScene;
+import scene.Scene;
+
+/**
+ * Testing the compiled scene snapshots
+ */
+class CompiledSceneTest {
+
+    /**
+     * Changes of the scene after its compilation do not affect the compiled scene
+     */
+    @Test
+    void testSnapshot() {
+        Scene scene = new Scene("Snapshot").setBackground(new Color(10, 20, 30));
+        scene.geometries.add(new Sphere(new Point(0, 0, -100), 10));
+        scene.addLight(new PointLight(new Color(100, 100, 100), new Point(0, 50, 0)));
+        CompiledScene compiled = scene.compile();
+        Ray ray = new Ray(Point.ZERO, new Vector(0, 0, -1));
+
+        scene.geometries.add(new Sphere(new Point(0, 0, -50), 10));
+        scene.addLight(new DirectionalLight(new Color(100, 100, 100), new Vector(0, 0, -1)));
+        scene.setBackground(Color.BLACK);
+
+        assertEquals(1, compiled.lightCount(), "A light added later must not be in the compiled scene");
+        assertEquals(new Color(10, 20, 30).getRgb(), compiled.background.getRgb(), "Wrong background");
+        assertEquals(new Point(0, 0, -90), compiled.geometries.calculateClosestIntersection(ray).point,
+                "A geometry added later must not be in the compiled scene");
+        assertEquals(new Point(0, 0, -40), scene.compile().geometries.calculateClosestIntersection(ray).point,
+                "A new compilation must hold the added geometry");
+    }
+
+    /**
+     * Materials are classified by their reflection and transparency
+     */
+    @Test
+    void testMaterials() {
+        Material mirror = new Material().setKr(1);
+        Material glass = new Material().setKt(0.6);
+        Material matte = new Material().setKd(0.5).setKr(1E-4);
+        Scene scene = new Scene("Materials");
+        scene.geometries.add(new Sphere(new Point(0, 0, -100), 10).setMaterial(mirror),
+                new Geometries(new Plane(Point.ZERO, Vector.AXIS_Z).setMaterial(glass)),
+                new Triangle(new Point(1, 0, 0), new Point(0, 1, 0), new Point(0, 0, 1)).setMaterial(matte));
+        CompiledScene compiled = scene.compile();
+
+        assertTrue(compiled.isReflective(mirror), "A mirror reflects");
+        assertFalse(compiled.isTransparent(mirror), "A mirror is opaque");
+        assertFalse(compiled.isReflective(glass), "The glass does not reflect");
+        assertTrue(compiled.isTransparent(glass), "The glass is transparent");
+        assertFalse(compiled.isReflective(matte), "A negligible reflection is ignored");
+        // a material that is not in the scene
+        assertTrue(compiled.isTransparent(new Material().setKt(0.2)), "Wrong flags of another material");
+    }
+
+    /**
+     * A scene is edited while its snapshots are compiled on another thread
+     */
+    @Test
+    void testEditWhileCompiling() {
+        Scene scene = new Scene("Edited");
+        scene.addLight(new PointLight(new Color(100, 100, 100), Point.ZERO));
+        CompletableFuture<Void> editor = CompletableFuture.runAsync(() -> {
+            for (int i = 1; i <= 2000; ++i) {
+                scene.geometries.add(new Sphere(new Point(i, 0, -100), 0.5));
+                scene.lights.set(0, new PointLight(new Color(100, 100, 100), new Point(i, 0, 0)));
+            }
+        });
+        int previous = 0;
+        while (!editor.isDone()) {
+            Scene snapshot = scene.snapshot();
+            int count = ((BoundingVolumeHierarchy) snapshot.compile().geometries).getGeometries().size();
+            assertTrue(count >= previous, "A later snapshot must hold all the geometries of an earlier one");
+            assertEquals(1, snapshot.getLights().size(), "Wrong number of lights");
+            previous = count;
+        }
+        editor.join();
+        assertEquals(2000, ((BoundingVolumeHierarchy) scene.compile().geometries).getGeometries().size(),
+                "Wrong number of geometries");
+    }
+}
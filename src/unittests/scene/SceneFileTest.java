@@ -0,0 +1,123 @@
+package unittests.scene;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import org.junit.jupiter.api.Test;
+
+import geometries.*;
+import lighting.*;
+import primitives.*;
+import renderer.Camera;
+import renderer.OffHeapFrameBuffer;
+import renderer.RayTracerType;
+import scene.Scene;
+import scene.SceneFile;
+
+/**
+ * Testing the compiled binary scene files
+ */
+class SceneFileTest {
+    /** Resolution of the test renders */
+    private static final int SIZE = 40;
+
+    /**
+     * A scene with every geometry and light type
+     *
+     * @return the scene
+     */
+    private static Scene sourceScene() {
+        Material shiny = new Material().setKd(0.5).setKs(0.5).setShininess(60);
+        Scene scene = new Scene("Compiled").setBackground(new Color(10, 20, 30))
+                .setAmbientLight(new AmbientLight(new Color(255, 255, 255), 0.1));
+        scene.geometries.add(
+                new Sphere(new Point(0, 0, -50), 30d).setEmission(new Color(30, 30, 80)).setMaterial(shiny),
+                new Triangle(new Point(-70, -40, 0), new Point(-40, -70, 0), new Point(-68, -68, -4))
+                        .setEmission(new Color(30, 30, 80))
+                        .setMaterial(new Material().setKd(new Double3(0.3, 0.4, 0.5)).setKs(0.5).setShininess(60)),
+                new Geometries(
+                        new Polygon(new Point(20, 20, -10), new Point(45, 20, -10), new Point(45, 45, -10),
+                                new Point(20, 45, -10)).setEmission(new Color(60, 20, 20))
+                                .setMaterial(new Material().setKd(0.4).setKr(0.3)),
+                        new Cylinder(5, 20, new Ray(new Point(-35, 20, -40), new Vector(0, 1, 0.2)))
+                                .setEmission(new Color(20, 60, 20)).setMaterial(shiny)),
+                new Plane(new Point(0, 0, -150), new Vector(0, 0, 1)).setMaterial(shiny));
+        scene.addLight(new SpotLight(new Color(700, 400, 400), new Point(40, 40, 115), new Vector(-1, -1, -4))
+                .setNarrowBeam(3).setKL(4E-4).setKQ(2E-5));
+        scene.addLight(new PointLight(new Color(200, 200, 300), new Point(-50, 60, 50)).setKL(1E-3));
+        scene.addLight(new DirectionalLight(new Color(80, 80, 80), new Vector(1, -1, -1)));
+        return scene;
+    }
+
+    /**
+     * A compiled scene renders exactly like its source scene
+     */
+    @Test
+    void testRoundTrip() throws IOException {
+        Scene source = sourceScene();
+        Path file = Files.createTempFile("scene", ".rtsc");
+        SceneFile.write(source, file);
+        Scene compiled = SceneFile.read(file);
+
+        assertEquals("Compiled", compiled.name, "Wrong scene name");
+        assertEquals(source.background.getRgb(), compiled.background.getRgb(), "Wrong background");
+        assertEquals(source.ambientLight.getIntensity().getRgb(), compiled.ambientLight.getIntensity().getRgb(),
+                "Wrong ambient light");
+        assertEquals(3, compiled.lights.size(), "Wrong number of lights");
+        assertTrue(compiled.lights.get(0) instanceof SpotLight, "Wrong light type");
+        assertEquals(3, ((SpotLight) compiled.lights.get(0)).getNarrowBeam(), "Wrong spot light beam");
+        assertArrayEquals(render(source), render(compiled), "The compiled scene must render like its source");
+        Files.delete(file);
+    }
+
+    /**
+     * Damaged files and files of another version are rejected
+     */
+    @Test
+    void testDamagedFile() throws IOException {
+        Path file = Files.createTempFile("scene", ".rtsc");
+        SceneFile.write(sourceScene(), file);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[]{42}), channel.size() - 20);
+        }
+        assertThrows(IllegalArgumentException.class, () -> SceneFile.read(file), "A damaged file must be rejected");
+
+        SceneFile.write(sourceScene(), file);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[]{(byte) (SceneFile.VERSION + 1)}), 4);
+        }
+        assertThrows(IllegalArgumentException.class, () -> SceneFile.read(file),
+                "A file of another version must be rejected");
+        Files.delete(file);
+    }
+
+    /**
+     * Renders a scene into an off-heap layer and returns its colors
+     *
+     * @param scene the scene
+     * @return the unclamped colors of all the pixels
+     */
+    private static float[] render(Scene scene) {
+        try (OffHeapFrameBuffer color = new OffHeapFrameBuffer(SIZE, SIZE, 3)) {
+            Camera.getBuilder()
+                    .setLocation(new Point(0, 0, 100))
+                    .setDirection(Point.ZERO, Vector.AXIS_Y)
+                    .setVpDistance(100)
+                    .setVpSize(100, 100)
+                    .setResolution(SIZE, SIZE)
+                    .setRayTracer(scene, RayTracerType.SIMPLE)
+                    .setFrameBuffer(color)
+                    .build()
+                    .renderImage();
+            float[] colors = new float[SIZE * SIZE * 3];
+            color.readTile(0, 0, SIZE, SIZE, colors);
+            return colors;
+        }
+    }
+}
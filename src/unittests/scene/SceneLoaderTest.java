@@ -0,0 +1,197 @@
+package unittests.scene;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Test;
+
+import geometries.*;
+import lighting.AmbientLight;
+import lighting.SpotLight;
+import primitives.*;
+import renderer.Camera;
+import renderer.OffHeapFrameBuffer;
+import renderer.RayTracerType;
+import scene.Scene;
+import scene.SceneLoader;
+
+/**
+ * Testing the loading of scene description files
+ */
+class SceneLoaderTest {
+    /** Resolution of the test renders */
+    private static final int SIZE = 40;
+
+    /** The test scene in JSON */
+    private static final String JSON = """
+            {
+              "name": "Loaded", "background": [10, 20, 30],
+              "ambient": {"color": [255, 255, 255], "k": 0.1},
+              "materials": {"shiny": {"kd": 0.5, "ks": 0.5, "shininess": 60}},
+              "camera": {"location": [0, 0, 100], "target": [0, 0, 0], "distance": 100,
+                         "size": [100, 100], "resolution": [40, 40], "tileSize": 8},
+              "lights": [{"type": "spot", "color": [700, 400, 400], "position": [40, 40, 115],
+                          "direction": [-1, -1, -4], "kl": 4E-4, "kq": 2E-5}],
+              "geometries": [
+                {"type": "sphere", "center": [0, 0, -50], "radius": 30, "emission": [30, 30, 80], "material": "shiny"},
+                {"type": "triangle", "vertices": [[-70, -40, 0], [-40, -70, 0], [-68, -68, -4]],
+                 "emission": [30, 30, 80], "material": {"kd": [0.3, 0.4, 0.5], "ks": 0.5, "shininess": 60}},
+                {"type": "plane", "point": [0, 0, -150], "normal": [0, 0, 1], "material": "shiny"}
+              ]
+            }
+            """;
+
+    /** The test scene in XML */
+    private static final String XML = """
+            <?xml version="1.0" encoding="UTF-8"?>
+            <scene name="Loaded" background="10 20 30">
+              <ambient color="255 255 255" k="0.1"/>
+              <materials><material name="shiny" kd="0.5" ks="0.5" shininess="60"/></materials>
+              <camera location="0 0 100" target="0 0 0" distance="100" size="100 100" resolution="40 40" tileSize="8"/>
+              <lights>
+                <spot color="700 400 400" position="40 40 115" direction="-1 -1 -4" kl="4E-4" kq="2E-5"/>
+              </lights>
+              <geometries>
+                <sphere center="0 0 -50" radius="30" emission="30 30 80" material="shiny"/>
+                <triangle vertices="-70 -40 0, -40 -70 0, -68 -68 -4" emission="30 30 80">
+                  <material kd="0.3 0.4 0.5" ks="0.5" shininess="60"/>
+                </triangle>
+                <plane point="0 0 -150" normal="0 0 1" material="shiny"/>
+              </geometries>
+            </scene>
+            """;
+
+    /**
+     * The JSON and the XML descriptions render exactly like the same scene built in code
+     */
+    @Test
+    void testFormatsMatchCode() throws IOException {
+        Material shiny = new Material().setKd(0.5).setKs(0.5).setShininess(60);
+        Scene scene = new Scene("Code").setBackground(new Color(10, 20, 30))
+                .setAmbientLight(new AmbientLight(new Color(255, 255, 255), 0.1));
+        scene.geometries.add(
+                new Sphere(new Point(0, 0, -50), 30d).setEmission(new Color(30, 30, 80)).setMaterial(shiny),
+                new Triangle(new Point(-70, -40, 0), new Point(-40, -70, 0), new Point(-68, -68, -4))
+                        .setEmission(new Color(30, 30, 80))
+                        .setMaterial(new Material().setKd(new Double3(0.3, 0.4, 0.5)).setKs(0.5).setShininess(60)),
+                new Plane(new Point(0, 0, -150), new Vector(0, 0, 1)).setMaterial(shiny));
+        scene.addLight(new SpotLight(new Color(700, 400, 400), new Point(40, 40, 115), new Vector(-1, -1, -4))
+                .setKL(4E-4).setKQ(2E-5));
+        float[] expected = render(Camera.getBuilder()
+                .setLocation(new Point(0, 0, 100))
+                .setDirection(Point.ZERO, Vector.AXIS_Y)
+                .setVpDistance(100)
+                .setVpSize(100, 100)
+                .setResolution(SIZE, SIZE)
+                .setTileSize(8)
+                .setRayTracer(scene, RayTracerType.SIMPLE));
+
+        for (String[] format : new String[][]{{".json", JSON}, {".xml", XML}}) {
+            Path file = Files.createTempFile("scene", format[0]);
+            Files.writeString(file, format[1]);
+            Camera.Builder builder = Camera.getBuilder();
+            Scene loaded = SceneLoader.load(file, builder);
+            Files.delete(file);
+            assertEquals("Loaded", loaded.name, "Wrong scene name from " + format[0]);
+            assertEquals(1, loaded.lights.size(), "Wrong number of lights from " + format[0]);
+            assertArrayEquals(expected, render(builder), "Wrong render of the scene from " + format[0]);
+        }
+    }
+
+    /**
+     * Invalid descriptions are rejected
+     */
+    @Test
+    void testInvalidDescriptions() throws IOException {
+        assertThrows(IllegalArgumentException.class,
+                () -> load(".json", "{\"geometries\": [{\"type\": \"sphere\", \"center\": [0, 0, 0], \"radius\": 1, \"material\": \"none\"}]}"),
+                "An undefined material must be rejected");
+        assertThrows(IllegalArgumentException.class,
+                () -> load(".json", "{\"geometries\": [{\"type\": \"torus\"}]}"),
+                "An unknown geometry type must be rejected");
+        assertThrows(IllegalArgumentException.class,
+                () -> load(".json", "{\"background\": [1, 2, 3]"),
+                "A truncated document must be rejected");
+        assertThrows(IllegalArgumentException.class,
+                () -> load(".json", "{\"name\": \"a\" \"background\": [1, 2, 3]}"),
+                "A missing comma must be rejected");
+        assertThrows(IllegalArgumentException.class,
+                () -> load(".json", "{\"background\": [1, 2, 3,]}"),
+                "A trailing comma must be rejected");
+        assertThrows(IllegalArgumentException.class,
+                () -> load(".json", "{\"background\": [1,, 2, 3]}"),
+                "A doubled comma must be rejected");
+        assertThrows(IllegalArgumentException.class,
+                () -> load(".json", "{\"background\": [1, 2, 3]} {}"),
+                "Content after the document must be rejected");
+        assertThrows(IllegalArgumentException.class,
+                () -> load(".json", "{\"name\": \"\\u00zz\"}"),
+                "A bad unicode escape must be rejected");
+        for (String number : new String[]{ "NaN", "Infinity", "0x1p3", "1d", "2f", "01", ".5", "1.", "+1" })
+            assertThrows(IllegalArgumentException.class,
+                    () -> load(".json", "{\"background\": [" + number + ", 2, 3]}"),
+                    "The number " + number + " must be rejected");
+        assertThrows(IllegalArgumentException.class,
+                () -> load(".json", "{\"name\": \"\\q\"}"),
+                "An unknown escape must be rejected");
+        assertEquals("a/\"\\b", load(".json", "{\"name\": \"a\\/\\\"\\\\\\u0062\", \"background\": [0.5e+2, 0, 1E2], \"offset\": -0.5E-1}").name,
+                "The JSON escapes and number forms must be accepted");
+        assertThrows(IllegalArgumentException.class,
+                () -> load(".json", "{\"materials\": {\"m\": {\"kd\": [0.1, 0.2]}}}"),
+                "A coefficient of 2 numbers must be rejected");
+        for (String camera : new String[]{ "\"resolution\": [100]", "\"distance\": []" }) {
+            Path file = Files.createTempFile("scene", ".json");
+            Files.writeString(file, "{\"camera\": {\"location\": [0, 0, 100], \"target\": [0, 0, 0], "
+                    + "\"distance\": 100, \"size\": [100, 100], \"resolution\": [40, 40], " + camera + "}}");
+            try {
+                assertThrows(IllegalArgumentException.class, () -> SceneLoader.load(file, Camera.getBuilder()),
+                        "The camera property " + camera + " must be rejected");
+            } finally {
+                Files.delete(file);
+            }
+        }
+        assertThrows(IllegalArgumentException.class,
+                () -> load(".xml", "<scene><lights><laser color=\"1 1 1\"/></lights></scene>"),
+                "An unknown light type must be rejected");
+        assertThrows(IllegalArgumentException.class,
+                () -> load(".xml", "<scene><geometries><sphere center=\"0 0\" radius=\"1\"/></geometries></scene>"),
+                "A point with 2 coordinates must be rejected");
+        assertThrows(IllegalArgumentException.class, () -> load(".yaml", ""), "An unknown format must be rejected");
+    }
+
+    /**
+     * Loads a scene description
+     *
+     * @param extension the file extension
+     * @param text      the description
+     * @return the scene
+     * @throws IOException if the file cannot be created
+     */
+    private static Scene load(String extension, String text) throws IOException {
+        Path file = Files.createTempFile("scene", extension);
+        Files.writeString(file, text);
+        try {
+            return SceneLoader.load(file);
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    /**
+     * Renders into an off-heap layer and returns its colors
+     *
+     * @param builder the configured camera builder
+     * @return the unclamped colors of all the pixels
+     */
+    private static float[] render(Camera.Builder builder) {
+        try (OffHeapFrameBuffer color = new OffHeapFrameBuffer(SIZE, SIZE, 3)) {
+            builder.setFrameBuffer(color).build().renderImage();
+            float[] colors = new float[SIZE * SIZE * 3];
+            color.readTile(0, 0, SIZE, SIZE, colors);
+            return colors;
+        }
+    }
+}